@@ -0,0 +1,242 @@
+package trainerapp.gui.controller;
+
+import java.net.URL;
+import java.util.ResourceBundle;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.stage.Stage;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.facade.ComboBoxRepositoryFacade;
+import trainerapp.gui.facade.TextFieldErrorMessageFacade;
+import trainerapp.gui.repository.FilteredNamedObjectRepository;
+import trainerapp.gui.repository.NamedObjectRepository;
+import trainerapp.gui.repository.SamplesRepository;
+import trainerapp.gui.repository.TrainingDataCache;
+import trainerapp.gui.util.CrossValidation;
+import trainerapp.gui.util.CrossValidationResult;
+import trainerapp.gui.util.TrainingScheduler;
+
+/**
+ * Cross-Validation Window Controller class
+ *
+ * @author Konstantin Zhdanov
+ */
+public class CrossValidationWindowController implements Initializable {
+
+    @FXML
+    private ComboBox<NeuralNetwork> nnComboBox;
+    private ComboBoxRepositoryFacade<NeuralNetwork> nnComboBoxFacade;
+
+    @FXML
+    private ComboBox<SamplesRepository<Double>> samplesComboBox;
+    private ComboBoxRepositoryFacade<SamplesRepository<Double>> samplesComboBoxFacade;
+
+    @FXML
+    private TextField nFoldsField;
+    private TextFieldErrorMessageFacade nFoldsFieldErrorFacade;
+
+    @FXML
+    private TextField nEpochsField;
+    private TextFieldErrorMessageFacade nEpochsFieldErrorFacade;
+
+    @FXML
+    private TextField performanceGoalField;
+    private TextFieldErrorMessageFacade performanceGoalFieldErrorFacade;
+
+    @FXML
+    private ProgressBar progressBar;
+
+    @FXML
+    private Button startStopButton;
+
+    @FXML
+    private TextArea resultsArea;
+
+    private NamedObjectRepository<SamplesRepository<Double>> samplesRepoRepository;
+
+    private Task<CrossValidationResult> task;
+
+    public void setNetworkRepository(NamedObjectRepository<NeuralNetwork> nnRepository) {
+        if (nnRepository == null) {
+            throw new NullPointerException("Network repository cannot be null");
+        }
+        nnComboBoxFacade.setRepository(nnRepository);
+    }
+
+    public void selectNetwork(NeuralNetwork selectedNN) {
+        nnComboBoxFacade.select(selectedNN);
+    }
+
+    public void setSamplesRepository(NamedObjectRepository<SamplesRepository<Double>> samplesRepo) {
+        if (samplesRepo == null) {
+            throw new NullPointerException("Samples repository cannot be null");
+        }
+        this.samplesRepoRepository = samplesRepo;
+        updateValidSamplesReposList();
+    }
+
+    @FXML
+    void handleStartStopButtonAction(ActionEvent event) {
+        if (task != null && task.isRunning()) {
+            task.cancel();
+            return;
+        }
+        NeuralNetwork network = nnComboBoxFacade.getSelectedItem();
+        SamplesRepository<Double> samples = samplesComboBoxFacade.getSelectedItem();
+        if (network == null || samples == null) {
+            return;
+        }
+        int nFolds;
+        try {
+            nFolds = Integer.parseInt(nFoldsField.getText().trim());
+            if (nFolds < 2 || nFolds > samples.size()) {
+                throw new NumberFormatException("Wrong number of folds");
+            }
+            nFoldsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            nFoldsFieldErrorFacade.showError(String.format(
+                    "Please enter an integer number from 2 to %d.", samples.size()));
+            return;
+        }
+        int nEpochs;
+        try {
+            nEpochs = Integer.parseInt(nEpochsField.getText().trim());
+            if (nEpochs <= 0) {
+                throw new NumberFormatException("Cannot be zero or negative");
+            }
+            nEpochsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            nEpochsFieldErrorFacade.showError(
+                    "Please enter an integer number greater than 0.");
+            return;
+        }
+        double performanceGoal;
+        try {
+            performanceGoal = Double.parseDouble(performanceGoalField.getText());
+            if (!(performanceGoal > 0)) {
+                throw new NumberFormatException("Cannot be zero or negative");
+            }
+            performanceGoalFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            performanceGoalFieldErrorFacade.showError(
+                    "Please enter a decimal number greater than 0.");
+            return;
+        }
+
+        // the samples are converted here, since they are appended to on this thread
+        TrainingDataCache.TrainingData data = TrainingDataCache.getDefault().get(
+                samples, network.getNumberInputs(), network.getNumberOutputs());
+        final CrossValidation crossValidation = new CrossValidation(data.getInputs(),
+                data.getTargets(), network, nFolds, nEpochs, performanceGoal,
+                TrainingScheduler.getDefault());
+        task = new Task<CrossValidationResult>() {
+            @Override
+            protected CrossValidationResult call() throws Exception {
+                return crossValidation.run((progress) -> updateProgress(progress, 1.0));
+            }
+
+            @Override
+            protected void cancelled() {
+                crossValidation.cancel();
+            }
+        };
+        task.setOnSucceeded((evt) -> {
+            showResult(task.getValue());
+            setRunning(false);
+        });
+        task.setOnCancelled((evt) -> {
+            resultsArea.appendText("Cross-validation has been canceled\n");
+            setRunning(false);
+        });
+        task.setOnFailed((evt) -> {
+            resultsArea.appendText("Cross-validation has failed: " +
+                    task.getException().getMessage() + "\n");
+            setRunning(false);
+        });
+        progressBar.progressProperty().bind(task.progressProperty());
+        setRunning(true);
+        resultsArea.clear();
+
+        Thread thread = new Thread(task, "Cross-validation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showResult(CrossValidationResult result) {
+        StringBuilder text = new StringBuilder();
+        for (int fold = 0; fold < result.getFoldCount(); fold++) {
+            text.append(String.format("Fold %d: mean error %g, variance %g%n", fold + 1,
+                    result.getFoldMean(fold), result.getFoldVariance(fold)));
+        }
+        text.append(String.format("%nMean error over folds: %g%n", result.getMean()));
+        text.append(String.format("Variance over folds: %g%n", result.getVariance()));
+        text.append(String.format("Wall time: %.3f s%n", result.getWallTimeNanos() / 1e9));
+        resultsArea.setText(text.toString());
+    }
+
+    private void setRunning(boolean running) {
+        startStopButton.setText(running ? "Stop Cross-Validation" : "Start Cross-Validation");
+        nnComboBox.setDisable(running);
+        samplesComboBox.setDisable(running);
+        nFoldsField.setDisable(running);
+        nEpochsField.setDisable(running);
+        performanceGoalField.setDisable(running);
+        if (!running) {
+            progressBar.progressProperty().unbind();
+        }
+    }
+
+    @FXML
+    void handleCloseButtonAction(ActionEvent event) {
+        if (task != null && task.isRunning()) {
+            task.cancel();
+        }
+        Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
+        stage.close();
+    }
+
+    private int getRequiredSampleSize(NeuralNetwork nn) {
+        return nn == null ? 0 : nn.getNumberInputs() + nn.getNumberOutputs();
+    }
+
+    private void updateValidSamplesReposList() {
+        if (samplesRepoRepository == null) {
+            return;
+        }
+        final int requiredSampleSize = getRequiredSampleSize(
+                nnComboBoxFacade.getSelectedItem());
+        samplesComboBoxFacade.setRepository(new FilteredNamedObjectRepository<>(
+                samplesRepoRepository, t -> t.sampleSize() == requiredSampleSize));
+    }
+
+    /**
+     * Initializes the controller class.
+     */
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        nnComboBoxFacade = new ComboBoxRepositoryFacade<>(nnComboBox,
+                (t, s) -> String.format("%s %s", s, t.getSignature()));
+        nnComboBoxFacade.setOnItemSelected((nn) -> updateValidSamplesReposList());
+        samplesComboBoxFacade = new ComboBoxRepositoryFacade<>(samplesComboBox,
+            (t, s) -> String.format("%s (%d vars)", s, t.sampleSize()));
+
+        nFoldsFieldErrorFacade = new TextFieldErrorMessageFacade(nFoldsField);
+        nEpochsFieldErrorFacade = new TextFieldErrorMessageFacade(nEpochsField);
+        performanceGoalFieldErrorFacade = new TextFieldErrorMessageFacade(performanceGoalField);
+
+        startStopButton.disableProperty().bind(
+                samplesComboBoxFacade.itemIsSelectedProperty().not().or(
+                        nnComboBoxFacade.itemIsSelectedProperty().not()));
+    }
+}
@@ -0,0 +1,413 @@
+package trainerapp.gui.controller;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.ResourceBundle;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.facade.ComboBoxRepositoryFacade;
+import trainerapp.gui.facade.TextFieldErrorMessageFacade;
+import trainerapp.gui.model.NamedNeuralNetwork;
+import trainerapp.gui.repository.FilteredNamedObjectRepository;
+import trainerapp.gui.repository.NamedObjectRepository;
+import trainerapp.gui.repository.SamplesRepository;
+import trainerapp.gui.repository.TrainingDataCache;
+import trainerapp.gui.util.HyperparameterSearch;
+import trainerapp.gui.util.HyperparameterSet;
+import trainerapp.gui.util.HyperparameterSpace;
+import trainerapp.gui.util.MedianStoppingRule;
+import trainerapp.gui.util.TrainingScheduler;
+
+/**
+ * Hyperparameter Search Window Controller class
+ *
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSearchWindowController implements Initializable {
+
+    private static final Duration REFRESH_PERIOD = Duration.millis(500);
+
+    // no candidate is stopped during the first epochs
+    private static final int STOPPING_GRACE_PERIOD = 10;
+
+    private static final int STOPPING_CHECK_PERIOD = 10;
+
+    private static final int STOPPING_MIN_REPORTED = 3;
+
+    private static final String UNIQUE_SUFFIX = "*";
+
+    @FXML
+    private ComboBox<NeuralNetwork> nnComboBox;
+    private ComboBoxRepositoryFacade<NeuralNetwork> nnComboBoxFacade;
+
+    @FXML
+    private ComboBox<SamplesRepository<Double>> samplesComboBox;
+    private ComboBoxRepositoryFacade<SamplesRepository<Double>> samplesComboBoxFacade;
+
+    @FXML
+    private TextField hiddenLayersField;
+    private TextFieldErrorMessageFacade hiddenLayersFieldErrorFacade;
+
+    @FXML
+    private TextField maxEpochsField;
+    private TextFieldErrorMessageFacade maxEpochsFieldErrorFacade;
+
+    @FXML
+    private TextField performanceGoalsField;
+    private TextFieldErrorMessageFacade performanceGoalsFieldErrorFacade;
+
+    @FXML
+    private TextField nRandomCandidatesField;
+    private TextFieldErrorMessageFacade nRandomCandidatesFieldErrorFacade;
+
+    @FXML
+    private TextField nBestField;
+    private TextFieldErrorMessageFacade nBestFieldErrorFacade;
+
+    @FXML
+    private CheckBox earlyStoppingCheckBox;
+
+    @FXML
+    private Button startStopSearchButton;
+
+    @FXML
+    private Button addBestButton;
+
+    @FXML
+    private TableView<HyperparameterSearch.Candidate> candidatesTableView;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> rankColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> hiddenLayersColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> maxEpochColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> performanceGoalColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> stateColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> epochColumn;
+
+    @FXML
+    private TableColumn<HyperparameterSearch.Candidate, String> performanceColumn;
+
+    private NamedObjectRepository<NeuralNetwork> nnRepository;
+
+    private NamedObjectRepository<SamplesRepository<Double>> samplesRepoRepository;
+
+    private HyperparameterSearch search;
+
+    // candidates of the search from the best performance to the worst
+    private final ObservableList<HyperparameterSearch.Candidate> rankedCandidates;
+
+    // the first candidates of the table are the ranking of the search
+    private int nRanked;
+
+    private Timeline refreshTimeline;
+
+    public HyperparameterSearchWindowController() {
+        rankedCandidates = FXCollections.observableArrayList();
+    }
+
+    public void setNetworkRepository(NamedObjectRepository<NeuralNetwork> nnRepository) {
+        if (nnRepository == null) {
+            throw new NullPointerException("Network repository cannot be null");
+        }
+        this.nnRepository = nnRepository;
+        nnComboBoxFacade.setRepository(nnRepository);
+    }
+
+    public void selectNetwork(NeuralNetwork selectedNN) {
+        nnComboBoxFacade.select(selectedNN);
+    }
+
+    public void setSamplesRepository(NamedObjectRepository<SamplesRepository<Double>> samplesRepo) {
+        if (samplesRepo == null) {
+            throw new NullPointerException("Samples repository cannot be null");
+        }
+        this.samplesRepoRepository = samplesRepo;
+        updateValidSamplesReposList();
+    }
+
+    @FXML
+    void handleStartStopSearchButtonAction(ActionEvent event) {
+        if (search != null && !search.isFinished()) {
+            search.stop();
+            return;
+        }
+        NeuralNetwork network = nnComboBoxFacade.getSelectedItem();
+        SamplesRepository<Double> samples = samplesComboBoxFacade.getSelectedItem();
+        if (network == null || samples == null) {
+            return;
+        }
+        List<HyperparameterSet> candidates = createCandidates();
+        if (candidates == null) {
+            return;
+        }
+
+        TrainingDataCache.TrainingData data = TrainingDataCache.getDefault().get(
+                samples, network.getNumberInputs(), network.getNumberOutputs());
+        search = new HyperparameterSearch(candidates, network.getNumberInputs(),
+                network.getNumberOutputs(), data.getInputs(), data.getTargets(),
+                TrainingScheduler.getDefault());
+        if (earlyStoppingCheckBox.isSelected()) {
+            search.setStoppingRule(new MedianStoppingRule(STOPPING_GRACE_PERIOD,
+                    STOPPING_CHECK_PERIOD, STOPPING_MIN_REPORTED));
+        }
+        search.setOnFinished(this::onSearchFinished);
+        nRanked = 0;
+        rankedCandidates.setAll(search.getCandidates());
+        addBestButton.setDisable(false);
+        startStopSearchButton.setText("Stop Search");
+        setSearchControlsDisabled(true);
+        search.start();
+        refreshTimeline.play();
+    }
+
+    // null if any of the fields is invalid
+    private List<HyperparameterSet> createCandidates() {
+        List<int[]> hiddenLayerSizes = new ArrayList<>();
+        try {
+            for (String layers : hiddenLayersField.getText().split(";")) {
+                String[] sizes = layers.trim().split("\\s+");
+                int[] layerSizes = new int[sizes.length];
+                for (int i = 0; i < sizes.length; i++) {
+                    layerSizes[i] = parsePositiveInt(sizes[i]);
+                }
+                hiddenLayerSizes.add(layerSizes);
+            }
+            hiddenLayersFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            hiddenLayersFieldErrorFacade.showError(
+                    "Please enter sizes of layers greater than 0 separated by spaces,\n" +
+                    "and different structures separated by ';'.");
+            return null;
+        }
+        int[] maxEpochs;
+        try {
+            String[] values = maxEpochsField.getText().split(",");
+            maxEpochs = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                maxEpochs[i] = parsePositiveInt(values[i]);
+            }
+            maxEpochsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            maxEpochsFieldErrorFacade.showError(
+                    "Please enter integer numbers greater than 0 separated by ','.");
+            return null;
+        }
+        double[] performanceGoals;
+        try {
+            String[] values = performanceGoalsField.getText().split(",");
+            performanceGoals = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                performanceGoals[i] = Double.parseDouble(values[i].trim());
+                if (!(performanceGoals[i] > 0)) {
+                    throw new NumberFormatException("Must be greater than 0");
+                }
+            }
+            performanceGoalsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            performanceGoalsFieldErrorFacade.showError(
+                    "Please enter decimal numbers greater than 0 separated by ','.");
+            return null;
+        }
+        HyperparameterSpace space = new HyperparameterSpace(maxEpochs,
+                performanceGoals, hiddenLayerSizes);
+        if (nRandomCandidatesField.getText().trim().isEmpty()) {
+            nRandomCandidatesFieldErrorFacade.hideError();
+            return space.grid();
+        }
+        try {
+            int nCandidates = parsePositiveInt(nRandomCandidatesField.getText());
+            nRandomCandidatesFieldErrorFacade.hideError();
+            return space.sample(nCandidates, new Random());
+        }
+        catch (NumberFormatException e) {
+            nRandomCandidatesFieldErrorFacade.showError(
+                    "Please enter an integer number greater than 0, or leave empty.");
+            return null;
+        }
+    }
+
+    private static int parsePositiveInt(String str) {
+        int value = Integer.parseInt(str.trim());
+        if (value <= 0) {
+            throw new NumberFormatException("Must be greater than 0");
+        }
+        return value;
+    }
+
+    private void onSearchFinished() {
+        refreshTimeline.stop();
+        refreshCandidates();
+        startStopSearchButton.setText("Start Search");
+        setSearchControlsDisabled(false);
+    }
+
+    private void setSearchControlsDisabled(boolean disabled) {
+        nnComboBox.setDisable(disabled);
+        samplesComboBox.setDisable(disabled);
+        hiddenLayersField.setDisable(disabled);
+        maxEpochsField.setDisable(disabled);
+        performanceGoalsField.setDisable(disabled);
+        nRandomCandidatesField.setDisable(disabled);
+        earlyStoppingCheckBox.setDisable(disabled);
+    }
+
+    private void refreshCandidates() {
+        // the unranked candidates follow the ranking by their latest performance
+        List<HyperparameterSearch.Candidate> ranking = search.getRanking();
+        List<HyperparameterSearch.Candidate> unranked = new ArrayList<>();
+        for (HyperparameterSearch.Candidate candidate : search.getCandidates()) {
+            if (!candidate.isRanked()) {
+                unranked.add(candidate);
+            }
+        }
+        unranked.sort(Comparator.comparingDouble(
+                HyperparameterSearch.Candidate::getPerformance));
+        nRanked = ranking.size();
+        ranking.addAll(unranked);
+        rankedCandidates.setAll(ranking);
+        candidatesTableView.refresh();
+    }
+
+    @FXML
+    void handleAddBestButtonAction(ActionEvent event) {
+        if (search == null) {
+            return;
+        }
+        int nBest;
+        try {
+            nBest = parsePositiveInt(nBestField.getText());
+            nBestFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            nBestFieldErrorFacade.showError("Please enter an integer number greater than 0.");
+            return;
+        }
+        String baseName = nnRepository.getNameForObject(nnComboBoxFacade.getSelectedItem());
+        List<HyperparameterSearch.Candidate> ranking = search.getRanking();
+        for (int rank = 1; rank <= Math.min(nBest, ranking.size()); rank++) {
+            HyperparameterSearch.Candidate candidate = ranking.get(rank - 1);
+            String name = String.format("%s_search_%d %s", baseName, rank,
+                    Arrays.toString(candidate.getHyperparameters().getHiddenLayerSizes()));
+            while (nnRepository.containsName(name)) {
+                name = name + UNIQUE_SUFFIX;
+            }
+            nnRepository.add(name, new NamedNeuralNetwork(
+                    candidate.getTrainedNetwork(), name));
+        }
+    }
+
+    @FXML
+    void handleCloseButtonAction(ActionEvent event) {
+        if (search != null && !search.isFinished()) {
+            search.stop();
+        }
+        refreshTimeline.stop();
+        Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
+        stage.close();
+    }
+
+    private int getRequiredSampleSize(NeuralNetwork nn) {
+        return nn == null ? 0 : nn.getNumberInputs() + nn.getNumberOutputs();
+    }
+
+    private void updateValidSamplesReposList() {
+        if (samplesRepoRepository == null) {
+            return;
+        }
+        final int requiredSampleSize = getRequiredSampleSize(
+                nnComboBoxFacade.getSelectedItem());
+        samplesComboBoxFacade.setRepository(new FilteredNamedObjectRepository<>(
+                samplesRepoRepository, t -> t.sampleSize() == requiredSampleSize));
+    }
+
+    private static String formatState(HyperparameterSearch.Candidate candidate) {
+        if (candidate.getJob() == null) {
+            return "";
+        }
+        if (candidate.isStoppedEarly()) {
+            return "STOPPED EARLY";
+        }
+        return candidate.getJob().getState().toString();
+    }
+
+    /**
+     * Initializes the controller class.
+     */
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        nnComboBoxFacade = new ComboBoxRepositoryFacade<>(nnComboBox,
+                (t, s) -> String.format("%s %s", s, t.getSignature()));
+        nnComboBoxFacade.setOnItemSelected((nn) -> updateValidSamplesReposList());
+        samplesComboBoxFacade = new ComboBoxRepositoryFacade<>(samplesComboBox,
+            (t, s) -> String.format("%s (%d vars)", s, t.sampleSize()));
+
+        hiddenLayersFieldErrorFacade = new TextFieldErrorMessageFacade(hiddenLayersField);
+        maxEpochsFieldErrorFacade = new TextFieldErrorMessageFacade(maxEpochsField);
+        performanceGoalsFieldErrorFacade = new TextFieldErrorMessageFacade(performanceGoalsField);
+        nRandomCandidatesFieldErrorFacade = new TextFieldErrorMessageFacade(nRandomCandidatesField);
+        nBestFieldErrorFacade = new TextFieldErrorMessageFacade(nBestField);
+
+        startStopSearchButton.disableProperty().bind(
+                samplesComboBoxFacade.itemIsSelectedProperty().not().or(
+                        nnComboBoxFacade.itemIsSelectedProperty().not()));
+
+        addBestButton.setDisable(true);
+        candidatesTableView.setItems(rankedCandidates);
+        rankColumn.setCellValueFactory((param) -> {
+            int idx = rankedCandidates.indexOf(param.getValue());
+            return new ReadOnlyStringWrapper(idx < nRanked ? String.valueOf(idx + 1) : "");
+        });
+        hiddenLayersColumn.setCellValueFactory((param) -> new ReadOnlyStringWrapper(
+                Arrays.toString(param.getValue().getHyperparameters().getHiddenLayerSizes())));
+        maxEpochColumn.setCellValueFactory((param) -> new ReadOnlyStringWrapper(
+                String.valueOf(param.getValue().getHyperparameters().getMaxEpoch())));
+        performanceGoalColumn.setCellValueFactory((param) -> new ReadOnlyStringWrapper(
+                String.valueOf(param.getValue().getHyperparameters().getPerformanceGoal())));
+        stateColumn.setCellValueFactory((param) -> new ReadOnlyStringWrapper(
+                formatState(param.getValue())));
+        epochColumn.setCellValueFactory((param) -> new ReadOnlyStringWrapper(
+                String.valueOf(param.getValue().getEpoch())));
+        performanceColumn.setCellValueFactory((param) -> {
+            double performance = param.getValue().getPerformance();
+            return new ReadOnlyStringWrapper(Double.isNaN(performance) ? "" :
+                    String.valueOf(performance));
+        });
+
+        refreshTimeline = new Timeline(new KeyFrame(REFRESH_PERIOD,
+                (event) -> refreshCandidates()));
+        refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+    }
+}
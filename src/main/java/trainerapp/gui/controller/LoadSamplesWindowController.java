@@ -3,13 +3,14 @@ package trainerapp.gui.controller;
 import trainerapp.gui.facade.NumberTableViewFacade;
 import trainerapp.gui.facade.TextFieldErrorMessageFacade;
 import trainerapp.gui.repository.NamedObjectRepository;
+import trainerapp.gui.repository.PagedSamplesRepository;
+import trainerapp.gui.repository.PrimitiveSamplesRepository;
 import trainerapp.gui.repository.SamplesRepository;
-import java.io.BufferedReader;
+import trainerapp.gui.util.SamplesCacheFile;
+import trainerapp.gui.util.SamplesLoadingTask;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.net.URL;
-import java.util.Arrays;
 import java.util.List;
 import java.util.ResourceBundle;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -20,6 +21,8 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
@@ -33,8 +36,9 @@ import javafx.util.converter.DoubleStringConverter;
  */
 public class LoadSamplesWindowController implements Initializable {
     
-    private static final String DELIMETER = ",";
-
+    // Files larger than this share of the heap aren't loaded into memory
+    private static final double MAX_HEAP_SHARE = 0.25;
+    
     @FXML
     private Button removeSampleButton;
 
@@ -58,13 +62,25 @@ public class LoadSamplesWindowController implements Initializable {
     
     private SimpleBooleanProperty samplesLoadedProperty;
     
+    private SimpleBooleanProperty samplesPagedProperty;
+    
     private NamedObjectRepository<SamplesRepository<Double>> samplesRepoRepository;
 
+    @FXML
+    private ProgressBar loadingProgressBar;
+    
+    @FXML
+    private Label loadingStatusLabel;
+    
+    @FXML
+    private Button stopLoadingButton;
+    
     private SamplesRepository<Double> samples;
     
-    private List<String> samplesHeader;
+    private SamplesLoadingTask loadingTask;
             
     private void clearLoadedSamples() {
+        cancelLoading();
         samplesTableViewFacade.clear();
     }
     
@@ -94,8 +110,8 @@ public class LoadSamplesWindowController implements Initializable {
         filenameField.setText(chosenFile.getAbsolutePath());
         clearErrorMessages();
         clearLoadedSamples();
+        setSamplesLoaded(false);
         loadSamplesFromFile(chosenFile);
-        setSamplesLoaded(true);
     }
     
     @FXML
@@ -111,9 +127,9 @@ public class LoadSamplesWindowController implements Initializable {
             nameField.setText("");
         }
         else {
+            setSamplesLoaded(false);
             loadSamplesFromFile(file);
             nameField.setText(extractFileName(file.getName()));
-            setSamplesLoaded(true);
         }
     }
     
@@ -125,106 +141,143 @@ public class LoadSamplesWindowController implements Initializable {
         return namePlusExtension.substring(0, lastDotIdx);
     }
     
-    // Parse a CSV file line. 
-    // Return null if cannot be parsed
-    private ObservableList<Double> parseLine(String line) {
-        String[] lineValues = line.split(DELIMETER);
-        ObservableList<Double> sample;
-        try {
-            sample = FXCollections.observableArrayList();
-            for (String value : lineValues) {
-                double doubleValue = Double.parseDouble(value.trim());
-                sample.add(doubleValue);
-            }
-        }
-        catch (NumberFormatException e) {
-            // error parsing the line
-            sample = null;
+    // create columns and set the titles
+    private void createHeaderColumns(List<String> headerValues) {
+        for (String value : headerValues) {
+            samplesTableViewFacade.addColumn(value);
         }
-        return sample;
     }
     
-    // extract header titles from a CSV line
-    private String[] extractHeaderTitles(String line) {
-        String[] lineValues = line.split(DELIMETER);
-        String[] headerValues = new String[lineValues.length];
-        for (int headerColNum = 0; headerColNum < headerValues.length; headerColNum++) {
-            headerValues[headerColNum] = lineValues[headerColNum].trim();
+    // load a CSV file in background
+    // samples are added into a new repository as soon as they are parsed
+    private void loadSamplesFromFile(File file) {
+        cancelLoading();
+        releasePagedSamples();
+        if (!fitsIntoHeap(file)) {
+            loadPagedSamplesFromFile(file);
+            return;
         }
-        return headerValues;
+        final PrimitiveSamplesRepository loadedSamples = new PrimitiveSamplesRepository();
+        setSamples(loadedSamples, false);
+        
+        final SamplesLoadingTask task = new SamplesLoadingTask(file, loadedSamples);
+        task.setOnHeaderParsed((header) -> {
+            createHeaderColumns(header);
+            setSamplesLoaded(true);
+        });
+        task.setOnSucceeded((event) -> {
+            loadedSamples.trimToSize();
+            setSamplesLoaded(true);
+        });
+        task.setOnFailed((event) -> {
+            filenameFieldErrorFacade.showError("Cannot read the file.\n Choose another file.");
+        });
+        startLoading(task);
+    }
+    
+    // the values of a CSV file take at least as many bytes as its text
+    private boolean fitsIntoHeap(File file) {
+        return file.length() <= Runtime.getRuntime().maxMemory() * MAX_HEAP_SHARE;
     }
     
-    // create default header titles
-    private String[] createDefaultHeaderTitles(int headerSize) {
-        String[] headerValues = new String[headerSize];
-        for (int valueNum = 0; valueNum < headerValues.length; valueNum++) {
-            headerValues[valueNum] = "Var " + (valueNum + 1);
+    // samples of a large file are read from its cache file when needed,
+    // the cache is created in background if it's missing or outdated
+    private void loadPagedSamplesFromFile(File file) {
+        final SamplesCacheFile cacheFile = new SamplesCacheFile(file);
+        PagedSamplesRepository pagedSamples = openPagedSamples(cacheFile);
+        if (pagedSamples != null) {
+            showPagedSamples(pagedSamples);
+            return;
         }
-        return headerValues;
+        setSamples(new PrimitiveSamplesRepository(), false);
+        final SamplesLoadingTask task = new SamplesLoadingTask(file);
+        task.setOnSucceeded((event) -> {
+            PagedSamplesRepository createdSamples = openPagedSamples(cacheFile);
+            if (createdSamples == null) {
+                filenameFieldErrorFacade.showError("Cannot read the file.\n Choose another file.");
+                return;
+            }
+            showPagedSamples(createdSamples);
+        });
+        task.setOnFailed((event) -> {
+            filenameFieldErrorFacade.showError("Cannot read the file.\n Choose another file.");
+        });
+        startLoading(task);
     }
     
-    // create columns and set the titles
-    private void createHeaderColumns(String[] headerValues) {
-        for (String value : headerValues) {
-            samplesTableViewFacade.addColumn(value);
+    private PagedSamplesRepository openPagedSamples(SamplesCacheFile cacheFile) {
+        try {
+            return cacheFile.openPagedRepository();
+        }
+        catch (IOException e) {
+            return null;
         }
     }
     
-    // load samples one by one from the BufferedReader
-    // invalid samples are discarded
-    private void loadSamples(BufferedReader bufReader) throws IOException {
-        String line;
-        ObservableList<Double> sample;
-        final int expectedSize = samplesTableViewFacade.getColumnsCount();
-        while ((line = bufReader.readLine()) != null) {
-            sample = parseLine(line);
-            if (sample == null) {
-                // skipping...
-            }
-            else if (sample.size() != expectedSize) {
-                // wrong size => skipping...
+    private void showPagedSamples(PagedSamplesRepository pagedSamples) {
+        setSamples(pagedSamples, true);
+        createHeaderColumns(pagedSamples.getHeader());
+        loadingProgressBar.progressProperty().unbind();
+        loadingStatusLabel.textProperty().unbind();
+        loadingProgressBar.setProgress(1);
+        loadingStatusLabel.setText(String.format("%,d samples, read from disk when needed",
+                pagedSamples.size()));
+        setSamplesLoaded(true);
+    }
+    
+    // paged samples cannot be edited
+    private void setSamples(SamplesRepository<Double> newSamples, boolean paged) {
+        samples = newSamples;
+        samplesPagedProperty.setValue(paged);
+        samplesTableView.setEditable(!paged);
+        samplesTableViewFacade.setItems(samples.getAll());
+    }
+    
+    // close the file of paged samples which haven't been loaded
+    private void releasePagedSamples() {
+        if (samples instanceof PagedSamplesRepository) {
+            try {
+                ((PagedSamplesRepository)samples).close();
             }
-            else {
-                samples.add(sample);
+            catch (IOException e) {
+                // the file is closed anyway
             }
         }
     }
     
-    // load a CSV file
-    private void loadSamplesFromFile(File file) {
-        try (FileReader fileReader = new FileReader(file)) {
-            try (BufferedReader bufReader = new BufferedReader(fileReader)) {
-                String line = bufReader.readLine();
-                if (line == null) {
-                    // file is empty
-                    return;
-                }
-                String[] headerTitles;
-                ObservableList<Double> sample = parseLine(line);
-                if (sample == null) {
-                    // the first line is the header
-                    headerTitles = extractHeaderTitles(line);
-                }
-                else {
-                    // there's no header
-                    headerTitles = createDefaultHeaderTitles(sample.size());
-                    samples.add(sample);
-                }
-                samplesHeader = Arrays.asList(headerTitles);
-                samples.setHeader(samplesHeader);
-                createHeaderColumns(headerTitles);
-                loadSamples(bufReader);
-            }
+    private void startLoading(SamplesLoadingTask task) {
+        loadingProgressBar.progressProperty().bind(task.progressProperty());
+        loadingStatusLabel.textProperty().bind(task.messageProperty());
+        stopLoadingButton.disableProperty().bind(task.runningProperty().not());
+        loadingTask = task;
+        
+        Thread loadingThread = new Thread(task, "Samples loading");
+        loadingThread.setDaemon(true);
+        loadingThread.start();
+    }
+    
+    private boolean isLoading() {
+        return loadingTask != null && loadingTask.isRunning();
+    }
+    
+    private void cancelLoading() {
+        if (loadingTask != null) {
+            loadingTask.cancel();
+            loadingTask = null;
         }
-        catch (IOException e) {
-           
+    }
+    
+    @FXML
+    void handleStopLoadingButtonAction(ActionEvent event) {
+        if (loadingTask != null) {
+            loadingTask.cancel();
         }
     }
 
     @FXML
     void handleLoadButtonAction(ActionEvent event) {
         String name = nameField.getText().trim();
-        if (samples.size() == 0) {
+        if (samples.size() == 0 && !isLoading()) {
             filenameFieldErrorFacade.showError("Samples are empty.\n Please upload a non-empty file.");
             return;
         }
@@ -237,10 +290,16 @@ public class LoadSamplesWindowController implements Initializable {
             return;
         }
         samplesRepoRepository.add(name, samples);
+        // the rest of the samples will be added in background
+        loadingTask = null;
+        // the samples belong to the repository now
+        samples = new PrimitiveSamplesRepository();
         closeWindow(event);
     }
 
     private void closeWindow(ActionEvent event) {
+        cancelLoading();
+        releasePagedSamples();
         Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
         stage.close();
     }
@@ -281,17 +340,19 @@ public class LoadSamplesWindowController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        samples = new SamplesRepository<Double>();
         samplesTableViewFacade = new NumberTableViewFacade<>(samplesTableView, 
             new DoubleStringConverter());
-        samplesTableViewFacade.setItems(samples.getAll());
+        samplesPagedProperty = new SimpleBooleanProperty(false);
+        setSamples(new PrimitiveSamplesRepository(), false);
         filenameFieldErrorFacade = new TextFieldErrorMessageFacade(filenameField);
         nameFieldErrorFacade = new TextFieldErrorMessageFacade(nameField);
         samplesLoadedProperty = new SimpleBooleanProperty(false);
         loadButton.disableProperty().bind(samplesLoadedProperty.not());
-        addSampleButton.disableProperty().bind(samplesLoadedProperty.not());
-        removeSampleButton.disableProperty().bind(samplesLoadedProperty.not());
-        
+        addSampleButton.disableProperty().bind(samplesLoadedProperty.not().
+                or(samplesPagedProperty));
+        removeSampleButton.disableProperty().bind(samplesLoadedProperty.not().
+                or(samplesPagedProperty));
+        stopLoadingButton.setDisable(true);
     }    
     
 }
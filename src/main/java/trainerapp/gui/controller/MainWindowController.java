@@ -1,22 +1,41 @@
 package trainerapp.gui.controller;
 
 import trainerapp.gui.model.NamedNeuralNetwork;
-import trainerapp.gui.util.NeuralNetworkLoader;
+import trainerapp.gui.util.InferenceServer;
+import trainerapp.gui.util.NeuralNetworkDirectoryImport;
+import trainerapp.gui.util.NeuralNetworkFileTask;
+import trainerapp.gui.util.TrainingScheduler;
 import trainerapp.gui.util.Windows;
 import trainerapp.gui.repository.NamedObjectRepository;
 import trainerapp.gui.repository.SamplesRepository;
 import neuralnetwork.NeuralNetwork;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import javafx.beans.binding.Bindings;
+import javafx.collections.ListChangeListener;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.ToggleButton;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 import trainerapp.gui.facade.ListViewEditingFacade;
@@ -36,6 +55,12 @@ public class MainWindowController implements Initializable {
     @FXML
     private Button removeNNButton;
     
+    @FXML
+    private Button crossValidateButton;
+    
+    @FXML
+    private Button searchHyperparametersButton;
+    
     @FXML
     private Button testNNButton;
     
@@ -48,6 +73,15 @@ public class MainWindowController implements Initializable {
     @FXML
     private Button removeSamplesButton;
     
+    @FXML
+    private ToggleButton serveNetworksButton;
+    
+    @FXML
+    private ProgressBar networkFilesProgressBar;
+    
+    @FXML
+    private Button cancelNetworkFilesButton;
+    
     @FXML
     private TextArea statusMessagesArea;
     
@@ -65,6 +99,20 @@ public class MainWindowController implements Initializable {
     
     private static final String UNIQUE_SUFFIX = "*";
     
+    private static final int N_FILE_THREADS = 4;
+    
+    // Loads and saves networks in the background, several files at once
+    private static final ExecutorService networkFilesExecutor = 
+            Executors.newFixedThreadPool(N_FILE_THREADS, (runnable) -> {
+                Thread thread = new Thread(runnable, "network files");
+                thread.setDaemon(true);
+                return thread;
+            });
+    
+    private final List<Task<?>> runningFileTasks = new ArrayList<>();
+    
+    private InferenceServer inferenceServer;
+    
     @FXML
     private void handleLoadSamplesButtonAction(ActionEvent event) {
         try {
@@ -138,6 +186,55 @@ public class MainWindowController implements Initializable {
         }
     }
     
+    @FXML
+    private void handleCrossValidateButtonAction(ActionEvent event) {
+        NeuralNetwork selectedNN = networksListViewFacade.getSelectedItem();
+        if (selectedNN == null) {
+            reportMessage("First select a neural network");
+            return;
+        }
+        try {
+            Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
+
+            Windows.showCrossValidationWindow(thisWindow, nnRepository, 
+                    selectedNN, samplesRepoRepository);
+        }
+        catch (IllegalArgumentException e) {
+            reportMessage("Exception: " + e.toString());
+        }
+    }
+    
+    @FXML
+    private void handleSearchHyperparametersButtonAction(ActionEvent event) {
+        NeuralNetwork selectedNN = networksListViewFacade.getSelectedItem();
+        if (selectedNN == null) {
+            reportMessage("First select a neural network");
+            return;
+        }
+        try {
+            Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
+
+            Windows.showHyperparameterSearchWindow(thisWindow, nnRepository, 
+                    selectedNN, samplesRepoRepository);
+        }
+        catch (IllegalArgumentException e) {
+            reportMessage("Exception: " + e.toString());
+        }
+    }
+    
+    @FXML
+    private void handleTrainingJobsButtonAction(ActionEvent event) {
+        try {
+            Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
+
+            Windows.showTrainingJobsWindow(thisWindow, 
+                    TrainingScheduler.getDefault());
+        }
+        catch (IllegalArgumentException e) {
+            reportMessage("Exception: " + e.toString());
+        }
+    }
+    
     @FXML
     private void handleLoadNNButtonAction(ActionEvent event) {
         Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
@@ -145,28 +242,21 @@ public class MainWindowController implements Initializable {
         fileChooser.setTitle("Open Neural Network File");
         fileChooser.getExtensionFilters().addAll(
             new FileChooser.ExtensionFilter("All Files", "*.*"));
-        File selectedFile = fileChooser.showOpenDialog(thisWindow);
-        if (selectedFile != null) {
-            reportMessage("Selected file: " + selectedFile.getAbsolutePath());
-            NeuralNetworkLoader loader = new NeuralNetworkLoader();
-            try {
-                NeuralNetwork loadedNetwork;
-                if (extractExtension(selectedFile.getName()).toLowerCase().
-                        trim().equals("txt")) {
-                    loadedNetwork = loader.loadFromTextFile(selectedFile.getAbsolutePath());
-                }
-                else {
-                    loadedNetwork = loader.load(selectedFile.getAbsolutePath());
-                }
-                if (loadedNetwork instanceof NamedNeuralNetwork) {
-                    addNetworkToList(loadedNetwork, ((NamedNeuralNetwork) loadedNetwork).getName());
-                }
-                else {
-                    addNetworkToList(loadedNetwork, extractFileName(selectedFile.getName()));
-                }
-            }
-            catch(IllegalArgumentException e) {
-                reportMessage("Error while loading file: " + e.getMessage());
+        List<File> selectedFiles = fileChooser.showOpenMultipleDialog(thisWindow);
+        if (selectedFiles != null) {
+            for (File selectedFile : selectedFiles) {
+                reportMessage("Selected file: " + selectedFile.getAbsolutePath());
+                runNetworkFileTask(new NeuralNetworkFileTask(selectedFile), 
+                        "loading file " + selectedFile.getAbsolutePath(), 
+                        (loadedNetwork) -> {
+                    if (loadedNetwork instanceof NamedNeuralNetwork) {
+                        addNetworkToList(loadedNetwork, ((NamedNeuralNetwork) loadedNetwork).getName());
+                    }
+                    else {
+                        addNetworkToList(loadedNetwork, extractFileName(selectedFile.getName()));
+                    }
+                    reportMessage("Loaded file: " + selectedFile.getAbsolutePath());
+                });
             }
         }
         else {
@@ -182,14 +272,6 @@ public class MainWindowController implements Initializable {
         return namePlusExtension.substring(0, lastDotIdx);
     }
     
-    private String extractExtension(String namePlusExtension) {
-        int lastDotIdx = namePlusExtension.lastIndexOf(".");
-        if (lastDotIdx == -1) {
-            return "";
-        }
-        return namePlusExtension.substring(lastDotIdx + 1);
-    }
-    
     @FXML
     private void handleSaveNNButtonAction(ActionEvent event) {
         if (nnRepository.isEmpty()) {
@@ -212,29 +294,107 @@ public class MainWindowController implements Initializable {
         File selectedFile = fileChooser.showSaveDialog(thisWindow);
         if (selectedFile != null) {
             reportMessage("Selected file: " + selectedFile.getAbsolutePath());
-            NeuralNetworkLoader loader = new NeuralNetworkLoader();
-            try {
-                if (extractExtension(selectedFile.getAbsolutePath()).
-                        toLowerCase().trim().equals("txt")) {
-                    reportMessage("Saving network as text");
-                    loader.saveWithNameAsText(selectedNN, networkName, 
-                            selectedFile.getAbsolutePath());
-                }
-                else {
-                    reportMessage("Saving network as binary data");
-                    loader.saveWithName(selectedNN, networkName, 
-                            selectedFile.getAbsolutePath());
-                }
+            if (NeuralNetworkFileTask.isTextFile(selectedFile)) {
+                reportMessage("Saving network as text");
             }
-            catch(IllegalArgumentException e) {
-                reportMessage("Error while saving a file: " + e.getMessage());
+            else {
+                reportMessage("Saving network as binary data");
             }
+            runNetworkFileTask(new NeuralNetworkFileTask(selectedNN, 
+                    networkName, selectedFile), 
+                    "saving file " + selectedFile.getAbsolutePath(),
+                    (savedNetwork) -> reportMessage("Saved file: " + 
+                            selectedFile.getAbsolutePath()));
         }
         else {
             reportMessage("File is null");
         }
     }
     
+    @FXML
+    private void handleImportNNDirectoryButtonAction(ActionEvent event) {
+        Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Import Neural Networks From Folder");
+        File selectedDirectory = directoryChooser.showDialog(thisWindow);
+        if (selectedDirectory == null) {
+            reportMessage("Folder is null");
+            return;
+        }
+        reportMessage("Selected folder: " + selectedDirectory.getAbsolutePath());
+        final NeuralNetworkDirectoryImport directoryImport = 
+                new NeuralNetworkDirectoryImport(selectedDirectory, true);
+        Task<Map<File, NeuralNetwork>> task = new Task<Map<File, NeuralNetwork>>() {
+            @Override
+            protected Map<File, NeuralNetwork> call() throws Exception {
+                updateProgress(0, 1.0);
+                return directoryImport.run((progress) -> updateProgress(progress, 1.0));
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                directoryImport.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        runNetworkFileTask(task, "importing folder " + selectedDirectory.getAbsolutePath(), 
+                (loadedNetworks) -> {
+            directoryImport.getFailures().forEach((file, message) -> 
+                    reportMessage("Error while loading file " + 
+                            file.getAbsolutePath() + ": " + message));
+            addNetworksToList(loadedNetworks);
+            reportMessage(String.format("Imported %d networks from folder %s", 
+                    loadedNetworks.size(), selectedDirectory.getAbsolutePath()));
+        });
+    }
+    
+    // Runs the task on the network I/O executor, the handler is called on
+    // the JavaFX thread with the result of the task
+    private <V> void runNetworkFileTask(Task<V> task, String description,
+            Consumer<V> succeededHandler) {
+        runningFileTasks.add(task);
+        task.progressProperty().addListener((observable, oldValue, newValue) -> 
+                updateNetworkFilesProgress());
+        task.setOnSucceeded((event) -> {
+            finishNetworkFileTask(task);
+            succeededHandler.accept(task.getValue());
+        });
+        task.setOnFailed((event) -> {
+            finishNetworkFileTask(task);
+            reportMessage(String.format("Error while %s: %s", description, 
+                    task.getException().getMessage()));
+        });
+        task.setOnCancelled((event) -> {
+            finishNetworkFileTask(task);
+            reportMessage("Canceled " + description);
+        });
+        updateNetworkFilesProgress();
+        networkFilesExecutor.execute(task);
+    }
+    
+    private void finishNetworkFileTask(Task<?> task) {
+        runningFileTasks.remove(task);
+        updateNetworkFilesProgress();
+    }
+    
+    // The progress bar shows the mean progress of the running tasks
+    private void updateNetworkFilesProgress() {
+        cancelNetworkFilesButton.setDisable(runningFileTasks.isEmpty());
+        double progress = 0;
+        for (Task<?> task : runningFileTasks) {
+            progress += Math.max(0, task.getProgress());
+        }
+        networkFilesProgressBar.setProgress(runningFileTasks.isEmpty() ? 0 : 
+                progress / runningFileTasks.size());
+    }
+    
+    @FXML
+    private void handleCancelNetworkFilesButtonAction(ActionEvent event) {
+        for (Task<?> task : new ArrayList<>(runningFileTasks)) {
+            task.cancel();
+        }
+    }
+    
     @FXML
     private void handleCreateNNButtonAction(ActionEvent event) {
         try {
@@ -261,14 +421,35 @@ public class MainWindowController implements Initializable {
     }
     
     private void addNetworkToList(NeuralNetwork nn, String name) {
-        if (nnRepository.containsName(name)) {
-            name = name + UNIQUE_SUFFIX;
+        name = uniqueNetworkName(nn, name, Collections.emptySet());
+        nnRepository.add(name, nn);
+        focusNetworkIfNecessary();
+    }
+    
+    // All the networks are added with one update of the list
+    private void addNetworksToList(Map<File, NeuralNetwork> loadedNetworks) {
+        Map<String, NeuralNetwork> namedNetworks = new LinkedHashMap<>();
+        loadedNetworks.forEach((file, nn) -> {
+            String name = nn instanceof NamedNeuralNetwork ? 
+                    ((NamedNeuralNetwork) nn).getName() : extractFileName(file.getName());
+            namedNetworks.put(uniqueNetworkName(nn, name, namedNetworks.keySet()), nn);
+        });
+        nnRepository.addAll(namedNetworks);
+        focusNetworkIfNecessary();
+    }
+    
+    // Appends UNIQUE_SUFFIX to the name while it's taken by another network
+    private String uniqueNetworkName(NeuralNetwork nn, String name, 
+            Set<String> takenNames) {
+        if (nnRepository.containsName(name) || takenNames.contains(name)) {
+            while (nnRepository.containsName(name) || takenNames.contains(name)) {
+                name = name + UNIQUE_SUFFIX;
+            }
             if (nn instanceof NamedNeuralNetwork) {
                 ((NamedNeuralNetwork) nn).setName(name);
             }
         }
-        nnRepository.add(name, nn);
-        focusNetworkIfNecessary();
+        return name;
     }
     
     public void focusNetworkIfNecessary() {
@@ -317,13 +498,84 @@ public class MainWindowController implements Initializable {
             Window thisWindow = ((Node)event.getSource()).getScene().getWindow();
             
             Windows.showViewNetworkWindow(thisWindow, nnRepository, 
-                    selectedNN);
+                    selectedNN, this::updateServedNetwork);
         } 
         catch (IllegalArgumentException e) {
             reportMessage("Exception: " + e.toString());
         }
     }
     
+    // Serve the networks of the repository to the other processes of
+    // the machine
+    @FXML
+    private void handleServeNetworksButtonAction(ActionEvent event) {
+        if (!serveNetworksButton.isSelected()) {
+            if (inferenceServer != null) {
+                inferenceServer.stop();
+                inferenceServer = null;
+                reportMessage("Networks are no longer served");
+            }
+            return;
+        }
+        InferenceServer server = new InferenceServer(
+                Integer.getInteger("trainerapp.server.port", InferenceServer.DEFAULT_PORT),
+                Long.getLong("trainerapp.server.maxBatchWaitMicros",
+                        InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS),
+                InferenceServer.DEFAULT_MAX_BATCH_ROWS);
+        server.publishAll(getNamedNetworks());
+        try {
+            server.start();
+        }
+        catch (IOException e) {
+            serveNetworksButton.setSelected(false);
+            reportMessage("Cannot start the server: " + e.getMessage());
+            return;
+        }
+        inferenceServer = server;
+        reportMessage(String.format("Serving networks at http://%s:%d/networks",
+                "127.0.0.1", server.getPort()));
+    }
+    
+    private Map<String, NeuralNetwork> getNamedNetworks() {
+        Map<String, NeuralNetwork> namedNetworks = new LinkedHashMap<>();
+        for (String name : nnRepository.getNames()) {
+            namedNetworks.put(name, nnRepository.get(name));
+        }
+        return namedNetworks;
+    }
+    
+    // added, replaced, removed and renamed networks are served at once
+    private void updateServedNetworks() {
+        if (inferenceServer != null) {
+            inferenceServer.publishAll(getNamedNetworks());
+        }
+    }
+    
+    // the changes of a network are served from the next request
+    private void updateServedNetwork(NeuralNetwork changedNN) {
+        if (inferenceServer != null) {
+            inferenceServer.invalidate(changedNN);
+        }
+    }
+    
+    // the files of removed paged samples are closed, so that they can be
+    // changed or deleted while the application is running
+    private void closeRemovedSamples(ListChangeListener.Change<? extends SamplesRepository<Double>> c) {
+        while (c.next()) {
+            for (SamplesRepository<Double> removed : c.getRemoved()) {
+                if (removed instanceof Closeable && 
+                        !samplesRepoRepository.containsObject(removed)) {
+                    try {
+                        ((Closeable)removed).close();
+                    }
+                    catch (IOException e) {
+                        reportMessage("Cannot close samples: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+    
     private void reportMessage(String msg) {
         statusMessagesArea.appendText(msg);
         statusMessagesArea.appendText("\n");
@@ -339,13 +591,22 @@ public class MainWindowController implements Initializable {
         });
         networksListViewFacade = new ListViewEditingFacade<>(networksListView, 
                 nnRepository);
+        ListChangeListener<Object> servedNetworksUpdater = (c) -> updateServedNetworks();
+        nnRepository.getNamesObservableList().addListener(servedNetworksUpdater);
+        nnRepository.getObjectsObservableList().addListener(servedNetworksUpdater);
         
         samplesRepoRepository = new NamedObjectRepository<>();        
         samplesListViewFacade = new ListViewEditingFacade<>(samplesListView,
                 samplesRepoRepository);
+        samplesRepoRepository.getObjectsObservableList().addListener(
+                (ListChangeListener<SamplesRepository<Double>>) this::closeRemovedSamples);
         
         trainNNButton.disableProperty().bind(Bindings.isNull(networksListView.
                 getSelectionModel().selectedItemProperty()));
+        crossValidateButton.disableProperty().bind(Bindings.isNull(networksListView.
+                getSelectionModel().selectedItemProperty()));
+        searchHyperparametersButton.disableProperty().bind(Bindings.isNull(networksListView.
+                getSelectionModel().selectedItemProperty()));
         testNNButton.disableProperty().bind(Bindings.isNull(networksListView.
                 getSelectionModel().selectedItemProperty()));
         saveNNButton.disableProperty().bind(Bindings.isNull(networksListView.
@@ -3,22 +3,28 @@ package trainerapp.gui.controller;
 import trainerapp.gui.facade.NumberTableViewFacade;
 import trainerapp.gui.repository.NamedObjectRepository;
 import neuralnetwork.NeuralNetwork;
-import neuralnetwork.train.NeuralNetworkEvaluator;
+import java.io.File;
 import java.net.URL;
 import java.util.List;
 import java.util.ResourceBundle;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableView;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.converter.DoubleStringConverter;
 import trainerapp.gui.facade.ComboBoxRepositoryFacade;
+import trainerapp.gui.util.BatchNeuralNetworkEvaluator;
+import trainerapp.gui.util.CsvScoring;
 
 /**
  * Test Neural Network Window Controller class
@@ -42,9 +48,18 @@ public class TestNNWindowController implements Initializable {
     private TableView<ObservableList<Double>> inputTableView;
     private NumberTableViewFacade<Double> inputTableViewFacade;
 
+    @FXML
+    private Button scoreButton;
+
+    @FXML
+    private ProgressBar scoringProgressBar;
+
+    @FXML
+    private Label scoringStatusLabel;
+
     private NamedObjectRepository<NeuralNetwork> nnRepository;
-    
-    private NeuralNetworkEvaluator nnEvaluator;
+
+    private Task<Long> scoringTask;
     
     public TestNNWindowController() {
         
@@ -57,8 +72,102 @@ public class TestNNWindowController implements Initializable {
     
     @FXML
     void handleCloseButtonAction(ActionEvent event) {
+        if (scoringIsRunning()) {
+            scoringTask.cancel();
+        }
         closeWindow(event);
     }
+
+    // Choose a CSV file and write its rows along with the outputs of
+    // the selected network into another CSV file
+    @FXML
+    void handleScoreButtonAction(ActionEvent event) {
+        if (scoringIsRunning()) {
+            scoringTask.cancel();
+            return;
+        }
+        NeuralNetwork nn = nnComboBoxFacade.getSelectedItem();
+        if (nn == null) {
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV file", "*.csv"));
+        fileChooser.setTitle("Choose a CSV file to score");
+        File inputFile = fileChooser.showOpenDialog(((Node)event.getSource()).getScene().getWindow());
+        if (inputFile == null) {
+            return;
+        }
+        fileChooser.setTitle("Save the scored rows");
+        fileChooser.setInitialDirectory(inputFile.getAbsoluteFile().getParentFile());
+        String inputName = inputFile.getName();
+        int extensionStart = inputName.lastIndexOf('.');
+        fileChooser.setInitialFileName((extensionStart > 0 ?
+                inputName.substring(0, extensionStart) : inputName) + "-scored.csv");
+        File outputFile = fileChooser.showSaveDialog(((Node)event.getSource()).getScene().getWindow());
+        if (outputFile == null) {
+            return;
+        }
+        final CsvScoring scoring;
+        try {
+            scoring = new CsvScoring(nn, inputFile, outputFile);
+        }
+        catch (IllegalArgumentException e) {
+            scoringStatusLabel.setText(e.getMessage());
+            return;
+        }
+        scoringTask = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                return scoring.run((progress) -> {
+                    updateProgress(progress, 1.0);
+                    updateMessage(String.format("%,d rows, %,.0f rows/s",
+                            scoring.getScoredRowCount(), scoring.getRowsPerSecond()));
+                });
+            }
+
+            @Override
+            protected void cancelled() {
+                scoring.cancel();
+            }
+        };
+        scoringTask.setOnSucceeded((evt) -> {
+            setScoringRunning(false);
+            scoringStatusLabel.setText(String.format(
+                    "Scored %,d rows (%,d skipped), %,.0f rows/s",
+                    scoring.getScoredRowCount(), scoring.getSkippedRowCount(),
+                    scoring.getRowsPerSecond()));
+        });
+        scoringTask.setOnCancelled((evt) -> {
+            setScoringRunning(false);
+            scoringStatusLabel.setText("Scoring has been canceled");
+        });
+        scoringTask.setOnFailed((evt) -> {
+            setScoringRunning(false);
+            scoringStatusLabel.setText("Scoring has failed: " +
+                    scoringTask.getException().getMessage());
+        });
+        scoringProgressBar.progressProperty().bind(scoringTask.progressProperty());
+        scoringStatusLabel.textProperty().bind(scoringTask.messageProperty());
+        setScoringRunning(true);
+
+        Thread thread = new Thread(scoringTask, "CSV scoring");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private boolean scoringIsRunning() {
+        return scoringTask != null && scoringTask.isRunning();
+    }
+
+    private void setScoringRunning(boolean running) {
+        scoreButton.setText(running ? "Cancel Scoring" : "Score CSV File...");
+        scoringProgressBar.setVisible(running);
+        nnCombobox.setDisable(running);
+        if (!running) {
+            scoringProgressBar.progressProperty().unbind();
+            scoringStatusLabel.textProperty().unbind();
+        }
+    }
     
     @FXML
     void handleEvaluateButtonAction(ActionEvent event) {
@@ -66,12 +175,25 @@ public class TestNNWindowController implements Initializable {
                 nnComboBoxFacade.getSelectedItem() == null  ) {
             return;
         }
-        for (int rowIdx = 0; rowIdx < inputTableViewFacade.getItems().size(); rowIdx++) {
-            List<Double> inputList = inputTableViewFacade.getItems().get(rowIdx);
-            double[] input = inputList.stream().mapToDouble(Double::doubleValue).
-                    toArray();
-            double[] output = nnEvaluator.getOutput(input);
-            setOutputForRow(output, rowIdx);
+        // compiled on every evaluation, so the changes of the network
+        // made since it was chosen are evaluated too
+        BatchNeuralNetworkEvaluator nnEvaluator = new BatchNeuralNetworkEvaluator(
+                nnComboBoxFacade.getSelectedItem());
+        List<ObservableList<Double>> inputRows = inputTableViewFacade.getItems();
+        final int nRows = inputRows.size();
+        final int nInputs = nnEvaluator.getNumberInputs();
+        final int nOutputs = nnEvaluator.getNumberOutputs();
+        double[] inputs = new double[nRows * nInputs];
+        for (int rowIdx = 0; rowIdx < nRows; rowIdx++) {
+            List<Double> inputList = inputRows.get(rowIdx);
+            for (int columnIdx = 0; columnIdx < nInputs; columnIdx++) {
+                inputs[rowIdx * nInputs + columnIdx] = inputList.get(columnIdx);
+            }
+        }
+        double[] outputs = new double[nRows * nOutputs];
+        nnEvaluator.evaluate(inputs, nRows, outputs);
+        for (int rowIdx = 0; rowIdx < nRows; rowIdx++) {
+            setOutputForRow(outputs, rowIdx * nOutputs, rowIdx);
         }
     }
 
@@ -110,20 +232,18 @@ public class TestNNWindowController implements Initializable {
     
     private void setChosenNetwork(NeuralNetwork nn) {
         evaluateButton.setDisable(true);
+        scoreButton.setDisable(true);
         
         inputTableViewFacade.clear();
         outputTableViewFacade.clear();
-        if (nn == null) {
-            nnEvaluator = null;
-        }
-        else {
-            nnEvaluator = new NeuralNetworkEvaluator(nn);
+        if (nn != null) {
             createInputColumns(nn.getNumberInputs());
             addRow();
             createOutputColumns(nn.getNumberOutputs());
             addEmptyOutputRow();
             
             evaluateButton.setDisable(false);
+            scoreButton.setDisable(false);
         }
     }
     
@@ -172,12 +292,14 @@ public class TestNNWindowController implements Initializable {
                 outputTableViewFacade.getItems().size() - 1);
     }
     
-    private void setOutputForRow(double[] output, int rowIdx) {
-        ObservableList<Double> newRow = FXCollections.observableArrayList();
-        for (int i = 0; i < output.length; i++) {
-            newRow.add(output[i]);
+    private void setOutputForRow(double[] outputs, int offset, int rowIdx) {
+        ObservableList<Double> row = outputTableViewFacade.getItems().get(rowIdx);
+        Double[] values = new Double[outputTableViewFacade.getColumnsCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = outputs[offset + i];
         }
-        outputTableViewFacade.getItems().set(rowIdx, newRow);
+        // one change of the existing row instead of a new row
+        row.setAll(values);
     }
     
     /**
@@ -3,11 +3,17 @@ package trainerapp.gui.controller;
 import trainerapp.gui.model.NamedNeuralNetwork;
 import trainerapp.gui.facade.NetworkTrainerGuiFacade;
 import trainerapp.gui.facade.TrainerParameterException;
+import trainerapp.gui.facade.VisualControlErrorMessageFacade;
+import trainerapp.gui.util.EarlyStopping;
+import trainerapp.gui.util.PerformanceHistory;
+import trainerapp.gui.util.TrainingCheckpoint;
 import trainerapp.gui.util.Windows;
 import trainerapp.gui.facade.TextFieldErrorMessageFacade;
 import trainerapp.gui.repository.NamedObjectRepository;
 import trainerapp.gui.repository.SamplesRepository;
 import neuralnetwork.NeuralNetwork;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,10 +28,12 @@ import javafx.scene.Node;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import trainerapp.gui.facade.ComboBoxRepositoryFacade;
@@ -52,6 +60,7 @@ public class TrainNNWindowController implements Initializable {
     
     @FXML
     private Button startStopTrainButton;
+    private VisualControlErrorMessageFacade startStopTrainButtonErrorFacade;
     
     @FXML
     private Button saveCloseButton;
@@ -78,15 +87,49 @@ public class TrainNNWindowController implements Initializable {
     private TextField performanceGoalField;
     private TextFieldErrorMessageFacade performanceGoalFieldErrorFacade;
     
+    @FXML
+    private CheckBox earlyStoppingCheckBox;
+    
+    @FXML
+    private TextField checkPeriodField;
+    private TextFieldErrorMessageFacade checkPeriodFieldErrorFacade;
+    
+    @FXML
+    private TextField patienceField;
+    private TextFieldErrorMessageFacade patienceFieldErrorFacade;
+    
+    @FXML
+    private CheckBox checkpointCheckBox;
+    private VisualControlErrorMessageFacade checkpointCheckBoxErrorFacade;
+    
+    @FXML
+    private TextField checkpointEpochsField;
+    private TextFieldErrorMessageFacade checkpointEpochsFieldErrorFacade;
+    
+    @FXML
+    private TextField checkpointSecondsField;
+    private TextFieldErrorMessageFacade checkpointSecondsFieldErrorFacade;
+    
+    @FXML
+    private Button resumeButton;
+    private VisualControlErrorMessageFacade resumeButtonErrorFacade;
+    
     @FXML
     private TextField newNameField;
     private TextFieldErrorMessageFacade newNameFieldErrorFacade;
     
     private final NetworkTrainerGuiFacade trainerFacade;
     
-    private List<Double> performanceEpochList;
+    // performance after every epoch of the last training
+    private final PerformanceHistory performanceHistory;
+    
+    // maximal number of points drawn on the chart
+    private static final int MAX_CHART_POINTS = 500;
     
-    private final int maxNumPoints = 30;
+    // minimal time between redrawing the chart during training
+    private static final long CHART_UPDATE_PERIOD_NANOS = 250_000_000L;
+    
+    private long lastChartUpdateTime;
     
     private NamedObjectRepository<NeuralNetwork> nnRepository;
     
@@ -101,7 +144,7 @@ public class TrainNNWindowController implements Initializable {
     
     public TrainNNWindowController() {
         
-        performanceEpochList = new ArrayList<>();
+        performanceHistory = new PerformanceHistory();
         
         trainingCanStart = new SimpleBooleanProperty(false);
         
@@ -112,24 +155,41 @@ public class TrainNNWindowController implements Initializable {
         trainerFacade = new NetworkTrainerGuiFacade();
         trainerFacade.setOnTrainingComplete((t) -> {
             trainingProgressBar.setProgress(1.0);
-            setFinalPerformance(t.getPerformance());
+            setFinalPerformance(t != null ? t.getPerformance() : 
+                    trainerFacade.getTrainingJob().getLastPerformance());
             setUpPerformanceChart();
             setNetworkHasBeenSaved(false);
             setNetworkHasBeenTrained(true);
         });
         trainerFacade.setOnTrainingCanceled((t) -> {
             trainingProgressBar.setProgress(0);
+            if (t == null) {
+                // canceled before any epoch was completed
+                setNetworkHasBeenTrained(false);
+                return;
+            }
             setFinalPerformance(t.getPerformance());
             setUpPerformanceChart();
             setNetworkHasBeenSaved(false);
             setNetworkHasBeenTrained(true);
         });
-        trainerFacade.setOnTrainingEpochComplete((t) -> {
-            double progress = ((double)t.getEpoch()) / trainerFacade.lastMaxEpoch();
+        trainerFacade.setOnCheckpointFailure((e) -> 
+                checkpointCheckBoxErrorFacade.showError(
+                        "Cannot write the checkpoint: " + e.getMessage()));
+        trainerFacade.setOnTrainingEpochsComplete((batch) -> {
+            for (int i = 0; i < batch.size(); i++) {
+                performanceHistory.add(batch.getEpoch(i), batch.getPerformance(i));
+            }
+            // epochs of the batch are counted from the start of the training
+            double progress = ((double)batch.getEpoch(batch.size() - 1)) / 
+                    trainerFacade.lastMaxEpoch();
             trainingProgressBar.setProgress(progress);
-            performanceEpochList.add(t.getPerformance());
+            long now = System.nanoTime();
+            if (now - lastChartUpdateTime >= CHART_UPDATE_PERIOD_NANOS) {
+                setUpPerformanceChart();
+                lastChartUpdateTime = now;
+            }
         });
-        trainerFacade.setMaxNumberEpochCompleteEvents(maxNumPoints);
     }
     
     public void setNetworkRepository(NamedObjectRepository<NeuralNetwork> nnRepository) {
@@ -202,9 +262,14 @@ public class TrainNNWindowController implements Initializable {
                     "Please enter a decimal number greater than 0.");
                 return;
             }
+            if (!setUpEarlyStopping() || !setUpCheckpointing()) {
+                return;
+            }
             try {
-                trainerFacade.startTraining(nEpoch, performanceGoal, 
-                        network, samplesComboBoxFacade.getSelectedItem());
+                trainerFacade.startTraining(nnRepository.getNameForObject(network),
+                        nEpoch, performanceGoal, network, 
+                        samplesComboBoxFacade.getSelectedItem());
+                startStopTrainButtonErrorFacade.hideError();
             }
             catch(TrainerParameterException e) {
                 switch(e.getSource()) {
@@ -218,9 +283,148 @@ public class TrainNNWindowController implements Initializable {
                         break;
                 }
             }
+            catch(IllegalArgumentException e) {
+                startStopTrainButtonErrorFacade.showError("Cannot start the training: " + 
+                        e.getMessage());
+            }
         }
     }
     
+    @FXML
+    void handleResumeButtonAction(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Resume Training From Checkpoint");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                "Training checkpoint", "*" + TrainingCheckpoint.EXTENSION));
+        File checkpointDirectory = TrainingCheckpoint.getDefaultDirectory();
+        if (checkpointDirectory.isDirectory()) {
+            fileChooser.setInitialDirectory(checkpointDirectory);
+        }
+        File chosenFile = fileChooser.showOpenDialog(
+                ((Node)event.getSource()).getScene().getWindow());
+        if (chosenFile == null) {
+            return;
+        }
+        TrainingCheckpoint checkpoint;
+        try {
+            checkpoint = TrainingCheckpoint.read(chosenFile);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            resumeButtonErrorFacade.showError("Cannot read the checkpoint: " + 
+                    e.getMessage());
+            return;
+        }
+        SamplesRepository<Double> samples = samplesComboBoxFacade.getSelectedItem();
+        if (samples.sampleSize() != getRequiredSampleSize(checkpoint.getNetwork())) {
+            resumeButtonErrorFacade.showError(String.format(
+                    "Please choose samples with %d variables.", 
+                    getRequiredSampleSize(checkpoint.getNetwork())));
+            return;
+        }
+        if (!setUpEarlyStopping() || !setUpCheckpointing()) {
+            return;
+        }
+        String jobName = NetworkTrainerGuiFacade.getJobName(chosenFile);
+        clearTrainingInfo();
+        // the chart continues the curve of the completed epochs
+        PerformanceHistory completed = checkpoint.getHistory();
+        for (int idx = 0; idx < completed.size(); idx++) {
+            performanceHistory.add(completed.getEpoch(idx), completed.getPerformance(idx));
+        }
+        setUpPerformanceChart();
+        nEpochsField.setText(String.valueOf(checkpoint.getMaxEpoch()));
+        performanceGoalField.setText(String.valueOf(checkpoint.getPerformanceGoal()));
+        newNameField.setText(jobName + "_trained");
+        try {
+            trainerFacade.resumeTraining(jobName, checkpoint, samples);
+            resumeButtonErrorFacade.hideError();
+        }
+        catch (TrainerParameterException | IllegalArgumentException e) {
+            resumeButtonErrorFacade.showError("Cannot resume the training: " + 
+                    e.getMessage());
+        }
+    }
+    
+    private boolean setUpCheckpointing() {
+        checkpointCheckBoxErrorFacade.hideError();
+        if (!checkpointCheckBox.isSelected()) {
+            trainerFacade.resetCheckpointing();
+            return true;
+        }
+        int epochPeriod;
+        try {
+            epochPeriod = Integer.parseInt(checkpointEpochsField.getText().trim());
+            if (epochPeriod < 0) {
+                throw new NumberFormatException("Cannot be negative");
+            }
+            checkpointEpochsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            checkpointEpochsFieldErrorFacade.showError(
+                "Please enter an integer number, 0 to checkpoint only by time.");
+            return false;
+        }
+        int periodSeconds;
+        try {
+            periodSeconds = Integer.parseInt(checkpointSecondsField.getText().trim());
+            if (periodSeconds < 0 || (periodSeconds == 0 && epochPeriod == 0)) {
+                throw new NumberFormatException("Cannot be negative");
+            }
+            checkpointSecondsFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            checkpointSecondsFieldErrorFacade.showError(
+                "Please enter an integer number, 0 to checkpoint only by epochs.");
+            return false;
+        }
+        trainerFacade.setCheckpointing(TrainingCheckpoint.getDefaultDirectory(), 
+                epochPeriod, periodSeconds);
+        return true;
+    }
+    
+    private boolean setUpEarlyStopping() {
+        if (!earlyStoppingCheckBox.isSelected()) {
+            trainerFacade.resetEarlyStopping();
+            return true;
+        }
+        int checkPeriod;
+        try {
+            checkPeriod = Integer.parseInt(checkPeriodField.getText().trim());
+            if (checkPeriod <= 0) {
+                throw new NumberFormatException("Cannot be zero or negative");
+            }
+            checkPeriodFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            checkPeriodFieldErrorFacade.showError(
+                "Please enter an integer number greater than 0.");
+            return false;
+        }
+        int patience;
+        try {
+            patience = Integer.parseInt(patienceField.getText().trim());
+            if (patience <= 0) {
+                throw new NumberFormatException("Cannot be zero or negative");
+            }
+            patienceFieldErrorFacade.hideError();
+        }
+        catch (NumberFormatException e) {
+            patienceFieldErrorFacade.showError(
+                "Please enter an integer number greater than 0.");
+            return false;
+        }
+        // one fold of the samples is held out for the validation
+        if (samplesComboBoxFacade.getSelectedItem().size() < 
+                NetworkTrainerGuiFacade.VALIDATION_FOLDS) {
+            patienceFieldErrorFacade.showError(String.format(
+                "Early stopping requires at least %d samples.", 
+                NetworkTrainerGuiFacade.VALIDATION_FOLDS));
+            return false;
+        }
+        trainerFacade.setEarlyStopping(checkPeriod, patience);
+        return true;
+    }
+    
     @FXML
     void handleSaveAndCloseButtonAction(ActionEvent event) {
         if (trySaveNetworkFromTrainer()) {
@@ -281,7 +485,15 @@ public class TrainNNWindowController implements Initializable {
     }
     
     private void setFinalPerformance(double performance) {
-        trainedPerformanceLabel.setText(String.valueOf(performance));
+        EarlyStopping earlyStopping = trainerFacade.lastEarlyStopping();
+        if (earlyStopping == null || earlyStopping.getBestNetwork() == null) {
+            trainedPerformanceLabel.setText(String.valueOf(performance));
+            return;
+        }
+        trainedPerformanceLabel.setText(String.format(
+                "%s (validation %g at epoch %d)", performance, 
+                earlyStopping.getBestValidationError(), 
+                earlyStopping.getBestEpoch()));
     }
     
     private void clearFinalPerformance() {
@@ -289,19 +501,15 @@ public class TrainNNWindowController implements Initializable {
     }
     
     private void setUpPerformanceChart() {
-        if (performanceEpochList == null) {
-            return;
+        // only the points preserving the shape of the curve are drawn
+        int[] points = performanceHistory.downsample(MAX_CHART_POINTS);
+        List<XYChart.Data<Integer, Double>> chartData = new ArrayList<>(points.length);
+        for (int idx : points) {
+            chartData.add(new XYChart.Data<>(performanceHistory.getEpoch(idx),
+                    performanceHistory.getPerformance(idx)));
         }
         ObservableList<XYChart.Data<Integer, Double>> chartDataList = 
-                FXCollections.observableArrayList();
-        int i = 1;
-        for (Double value : performanceEpochList) {
-            XYChart.Data<Integer, Double> elem = 
-                    new XYChart.Data<>(i*trainerFacade.getPeriodBetweenEpochCompleteEvents(), 
-                            value);
-            chartDataList.add(elem);
-            i++;
-        }
+                FXCollections.observableArrayList(chartData);
         
         XYChart.Series<Integer, Double> series = new XYChart.Series<>();
         series.setData(chartDataList);
@@ -313,7 +521,8 @@ public class TrainNNWindowController implements Initializable {
     private void clearTrainingInfo() {
         trainingProgressBar.setProgress(0.0);
         performanceLineChart.getData().clear();
-        performanceEpochList.clear();
+        performanceHistory.clear();
+        lastChartUpdateTime = 0;
         clearFinalPerformance();
     }
     
@@ -421,7 +630,33 @@ public class TrainNNWindowController implements Initializable {
             }
         });
         nEpochsFieldErrorFacade = new TextFieldErrorMessageFacade(nEpochsField);
+        
+        checkPeriodFieldErrorFacade = new TextFieldErrorMessageFacade(checkPeriodField);
+        patienceFieldErrorFacade = new TextFieldErrorMessageFacade(patienceField);
+        earlyStoppingCheckBox.disableProperty().bind(trainerFacade.trainingActiveProperty());
+        checkPeriodField.disableProperty().bind(trainerFacade.trainingActiveProperty().
+                or(earlyStoppingCheckBox.selectedProperty().not()));
+        patienceField.disableProperty().bind(checkPeriodField.disableProperty());
+        
+        checkpointEpochsFieldErrorFacade = new TextFieldErrorMessageFacade(checkpointEpochsField);
+        checkpointSecondsFieldErrorFacade = new TextFieldErrorMessageFacade(checkpointSecondsField);
+        checkpointCheckBoxErrorFacade = new VisualControlErrorMessageFacade(checkpointCheckBox);
+        checkpointCheckBox.disableProperty().bind(trainerFacade.trainingActiveProperty());
+        checkpointEpochsField.disableProperty().bind(trainerFacade.trainingActiveProperty().
+                or(checkpointCheckBox.selectedProperty().not()));
+        checkpointSecondsField.disableProperty().bind(checkpointEpochsField.disableProperty());
+        
+        startStopTrainButtonErrorFacade = new VisualControlErrorMessageFacade(
+                startStopTrainButton);
+
+        // the checkpoint provides the network, only the samples are needed
+        resumeButtonErrorFacade = new VisualControlErrorMessageFacade(resumeButton);
+        resumeButton.disableProperty().bind(trainerFacade.trainingActiveProperty().
+                or(samplesComboBoxFacade.itemIsSelectedProperty().not()));
        
+        // the chart is redrawn many times during training
+        performanceLineChart.setAnimated(false);
+        performanceLineChart.setCreateSymbols(false);
         performanceLineChart.getStylesheets().add(this.getClass().
                 getResource("/styles/LineChartStyle.css").toExternalForm());
     }    
@@ -0,0 +1,164 @@
+package trainerapp.gui.controller;
+
+import java.net.URL;
+import java.util.ResourceBundle;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import trainerapp.gui.util.TrainingJob;
+import trainerapp.gui.util.TrainingScheduler;
+
+/**
+ * Training Jobs Window Controller class
+ *
+ * @author Konstantin Zhdanov
+ */
+public class TrainingJobsWindowController implements Initializable {
+
+    // the epochs and the performances of the jobs are polled
+    private static final Duration REFRESH_PERIOD = Duration.millis(500);
+
+    @FXML
+    private TableView<TrainingJob> jobsTableView;
+
+    @FXML
+    private TableColumn<TrainingJob, String> nameColumn;
+
+    @FXML
+    private TableColumn<TrainingJob, Number> priorityColumn;
+
+    @FXML
+    private TableColumn<TrainingJob, TrainingJob.State> stateColumn;
+
+    @FXML
+    private TableColumn<TrainingJob, String> epochColumn;
+
+    @FXML
+    private TableColumn<TrainingJob, String> performanceColumn;
+
+    @FXML
+    private Label workersLabel;
+
+    @FXML
+    private Button raisePriorityButton;
+
+    @FXML
+    private Button lowerPriorityButton;
+
+    @FXML
+    private Button cancelJobButton;
+
+    private TrainingScheduler scheduler;
+
+    private Timeline refreshTimeline;
+
+    public void setScheduler(TrainingScheduler scheduler) {
+        if (scheduler == null) {
+            throw new NullPointerException("Scheduler cannot be null");
+        }
+        this.scheduler = scheduler;
+        jobsTableView.setItems(scheduler.getJobs());
+        refreshTimeline.play();
+    }
+
+    @FXML
+    void handleRaisePriorityButtonAction(ActionEvent event) {
+        changeSelectedJobPriority(1);
+    }
+
+    @FXML
+    void handleLowerPriorityButtonAction(ActionEvent event) {
+        changeSelectedJobPriority(-1);
+    }
+
+    private void changeSelectedJobPriority(int delta) {
+        TrainingJob job = jobsTableView.getSelectionModel().getSelectedItem();
+        if (job != null) {
+            scheduler.changePriority(job, job.getPriority() + delta);
+        }
+    }
+
+    @FXML
+    void handleCancelJobButtonAction(ActionEvent event) {
+        TrainingJob job = jobsTableView.getSelectionModel().getSelectedItem();
+        if (job != null) {
+            scheduler.cancel(job);
+        }
+    }
+
+    @FXML
+    void handleRemoveFinishedButtonAction(ActionEvent event) {
+        scheduler.removeFinishedJobs();
+    }
+
+    @FXML
+    void handleCloseButtonAction(ActionEvent event) {
+        refreshTimeline.stop();
+        Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
+        stage.close();
+    }
+
+    // the state of the selected job can change without changing the selection
+    private void updateButtons() {
+        TrainingJob job = jobsTableView.getSelectionModel().getSelectedItem();
+        // only queued jobs can change their priority
+        boolean queued = job != null && job.getState() == TrainingJob.State.QUEUED;
+        raisePriorityButton.setDisable(!queued);
+        lowerPriorityButton.setDisable(!queued);
+        cancelJobButton.setDisable(job == null || job.getState().isFinished());
+    }
+
+    private void refreshJobs() {
+        if (jobsTableView.getScene() == null || 
+                !jobsTableView.getScene().getWindow().isShowing()) {
+            // the window has been closed by its title bar
+            refreshTimeline.stop();
+            return;
+        }
+        jobsTableView.refresh();
+        updateButtons();
+        workersLabel.setText(String.format("Queued: %d", 
+                scheduler.getQueuedJobsNumber()));
+    }
+
+    /**
+     * Initializes the controller class.
+     */
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        nameColumn.setCellValueFactory((param) -> 
+                new ReadOnlyStringWrapper(param.getValue().getName()));
+        priorityColumn.setCellValueFactory((param) -> 
+                param.getValue().priorityProperty());
+        stateColumn.setCellValueFactory((param) -> 
+                param.getValue().stateProperty());
+        epochColumn.setCellValueFactory((param) -> {
+            TrainingJob job = param.getValue();
+            return new ReadOnlyStringWrapper(String.format("%d / %d", 
+                    job.getLastEpoch(), job.getMaxEpoch()));
+        });
+        performanceColumn.setCellValueFactory((param) -> {
+            double performance = param.getValue().getLastPerformance();
+            return new ReadOnlyStringWrapper(Double.isNaN(performance) ? "" : 
+                    String.valueOf(performance));
+        });
+
+        refreshTimeline = new Timeline(new KeyFrame(REFRESH_PERIOD, 
+                (event) -> refreshJobs()));
+        refreshTimeline.setCycleCount(Timeline.INDEFINITE);
+
+        jobsTableView.getSelectionModel().selectedItemProperty().addListener(
+                (observable, oldValue, newValue) -> updateButtons());
+        updateButtons();
+    }
+}
@@ -13,8 +13,8 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableView;
 import javafx.util.converter.DoubleStringConverter;
-import neuralnetwork.NeuralNetwork;
 import trainerapp.gui.facade.NumberTableViewFacade;
+import trainerapp.gui.model.FlatNeuralNetwork;
 
 /**
  * View Neural Network Tab Controller
@@ -39,7 +39,7 @@ public class ViewNNTabController implements Initializable {
     @FXML
     private Label prevLayerNeuronLabel;
     
-    private NeuralNetwork network;
+    private FlatNeuralNetwork network;
     
     private ObservableList<Double> layerBiases;
     
@@ -65,7 +65,13 @@ public class ViewNNTabController implements Initializable {
         changed = new SimpleBooleanProperty(false);
     }
     
-    public void setUp(NeuralNetwork nn, int curLayerNum) {
+    /**
+     * Show the weights and the biases of layer {@code curLayerNum} of
+     * {@code nn}. The changes are saved into {@code nn}.
+     * @param nn Compiled network shared by the tabs of all the layers.
+     * @param curLayerNum Index of the layer.
+     */
+    public void setUp(FlatNeuralNetwork nn, int curLayerNum) {
         if (nn == null) {
             throw new NullPointerException("Network cannot be null");
         }
@@ -89,23 +95,19 @@ public class ViewNNTabController implements Initializable {
     private void initLayerInfoData() {
         String curLayerStr;
         String prevLayerStr;
+        curLayerSize = network.getLayerOutputSize(curLayerNum);
+        prevLayerSize = network.getLayerInputSize(curLayerNum);
         if (curLayerNum == 0) {
             // first hidden layer
-            curLayerSize = network.getHiddenLayerSize(curLayerNum);
-            prevLayerSize = network.getNumberInputs();
             curLayerStr = "Layer 1";
             prevLayerStr = "Input layer";
         }
-        else if (curLayerNum == network.getNumberHiddenLayers()) {
+        else if (curLayerNum == network.getNumberLayers() - 1) {
             // output layer
-            curLayerSize = network.getNumberOutputs();
-            prevLayerSize = network.getHiddenLayerSize(curLayerNum - 1);
             curLayerStr = "Output layer";
             prevLayerStr = "Layer " + (curLayerNum);
         }
         else {
-            curLayerSize = network.getHiddenLayerSize(curLayerNum);
-            prevLayerSize = network.getHiddenLayerSize(curLayerNum - 1);
             curLayerStr = "Layer " + (curLayerNum + 1);
             prevLayerStr = "Layer " + (curLayerNum);
         }
@@ -5,6 +5,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 import javafx.beans.binding.BooleanExpression;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.event.ActionEvent;
@@ -19,6 +20,7 @@ import javafx.scene.control.TabPane;
 import javafx.stage.Stage;
 import neuralnetwork.NeuralNetwork;
 import trainerapp.gui.facade.ComboBoxRepositoryFacade;
+import trainerapp.gui.model.FlatNeuralNetwork;
 import trainerapp.gui.repository.NamedObjectRepository;
 
 /**
@@ -42,9 +44,14 @@ public class ViewNNWindowController implements Initializable {
     private ComboBoxRepositoryFacade<NeuralNetwork> selectedNNComboBoxFacade;
     
     private NamedObjectRepository<NeuralNetwork> nnRepository;
+
+    // compiled copy of the selected network edited by the tabs
+    private FlatNeuralNetwork flatNN;
     
     private final List<ViewNNTabController> tabControllers;
     
+    private Consumer<NeuralNetwork> networkChangedHandler = (nn) -> {};
+    
     private final SimpleBooleanProperty saveNeeded = new SimpleBooleanProperty(false);
     private BooleanExpression anyTabChanged;
     
@@ -53,6 +60,14 @@ public class ViewNNWindowController implements Initializable {
         selectedNNComboBoxFacade.setRepository(nnRepository);
     }
     
+    /**
+     * Set the handler of the networks whose changes have been saved.
+     * @param handler {@code Consumer} of the changed network.
+     */
+    public void setOnNetworkChanged(Consumer<NeuralNetwork> handler) {
+        this.networkChangedHandler = handler;
+    }
+    
     public void setNetwork(NeuralNetwork nn) {
         if (nn == null) {
             throw new NullPointerException("Network cannot be null");
@@ -69,6 +84,7 @@ public class ViewNNWindowController implements Initializable {
         saveNeeded.unbind();
         saveNeeded.set(false);
         tabControllers.clear();
+        flatNN = null;
     }
     
     private void setUpSaveNeededProperty() {
@@ -86,15 +102,16 @@ public class ViewNNWindowController implements Initializable {
         if (nn == null) {
             return;
         }
+        flatNN = FlatNeuralNetwork.of(nn);
         
         // Hidden layers
         for (int tabIdx = 0; tabIdx < nn.getNumberHiddenLayers(); tabIdx++) {
-            Node tabContent = createTabContentForNN(nn, tabIdx);
+            Node tabContent = createTabContentForNN(flatNN, tabIdx);
             addTabWithContent(tabContent, "Layer " + (tabIdx + 1));
         }
         
         // Output layer
-        Node tabContent = createTabContentForNN(nn, nn.getNumberHiddenLayers());
+        Node tabContent = createTabContentForNN(flatNN, nn.getNumberHiddenLayers());
         addTabWithContent(tabContent, "Output");
         
         setUpSaveNeededProperty();
@@ -106,7 +123,7 @@ public class ViewNNWindowController implements Initializable {
         tabPane.getTabs().add(tab);
     }
     
-    private Node createTabContentForNN(NeuralNetwork nn, int idx) {
+    private Node createTabContentForNN(FlatNeuralNetwork nn, int idx) {
         FXMLLoader tabLoader = new FXMLLoader(this.getClass().
                 getResource("/fxml/ViewNNTab.fxml"));
         Node tab = null;
@@ -135,7 +152,13 @@ public class ViewNNWindowController implements Initializable {
     
     @FXML
     void handleSaveButtonAction(ActionEvent event) {
+        NeuralNetwork nn = selectedNNComboBoxFacade.getSelectedItem();
+        if (nn == null || flatNN == null) {
+            return;
+        }
         tabControllers.forEach(ViewNNTabController::saveChanges);
+        flatNN.copyInto(nn);
+        networkChangedHandler.accept(nn);
     }
 
     @FXML
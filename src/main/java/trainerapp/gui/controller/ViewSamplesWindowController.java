@@ -4,6 +4,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.ResourceBundle;
 import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -50,7 +51,7 @@ public class ViewSamplesWindowController implements Initializable {
     }
     
     private void updateSamplesTable() {
-        samplesTableView.getItems().clear();
+        samplesTableView.setItems(FXCollections.observableArrayList());
         samplesTableView.getColumns().clear();
         
         if (samplesComboBoxFacade.getSelectedItem() == null) {
@@ -60,9 +61,9 @@ public class ViewSamplesWindowController implements Initializable {
         // Create colums
         createSamplesTableColumns();
         
-        // Load values
-        samplesTableView.getItems().addAll(samplesComboBoxFacade.
-                getSelectedItem().getAll());
+        // Show values without copying them
+        samplesTableView.setItems(FXCollections.unmodifiableObservableList(
+                samplesComboBoxFacade.getSelectedItem().getAll()));
     }
     
     private void createSamplesTableColumns() {
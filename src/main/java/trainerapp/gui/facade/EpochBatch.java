@@ -0,0 +1,150 @@
+package trainerapp.gui.facade;
+
+import java.util.Arrays;
+import neuralnetwork.train.TrainerEvent;
+
+/**
+ * Batch of the epochs completed by a trainer since the previous batch was
+ * delivered: the number and the performance of every reported epoch, stored
+ * in primitive arrays, and the latest reported event.
+ * A batch holds at most {@code MAX_SIZE} epochs, so a batch which isn't
+ * drained for long doesn't grow without bound: once it's full, the epochs
+ * but the latest are downsampled to the lowest and the highest performance
+ * of every bucket of {@code BUCKET_SIZE} epochs, which keeps the peaks of
+ * the performance curve.
+ * A batch is only valid while it's being handled, as its arrays are reused
+ * for the next batches.
+ * @author Konstantin Zhdanov
+ */
+public class EpochBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Maximal number of epochs of a batch.
+     */
+    public static final int MAX_SIZE = 4096;
+
+    // epochs downsampled into two
+    private static final int BUCKET_SIZE = 4;
+
+    private int[] epochs;
+
+    private double[] performances;
+
+    private int size;
+
+    private TrainerEvent lastEvent;
+
+    EpochBatch() {
+        epochs = new int[INITIAL_CAPACITY];
+        performances = new double[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Number of epochs in this batch.
+     * @return {@code int} number of epochs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether this batch doesn't contain any epochs.
+     * @return {@code boolean} true if the batch is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of the epoch with index {@code idx} in this batch.
+     * @param idx Index of the epoch in this batch.
+     * @return {@code int} number of the epoch.
+     * @throws IndexOutOfBoundsException if {@code idx} is out of range.
+     */
+    public int getEpoch(int idx) {
+        checkIndex(idx);
+        return epochs[idx];
+    }
+
+    /**
+     * Performance of the network after the epoch with index {@code idx}
+     * in this batch.
+     * @param idx Index of the epoch in this batch.
+     * @return {@code double} performance value.
+     * @throws IndexOutOfBoundsException if {@code idx} is out of range.
+     */
+    public double getPerformance(int idx) {
+        checkIndex(idx);
+        return performances[idx];
+    }
+
+    /**
+     * The latest event of this batch. Its epoch is counted from the start
+     * of the segment of a training with early stopping.
+     * @return {@code TrainerEvent} of the last epoch, or null if the batch
+     * is empty.
+     */
+    public TrainerEvent getLastEvent() {
+        return lastEvent;
+    }
+
+    void add(TrainerEvent event, int epoch) {
+        if (size == MAX_SIZE) {
+            downsample();
+        }
+        else if (size == epochs.length) {
+            int newCapacity = Math.min(size + (size >> 1), MAX_SIZE);
+            epochs = Arrays.copyOf(epochs, newCapacity);
+            performances = Arrays.copyOf(performances, newCapacity);
+        }
+        epochs[size] = epoch;
+        performances[size] = event.getPerformance();
+        size++;
+        lastEvent = event;
+    }
+
+    // in place, as the kept epochs never move forward
+    private void downsample() {
+        int newSize = 0;
+        int nDownsampled = size - 1;
+        for (int start = 0; start < nDownsampled; start += BUCKET_SIZE) {
+            int end = Math.min(start + BUCKET_SIZE, nDownsampled);
+            int min = start;
+            int max = start;
+            for (int idx = start + 1; idx < end; idx++) {
+                if (performances[idx] < performances[min]) {
+                    min = idx;
+                }
+                if (performances[idx] > performances[max]) {
+                    max = idx;
+                }
+            }
+            newSize = keep(Math.min(min, max), newSize);
+            if (min != max) {
+                newSize = keep(Math.max(min, max), newSize);
+            }
+        }
+        size = keep(size - 1, newSize);
+    }
+
+    // returns the size after the kept epoch
+    private int keep(int idx, int newIdx) {
+        epochs[newIdx] = epochs[idx];
+        performances[newIdx] = performances[idx];
+        return newIdx + 1;
+    }
+
+    void clear() {
+        size = 0;
+        lastEvent = null;
+    }
+
+    private void checkIndex(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index is out of range: " + idx);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package trainerapp.gui.facade;
+
+import java.util.function.Consumer;
+import neuralnetwork.train.TrainerEvent;
+
+/**
+ * Mailbox coalescing the epoch events posted by a trainer thread until
+ * the JavaFX thread drains them, all at once, as an {@code EpochBatch}.
+ * Posting appends two numbers to an array, downsampling the batch when
+ * it's full, so a batch the JavaFX thread doesn't drain for long stays
+ * bounded, and draining doesn't allocate memory: two batches are used
+ * in turns.
+ * Events can be posted from any thread, but only one thread may drain them.
+ * @author Konstantin Zhdanov
+ */
+public class EpochEventMailbox {
+
+    private EpochBatch filling;
+
+    private EpochBatch draining;
+
+    public EpochEventMailbox() {
+        filling = new EpochBatch();
+        draining = new EpochBatch();
+    }
+
+    /**
+     * Add {@code event} to the next batch.
+     * @param event {@code TrainerEvent} of a completed epoch.
+     * @throws NullPointerException if {@code event} is null.
+     */
+    public synchronized void post(TrainerEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Event cannot be null");
+        }
+        filling.add(event, event.getEpoch());
+    }
+
+    /**
+     * Add {@code event} to the next batch as the event of epoch {@code epoch},
+     * for the trainers counting the epochs from a later start.
+     * @param event {@code TrainerEvent} of a completed epoch.
+     * @param epoch Number of the epoch since the start of the training.
+     * @throws NullPointerException if {@code event} is null.
+     */
+    public synchronized void post(TrainerEvent event, int epoch) {
+        if (event == null) {
+            throw new NullPointerException("Event cannot be null");
+        }
+        filling.add(event, epoch);
+    }
+
+    /**
+     * Pass all the events posted since the previous call to {@code consumer}
+     * as one batch, if there are any.
+     * @param consumer {@code Consumer} handling the batch. The batch must not
+     * be used after the consumer returns.
+     * @return {@code boolean} true if there were events to pass.
+     */
+    public boolean drain(Consumer<EpochBatch> consumer) {
+        EpochBatch batch;
+        synchronized (this) {
+            if (filling.isEmpty()) {
+                return false;
+            }
+            batch = filling;
+            filling = draining;
+            draining = batch;
+        }
+        try {
+            consumer.accept(batch);
+        }
+        finally {
+            batch.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Discard all the events that haven't been drained.
+     */
+    public synchronized void clear() {
+        filling.clear();
+    }
+}
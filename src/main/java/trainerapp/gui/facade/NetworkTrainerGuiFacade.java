@@ -1,18 +1,43 @@
 package trainerapp.gui.facade;
 
+import trainerapp.gui.repository.KFoldSplit;
+import trainerapp.gui.repository.PagedSamplesRepository;
 import trainerapp.gui.repository.SamplesRepository;
+import trainerapp.gui.repository.TrainingDataCache;
+import trainerapp.gui.util.CheckpointWriter;
+import trainerapp.gui.util.EarlyStopping;
+import trainerapp.gui.util.TrainingCheckpoint;
+import trainerapp.gui.util.TrainingCheckpointer;
+import trainerapp.gui.util.TrainingJob;
+import trainerapp.gui.util.TrainingScheduler;
 import neuralnetwork.NeuralNetwork;
 import neuralnetwork.train.Listener;
 import neuralnetwork.train.NeuralNetworkTrainer;
 import neuralnetwork.train.TrainerEvent;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.collections.ObservableList;
 
 /**
  * Facade for starting and stopping training from the JavaFX thread.
+ * Trainings are queued as jobs of the shared {@code TrainingScheduler},
+ * so a training may wait for a free worker before it starts.
+ * Epoch events are collected by a mailbox on the trainer thread and delivered
+ * to the handlers once per JavaFX pulse, so a fast trainer is never slowed
+ * down by the JavaFX thread and doesn't flood it with events.
+ * With early stopping enabled, one sample in {@code VALIDATION_FOLDS} is held
+ * out of the training for validating the network. With checkpointing
+ * enabled, the training is periodically written into a checkpoint file
+ * named after the job and the run, which {@code resumeTraining} continues
+ * from.
  * @author Konstantin Zhdanov
  */
 public class NetworkTrainerGuiFacade {
@@ -31,6 +56,22 @@ public class NetworkTrainerGuiFacade {
         }
     };
     
+    /**
+     * With early stopping, the samples are split into this number of parts,
+     * and one of them is held out for validation.
+     */
+    public static final int VALIDATION_FOLDS = 5;
+    
+    // suffix of the checkpoint files telling the runs of a job apart
+    private static final String RUN_ID_FORMAT = "yyyyMMdd-HHmmss-SSS";
+    
+    private static final String RUN_ID_PATTERN = "_\\d{8}-\\d{6}-\\d{3}-\\d+$";
+    
+    private static final AtomicInteger runCounter = new AtomicInteger();
+    
+    // header of an array and the reference to it in the matrix
+    private static final long ROW_OVERHEAD_BYTES = 24;
+    
     private final Consumer<TrainerEvent> defaultEventHandler = (event) -> {};
     
     private Consumer<TrainerEvent> trainingCompleteEventHandler = defaultEventHandler;
@@ -39,9 +80,24 @@ public class NetworkTrainerGuiFacade {
     
     private Consumer<TrainerEvent> trainingEpochCompleteEventHandler = defaultEventHandler;
     
+    private Consumer<EpochBatch> trainingEpochsCompleteEventHandler = (batch) -> {};
+    
+    private Consumer<IOException> checkpointFailureHandler = (e) -> {};
+    
+    private final EpochEventMailbox epochEventMailbox;
+    
+    // drains the mailbox once per pulse while training is active
+    private AnimationTimer epochEventTimer;
+    
     private final BooleanProperty trainingActiveProperty;
     
-    private NeuralNetworkTrainer trainer;
+    private final TrainingScheduler scheduler;
+    
+    // read by the trainer thread
+    private volatile TrainingJob job;
+    
+    // if the final event of the job has been passed to the handlers
+    private boolean finalEventDelivered;
     
     private int lastNEpoch;
     
@@ -50,16 +106,56 @@ public class NetworkTrainerGuiFacade {
     private int maxEpochUpdateNumber;
     
     private volatile int periodBetweenUpdates;
+    
+    private int earlyStoppingCheckPeriod;
+    
+    private int earlyStoppingPatience;
+    
+    private File checkpointDirectory;
+    
+    private int checkpointEpochPeriod;
+    
+    private int checkpointPeriodSeconds;
+    
+    private final Random random;
             
     public NetworkTrainerGuiFacade() {
+        this(TrainingScheduler.getDefault());
+    }
+    
+    public NetworkTrainerGuiFacade(TrainingScheduler scheduler) {
+        if (scheduler == null) {
+            throw new NullPointerException("Scheduler cannot be null");
+        }
+        this.scheduler = scheduler;
         trainingActiveProperty = new SimpleBooleanProperty(false);
         lastNEpoch = 0;
         lastPerformanceGoal = Double.POSITIVE_INFINITY;
         maxEpochUpdateNumber = -1;
         periodBetweenUpdates = 1;
+        epochEventMailbox = new EpochEventMailbox();
+        earlyStoppingCheckPeriod = -1;
+        earlyStoppingPatience = -1;
+        checkpointDirectory = null;
+        random = new Random();
     }
     
     
+    // the trainer needs the samples in memory, and a paged repository may be
+    // larger than the heap, so it's refused instead of failing while converted
+    private static void checkFitsIntoMemory(SamplesRepository<Double> samplesRepo) {
+        Runtime runtime = Runtime.getRuntime();
+        long freeBytes = runtime.maxMemory() - 
+                (runtime.totalMemory() - runtime.freeMemory());
+        long neededBytes = samplesRepo.size() * 
+                ((long)samplesRepo.sampleSize() * Double.BYTES + 2 * ROW_OVERHEAD_BYTES);
+        if (neededBytes > freeBytes) {
+            throw new IllegalArgumentException(String.format(
+                    "Samples need %d MB of memory for training, but only %d MB are free", 
+                    neededBytes >> 20, freeBytes >> 20));
+        }
+    }
+    
     /*
      *********************************************
      ************* Training methods **************
@@ -68,11 +164,57 @@ public class NetworkTrainerGuiFacade {
     public void startTraining(int nEpoch, double performanceGoal, 
             NeuralNetwork nn, SamplesRepository<Double> samplesRepo) 
                 throws TrainerParameterException {
-        if (trainer != null) {
-            trainer.removeListener(trainingListener);
+        startTraining(nn.getSignature(), nEpoch, performanceGoal, nn, samplesRepo);
+    }
+    
+    /**
+     * Queue the training of {@code nn} on the samples of {@code samplesRepo}
+     * as a job named {@code jobName}.
+     * @throws IllegalArgumentException if early stopping is enabled and
+     * there are less than {@code VALIDATION_FOLDS} samples, or the samples
+     * are paged from a file and don't fit into the free memory.
+     */
+    public void startTraining(String jobName, int nEpoch, double performanceGoal, 
+            NeuralNetwork nn, SamplesRepository<Double> samplesRepo) 
+                throws TrainerParameterException {
+        startTraining(jobName, nEpoch, performanceGoal, nn, samplesRepo, null);
+    }
+    
+    /**
+     * Queue the training saved in {@code checkpoint} to continue from
+     * the completed epochs on the samples of {@code samplesRepo}, as a job
+     * named {@code jobName}.
+     * @throws IllegalArgumentException if the training of the checkpoint
+     * has already completed all the epochs, early stopping is enabled
+     * and there are less than {@code VALIDATION_FOLDS} samples, or
+     * the samples are paged from a file and don't fit into the free memory.
+     */
+    public void resumeTraining(String jobName, TrainingCheckpoint checkpoint, 
+            SamplesRepository<Double> samplesRepo) throws TrainerParameterException {
+        if (checkpoint.getEpoch() >= checkpoint.getMaxEpoch()) {
+            throw new IllegalArgumentException("Training has already been finished");
+        }
+        startTraining(jobName, checkpoint.getMaxEpoch(), checkpoint.getPerformanceGoal(), 
+                checkpoint.getNetwork(), samplesRepo, checkpoint);
+    }
+    
+    private void startTraining(String jobName, int nEpoch, double performanceGoal, 
+            NeuralNetwork nn, SamplesRepository<Double> samplesRepo, 
+            TrainingCheckpoint resumedCheckpoint) throws TrainerParameterException {
+        if (earlyStoppingIsEnabled() && samplesRepo.size() < VALIDATION_FOLDS) {
+            throw new IllegalArgumentException(String.format(
+                    "Early stopping requires at least %d samples", VALIDATION_FOLDS));
+        }
+        if (samplesRepo instanceof PagedSamplesRepository) {
+            checkFitsIntoMemory(samplesRepo);
+        }
+        if (job != null) {
+            job.removeListener(trainingListener);
         }
         
-        trainer = buildTrainer(nEpoch, performanceGoal);
+        // invalid parameters are reported even if the trainers of
+        // the segments are built later
+        NeuralNetworkTrainer trainer = buildTrainer(nEpoch, performanceGoal);
 
         lastNEpoch = nEpoch;
         lastPerformanceGoal = performanceGoal;
@@ -84,47 +226,164 @@ public class NetworkTrainerGuiFacade {
             periodBetweenUpdates = lastNEpoch / maxEpochUpdateNumber;
         }
         
-        final int numSamples = samplesRepo.size();
-        final int inputSize = nn.getNumberInputs();
-        double[][] inputs = new double[numSamples][inputSize];
-        double[][] targets = new double[numSamples][nn.getNumberOutputs()];
-
-        for (int i = 0; i < numSamples; i++) {
-            ObservableList<Double> sample = samplesRepo.getSample(i);
-            for (int j = 0; j < inputs[i].length; j++) {
-                inputs[i][j] = sample.get(j);
-            }
-            for (int j = 0; j < targets[i].length; j++) {
-                targets[i][j] = sample.get(inputSize + j);
-            }
-        }
-        startTraining(nn, inputs, targets);
-    }
-    
-    private void startTraining(NeuralNetwork network, double[][] inputs, 
-            double[][] targets) {
-        trainer.registerListener(trainingListener);
-        trainer.startTrain(network, inputs, targets);
+        // repeated trainings on the same samples reuse the same matrices
+        TrainingDataCache.TrainingData data = TrainingDataCache.getDefault().get(samplesRepo,
+                nn.getNumberInputs(), nn.getNumberOutputs());
+        if (    !earlyStoppingIsEnabled() && !checkpointingIsEnabled() && 
+                resumedCheckpoint == null   ) {
+            startTraining(new TrainingJob(jobName, lastNEpoch, trainer, nn, 
+                    data.getInputs(), data.getTargets()));
+            return;
+        }
+        double[][] inputs = data.getInputs();
+        double[][] targets = data.getTargets();
+        EarlyStopping earlyStopping = null;
+        if (earlyStoppingIsEnabled()) {
+            // validation and training samples are views of the same rows
+            KFoldSplit split = new KFoldSplit(inputs.length, VALIDATION_FOLDS, random);
+            int[] validationIndices = split.testIndices(0);
+            int[] trainingIndices = split.trainingIndices(0);
+            earlyStopping = new EarlyStopping(
+                    KFoldSplit.selectRows(inputs, validationIndices), 
+                    KFoldSplit.selectRows(targets, validationIndices), 
+                    earlyStoppingCheckPeriod, earlyStoppingPatience);
+            inputs = KFoldSplit.selectRows(inputs, trainingIndices);
+            targets = KFoldSplit.selectRows(targets, trainingIndices);
+        }
+        TrainingJob newJob = new TrainingJob(jobName, lastNEpoch, 
+                (nEpochs) -> new NeuralNetworkTrainer.Builder().
+                        withMaxEpoch(nEpochs).
+                        withPerformanceGoal(performanceGoal).
+                        build(), 
+                nn, inputs, targets);
+        if (earlyStopping != null) {
+            newJob.setEarlyStopping(earlyStopping);
+        }
+        if (checkpointingIsEnabled()) {
+            TrainingCheckpointer checkpointer = new TrainingCheckpointer(
+                    createCheckpointFile(jobName), checkpointEpochPeriod, 
+                    checkpointPeriodSeconds, performanceGoal, 
+                    CheckpointWriter.getDefault());
+            checkpointer.setOnFailure((e) -> Platform.runLater(
+                    () -> checkpointFailureHandler.accept(e)));
+            newJob.setCheckpointer(checkpointer);
+        }
+        if (resumedCheckpoint != null) {
+            newJob.setCompletedEpochs(resumedCheckpoint.getEpoch(), 
+                    resumedCheckpoint.getHistory());
+        }
+        startTraining(newJob);
+    }
+    
+    // every run gets its own file, so concurrent or later runs of jobs
+    // with the same name never overwrite each other's checkpoints
+    private File createCheckpointFile(String jobName) {
+        // the name may contain characters not allowed in file names
+        String fileName = jobName.replaceAll("[^A-Za-z0-9._-]", "_");
+        String runId = new SimpleDateFormat(RUN_ID_FORMAT).format(new Date()) + 
+                "-" + runCounter.incrementAndGet();
+        return new File(checkpointDirectory, 
+                fileName + "_" + runId + TrainingCheckpoint.EXTENSION);
+    }
+    
+    /**
+     * Name of the job whose checkpoints are written into {@code checkpointFile}.
+     * @param checkpointFile Checkpoint file.
+     * @return {@code String} name of the file without the extension and
+     * the run id.
+     */
+    public static String getJobName(File checkpointFile) {
+        String name = checkpointFile.getName();
+        if (name.endsWith(TrainingCheckpoint.EXTENSION)) {
+            name = name.substring(0, name.length() - 
+                    TrainingCheckpoint.EXTENSION.length());
+        }
+        return name.replaceFirst(RUN_ID_PATTERN, "");
+    }
+    
+    private void startTraining(TrainingJob newJob) {
+        epochEventMailbox.clear();
+        startEpochEventTimer();
+        finalEventDelivered = false;
+        job = newJob;
+        job.addListener(trainingListener);
+        job.setOnFinished(this::onJobFinished);
+        scheduler.submit(job);
         setTrainingActive(true);
     }
     
+    // called on the JavaFX thread after the final event of the trainer,
+    // if the trainer has run and reported it
+    private void onJobFinished(TrainingJob finishedJob) {
+        if (finishedJob != job) {
+            return;
+        }
+        deliverEpochEvents();
+        stopEpochEventTimer();
+        setTrainingActive(false);
+        if (finalEventDelivered) {
+            return;
+        }
+        // canceled while queued or before the trainer reported anything
+        finalEventDelivered = true;
+        if (finishedJob.getState() == TrainingJob.State.CANCELED) {
+            trainingCanceledEventHandler.accept(null);
+        }
+        else if (finishedJob.getState() == TrainingJob.State.COMPLETED) {
+            trainingCompleteEventHandler.accept(null);
+        }
+    }
+    
+    private void startEpochEventTimer() {
+        if (epochEventTimer == null) {
+            epochEventTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    deliverEpochEvents();
+                }
+            };
+        }
+        epochEventTimer.start();
+    }
+    
+    private void stopEpochEventTimer() {
+        if (epochEventTimer != null) {
+            epochEventTimer.stop();
+        }
+    }
+    
     public void stopTraining() {
-        if (trainer == null) {
+        if (job == null) {
             return;
         }
-        trainer.stopTraining();
+        // a queued job is never started
+        scheduler.cancel(job);
         setTrainingActive(false);
     }
     
     /**
      * Retrieve the training result, blocking if necessary.
-     * @return A trained neural network.
+     * @return A trained neural network, or null if the training hasn't
+     * been started.
      */
     public NeuralNetwork getTrainedNetwork() {
-        if (trainer == null) {
+        if (job == null || job.getState() == TrainingJob.State.QUEUED) {
             return null;
         }
-        return trainer.getTrainedNetwork();
+        if (job.getState().isFinished()) {
+            return job.getTrainedNetwork();
+        }
+        NeuralNetworkTrainer currentTrainer = job.getTrainer();
+        return currentTrainer == null ? null : currentTrainer.getTrainedNetwork();
+    }
+    
+    /**
+     * The job of the last started training.
+     * @return {@code TrainingJob} of the training, or null if no training
+     * has been started.
+     */
+    public TrainingJob getTrainingJob() {
+        return job;
     }
     
     private NeuralNetworkTrainer buildTrainer(int nEpoch, 
@@ -171,6 +430,67 @@ public class NetworkTrainerGuiFacade {
         return periodBetweenUpdates;
     }
     
+    /**
+     * Enable early stopping of the next trainings.
+     * @param checkPeriod Number of epochs between validations.
+     * @param patience Number of validations in a row without improvement
+     * after which a training stops.
+     * @throws IllegalArgumentException if any of the numbers isn't positive.
+     */
+    public void setEarlyStopping(int checkPeriod, int patience) {
+        if (checkPeriod <= 0) {
+            throw new IllegalArgumentException("Check period must be positive");
+        }
+        if (patience <= 0) {
+            throw new IllegalArgumentException("Patience must be positive");
+        }
+        this.earlyStoppingCheckPeriod = checkPeriod;
+        this.earlyStoppingPatience = patience;
+    }
+    
+    public void resetEarlyStopping() {
+        this.earlyStoppingCheckPeriod = -1;
+        this.earlyStoppingPatience = -1;
+    }
+    
+    public boolean earlyStoppingIsEnabled() {
+        return earlyStoppingCheckPeriod > 0;
+    }
+    
+    /**
+     * Enable checkpointing of the next trainings every {@code epochPeriod}
+     * epochs or {@code periodSeconds} seconds, whichever comes first.
+     * @param directory Directory to write the checkpoints into.
+     * @param epochPeriod Number of epochs between checkpoints, 0 to
+     * checkpoint only by time.
+     * @param periodSeconds Number of seconds between checkpoints, 0 to
+     * checkpoint only by epochs.
+     * @throws NullPointerException if {@code directory} is null.
+     * @throws IllegalArgumentException if any of the periods is negative
+     * or both are 0.
+     */
+    public void setCheckpointing(File directory, int epochPeriod, int periodSeconds) {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null");
+        }
+        if (epochPeriod < 0 || periodSeconds < 0 || 
+                (epochPeriod == 0 && periodSeconds == 0)) {
+            throw new IllegalArgumentException(
+                    "Periods cannot be negative and one of them must be positive");
+        }
+        this.checkpointDirectory = directory;
+        this.checkpointEpochPeriod = epochPeriod;
+        this.checkpointPeriodSeconds = periodSeconds;
+    }
+    
+    public void resetCheckpointing() {
+        this.checkpointDirectory = null;
+    }
+    
+    public boolean checkpointingIsEnabled() {
+        return checkpointDirectory != null;
+    }
+    
     /*
      *********************************************
      ********* Last training parameters **********
@@ -184,6 +504,15 @@ public class NetworkTrainerGuiFacade {
         return lastPerformanceGoal;
     }
     
+    /**
+     * Early stopping of the last training.
+     * @return {@code EarlyStopping} of the training, or null if it was
+     * trained without early stopping.
+     */
+    public EarlyStopping lastEarlyStopping() {
+        return job == null ? null : job.getEarlyStopping();
+    }
+    
     /*
      *********************************************
      ************* Boolean properties ************
@@ -206,38 +535,93 @@ public class NetworkTrainerGuiFacade {
      **************** Event handlers *************
      *********************************************/
    
+    /**
+     * Set the handler of the completion of a training, called on the JavaFX
+     * thread.
+     * @param eventHandler {@code Consumer} of the final event of the trainer,
+     * which is null if the trainer hasn't reported it.
+     */
     public void setOnTrainingComplete(Consumer<TrainerEvent> eventHandler) {
         this.trainingCompleteEventHandler = eventHandler;
     }
     
     private void onTrainingComplete(final TrainerEvent event) {
         Platform.runLater(() -> {
+            finalEventDelivered = true;
+            // the last epochs are delivered before the training is complete
+            deliverEpochEvents();
+            stopEpochEventTimer();
             setTrainingActive(false);
             trainingCompleteEventHandler.accept(event);
         });
     }
     
+    /**
+     * Set the handler of the cancellation of a training, called on the JavaFX
+     * thread.
+     * @param eventHandler {@code Consumer} of the final event of the trainer,
+     * which is null if the training was canceled before the trainer
+     * reported anything, e.g. while it was queued.
+     */
     public void setOnTrainingCanceled(Consumer<TrainerEvent> eventHandler) {
         this.trainingCanceledEventHandler = eventHandler;
     }
     
     private void onTrainingCanceled(final TrainerEvent event) {
         Platform.runLater(() -> {
+            finalEventDelivered = true;
+            deliverEpochEvents();
+            stopEpochEventTimer();
             setTrainingActive(false);
             trainingCanceledEventHandler.accept(event);
         });
     }
     
+    /**
+     * Set the handler of the latest epoch event, called at most once per
+     * JavaFX pulse. The events of the epochs completed earlier in the same
+     * pulse aren't passed to this handler.
+     * @param eventHandler {@code Consumer} of the latest event.
+     */
     public void setOnTrainingEpochComplete(Consumer<TrainerEvent> eventHandler) {
         this.trainingEpochCompleteEventHandler = eventHandler;
     }
     
+    /**
+     * Set the handler of all the epoch events reported since the previous
+     * pulse, called at most once per JavaFX pulse before the handler set by
+     * {@code setOnTrainingEpochComplete}.
+     * @param eventHandler {@code Consumer} of the batch of events. The batch
+     * must not be used after the handler returns.
+     */
+    public void setOnTrainingEpochsComplete(Consumer<EpochBatch> eventHandler) {
+        this.trainingEpochsCompleteEventHandler = eventHandler;
+    }
+    
+    /**
+     * Set the handler of the checkpoints which cannot be written, called on
+     * the JavaFX thread.
+     * @param failureHandler {@code Consumer} of the exception of the failed
+     * write.
+     */
+    public void setOnCheckpointFailure(Consumer<IOException> failureHandler) {
+        this.checkpointFailureHandler = failureHandler;
+    }
+    
+    // called on the trainer thread
     private void onTrainingEpochComplete(final TrainerEvent event) {
-        if (event.getEpoch() % periodBetweenUpdates != 0) {
+        // epochs of the segments of early stopping start from 1
+        int epoch = job.getEpochOffset() + event.getEpoch();
+        if (epoch % periodBetweenUpdates != 0) {
             return;
         }
-        Platform.runLater(() -> {
-            trainingEpochCompleteEventHandler.accept(event);
+        epochEventMailbox.post(event, epoch);
+    }
+    
+    private void deliverEpochEvents() {
+        epochEventMailbox.drain((batch) -> {
+            trainingEpochsCompleteEventHandler.accept(batch);
+            trainingEpochCompleteEventHandler.accept(batch.getLastEvent());
         });
     }
     
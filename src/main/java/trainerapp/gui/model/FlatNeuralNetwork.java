@@ -0,0 +1,340 @@
+package trainerapp.gui.model;
+
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
+
+/**
+ * Compiled form of a {@code NeuralNetwork} holding the weights of every layer
+ * in one contiguous array and the biases in another, so the weights can be
+ * read, written and evaluated in tight loops instead of one
+ * {@code getWeight} call per weight.
+ * <p>
+ * Layer {@code layer} connects the neurons of layer {@code layer} with
+ * the neurons of layer {@code layer + 1}, where layer 0 is the input layer,
+ * the same as in {@code NeuralNetwork}. The weights of a layer are stored
+ * row-major by the receiving neuron: the weight from neuron {@code from}
+ * to neuron {@code to} is at {@code to * getLayerInputSize(layer) + from},
+ * so the weights summed into one neuron are adjacent.
+ * <p>
+ * The neurons use the activation function of the compiled network, so
+ * the outputs are the same as the ones of the {@code NeuralNetworkEvaluator}
+ * of the library. A network created from its sizes only uses the default
+ * activation function of the library.
+ * @author Konstantin Zhdanov
+ */
+public class FlatNeuralNetwork {
+
+    // activation of the networks created without one
+    private static final ActivationFunction DEFAULT_ACTIVATION = 
+            new NeuralNetwork(1, new int[] {1}, 1).getActivationFunction();
+
+    // sizes of the input, the hidden and the output layers
+    private final int[] layerSizes;
+
+    private final double[][] weights;
+
+    private final double[][] biases;
+
+    private final int maxLayerSize;
+
+    private final ActivationFunction activation;
+
+    /**
+     * Create a network with the given structure and all the weights and
+     * biases set to 0, using the default activation function.
+     * @param nInputs Number of the inputs.
+     * @param hiddenLayerSizes Sizes of the hidden layers.
+     * @param nOutputs Number of the outputs.
+     * @throws NullPointerException if {@code hiddenLayerSizes} is null.
+     * @throws IllegalArgumentException if any of the sizes isn't positive.
+     */
+    public FlatNeuralNetwork(int nInputs, int[] hiddenLayerSizes, int nOutputs) {
+        this(nInputs, hiddenLayerSizes, nOutputs, DEFAULT_ACTIVATION);
+    }
+
+    /**
+     * Create a network with the given structure and all the weights and
+     * biases set to 0.
+     * @param nInputs Number of the inputs.
+     * @param hiddenLayerSizes Sizes of the hidden layers.
+     * @param nOutputs Number of the outputs.
+     * @param activation Activation function of the neurons.
+     * @throws NullPointerException if {@code hiddenLayerSizes} or
+     * {@code activation} is null.
+     * @throws IllegalArgumentException if any of the sizes isn't positive.
+     */
+    public FlatNeuralNetwork(int nInputs, int[] hiddenLayerSizes, int nOutputs, 
+            ActivationFunction activation) {
+        if (hiddenLayerSizes == null) {
+            throw new NullPointerException("Hidden layer sizes cannot be null");
+        }
+        if (activation == null) {
+            throw new NullPointerException("Activation function cannot be null");
+        }
+        this.activation = activation;
+        layerSizes = new int[hiddenLayerSizes.length + 2];
+        layerSizes[0] = nInputs;
+        System.arraycopy(hiddenLayerSizes, 0, layerSizes, 1, hiddenLayerSizes.length);
+        layerSizes[layerSizes.length - 1] = nOutputs;
+        int maxSize = 0;
+        for (int size : layerSizes) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Layer sizes must be positive");
+            }
+            maxSize = Math.max(maxSize, size);
+        }
+        maxLayerSize = maxSize;
+        weights = new double[layerSizes.length - 1][];
+        biases = new double[layerSizes.length - 1][];
+        for (int layer = 0; layer < weights.length; layer++) {
+            weights[layer] = new double[layerSizes[layer] * layerSizes[layer + 1]];
+            biases[layer] = new double[layerSizes[layer + 1]];
+        }
+    }
+
+    /**
+     * Create a copy of {@code network}.
+     * @param network Network to copy.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public FlatNeuralNetwork(FlatNeuralNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        layerSizes = network.layerSizes.clone();
+        activation = network.activation;
+        maxLayerSize = network.maxLayerSize;
+        weights = new double[network.weights.length][];
+        biases = new double[network.biases.length][];
+        for (int layer = 0; layer < weights.length; layer++) {
+            weights[layer] = network.weights[layer].clone();
+            biases[layer] = network.biases[layer].clone();
+        }
+    }
+
+    /**
+     * Compile {@code network} into the flat form.
+     * @param network Network to copy the structure, the activation function,
+     * the weights and the biases of.
+     * @return {@code FlatNeuralNetwork} copy of the network.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public static FlatNeuralNetwork of(NeuralNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        // read the weights without loading them for every access
+        network = LazyNeuralNetwork.loaded(network);
+        FlatNeuralNetwork flat = new FlatNeuralNetwork(network.getNumberInputs(),
+                network.getHiddenLayerSizes(), network.getNumberOutputs(),
+                network.getActivationFunction());
+        for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+            int nFrom = flat.getLayerInputSize(layer);
+            int nTo = flat.getLayerOutputSize(layer);
+            double[] layerWeights = flat.weights[layer];
+            double[] layerBiases = flat.biases[layer];
+            for (int to = 0; to < nTo; to++) {
+                int offset = to * nFrom;
+                for (int from = 0; from < nFrom; from++) {
+                    layerWeights[offset + from] = network.getWeight(layer, from, to);
+                }
+                layerBiases[to] = network.getBias(layer, to);
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * Create a {@code NeuralNetwork} with the structure, the activation
+     * function, the weights and the biases of this network.
+     * @return {@code NeuralNetwork} new network.
+     */
+    public NeuralNetwork toNeuralNetwork() {
+        int[] hiddenSizes = new int[layerSizes.length - 2];
+        System.arraycopy(layerSizes, 1, hiddenSizes, 0, hiddenSizes.length);
+        NeuralNetwork network = new NeuralNetwork(getNumberInputs(), hiddenSizes,
+                getNumberOutputs(), activation);
+        copyInto(network);
+        return network;
+    }
+
+    /**
+     * Set the weights and the biases of {@code network} to the ones of
+     * this network.
+     * @param network Network of the same structure and activation function
+     * as this network.
+     * @throws NullPointerException if {@code network} is null.
+     * @throws IllegalArgumentException if the structure or the activation
+     * function of {@code network} differs.
+     */
+    public void copyInto(NeuralNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (!hasStructureOf(network)) {
+            throw new IllegalArgumentException("Structures of the networks differ");
+        }
+        // the activation function of a network cannot be changed
+        if (!activation.equals(network.getActivationFunction())) {
+            throw new IllegalArgumentException("Activation functions of the networks differ");
+        }
+        for (int layer = 0; layer < getNumberLayers(); layer++) {
+            int nFrom = getLayerInputSize(layer);
+            int nTo = getLayerOutputSize(layer);
+            double[] layerWeights = weights[layer];
+            double[] layerBiases = biases[layer];
+            for (int to = 0; to < nTo; to++) {
+                int offset = to * nFrom;
+                for (int from = 0; from < nFrom; from++) {
+                    network.setWeight(layer, from, to, layerWeights[offset + from]);
+                }
+                network.setBias(layer, to, layerBiases[to]);
+            }
+        }
+    }
+
+    private boolean hasStructureOf(NeuralNetwork network) {
+        if (network.getNumberInputs() != getNumberInputs() ||
+                network.getNumberOutputs() != getNumberOutputs() ||
+                network.getNumberHiddenLayers() != layerSizes.length - 2) {
+            return false;
+        }
+        for (int idx = 0; idx < network.getNumberHiddenLayers(); idx++) {
+            if (network.getHiddenLayerSize(idx) != layerSizes[idx + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumberInputs() {
+        return layerSizes[0];
+    }
+
+    public ActivationFunction getActivationFunction() {
+        return activation;
+    }
+
+    public int getNumberOutputs() {
+        return layerSizes[layerSizes.length - 1];
+    }
+
+    /**
+     * Number of the weight layers, which is the number of the hidden layers
+     * plus one.
+     * @return {@code int} number of layers.
+     */
+    public int getNumberLayers() {
+        return weights.length;
+    }
+
+    /**
+     * Number of the neurons feeding layer {@code layer}.
+     * @param layer Index of the layer.
+     * @return {@code int} number of the inputs of the layer.
+     */
+    public int getLayerInputSize(int layer) {
+        return layerSizes[layer];
+    }
+
+    /**
+     * Number of the neurons of layer {@code layer}.
+     * @param layer Index of the layer.
+     * @return {@code int} number of the outputs of the layer.
+     */
+    public int getLayerOutputSize(int layer) {
+        return layerSizes[layer + 1];
+    }
+
+    /**
+     * Size of the largest layer, including the input and the output ones.
+     * @return {@code int} number of neurons.
+     */
+    public int getMaxLayerSize() {
+        return maxLayerSize;
+    }
+
+    /**
+     * Weights of layer {@code layer} in the row-major layout described
+     * above. The array isn't copied, changing it changes the network.
+     * @param layer Index of the layer.
+     * @return {@code double[]} weights of the layer.
+     */
+    public double[] getWeights(int layer) {
+        return weights[layer];
+    }
+
+    /**
+     * Biases of the neurons of layer {@code layer}. The array isn't copied,
+     * changing it changes the network.
+     * @param layer Index of the layer.
+     * @return {@code double[]} biases of the layer.
+     */
+    public double[] getBiases(int layer) {
+        return biases[layer];
+    }
+
+    public double getWeight(int layer, int from, int to) {
+        return weights[layer][to * layerSizes[layer] + from];
+    }
+
+    public void setWeight(int layer, int from, int to, double weight) {
+        weights[layer][to * layerSizes[layer] + from] = weight;
+    }
+
+    public double getBias(int layer, int to) {
+        return biases[layer][to];
+    }
+
+    public void setBias(int layer, int to, double bias) {
+        biases[layer][to] = bias;
+    }
+
+    /**
+     * Calculate the output of the network for {@code input}.
+     * @param input Values of the inputs.
+     * @return {@code double[]} values of the outputs.
+     * @throws NullPointerException if {@code input} is null.
+     * @throws IllegalArgumentException if the size of {@code input} differs
+     * from the number of the inputs.
+     */
+    public double[] getOutput(double[] input) {
+        if (input == null) {
+            throw new NullPointerException("Input cannot be null");
+        }
+        if (input.length != getNumberInputs()) {
+            throw new IllegalArgumentException("Wrong number of inputs");
+        }
+        double[] values = input;
+        for (int layer = 0; layer < getNumberLayers(); layer++) {
+            double[] next = new double[getLayerOutputSize(layer)];
+            propagate(layer, values, next);
+            values = next;
+        }
+        return values;
+    }
+
+    /**
+     * Calculate the activations of layer {@code layer} from the activations
+     * of the previous layer.
+     * @param layer Index of the layer.
+     * @param in Activations of the previous layer, at least
+     * {@code getLayerInputSize(layer)} values.
+     * @param out Array to put the activations of the layer into, at least
+     * {@code getLayerOutputSize(layer)} values.
+     */
+    public void propagate(int layer, double[] in, double[] out) {
+        int nFrom = layerSizes[layer];
+        int nTo = layerSizes[layer + 1];
+        double[] layerWeights = weights[layer];
+        double[] layerBiases = biases[layer];
+        ActivationFunction layerActivation = activation;
+        for (int to = 0, offset = 0; to < nTo; to++, offset += nFrom) {
+            double sum = layerBiases[to];
+            for (int from = 0; from < nFrom; from++) {
+                sum += layerWeights[offset + from] * in[from];
+            }
+            out[to] = layerActivation.apply(sum);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package trainerapp.gui.model;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
+
+/**
+ * A named network of which only the structure is kept in memory. The weights
+ * and the biases are loaded from their source the first time they are
+ * accessed and are held by a soft reference, so the garbage collector can
+ * evict them when memory runs low, and they are loaded again on the next
+ * access. Once a weight or a bias has been set, the loaded network is held
+ * strongly, since its changes cannot be loaded again.
+ * @author Konstantin Zhdanov
+ */
+public class LazyNeuralNetwork extends NamedNeuralNetwork {
+
+    private static final long serialVersionUID = 3620932513254107519L;
+
+    // the smallest structure, the weights of the superclass aren't used
+    private static final int[] PLACEHOLDER_HIDDEN_SIZES = {1};
+
+    // activation of the networks created without one
+    private static final ActivationFunction DEFAULT_ACTIVATION = 
+            new NeuralNetwork(1, PLACEHOLDER_HIDDEN_SIZES, 1).getActivationFunction();
+
+    private final int nInputs;
+
+    private final int[] hiddenSizes;
+
+    private final int nOutputs;
+
+    private final transient Supplier<? extends NeuralNetwork> source;
+
+    private transient SoftReference<NeuralNetwork> loaded;
+
+    private NeuralNetwork changed;
+
+    private String signature;
+
+    /**
+     * Create a network of the given structure loaded from {@code source}.
+     * @param numInputs Number of inputs.
+     * @param hiddenLayerSizes Sizes of the hidden layers.
+     * @param numOutputs Number of outputs.
+     * @param name Name of the network.
+     * @param source Supplier of the network with the weights, called every
+     * time the weights are loaded. It must return a network of the same
+     * structure.
+     * @throws NullPointerException if any of the arguments is null.
+     * @throws IllegalArgumentException if any of the sizes isn't positive.
+     */
+    public LazyNeuralNetwork(int numInputs, int[] hiddenLayerSizes, int numOutputs,
+            String name, Supplier<? extends NeuralNetwork> source) {
+        this(numInputs, hiddenLayerSizes, numOutputs, name, DEFAULT_ACTIVATION, source);
+    }
+
+    /**
+     * Create a network of the given structure and activation function loaded
+     * from {@code source}.
+     * @param numInputs Number of inputs.
+     * @param hiddenLayerSizes Sizes of the hidden layers.
+     * @param numOutputs Number of outputs.
+     * @param name Name of the network.
+     * @param activation Activation function of the network.
+     * @param source Supplier of the network with the weights, called every
+     * time the weights are loaded. It must return a network of the same
+     * structure and activation function.
+     * @throws NullPointerException if any of the arguments is null.
+     * @throws IllegalArgumentException if any of the sizes isn't positive.
+     */
+    public LazyNeuralNetwork(int numInputs, int[] hiddenLayerSizes, int numOutputs,
+            String name, ActivationFunction activation,
+            Supplier<? extends NeuralNetwork> source) {
+        super(1, PLACEHOLDER_HIDDEN_SIZES, 1, name, activation);
+        if (hiddenLayerSizes == null || activation == null || source == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (numInputs <= 0 || numOutputs <= 0 || hiddenLayerSizes.length == 0) {
+            throw new IllegalArgumentException("Sizes must be positive");
+        }
+        for (int size : hiddenLayerSizes) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Sizes must be positive");
+            }
+        }
+        this.nInputs = numInputs;
+        this.hiddenSizes = hiddenLayerSizes.clone();
+        this.nOutputs = numOutputs;
+        this.source = source;
+    }
+
+    /**
+     * Whether the weights are in memory.
+     * @return {@code true} if the weights are loaded and haven't been evicted.
+     */
+    public synchronized boolean isLoaded() {
+        return changed != null || (loaded != null && loaded.get() != null);
+    }
+
+    /**
+     * Drop the loaded weights unless they have been changed.
+     */
+    public synchronized void evict() {
+        loaded = null;
+    }
+
+    /**
+     * Network with the weights of this network, loaded if necessary.
+     * The returned network mustn't be changed, use the setters of this
+     * network instead.
+     * @return {@code NeuralNetwork} loaded network.
+     * @throws IllegalArgumentException if the source cannot load the network
+     * or has loaded a network of another structure.
+     */
+    public synchronized NeuralNetwork materialize() {
+        if (changed != null) {
+            return changed;
+        }
+        NeuralNetwork network = loaded != null ? loaded.get() : null;
+        if (network == null) {
+            network = source.get();
+            if (network.getNumberInputs() != nInputs ||
+                    network.getNumberOutputs() != nOutputs ||
+                    !Arrays.equals(network.getHiddenLayerSizes(), hiddenSizes)) {
+                throw new IllegalArgumentException("Loaded network has another structure");
+            }
+            loaded = new SoftReference<>(network);
+        }
+        return network;
+    }
+
+    /**
+     * Network with the weights of this network, loaded if necessary and
+     * never evicted afterwards, for the users which may change it, such as
+     * trainers. The changes of the returned network are the changes of this
+     * network.
+     * @return {@code NeuralNetwork} loaded network.
+     * @throws IllegalArgumentException if the source cannot load the network
+     * or has loaded a network of another structure.
+     */
+    public synchronized NeuralNetwork pin() {
+        changed = materialize();
+        return changed;
+    }
+
+    /**
+     * The network with the weights of {@code network} if it's lazy,
+     * for the code reading the weights directly or copying the network.
+     * @param network Any network.
+     * @return {@code NeuralNetwork} loaded network if {@code network} is
+     * a {@code LazyNeuralNetwork}, {@code network} otherwise.
+     */
+    public static NeuralNetwork loaded(NeuralNetwork network) {
+        if (network instanceof LazyNeuralNetwork) {
+            return ((LazyNeuralNetwork)network).materialize();
+        }
+        return network;
+    }
+
+    // the loaded weights are written instead of the handle
+    private Object writeReplace() {
+        return new NamedNeuralNetwork(materialize(), getName());
+    }
+
+    @Override
+    public int getNumberInputs() {
+        return nInputs;
+    }
+
+    @Override
+    public int getNumberOutputs() {
+        return nOutputs;
+    }
+
+    @Override
+    public int getNumberHiddenLayers() {
+        return hiddenSizes.length;
+    }
+
+    @Override
+    public int getHiddenLayerSize(int layer) {
+        return hiddenSizes[layer];
+    }
+
+    @Override
+    public int[] getHiddenLayerSizes() {
+        return hiddenSizes.clone();
+    }
+
+    @Override
+    public double getWeight(int layer, int from, int to) {
+        return materialize().getWeight(layer, from, to);
+    }
+
+    @Override
+    public void setWeight(int layer, int from, int to, double value) {
+        pin().setWeight(layer, from, to, value);
+    }
+
+    @Override
+    public double getBias(int layer, int to) {
+        return materialize().getBias(layer, to);
+    }
+
+    @Override
+    public void setBias(int layer, int to, double value) {
+        pin().setBias(layer, to, value);
+    }
+
+    /**
+     * Signature of the structure of the network, which doesn't load
+     * the weights.
+     * @return {@code String} signature.
+     */
+    @Override
+    public synchronized String getSignature() {
+        if (signature == null) {
+            // the signature of an empty network of the same structure
+            signature = new NeuralNetwork(nInputs, hiddenSizes, nOutputs).getSignature();
+        }
+        return signature;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s", getName(), getSignature());
+    }
+}
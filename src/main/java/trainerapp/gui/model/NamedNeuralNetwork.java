@@ -1,6 +1,7 @@
 package trainerapp.gui.model;
 
 import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
 import java.io.Serializable;
 import neuralnetwork.init.Initializer;
 
@@ -32,6 +33,15 @@ public class NamedNeuralNetwork extends NeuralNetwork implements Serializable {
         this.name = name;
     }
 
+    public NamedNeuralNetwork(int numInputs, int[] hiddenLayerSizes, int numOutputs, String name,
+             ActivationFunction activation) {
+        super(numInputs, hiddenLayerSizes, numOutputs, activation);
+        if (name == null) {
+            throw new NullPointerException("Name cannot be null");
+        }
+        this.name = name;
+    }
+
     public NamedNeuralNetwork(NeuralNetwork nn, String name) {
         super(nn);
         if (name == null) {
@@ -1,5 +1,6 @@
 package trainerapp.gui.repository;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -41,6 +42,12 @@ public class FilteredNamedObjectRepository<T> extends NamedObjectRepository<T>{
         repository.add(name, object); 
     }
 
+    // add to the underlying repository without filtering
+    @Override
+    public void addAll(Map<String, ? extends T> namedObjects) {
+        repository.addAll(namedObjects); 
+    }
+
     // remove from the underlying repository without filtering
     @Override
     public boolean remove(String name) {
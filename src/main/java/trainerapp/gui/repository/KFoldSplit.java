@@ -0,0 +1,111 @@
+package trainerapp.gui.repository;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Split of the indices of samples into folds of a k-fold cross-validation.
+ * The indices are shuffled once and every fold is a contiguous range of
+ * the shuffled indices, so the folds are disjoint and differ in size
+ * by at most one sample. Samples themselves are never copied: rows of
+ * a matrix are selected by reference.
+ * @author Konstantin Zhdanov
+ */
+public class KFoldSplit {
+
+    private final int[] permutation;
+
+    private final int nFolds;
+
+    /**
+     * Split {@code nSamples} samples into {@code nFolds} folds at random.
+     * @param nSamples Number of samples.
+     * @param nFolds Number of folds.
+     * @param random Source of random numbers for shuffling the samples.
+     * @throws NullPointerException if {@code random} is null.
+     * @throws IllegalArgumentException if {@code nFolds} is less than 2
+     * or greater than {@code nSamples}.
+     */
+    public KFoldSplit(int nSamples, int nFolds, Random random) {
+        if (random == null) {
+            throw new NullPointerException("Random cannot be null");
+        }
+        if (nFolds < 2 || nFolds > nSamples) {
+            throw new IllegalArgumentException(
+                    "Number of folds must be between 2 and the number of samples");
+        }
+        this.nFolds = nFolds;
+        this.permutation = new int[nSamples];
+        for (int i = 0; i < nSamples; i++) {
+            permutation[i] = i;
+        }
+        // Fisher-Yates shuffle
+        for (int i = nSamples - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+    }
+
+    public int getFoldCount() {
+        return nFolds;
+    }
+
+    public int getSampleCount() {
+        return permutation.length;
+    }
+
+    /**
+     * Indices of the samples held out in {@code fold}.
+     * @param fold Index of the fold.
+     * @return Array of the indices of the samples.
+     * @throws IndexOutOfBoundsException if {@code fold} is out of range.
+     */
+    public int[] testIndices(int fold) {
+        checkFold(fold);
+        return Arrays.copyOfRange(permutation, foldStart(fold), foldStart(fold + 1));
+    }
+
+    /**
+     * Indices of the samples used for training in {@code fold}, that is
+     * the samples of all the other folds.
+     * @param fold Index of the fold.
+     * @return Array of the indices of the samples.
+     * @throws IndexOutOfBoundsException if {@code fold} is out of range.
+     */
+    public int[] trainingIndices(int fold) {
+        checkFold(fold);
+        int start = foldStart(fold);
+        int end = foldStart(fold + 1);
+        int[] indices = new int[permutation.length - (end - start)];
+        System.arraycopy(permutation, 0, indices, 0, start);
+        System.arraycopy(permutation, end, indices, start, permutation.length - end);
+        return indices;
+    }
+
+    /**
+     * Select the rows of {@code matrix} with {@code indices}. The rows are
+     * shared with {@code matrix}, so their values aren't copied.
+     * @param matrix Matrix to select the rows of.
+     * @param indices Indices of the rows.
+     * @return {@code double[][]} matrix of the selected rows.
+     */
+    public static double[][] selectRows(double[][] matrix, int[] indices) {
+        double[][] rows = new double[indices.length][];
+        for (int i = 0; i < indices.length; i++) {
+            rows[i] = matrix[indices[i]];
+        }
+        return rows;
+    }
+
+    private int foldStart(int fold) {
+        return (int)((long)fold * permutation.length / nFolds);
+    }
+
+    private void checkFold(int fold) {
+        if (fold < 0 || fold >= nFolds) {
+            throw new IndexOutOfBoundsException("Fold index is out of range: " + fold);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package trainerapp.gui.repository;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javafx.collections.FXCollections;
@@ -46,6 +48,34 @@ public class NamedObjectRepository<T> {
         }
     }
     
+    // O(n + m) time for m objects, O(n * k) if k of the names already exist
+    // New names are added in the order of the map with one change of each 
+    // observable list, objects with existing names are replaced
+    public void addAll(Map<String, ? extends T> namedObjects) {
+        if (namedObjects == null) {
+            throw new NullPointerException("Map cannot be null");
+        }
+        for (Map.Entry<String, ? extends T> entry : namedObjects.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new NullPointerException("Names and objects cannot be null");
+            }
+        }
+        List<String> newNames = new ArrayList<>();
+        List<T> newObjects = new ArrayList<>();
+        for (Map.Entry<String, ? extends T> entry : namedObjects.entrySet()) {
+            T prev = nameObjectMap.put(entry.getKey(), entry.getValue());
+            if (prev != null) {
+                objects.set(objects.indexOf(prev), entry.getValue());
+            }
+            else {
+                newNames.add(entry.getKey());
+                newObjects.add(entry.getValue());
+            }
+        }
+        names.addAll(newNames);
+        objects.addAll(newObjects);
+    }
+    
     // O(n) time
     // boolean result
     public boolean remove(String name) {
@@ -0,0 +1,53 @@
+package trainerapp.gui.repository;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only observable list presenting the rows of a {@code SamplesBlockCache}
+ * as unmodifiable {@code ObservableList}s created on demand.
+ * @author Konstantin Zhdanov
+ */
+class PagedSamplesObservableList extends ObservableListBase<ObservableList<Double>> {
+
+    private final SamplesBlockCache cache;
+
+    private final int nRows;
+
+    private final int nColumns;
+
+    PagedSamplesObservableList(SamplesBlockCache cache, int nRows, int nColumns) {
+        this.cache = cache;
+        this.nRows = nRows;
+        this.nColumns = nColumns;
+    }
+
+    SamplesBlockCache getCache() {
+        return cache;
+    }
+
+    int columns() {
+        return nColumns;
+    }
+
+    @Override
+    public ObservableList<Double> get(int index) {
+        if (index < 0 || index >= nRows) {
+            throw new IndexOutOfBoundsException("Index is out of range: " + index);
+        }
+        double[] row = new double[nColumns];
+        cache.copyRow(index, 0, row, 0, nColumns);
+        Double[] values = new Double[nColumns];
+        for (int column = 0; column < nColumns; column++) {
+            values[column] = row[column];
+        }
+        return FXCollections.unmodifiableObservableList(
+                FXCollections.observableArrayList(values));
+    }
+
+    @Override
+    public int size() {
+        return nRows;
+    }
+}
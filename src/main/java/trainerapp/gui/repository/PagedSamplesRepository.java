@@ -0,0 +1,135 @@
+package trainerapp.gui.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Read-only repository of samples stored in a file as little-endian
+ * {@code double} values, row by row. The samples aren't loaded into memory:
+ * blocks of consecutive samples are read from the memory-mapped file when
+ * they are needed and only a bounded number of them is kept in memory,
+ * so the repository can hold more samples than fit into the heap.
+ * Samples are best read in order, e.g. by {@code batchIterator}.
+ * Adding or removing samples throws {@code UnsupportedOperationException}.
+ * @author Konstantin Zhdanov
+ */
+public class PagedSamplesRepository extends SamplesRepository<Double> implements Closeable {
+
+    /**
+     * Default size of a block of samples in bytes.
+     */
+    public static final int DEFAULT_BLOCK_BYTES = 256 * 1024;
+
+    /**
+     * Default maximal number of blocks kept in memory.
+     */
+    public static final int DEFAULT_MAX_BLOCKS = 64;
+
+    private final PagedSamplesObservableList pagedItems;
+
+    /**
+     * Create a repository of the samples stored in {@code file}.
+     * @param file File holding the values of the samples.
+     * @param dataOffset Position of the first value in the file.
+     * @param sampleCount Number of samples in the file.
+     * @param sampleSize Number of variables in each sample.
+     * @param header Titles of the variables.
+     * @throws IOException if the file cannot be opened.
+     * @throws NullPointerException if {@code file} or {@code header} is null.
+     * @throws IllegalArgumentException if any of the sizes is negative.
+     */
+    public PagedSamplesRepository(Path file, long dataOffset, int sampleCount,
+            int sampleSize, List<String> header) throws IOException {
+        this(file, dataOffset, sampleCount, sampleSize, header,
+                DEFAULT_BLOCK_BYTES, DEFAULT_MAX_BLOCKS);
+    }
+
+    /**
+     * Create a repository of the samples stored in {@code file} keeping
+     * not more than {@code maxBlocks} blocks of {@code blockBytes} bytes
+     * in memory.
+     * @param file File holding the values of the samples.
+     * @param dataOffset Position of the first value in the file.
+     * @param sampleCount Number of samples in the file.
+     * @param sampleSize Number of variables in each sample.
+     * @param header Titles of the variables.
+     * @param blockBytes Size of a block of samples in bytes, at least one
+     * sample is read at once.
+     * @param maxBlocks Maximal number of blocks kept in memory.
+     * @throws IOException if the file cannot be opened.
+     * @throws NullPointerException if {@code file} or {@code header} is null.
+     * @throws IllegalArgumentException if any of the sizes is negative or
+     * {@code maxBlocks} isn't positive.
+     */
+    public PagedSamplesRepository(Path file, long dataOffset, int sampleCount,
+            int sampleSize, List<String> header, int blockBytes, int maxBlocks)
+            throws IOException {
+        this(createItems(file, dataOffset, sampleCount, sampleSize, header,
+                blockBytes, maxBlocks));
+        setHeader(header);
+    }
+
+    private PagedSamplesRepository(PagedSamplesObservableList items) {
+        super(items);
+        this.pagedItems = items;
+    }
+
+    private static PagedSamplesObservableList createItems(Path file, long dataOffset,
+            int sampleCount, int sampleSize, List<String> header, int blockBytes,
+            int maxBlocks) throws IOException {
+        if (file == null || header == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (blockBytes < 0) {
+            throw new IllegalArgumentException("Block size cannot be negative");
+        }
+        int rowsPerBlock = Math.max(1, blockBytes / Math.max(1, sampleSize * Double.BYTES));
+        SamplesBlockCache cache = new SamplesBlockCache(file, dataOffset,
+                sampleCount, sampleSize, rowsPerBlock, maxBlocks);
+        return new PagedSamplesObservableList(cache, sampleCount, sampleSize);
+    }
+
+    @Override
+    public double getValue(int idx, int var) {
+        return pagedItems.getCache().get(idx, var);
+    }
+
+    @Override
+    public void copySample(int idx, int fromVar, double[] dest, int destPos,
+            int length) {
+        pagedItems.getCache().copyRow(idx, fromVar, dest, destPos, length);
+    }
+
+    @Override
+    public void copyVariable(int var, double[] dest, int destPos) {
+        if (var < 0 || var >= pagedItems.columns()) {
+            throw new IndexOutOfBoundsException("Variable index is out of range: " + var);
+        }
+        if (destPos < 0 || destPos + size() > dest.length) {
+            throw new IndexOutOfBoundsException("Destination is too short");
+        }
+        for (int idx = 0; idx < size(); idx++) {
+            dest[destPos + idx] = pagedItems.getCache().get(idx, var);
+        }
+    }
+
+    @Override
+    public int sampleSize() {
+        if (isEmpty()) {
+            return 0;
+        }
+        return pagedItems.columns();
+    }
+
+    /**
+     * Close the file holding the samples. The samples cannot be read after
+     * the repository has been closed.
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        pagedItems.getCache().close();
+    }
+}
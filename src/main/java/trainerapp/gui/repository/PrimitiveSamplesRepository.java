@@ -0,0 +1,90 @@
+package trainerapp.gui.repository;
+
+/**
+ * Repository of samples storing all the values in one flat array of
+ * {@code double} values, row by row. Each value takes 8 bytes and the
+ * variables of a sample are contiguous in memory.
+ * The samples returned by {@code getSample} and {@code getAll} are
+ * observable views created on demand for the controls that need them.
+ * All the samples must be of the same size, which is determined by
+ * the first added sample.
+ * @author Konstantin Zhdanov
+ */
+public class PrimitiveSamplesRepository extends SamplesRepository<Double> {
+
+    private final SamplesMatrixObservableList matrixItems;
+
+    /**
+     * Create an empty repository of samples.
+     */
+    public PrimitiveSamplesRepository() {
+        this(new SamplesMatrixObservableList());
+    }
+
+    private PrimitiveSamplesRepository(SamplesMatrixObservableList items) {
+        super(items);
+        this.matrixItems = items;
+    }
+
+    /**
+     * Add {@code nSamples} samples of {@code sampleSize} variables stored one
+     * after another in {@code values} starting at {@code offset}.
+     * Listeners of the samples list are notified by a single change.
+     * @param values Array to copy the samples from.
+     * @param offset Index of the first variable of the first sample.
+     * @param nSamples Number of samples to add.
+     * @param sampleSize Number of variables in each sample.
+     * @throws IllegalArgumentException if {@code sampleSize} differs from
+     * the size of the samples in this repository.
+     * @throws IndexOutOfBoundsException if {@code values} is too short.
+     */
+    public void addAll(double[] values, int offset, int nSamples, int sampleSize) {
+        if (values == null) {
+            throw new NullPointerException("Values cannot be null");
+        }
+        matrixItems.addRows(values, offset, nSamples, sampleSize);
+    }
+
+    /**
+     * Reserve space for {@code nSamples} samples of {@code sampleSize}
+     * variables, so that they can be added without growing the storage.
+     * @param nSamples Total number of samples to reserve space for.
+     * @param sampleSize Number of variables in each sample.
+     * @throws IllegalArgumentException if {@code sampleSize} differs from
+     * the size of the samples in this repository.
+     */
+    public void ensureCapacity(int nSamples, int sampleSize) {
+        matrixItems.ensureCapacity(nSamples, sampleSize);
+    }
+
+    @Override
+    public double getValue(int idx, int var) {
+        return matrixItems.getMatrix().get(idx, var);
+    }
+
+    @Override
+    public void copySample(int idx, int fromVar, double[] dest, int destPos,
+            int length) {
+        matrixItems.getMatrix().copyRow(idx, fromVar, dest, destPos, length);
+    }
+
+    @Override
+    public void copyVariable(int var, double[] dest, int destPos) {
+        matrixItems.getMatrix().copyColumn(var, dest, destPos);
+    }
+
+    @Override
+    public int sampleSize() {
+        if (isEmpty()) {
+            return 0;
+        }
+        return matrixItems.getMatrix().columns();
+    }
+
+    /**
+     * Release the memory reserved for samples that haven't been added.
+     */
+    public void trimToSize() {
+        matrixItems.getMatrix().trimToSize();
+    }
+}
@@ -0,0 +1,89 @@
+package trainerapp.gui.repository;
+
+/**
+ * A mini-batch of samples split into inputs and targets. The values of
+ * the samples are stored one sample after another in flat {@code double}
+ * arrays, which are reused by the iterator returning the batch.
+ * @author Konstantin Zhdanov
+ */
+public class SamplesBatch {
+
+    private final int inputSize;
+
+    private final int targetSize;
+
+    private final double[] inputs;
+
+    private final double[] targets;
+
+    private int firstSample;
+
+    private int size;
+
+    SamplesBatch(int maxSize, int inputSize, int targetSize) {
+        this.inputSize = inputSize;
+        this.targetSize = targetSize;
+        this.inputs = new double[maxSize * inputSize];
+        this.targets = new double[maxSize * targetSize];
+    }
+
+    /**
+     * Inputs of the samples of this batch. Only the first
+     * {@code size() * getInputSize()} values belong to the batch.
+     * @return {@code double} array of the inputs.
+     */
+    public double[] getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Targets of the samples of this batch. Only the first
+     * {@code size() * getTargetSize()} values belong to the batch.
+     * @return {@code double} array of the targets.
+     */
+    public double[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Number of inputs of each sample.
+     * @return {@code int} size of the inputs.
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Number of targets of each sample.
+     * @return {@code int} size of the targets.
+     */
+    public int getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * Index of the first sample of this batch in the repository.
+     * @return {@code int} index of the sample.
+     */
+    public int getFirstSample() {
+        return firstSample;
+    }
+
+    /**
+     * Number of samples in this batch.
+     * @return {@code int} number of samples.
+     */
+    public int size() {
+        return size;
+    }
+
+    // fills the batch with the samples of the repository starting at first
+    void fill(SamplesRepository<?> repo, int first, int nSamples) {
+        for (int i = 0; i < nSamples; i++) {
+            repo.copySample(first + i, 0, inputs, i * inputSize, inputSize);
+            repo.copySample(first + i, inputSize, targets, i * targetSize, targetSize);
+        }
+        this.firstSample = first;
+        this.size = nSamples;
+    }
+}
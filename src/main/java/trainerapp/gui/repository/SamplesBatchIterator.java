@@ -0,0 +1,53 @@
+package trainerapp.gui.repository;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the samples of a {@code SamplesRepository} in mini-batches
+ * of consecutive samples. The same {@code SamplesBatch} object is returned
+ * by every call of {@code next}, refilled with the next samples, so
+ * the iteration doesn't allocate memory for every batch.
+ * @author Konstantin Zhdanov
+ */
+public class SamplesBatchIterator implements Iterator<SamplesBatch> {
+
+    private final SamplesRepository<?> repo;
+
+    private final int batchSize;
+
+    private final SamplesBatch batch;
+
+    private int nextSample;
+
+    SamplesBatchIterator(SamplesRepository<?> repo, int batchSize, int inputSize,
+            int targetSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (inputSize < 0 || targetSize < 0 ||
+                (!repo.isEmpty() && inputSize + targetSize > repo.sampleSize())) {
+            throw new IllegalArgumentException("Wrong sizes of inputs and targets");
+        }
+        this.repo = repo;
+        this.batchSize = Math.min(batchSize, Math.max(1, repo.size()));
+        this.batch = new SamplesBatch(this.batchSize, inputSize, targetSize);
+        this.nextSample = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextSample < repo.size();
+    }
+
+    @Override
+    public SamplesBatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more samples");
+        }
+        int nSamples = Math.min(batchSize, repo.size() - nextSample);
+        batch.fill(repo, nextSample, nSamples);
+        nextSample += nSamples;
+        return batch;
+    }
+}
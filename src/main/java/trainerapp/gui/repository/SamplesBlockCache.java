@@ -0,0 +1,158 @@
+package trainerapp.gui.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of blocks of rows of a matrix of little-endian {@code double}
+ * values stored row by row in a file. The file is mapped into memory in
+ * regions and each block is copied from its region into a {@code double}
+ * array when it's first needed. Only the least recently used blocks are kept.
+ * All the methods are synchronized, so the cache can be shared by threads.
+ * @author Konstantin Zhdanov
+ */
+class SamplesBlockCache implements Closeable {
+
+    // Size of the regions of the file mapped at once
+    private static final long MAX_MAPPED_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+
+    private final long dataOffset;
+
+    private final int nRows;
+
+    private final int nColumns;
+
+    private final int rowsPerBlock;
+
+    private final int blocksPerRegion;
+
+    private final MappedByteBuffer[] regions;
+
+    private final Map<Integer, double[]> blocks;
+
+    /**
+     * Create a cache of the matrix of {@code nRows} rows of {@code nColumns}
+     * values starting at {@code dataOffset} in {@code file}.
+     * Not more than {@code maxBlocks} blocks of {@code rowsPerBlock} rows
+     * are kept in memory.
+     */
+    SamplesBlockCache(Path file, long dataOffset, int nRows, int nColumns,
+            int rowsPerBlock, int maxBlocks) throws IOException {
+        if (nRows < 0 || nColumns < 0 || rowsPerBlock <= 0 || maxBlocks <= 0) {
+            throw new IllegalArgumentException("Wrong size of the cache");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.dataOffset = dataOffset;
+        this.nRows = nRows;
+        this.nColumns = nColumns;
+        this.rowsPerBlock = rowsPerBlock;
+        long blockBytes = Math.max(1L, (long)rowsPerBlock * nColumns * Double.BYTES);
+        this.blocksPerRegion = (int)Math.max(1, MAX_MAPPED_BYTES / blockBytes);
+        int nBlocks = (nRows + rowsPerBlock - 1) / rowsPerBlock;
+        this.regions = new MappedByteBuffer[(nBlocks + blocksPerRegion - 1) /
+                blocksPerRegion];
+        this.blocks = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    int rowsPerBlock() {
+        return rowsPerBlock;
+    }
+
+    /**
+     * Get the value at {@code row} row and {@code column} column.
+     */
+    synchronized double get(int row, int column) {
+        checkRow(row);
+        if (column < 0 || column >= nColumns) {
+            throw new IndexOutOfBoundsException("Column index is out of range: " + column);
+        }
+        return block(row / rowsPerBlock)[(row % rowsPerBlock) * nColumns + column];
+    }
+
+    /**
+     * Copy {@code length} values of the row {@code row} starting at column
+     * {@code column} into {@code dest} starting at {@code destPos}.
+     */
+    synchronized void copyRow(int row, int column, double[] dest, int destPos,
+            int length) {
+        checkRow(row);
+        if (column < 0 || length < 0 || column + length > nColumns) {
+            throw new IndexOutOfBoundsException("Column range is out of bounds");
+        }
+        System.arraycopy(block(row / rowsPerBlock),
+                (row % rowsPerBlock) * nColumns + column, dest, destPos, length);
+    }
+
+    private double[] block(int blockIdx) {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("Samples file has been closed");
+        }
+        double[] block = blocks.get(blockIdx);
+        if (block == null) {
+            block = readBlock(blockIdx);
+            blocks.put(blockIdx, block);
+        }
+        return block;
+    }
+
+    private double[] readBlock(int blockIdx) {
+        int firstRow = blockIdx * rowsPerBlock;
+        int blockRows = Math.min(rowsPerBlock, nRows - firstRow);
+        double[] block = new double[blockRows * nColumns];
+        if (block.length == 0) {
+            return block;
+        }
+        int regionIdx = blockIdx / blocksPerRegion;
+        long regionStart = (long)regionIdx * blocksPerRegion * rowsPerBlock;
+        ByteBuffer region = region(regionIdx).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        region.position((int)((firstRow - regionStart) * nColumns * Double.BYTES));
+        region.asDoubleBuffer().get(block);
+        return block;
+    }
+
+    private MappedByteBuffer region(int regionIdx) {
+        if (regions[regionIdx] == null) {
+            long firstRow = (long)regionIdx * blocksPerRegion * rowsPerBlock;
+            long lastRow = Math.min(nRows, firstRow + (long)blocksPerRegion * rowsPerBlock);
+            long rowBytes = (long)nColumns * Double.BYTES;
+            try {
+                regions[regionIdx] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        dataOffset + firstRow * rowBytes, (lastRow - firstRow) * rowBytes);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Cannot read the samples file", e);
+            }
+        }
+        return regions[regionIdx];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= nRows) {
+            throw new IndexOutOfBoundsException("Row index is out of range: " + row);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        blocks.clear();
+        // the regions are unmapped when they are collected
+        Arrays.fill(regions, null);
+        channel.close();
+    }
+}
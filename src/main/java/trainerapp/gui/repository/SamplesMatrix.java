@@ -0,0 +1,258 @@
+package trainerapp.gui.repository;
+
+import java.util.Arrays;
+
+/**
+ * A growable matrix of {@code double} values stored row by row in one flat
+ * array. Each row holds one sample, each column holds one variable of the
+ * samples.
+ * @author Konstantin Zhdanov
+ */
+public class SamplesMatrix {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int nColumns;
+
+    private double[] values;
+
+    private int nRows;
+
+    /**
+     * Create an empty matrix with rows of {@code nColumns} values.
+     * @param nColumns Number of values in each row.
+     * @throws IllegalArgumentException if {@code nColumns} is negative.
+     */
+    public SamplesMatrix(int nColumns) {
+        this(nColumns, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty matrix with rows of {@code nColumns} values and space
+     * reserved for {@code initialRowCapacity} rows.
+     * @param nColumns Number of values in each row.
+     * @param initialRowCapacity Number of rows to reserve space for.
+     * @throws IllegalArgumentException if any of the arguments is negative.
+     */
+    public SamplesMatrix(int nColumns, int initialRowCapacity) {
+        if (nColumns < 0 || initialRowCapacity < 0) {
+            throw new IllegalArgumentException("Sizes cannot be negative");
+        }
+        this.nColumns = nColumns;
+        this.values = new double[checkedSize((long)nColumns * initialRowCapacity)];
+        this.nRows = 0;
+    }
+
+    /**
+     * Number of rows in this matrix.
+     * @return {@code int} number of rows.
+     */
+    public int rows() {
+        return nRows;
+    }
+
+    /**
+     * Number of values in each row of this matrix.
+     * @return {@code int} number of columns.
+     */
+    public int columns() {
+        return nColumns;
+    }
+
+    /**
+     * Get the value at {@code row} row and {@code column} column.
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return {@code double} value of the cell.
+     * @throws IndexOutOfBoundsException if any of the indices is out of range.
+     */
+    public double get(int row, int column) {
+        checkRow(row);
+        checkColumn(column);
+        return values[row * nColumns + column];
+    }
+
+    /**
+     * Set the value at {@code row} row and {@code column} column.
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @param value New value of the cell.
+     * @throws IndexOutOfBoundsException if any of the indices is out of range.
+     */
+    public void set(int row, int column, double value) {
+        checkRow(row);
+        checkColumn(column);
+        values[row * nColumns + column] = value;
+    }
+
+    /**
+     * Append a row copied from {@code source} starting at {@code offset}.
+     * @param source Array to copy the row values from.
+     * @param offset Index of the first value of the row in {@code source}.
+     * @throws IndexOutOfBoundsException if {@code source} doesn't contain
+     * a whole row starting at {@code offset}.
+     */
+    public void addRow(double[] source, int offset) {
+        insertRow(nRows, source, offset);
+    }
+
+    /**
+     * Append {@code nNewRows} rows stored one after another in {@code source}
+     * starting at {@code offset}.
+     * @param source Array to copy the rows from.
+     * @param offset Index of the first value of the first row in {@code source}.
+     * @param nNewRows Number of rows to copy.
+     * @throws IndexOutOfBoundsException if {@code source} doesn't contain
+     * {@code nNewRows} whole rows starting at {@code offset}.
+     */
+    public void addRows(double[] source, int offset, int nNewRows) {
+        if (nNewRows < 0) {
+            throw new IllegalArgumentException("Number of rows cannot be negative");
+        }
+        int length = checkedSize((long)nNewRows * nColumns);
+        if (offset < 0 || offset + length > source.length) {
+            throw new IndexOutOfBoundsException("Source is too short");
+        }
+        ensureRowCapacity(nRows + nNewRows);
+        System.arraycopy(source, offset, values, nRows * nColumns, length);
+        nRows += nNewRows;
+    }
+
+    /**
+     * Insert a row copied from {@code source} starting at {@code offset}
+     * before the row with index {@code row}.
+     * @param row Index the new row will have.
+     * @param source Array to copy the row values from.
+     * @param offset Index of the first value of the row in {@code source}.
+     * @throws IndexOutOfBoundsException if {@code row} is out of range or
+     * {@code source} doesn't contain a whole row starting at {@code offset}.
+     */
+    public void insertRow(int row, double[] source, int offset) {
+        if (row < 0 || row > nRows) {
+            throw new IndexOutOfBoundsException("Row index is out of range: " + row);
+        }
+        if (offset < 0 || offset + nColumns > source.length) {
+            throw new IndexOutOfBoundsException("Source is too short");
+        }
+        ensureRowCapacity(nRows + 1);
+        int start = row * nColumns;
+        System.arraycopy(values, start, values, start + nColumns,
+                (nRows - row) * nColumns);
+        System.arraycopy(source, offset, values, start, nColumns);
+        nRows++;
+    }
+
+    /**
+     * Remove the row with index {@code row}.
+     * @param row Index of the row to remove.
+     * @throws IndexOutOfBoundsException if {@code row} is out of range.
+     */
+    public void removeRow(int row) {
+        checkRow(row);
+        int start = row * nColumns;
+        System.arraycopy(values, start + nColumns, values, start,
+                (nRows - row - 1) * nColumns);
+        nRows--;
+    }
+
+    /**
+     * Remove all rows.
+     */
+    public void clear() {
+        nRows = 0;
+    }
+
+    /**
+     * Copy {@code length} values of the row {@code row} starting at column
+     * {@code column} into {@code dest} starting at {@code destPos}.
+     * @param row Index of the row to copy from.
+     * @param column Index of the first column to copy.
+     * @param dest Array to copy the values into.
+     * @param destPos Starting position in {@code dest}.
+     * @param length Number of values to copy.
+     * @throws IndexOutOfBoundsException if any of the ranges is out of bounds.
+     */
+    public void copyRow(int row, int column, double[] dest, int destPos, int length) {
+        checkRow(row);
+        if (column < 0 || length < 0 || column + length > nColumns) {
+            throw new IndexOutOfBoundsException("Column range is out of bounds");
+        }
+        System.arraycopy(values, row * nColumns + column, dest, destPos, length);
+    }
+
+    /**
+     * Copy the values of the column {@code column} of all rows into
+     * {@code dest} starting at {@code destPos}.
+     * @param column Index of the column to copy.
+     * @param dest Array to copy the values into.
+     * @param destPos Starting position in {@code dest}.
+     * @throws IndexOutOfBoundsException if {@code column} is out of range or
+     * {@code dest} is too short.
+     */
+    public void copyColumn(int column, double[] dest, int destPos) {
+        checkColumn(column);
+        if (destPos < 0 || destPos + nRows > dest.length) {
+            throw new IndexOutOfBoundsException("Destination is too short");
+        }
+        for (int row = 0, idx = column; row < nRows; row++, idx += nColumns) {
+            dest[destPos + row] = values[idx];
+        }
+    }
+
+    /**
+     * Reserve space for at least {@code minRows} rows, so that rows can be
+     * added up to this number without growing the storage.
+     * @param minRows Number of rows to reserve space for.
+     */
+    public void ensureCapacity(int minRows) {
+        if (minRows > nRows) {
+            long minSize = (long)minRows * nColumns;
+            if (minSize > values.length) {
+                values = Arrays.copyOf(values, checkedSize(minSize));
+            }
+        }
+    }
+
+    /**
+     * Release the space reserved for rows that haven't been added.
+     */
+    public void trimToSize() {
+        int size = nRows * nColumns;
+        if (values.length != size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private void ensureRowCapacity(int minRows) {
+        long minSize = (long)minRows * nColumns;
+        if (minSize <= values.length) {
+            return;
+        }
+        long newSize = Math.max(minSize, values.length + (values.length >> 1));
+        newSize = Math.max(newSize, (long)DEFAULT_CAPACITY * nColumns);
+        values = Arrays.copyOf(values, checkedSize(Math.min(newSize,
+                Integer.MAX_VALUE - 8)));
+        if (values.length < minSize) {
+            throw new OutOfMemoryError("Too many samples");
+        }
+    }
+
+    private static int checkedSize(long size) {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Too many samples");
+        }
+        return (int)size;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= nRows) {
+            throw new IndexOutOfBoundsException("Row index is out of range: " + row);
+        }
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= nColumns) {
+            throw new IndexOutOfBoundsException("Column index is out of range: " + column);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package trainerapp.gui.repository;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import javafx.collections.FXCollections;
+import javafx.collections.ModifiableObservableListBase;
+import javafx.collections.ObservableList;
+
+/**
+ * Observable adapter presenting the rows of a {@code SamplesMatrix} as
+ * {@code ObservableList}s for the controls that need them. The row lists
+ * are created on demand and only refer to the position of the row in
+ * the matrix: they don't hold any values themselves. The same view is
+ * returned for a row while it's in use, and it follows its row when rows
+ * are inserted or removed before it. A view of a removed or replaced row
+ * is detached: it keeps a copy of the values of the row.
+ * The number of columns of the matrix is determined by the first added row.
+ * @author Konstantin Zhdanov
+ */
+class SamplesMatrixObservableList extends ModifiableObservableListBase<ObservableList<Double>> {
+
+    private static final int MIN_VIEWS_PURGE_THRESHOLD = 64;
+
+    private SamplesMatrix matrix;
+
+    private double[] rowBuffer;
+
+    // views handed out by get, by their rows
+    private Map<Integer, WeakReference<RowView>> views;
+
+    // number of views after which the collected ones are dropped
+    private int viewsPurgeThreshold;
+
+    SamplesMatrixObservableList() {
+        matrix = new SamplesMatrix(0);
+        rowBuffer = new double[0];
+        views = new HashMap<>();
+        viewsPurgeThreshold = MIN_VIEWS_PURGE_THRESHOLD;
+    }
+
+    SamplesMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Append {@code nRows} rows stored one after another in {@code source}.
+     * Listeners are notified by a single change.
+     */
+    void addRows(double[] source, int offset, int nRows, int nColumns) {
+        if (nRows == 0) {
+            return;
+        }
+        ensureColumns(nColumns);
+        int from = matrix.rows();
+        matrix.addRows(source, offset, nRows);
+        beginChange();
+        nextAdd(from, from + nRows);
+        endChange();
+    }
+
+    /**
+     * Reserve space for {@code nRows} rows of {@code nColumns} values.
+     */
+    void ensureCapacity(int nRows, int nColumns) {
+        ensureColumns(nColumns);
+        matrix.ensureCapacity(nRows);
+    }
+
+    @Override
+    public ObservableList<Double> get(int index) {
+        if (index < 0 || index >= matrix.rows()) {
+            throw new IndexOutOfBoundsException("Index is out of range: " + index);
+        }
+        WeakReference<RowView> reference = views.get(index);
+        RowView view = reference != null ? reference.get() : null;
+        if (view == null) {
+            if (views.size() >= viewsPurgeThreshold) {
+                purgeViews();
+            }
+            view = new RowView(index);
+            views.put(index, new WeakReference<>(view));
+        }
+        return view;
+    }
+
+    @Override
+    public int size() {
+        return matrix.rows();
+    }
+
+    // removing the rows one by one would shift the matrix for every row
+    @Override
+    public void clear() {
+        if (matrix.rows() == 0) {
+            return;
+        }
+        final SamplesMatrix removed = matrix;
+        detachViews(0, removed.rows(), 0);
+        matrix = new SamplesMatrix(removed.columns());
+        modCount++;
+        beginChange();
+        nextRemove(0, new AbstractList<ObservableList<Double>>() {
+            @Override
+            public ObservableList<Double> get(int index) {
+                return copyOfRow(removed, index);
+            }
+
+            @Override
+            public int size() {
+                return removed.rows();
+            }
+        });
+        endChange();
+    }
+
+    @Override
+    protected void doAdd(int index, ObservableList<Double> element) {
+        ensureColumns(element.size());
+        copyIntoBuffer(element);
+        matrix.insertRow(index, rowBuffer, 0);
+        detachViews(index, index, 1);
+    }
+
+    @Override
+    protected ObservableList<Double> doSet(int index, ObservableList<Double> element) {
+        if (element.size() != matrix.columns()) {
+            throw new IllegalArgumentException("Wrong size of the sample");
+        }
+        ObservableList<Double> old = copyOfRow(matrix, index);
+        copyIntoBuffer(element);
+        detachViews(index, index + 1, 0);
+        for (int column = 0; column < matrix.columns(); column++) {
+            matrix.set(index, column, rowBuffer[column]);
+        }
+        return old;
+    }
+
+    @Override
+    protected ObservableList<Double> doRemove(int index) {
+        ObservableList<Double> old = copyOfRow(matrix, index);
+        detachViews(index, index + 1, -1);
+        matrix.removeRow(index);
+        return old;
+    }
+
+    // Detaches the views of the rows from from to to exclusive and moves
+    // the views of the rows after them by shift rows, must be called while
+    // the rows are still in the matrix
+    private void detachViews(int from, int to, int shift) {
+        if (views.isEmpty()) {
+            return;
+        }
+        Map<Integer, WeakReference<RowView>> moved = new HashMap<>();
+        for (WeakReference<RowView> reference : views.values()) {
+            RowView view = reference.get();
+            if (view == null) {
+                continue;
+            }
+            if (view.row >= from && view.row < to) {
+                view.detach();
+            }
+            else {
+                if (view.row >= to) {
+                    view.row += shift;
+                }
+                moved.put(view.row, reference);
+            }
+        }
+        views = moved;
+        viewsPurgeThreshold = Math.max(MIN_VIEWS_PURGE_THRESHOLD, 2 * views.size());
+    }
+
+    private void purgeViews() {
+        Iterator<WeakReference<RowView>> it = views.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().get() == null) {
+                it.remove();
+            }
+        }
+        viewsPurgeThreshold = Math.max(MIN_VIEWS_PURGE_THRESHOLD, 2 * views.size());
+    }
+
+    // the number of columns can only be changed while there are no rows
+    private void ensureColumns(int nColumns) {
+        if (matrix.columns() == nColumns) {
+            return;
+        }
+        if (matrix.rows() != 0) {
+            throw new IllegalArgumentException("Wrong size of the sample");
+        }
+        matrix = new SamplesMatrix(nColumns);
+        rowBuffer = new double[nColumns];
+    }
+
+    // element may be a view of this matrix, so read it before modifying
+    private void copyIntoBuffer(ObservableList<Double> element) {
+        for (int column = 0; column < rowBuffer.length; column++) {
+            Double value = element.get(column);
+            if (value == null) {
+                throw new NullPointerException("Sample values cannot be null");
+            }
+            rowBuffer[column] = value;
+        }
+    }
+
+    // detached copy, as removed or replaced rows are reported to listeners
+    private static ObservableList<Double> copyOfRow(SamplesMatrix source, int index) {
+        Double[] copy = new Double[source.columns()];
+        for (int column = 0; column < copy.length; column++) {
+            copy[column] = source.get(index, column);
+        }
+        return FXCollections.observableArrayList(copy);
+    }
+
+    /**
+     * Fixed-size list view of one row of the matrix.
+     */
+    private class RowView extends ModifiableObservableListBase<Double> {
+
+        private int row;
+
+        // values of the row once it has been removed from the matrix
+        private double[] detached;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        private void detach() {
+            detached = new double[matrix.columns()];
+            matrix.copyRow(row, 0, detached, 0, detached.length);
+        }
+
+        @Override
+        public Double get(int index) {
+            if (detached != null) {
+                return detached[index];
+            }
+            return matrix.get(row, index);
+        }
+
+        @Override
+        public int size() {
+            return detached != null ? detached.length : matrix.columns();
+        }
+
+        @Override
+        protected void doAdd(int index, Double element) {
+            throw new UnsupportedOperationException("Size of a sample cannot be changed");
+        }
+
+        @Override
+        protected Double doSet(int index, Double element) {
+            if (element == null) {
+                throw new NullPointerException("Sample values cannot be null");
+            }
+            if (detached != null) {
+                double old = detached[index];
+                detached[index] = element;
+                return old;
+            }
+            double old = matrix.get(row, index);
+            matrix.set(row, index, element);
+            // the sample itself has changed in the list of samples
+            SamplesMatrixObservableList.this.beginChange();
+            SamplesMatrixObservableList.this.nextUpdate(row);
+            SamplesMatrixObservableList.this.endChange();
+            return old;
+        }
+
+        @Override
+        protected Double doRemove(int index) {
+            throw new UnsupportedOperationException("Size of a sample cannot be changed");
+        }
+    }
+}
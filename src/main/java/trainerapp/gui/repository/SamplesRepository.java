@@ -3,7 +3,9 @@ package trainerapp.gui.repository;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import javafx.beans.Observable;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 /**
@@ -17,12 +19,41 @@ public class SamplesRepository<T extends Number> {
     
     private final ObservableList<ObservableList<T>> items;
     
+    // changed by the thread modifying the samples, read by training threads
+    private volatile long version;
+    
     /**
      * Create an empty repository of samples.
      */
     public SamplesRepository() {
-        items = FXCollections.observableArrayList();
+        // changes of the values of a sample are reported as updates
+        this(FXCollections.observableArrayList(sample -> new Observable[] {sample}));
+    }
+    
+    /**
+     * Create a repository of samples storing them in {@code items}.
+     * Every change reported by {@code items}, including updates of 
+     * the values of the samples, changes the version of this repository.
+     * @param items Empty {@code ObservableList} to hold the samples.
+     */
+    protected SamplesRepository(ObservableList<ObservableList<T>> items) {
+        this.items = items;
         header = new LinkedList<>();
+        version = 0;
+        items.addListener((ListChangeListener.Change<? extends ObservableList<T>> c) -> {
+            version++;
+        });
+    }
+    
+    /**
+     * Get the modification stamp of the samples of this repository. 
+     * The version changes whenever samples are added or removed, or values
+     * of a sample are changed, so data derived from the samples stays
+     * valid while the version is the same.
+     * @return {@code long} version of the samples.
+     */
+    public long getVersion() {
+        return version;
     }
     
     /**
@@ -36,7 +67,26 @@ public class SamplesRepository<T extends Number> {
         }
         items.add(sample);
     }
-    
+
+    /**
+     * Add several samples into this repository at once. Listeners of the
+     * samples list are notified by a single change.
+     * @param samples {@code List} of samples to be added.
+     * @throws NullPointerException if {@code samples} or any of its elements
+     * is null.
+     */
+    public void addAll(List<? extends ObservableList<T>> samples) {
+        if (samples == null) {
+            throw new NullPointerException("Samples cannot be null");
+        }
+        for (ObservableList<T> sample : samples) {
+            if (sample == null) {
+                throw new NullPointerException("Sample cannot be null");
+            }
+        }
+        items.addAll(samples);
+    }
+
     /**
      * Remove the sample with index {@code idx} from this repository.
      * @param idx Index of sample to be removed from this repository.
@@ -67,7 +117,7 @@ public class SamplesRepository<T extends Number> {
      * samples' variables. The returned list is unmodifiable.
      */
     public List<String> getHeader() {
-        if (header.isEmpty() && !items.isEmpty()) {
+        if (header.isEmpty() && !isEmpty()) {
             createDefaultHeader();
         }
         return Collections.unmodifiableList(header);
@@ -93,6 +143,76 @@ public class SamplesRepository<T extends Number> {
         return items.get(idx);
     }
     
+    /**
+     * Get the value of the variable with index {@code var} of the sample with
+     * index {@code idx}.
+     * @param idx The index of the sample.
+     * @param var The index of the variable in the sample.
+     * @return {@code double} value of the variable.
+     * @throws IndexOutOfBoundsException if any of the indices is out of range.
+     */
+    public double getValue(int idx, int var) {
+        return items.get(idx).get(var).doubleValue();
+    }
+    
+    /**
+     * Copy {@code length} variables of the sample with index {@code idx}
+     * starting from the variable {@code fromVar} into {@code dest} starting
+     * at {@code destPos}.
+     * @param idx The index of the sample to copy from.
+     * @param fromVar The index of the first variable to copy.
+     * @param dest Array to copy the values into.
+     * @param destPos Starting position in {@code dest}.
+     * @param length Number of variables to copy.
+     * @throws IndexOutOfBoundsException if any of the ranges is out of bounds.
+     */
+    public void copySample(int idx, int fromVar, double[] dest, int destPos, 
+            int length) {
+        List<T> sample = items.get(idx);
+        if (fromVar < 0 || length < 0 || fromVar + length > sample.size()) {
+            throw new IndexOutOfBoundsException("Variables range is out of bounds");
+        }
+        for (int var = 0; var < length; var++) {
+            dest[destPos + var] = sample.get(fromVar + var).doubleValue();
+        }
+    }
+    
+    /**
+     * Copy the values of the variable with index {@code var} of all samples
+     * into {@code dest} starting at {@code destPos}.
+     * @param var The index of the variable to copy.
+     * @param dest Array to copy the values into.
+     * @param destPos Starting position in {@code dest}.
+     * @throws IndexOutOfBoundsException if {@code var} is out of range or
+     * {@code dest} is too short.
+     */
+    public void copyVariable(int var, double[] dest, int destPos) {
+        if (destPos < 0 || destPos + items.size() > dest.length) {
+            throw new IndexOutOfBoundsException("Destination is too short");
+        }
+        for (int idx = 0; idx < items.size(); idx++) {
+            dest[destPos + idx] = items.get(idx).get(var).doubleValue();
+        }
+    }
+    
+    /**
+     * Iterate over the samples of this repository in mini-batches of
+     * {@code batchSize} consecutive samples, each sample split into
+     * {@code inputSize} inputs followed by {@code targetSize} targets.
+     * The repository must not be modified during the iteration.
+     * @param batchSize Maximal number of samples in a batch.
+     * @param inputSize Number of the first variables of a sample used as inputs.
+     * @param targetSize Number of the variables following the inputs used
+     * as targets.
+     * @return {@code SamplesBatchIterator} reusing the same batch object.
+     * @throws IllegalArgumentException if {@code batchSize} isn't positive or
+     * the samples are shorter than the inputs and the targets.
+     */
+    public SamplesBatchIterator batchIterator(int batchSize, int inputSize,
+            int targetSize) {
+        return new SamplesBatchIterator(this, batchSize, inputSize, targetSize);
+    }
+    
     /**
      * Get all samples this repository holds.
      * @return {@code ObservableList} of all samples this repository holds. Any changes
@@ -0,0 +1,214 @@
+package trainerapp.gui.repository;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of the samples of repositories converted into the {@code double[][]}
+ * inputs and targets matrices a trainer accepts. The matrices are reused as
+ * long as the version of the repository and the split of the samples into
+ * inputs and targets stay the same. Only the last split of every repository
+ * is kept, and the matrices are dropped when the repository isn't used
+ * anymore. The total number of the cached values is bounded: the least
+ * recently used matrices are dropped to make room for new ones, and
+ * matrices larger than the bound aren't cached at all.
+ * The returned matrices are shared, so they must not be modified.
+ * @author Konstantin Zhdanov
+ */
+public class TrainingDataCache {
+
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Default maximal number of values of all the cached matrices, 256 MB.
+     */
+    public static final long DEFAULT_MAX_VALUES = 32L * 1024 * 1024;
+
+    private static final TrainingDataCache defaultCache = new TrainingDataCache();
+
+    private final Map<SamplesRepository<?>, TrainingData> cache;
+
+    private final long maxValues;
+
+    // incremented on every get, orders the cached matrices by their use
+    private long useCounter;
+
+    /**
+     * Create an empty cache of not more than {@code DEFAULT_MAX_VALUES} values.
+     */
+    public TrainingDataCache() {
+        this(DEFAULT_MAX_VALUES);
+    }
+
+    /**
+     * Create an empty cache of not more than {@code maxValues} values.
+     * @param maxValues Maximal number of the values of all the cached
+     * inputs and targets.
+     * @throws IllegalArgumentException if {@code maxValues} is negative.
+     */
+    public TrainingDataCache(long maxValues) {
+        if (maxValues < 0) {
+            throw new IllegalArgumentException("Maximal number of values cannot be negative");
+        }
+        this.cache = new WeakHashMap<>();
+        this.maxValues = maxValues;
+    }
+
+    /**
+     * The cache shared by all the trainings started in the application.
+     * @return {@code TrainingDataCache} shared instance.
+     */
+    public static TrainingDataCache getDefault() {
+        return defaultCache;
+    }
+
+    /**
+     * Get the samples of {@code repo} split into {@code inputSize} inputs
+     * followed by {@code targetSize} targets, converting them only if they
+     * haven't been converted since the repository last changed.
+     * @param repo Repository of the samples.
+     * @param inputSize Number of the first variables of a sample used as inputs.
+     * @param targetSize Number of the variables following the inputs used
+     * as targets.
+     * @return {@code TrainingData} holding the matrices.
+     * @throws NullPointerException if {@code repo} is null.
+     * @throws IllegalArgumentException if the samples are shorter than
+     * the inputs and the targets.
+     */
+    public synchronized TrainingData get(SamplesRepository<?> repo, int inputSize,
+            int targetSize) {
+        if (repo == null) {
+            throw new NullPointerException("Repository cannot be null");
+        }
+        TrainingData data = cache.get(repo);
+        if (data == null || data.version != repo.getVersion() ||
+                data.getInputSize() != inputSize || data.getTargetSize() != targetSize) {
+            // drop the old matrices before creating the new ones
+            cache.remove(repo);
+            data = convert(repo, inputSize, targetSize);
+            if (makeRoomFor(data.valueCount())) {
+                cache.put(repo, data);
+            }
+        }
+        data.lastUse = ++useCounter;
+        return data;
+    }
+
+    // drops the least recently used matrices until nValues more values
+    // fit into the cache, false if they can never fit
+    private boolean makeRoomFor(long nValues) {
+        if (nValues > maxValues) {
+            return false;
+        }
+        long total = nValues;
+        for (TrainingData data : cache.values()) {
+            total += data.valueCount();
+        }
+        while (total > maxValues) {
+            SamplesRepository<?> leastRecent = null;
+            long leastRecentUse = Long.MAX_VALUE;
+            for (Map.Entry<SamplesRepository<?>, TrainingData> entry : cache.entrySet()) {
+                if (entry.getValue().lastUse < leastRecentUse) {
+                    leastRecent = entry.getKey();
+                    leastRecentUse = entry.getValue().lastUse;
+                }
+            }
+            total -= cache.remove(leastRecent).valueCount();
+        }
+        return true;
+    }
+
+    /**
+     * Remove all converted samples from this cache.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private static TrainingData convert(SamplesRepository<?> repo, int inputSize,
+            int targetSize) {
+        final long version = repo.getVersion();
+        final int numSamples = repo.size();
+        double[][] inputs = new double[numSamples][inputSize];
+        double[][] targets = new double[numSamples][targetSize];
+
+        // samples are streamed from the repository in batches
+        // without boxing the values
+        SamplesBatchIterator batches = repo.batchIterator(BATCH_SIZE,
+                inputSize, targetSize);
+        while (batches.hasNext()) {
+            SamplesBatch batch = batches.next();
+            for (int i = 0; i < batch.size(); i++) {
+                int sampleIdx = batch.getFirstSample() + i;
+                System.arraycopy(batch.getInputs(), i * inputSize,
+                        inputs[sampleIdx], 0, inputSize);
+                System.arraycopy(batch.getTargets(), i * targetSize,
+                        targets[sampleIdx], 0, targetSize);
+            }
+        }
+        return new TrainingData(version, inputs, targets, inputSize, targetSize);
+    }
+
+    /**
+     * Samples of a repository converted into inputs and targets matrices.
+     */
+    public static class TrainingData {
+
+        private final long version;
+
+        private final double[][] inputs;
+
+        private final double[][] targets;
+
+        private final int inputSize;
+
+        private final int targetSize;
+
+        private long lastUse;
+
+        private TrainingData(long version, double[][] inputs, double[][] targets,
+                int inputSize, int targetSize) {
+            this.version = version;
+            this.inputs = inputs;
+            this.targets = targets;
+            this.inputSize = inputSize;
+            this.targetSize = targetSize;
+        }
+
+        private long valueCount() {
+            return (long)inputs.length * (inputSize + targetSize);
+        }
+
+        /**
+         * Inputs of the samples, one row per sample.
+         * @return {@code double[][]} matrix, which must not be modified.
+         */
+        public double[][] getInputs() {
+            return inputs;
+        }
+
+        /**
+         * Targets of the samples, one row per sample.
+         * @return {@code double[][]} matrix, which must not be modified.
+         */
+        public double[][] getTargets() {
+            return targets;
+        }
+
+        /**
+         * Number of inputs of each sample.
+         * @return {@code int} size of the inputs.
+         */
+        public int getInputSize() {
+            return inputSize;
+        }
+
+        /**
+         * Number of targets of each sample.
+         * @return {@code int} size of the targets.
+         */
+        public int getTargetSize() {
+            return targetSize;
+        }
+    }
+}
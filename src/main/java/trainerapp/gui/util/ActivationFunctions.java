@@ -0,0 +1,50 @@
+package trainerapp.gui.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import neuralnetwork.activation.ActivationFunction;
+
+/**
+ * Conversion of activation functions into bytes and back for the binary
+ * files of networks and checkpoints. The functions are stored by Java
+ * serialization, so any serializable activation function is kept.
+ * @author Konstantin Zhdanov
+ */
+final class ActivationFunctions {
+
+    private ActivationFunctions() {
+    }
+
+    /**
+     * Bytes of {@code activation}.
+     * @param activation Activation function.
+     * @return {@code byte[]} serialized function.
+     * @throws IOException if the function isn't serializable.
+     */
+    static byte[] toBytes(ActivationFunction activation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(activation);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Activation function of the bytes written by {@code toBytes}.
+     * @param bytes Serialized function.
+     * @return {@code ActivationFunction} read from the bytes.
+     * @throws IOException if the bytes don't hold a known activation
+     * function.
+     */
+    static ActivationFunction fromBytes(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ActivationFunction)in.readObject();
+        }
+        catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unknown activation function", e);
+        }
+    }
+}
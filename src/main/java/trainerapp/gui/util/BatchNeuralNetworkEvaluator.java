@@ -0,0 +1,159 @@
+package trainerapp.gui.util;
+
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
+import trainerapp.gui.model.FlatNeuralNetwork;
+
+/**
+ * Evaluator of a network on many inputs at once. The inputs are pushed
+ * through the network in blocks of rows: every layer multiplies the whole
+ * block by its weight matrix, so each row of weights is read once per block
+ * instead of once per input, and the activations of the block are kept in
+ * two buffers reused for all the layers and all the blocks.
+ * <p>
+ * An instance isn't thread-safe, every thread needs its own evaluator.
+ * @author Konstantin Zhdanov
+ */
+public class BatchNeuralNetworkEvaluator {
+
+    /**
+     * Default number of rows pushed through the layers together.
+     */
+    public static final int DEFAULT_BLOCK_ROWS = 64;
+
+    private final FlatNeuralNetwork network;
+
+    private final int blockRows;
+
+    // activations of the current block, one row per input
+    private final double[] in;
+
+    private final double[] out;
+
+    /**
+     * Create an evaluator of a compiled copy of {@code network}. Later
+     * changes of {@code network} don't affect the evaluator.
+     * @param network Network to evaluate.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public BatchNeuralNetworkEvaluator(NeuralNetwork network) {
+        this(FlatNeuralNetwork.of(network), DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Create an evaluator of {@code network} pushing {@code blockRows} rows
+     * through the layers together.
+     * @param network Compiled network to evaluate.
+     * @param blockRows Number of rows of a block.
+     * @throws NullPointerException if {@code network} is null.
+     * @throws IllegalArgumentException if {@code blockRows} isn't positive.
+     */
+    public BatchNeuralNetworkEvaluator(FlatNeuralNetwork network, int blockRows) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.network = network;
+        this.blockRows = blockRows;
+        this.in = new double[blockRows * network.getMaxLayerSize()];
+        this.out = new double[blockRows * network.getMaxLayerSize()];
+    }
+
+    public int getNumberInputs() {
+        return network.getNumberInputs();
+    }
+
+    public int getNumberOutputs() {
+        return network.getNumberOutputs();
+    }
+
+    /**
+     * Calculate the outputs of the network for {@code nRows} inputs.
+     * @param inputs Inputs stored row by row, {@code getNumberInputs()}
+     * values per row.
+     * @param nRows Number of the inputs.
+     * @param outputs Array to put the outputs into row by row,
+     * {@code getNumberOutputs()} values per row.
+     * @throws NullPointerException if any of the arrays is null.
+     * @throws IllegalArgumentException if {@code nRows} is negative or any of
+     * the arrays is too short.
+     */
+    public void evaluate(double[] inputs, int nRows, double[] outputs) {
+        if (inputs == null || outputs == null) {
+            throw new NullPointerException("Arrays cannot be null");
+        }
+        int nInputs = getNumberInputs();
+        int nOutputs = getNumberOutputs();
+        if (nRows < 0 || (long)nRows * nInputs > inputs.length ||
+                (long)nRows * nOutputs > outputs.length) {
+            throw new IllegalArgumentException("Wrong number of rows");
+        }
+        for (int firstRow = 0; firstRow < nRows; firstRow += blockRows) {
+            int nBlockRows = Math.min(blockRows, nRows - firstRow);
+            System.arraycopy(inputs, firstRow * nInputs, in, 0, nBlockRows * nInputs);
+            double[] src = in;
+            double[] dst = out;
+            for (int layer = 0; layer < network.getNumberLayers(); layer++) {
+                propagateBlock(layer, src, dst, nBlockRows);
+                double[] tmp = src;
+                src = dst;
+                dst = tmp;
+            }
+            System.arraycopy(src, 0, outputs, firstRow * nOutputs, nBlockRows * nOutputs);
+        }
+    }
+
+    /**
+     * Calculate the outputs of the network for every row of {@code inputs}.
+     * @param inputs Inputs, one row per input.
+     * @return {@code double[][]} outputs, one row per input.
+     * @throws NullPointerException if {@code inputs} or any of its rows
+     * is null.
+     * @throws IllegalArgumentException if the size of any of the rows
+     * differs from the number of the inputs.
+     */
+    public double[][] evaluate(double[][] inputs) {
+        if (inputs == null) {
+            throw new NullPointerException("Inputs cannot be null");
+        }
+        int nInputs = getNumberInputs();
+        double[] flatInputs = new double[inputs.length * nInputs];
+        for (int row = 0; row < inputs.length; row++) {
+            if (inputs[row].length != nInputs) {
+                throw new IllegalArgumentException("Wrong number of inputs");
+            }
+            System.arraycopy(inputs[row], 0, flatInputs, row * nInputs, nInputs);
+        }
+        int nOutputs = getNumberOutputs();
+        double[] flatOutputs = new double[inputs.length * nOutputs];
+        evaluate(flatInputs, inputs.length, flatOutputs);
+        double[][] outputs = new double[inputs.length][];
+        for (int row = 0; row < inputs.length; row++) {
+            outputs[row] = new double[nOutputs];
+            System.arraycopy(flatOutputs, row * nOutputs, outputs[row], 0, nOutputs);
+        }
+        return outputs;
+    }
+
+    // dst[row][to] = activate(bias[to] + sum over from of src[row][from] * w[to][from])
+    private void propagateBlock(int layer, double[] src, double[] dst, int nBlockRows) {
+        int nFrom = network.getLayerInputSize(layer);
+        int nTo = network.getLayerOutputSize(layer);
+        double[] weights = network.getWeights(layer);
+        double[] biases = network.getBiases(layer);
+        ActivationFunction activation = network.getActivationFunction();
+        for (int to = 0; to < nTo; to++) {
+            int weightOffset = to * nFrom;
+            double bias = biases[to];
+            for (int row = 0, srcOffset = 0; row < nBlockRows; row++, srcOffset += nFrom) {
+                double sum = bias;
+                for (int from = 0; from < nFrom; from++) {
+                    sum += src[srcOffset + from] * weights[weightOffset + from];
+                }
+                dst[row * nTo + to] = activation.apply(sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Writer of training checkpoints on a background thread, so a training
+ * never waits for the disk. If a newer checkpoint of the same file is
+ * submitted before the previous one has been written, only the newer one
+ * is written. A failed write is reported to the handler submitted with
+ * the checkpoint.
+ * @author Konstantin Zhdanov
+ */
+public class CheckpointWriter {
+
+    private static final CheckpointWriter defaultWriter = new CheckpointWriter(
+            Executors.newSingleThreadExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, "checkpoint-writer");
+                // an unfinished checkpoint is discarded, the previous one stays
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    // must write the submitted files one by one
+    private final Executor executor;
+
+    // the latest checkpoint not written yet for every file
+    private final Map<File, PendingCheckpoint> pending;
+
+    private volatile IOException lastFailure;
+
+    CheckpointWriter(Executor executor) {
+        this.executor = executor;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The writer shared by all the trainings of the application.
+     * @return {@code CheckpointWriter} shared instance.
+     */
+    public static CheckpointWriter getDefault() {
+        return defaultWriter;
+    }
+
+    /**
+     * Queue {@code checkpoint} to be written into {@code file}.
+     * @param file File to write the checkpoint into.
+     * @param checkpoint Checkpoint to write.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public void submit(File file, TrainingCheckpoint checkpoint) {
+        submit(file, checkpoint, (e) -> {});
+    }
+
+    /**
+     * Queue {@code checkpoint} to be written into {@code file}.
+     * @param file File to write the checkpoint into.
+     * @param checkpoint Checkpoint to write.
+     * @param failureHandler {@code Consumer} of the exception thrown if
+     * the checkpoint cannot be written, called on the writer thread.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public void submit(File file, TrainingCheckpoint checkpoint, 
+            Consumer<IOException> failureHandler) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        if (checkpoint == null) {
+            throw new NullPointerException("Checkpoint cannot be null");
+        }
+        if (failureHandler == null) {
+            throw new NullPointerException("Failure handler cannot be null");
+        }
+        if (pending.put(file, new PendingCheckpoint(checkpoint, failureHandler)) == null) {
+            executor.execute(() -> write(file));
+        }
+    }
+
+    /**
+     * The exception thrown by the latest failed write.
+     * @return {@code IOException} of the failure, or null if all
+     * the checkpoints have been written.
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    private void write(File file) {
+        PendingCheckpoint checkpoint = pending.remove(file);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.checkpoint.write(file);
+        }
+        catch (IOException e) {
+            lastFailure = e;
+            checkpoint.failureHandler.accept(e);
+        }
+    }
+
+    private static class PendingCheckpoint {
+
+        final TrainingCheckpoint checkpoint;
+
+        final Consumer<IOException> failureHandler;
+
+        PendingCheckpoint(TrainingCheckpoint checkpoint, 
+                Consumer<IOException> failureHandler) {
+            this.checkpoint = checkpoint;
+            this.failureHandler = failureHandler;
+        }
+    }
+}
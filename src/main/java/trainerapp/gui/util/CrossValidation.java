@@ -0,0 +1,245 @@
+package trainerapp.gui.util;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import trainerapp.gui.model.LazyNeuralNetwork;
+import trainerapp.gui.repository.KFoldSplit;
+
+/**
+ * K-fold cross-validation of the training of a network on samples.
+ * Every fold trains its own copy of the same initial network
+ * on the samples of the other folds as a job of a {@code TrainingScheduler},
+ * so the folds are trained concurrently. After all the folds have been
+ * trained, the held-out folds are evaluated in parallel, each fold
+ * a block of rows at a time.
+ * @author Konstantin Zhdanov
+ */
+public class CrossValidation {
+
+    // period of reporting the progress while the folds are trained
+    private static final long PROGRESS_PERIOD_MILLIS = 200;
+
+    private final double[][] inputs;
+
+    private final double[][] targets;
+
+    private final NeuralNetwork initialNetwork;
+
+    private final int nFolds;
+
+    private final int maxEpoch;
+
+    private final TrainingScheduler scheduler;
+
+    private final Supplier<NeuralNetworkTrainer> trainerFactory;
+
+    private final Function<NeuralNetwork, Function<double[][], double[][]>> evaluatorFactory;
+
+    private Random random;
+
+    private volatile TrainingJob[] jobs;
+
+    private volatile boolean canceled;
+
+    /**
+     * Create a cross-validation of training {@code initialNetwork} on the
+     * samples with {@code inputs} and {@code targets} split into
+     * {@code nFolds} folds.
+     * @param inputs Inputs of the samples, one row per sample.
+     * @param targets Targets of the samples, one row per sample.
+     * @param initialNetwork Network every fold starts training from.
+     * It isn't changed.
+     * @param nFolds Number of folds.
+     * @param maxEpoch Maximal number of epochs of every training.
+     * @param performanceGoal Performance goal of every training.
+     * @param scheduler Scheduler to train the folds by.
+     * @throws NullPointerException if any of the objects is null.
+     * @throws IllegalArgumentException if {@code nFolds} is less than 2
+     * or greater than the number of samples, the numbers of the inputs and
+     * the targets differ, or the trainer parameters are invalid.
+     */
+    public CrossValidation(double[][] inputs, double[][] targets,
+            NeuralNetwork initialNetwork, int nFolds, int maxEpoch,
+            double performanceGoal, TrainingScheduler scheduler) {
+        this(inputs, targets, initialNetwork, nFolds, maxEpoch, scheduler,
+                () -> new NeuralNetworkTrainer.Builder().
+                        withMaxEpoch(maxEpoch).
+                        withPerformanceGoal(performanceGoal).
+                        build(),
+                (network) -> new BatchNeuralNetworkEvaluator(network)::evaluate);
+        // invalid parameters are reported before starting
+        trainerFactory.get();
+    }
+
+    CrossValidation(double[][] inputs, double[][] targets,
+            NeuralNetwork initialNetwork, int nFolds, int maxEpoch,
+            TrainingScheduler scheduler, Supplier<NeuralNetworkTrainer> trainerFactory,
+            Function<NeuralNetwork, Function<double[][], double[][]>> evaluatorFactory) {
+        if (inputs == null || targets == null) {
+            throw new NullPointerException("Samples cannot be null");
+        }
+        if (initialNetwork == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (scheduler == null) {
+            throw new NullPointerException("Scheduler cannot be null");
+        }
+        if (inputs.length != targets.length) {
+            throw new IllegalArgumentException(
+                    "Numbers of the inputs and the targets differ");
+        }
+        if (nFolds < 2 || nFolds > inputs.length) {
+            throw new IllegalArgumentException(
+                    "Number of folds must be between 2 and the number of samples");
+        }
+        this.inputs = inputs;
+        this.targets = targets;
+        // the folds copy the loaded network
+        this.initialNetwork = LazyNeuralNetwork.loaded(initialNetwork);
+        this.nFolds = nFolds;
+        this.maxEpoch = maxEpoch;
+        this.scheduler = scheduler;
+        this.trainerFactory = trainerFactory;
+        this.evaluatorFactory = evaluatorFactory;
+        this.random = new Random();
+    }
+
+    /**
+     * Set the source of random numbers the samples are split into the folds
+     * with.
+     * @param random Source of random numbers.
+     * @throws NullPointerException if {@code random} is null.
+     */
+    public void setRandom(Random random) {
+        if (random == null) {
+            throw new NullPointerException("Random cannot be null");
+        }
+        this.random = random;
+    }
+
+    /**
+     * Train and evaluate all the folds, blocking until they are finished.
+     * @param progress Consumer of the progress from 0 to 1, called from
+     * the calling thread.
+     * @return {@code CrossValidationResult} with the errors of the folds.
+     * @throws InterruptedException if the calling thread is interrupted,
+     * in which case all the trainings are canceled.
+     * @throws CancellationException if the cross-validation has been
+     * canceled.
+     * @throws IllegalStateException if a training has failed.
+     */
+    public CrossValidationResult run(DoubleConsumer progress)
+            throws InterruptedException {
+        final long startTime = System.nanoTime();
+        final KFoldSplit split = new KFoldSplit(inputs.length, nFolds, random);
+
+        TrainingJob[] foldJobs = new TrainingJob[nFolds];
+        CountDownLatch finished = new CountDownLatch(nFolds);
+        for (int fold = 0; fold < nFolds; fold++) {
+            int[] trainingIndices = split.trainingIndices(fold);
+            foldJobs[fold] = new TrainingJob(
+                    String.format("Cross-validation fold %d/%d", fold + 1, nFolds),
+                    maxEpoch, trainerFactory.get(), new NeuralNetwork(initialNetwork),
+                    KFoldSplit.selectRows(inputs, trainingIndices),
+                    KFoldSplit.selectRows(targets, trainingIndices));
+            foldJobs[fold].setOnFinished((job) -> finished.countDown());
+        }
+        jobs = foldJobs;
+        try {
+            for (TrainingJob job : foldJobs) {
+                scheduler.submit(job, TrainingJob.NORMAL_PRIORITY, true);
+            }
+            if (canceled) {
+                cancelJobs();
+            }
+            while (!finished.await(PROGRESS_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) {
+                long epochs = 0;
+                for (TrainingJob job : foldJobs) {
+                    epochs += job.getState().isFinished() ? maxEpoch :
+                            Math.min(job.getLastEpoch(), maxEpoch);
+                }
+                progress.accept((double)epochs / ((long)maxEpoch * nFolds));
+            }
+        }
+        catch (InterruptedException e) {
+            cancelJobs();
+            throw e;
+        }
+        if (canceled) {
+            throw new CancellationException(
+                    "Cross-validation has been canceled");
+        }
+        for (TrainingJob job : foldJobs) {
+            if (job.getState() != TrainingJob.State.COMPLETED) {
+                throw new IllegalStateException("Training of a fold has failed",
+                        job.getFailure());
+            }
+        }
+        progress.accept(1.0);
+
+        double[][] foldErrors = IntStream.range(0, nFolds).parallel().
+                mapToObj((fold) -> evaluateFold(foldJobs[fold].getTrainedNetwork(),
+                        split.testIndices(fold))).
+                toArray(double[][]::new);
+        double[] foldMeans = new double[nFolds];
+        double[] foldVariances = new double[nFolds];
+        for (int fold = 0; fold < nFolds; fold++) {
+            foldMeans[fold] = foldErrors[fold][0];
+            foldVariances[fold] = foldErrors[fold][1];
+        }
+        return new CrossValidationResult(foldMeans, foldVariances,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Cancel the trainings of all the folds. A running {@code run} call
+     * throws {@code CancellationException}.
+     */
+    public void cancel() {
+        canceled = true;
+        cancelJobs();
+    }
+
+    private void cancelJobs() {
+        TrainingJob[] foldJobs = jobs;
+        if (foldJobs == null) {
+            return;
+        }
+        for (TrainingJob job : foldJobs) {
+            scheduler.cancel(job);
+        }
+    }
+
+    // mean and variance of the errors of the held-out samples
+    private double[] evaluateFold(NeuralNetwork network, int[] testIndices) {
+        double[][] outputs = evaluatorFactory.apply(network).apply(
+                KFoldSplit.selectRows(inputs, testIndices));
+        double mean = 0;
+        double m2 = 0;
+        int n = 0;
+        for (int row = 0; row < testIndices.length; row++) {
+            double[] output = outputs[row];
+            double[] target = targets[testIndices[row]];
+            double error = 0;
+            for (int i = 0; i < target.length; i++) {
+                double diff = output[i] - target[i];
+                error += diff * diff;
+            }
+            error /= target.length;
+            // Welford's online algorithm
+            n++;
+            double delta = error - mean;
+            mean += delta / n;
+            m2 += delta * (error - mean);
+        }
+        return new double[] {mean, n > 1 ? m2 / (n - 1) : 0};
+    }
+}
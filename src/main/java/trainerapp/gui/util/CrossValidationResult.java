@@ -0,0 +1,83 @@
+package trainerapp.gui.util;
+
+/**
+ * Errors of the networks trained by a k-fold cross-validation, measured
+ * on the held-out folds. The error of a sample is the mean squared
+ * difference between the outputs of a network and the targets.
+ * @author Konstantin Zhdanov
+ */
+public class CrossValidationResult {
+
+    private final double[] foldMeans;
+
+    private final double[] foldVariances;
+
+    private final long wallTimeNanos;
+
+    CrossValidationResult(double[] foldMeans, double[] foldVariances,
+            long wallTimeNanos) {
+        this.foldMeans = foldMeans;
+        this.foldVariances = foldVariances;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public int getFoldCount() {
+        return foldMeans.length;
+    }
+
+    /**
+     * Mean error of the samples held out in {@code fold}.
+     * @param fold Index of the fold.
+     * @return {@code double} mean error.
+     */
+    public double getFoldMean(int fold) {
+        return foldMeans[fold];
+    }
+
+    /**
+     * Variance of the errors of the samples held out in {@code fold}.
+     * @param fold Index of the fold.
+     * @return {@code double} variance of the errors.
+     */
+    public double getFoldVariance(int fold) {
+        return foldVariances[fold];
+    }
+
+    /**
+     * Mean of the mean errors of all the folds, the estimate of the error
+     * of a network trained on all the samples.
+     * @return {@code double} mean error.
+     */
+    public double getMean() {
+        double sum = 0;
+        for (double mean : foldMeans) {
+            sum += mean;
+        }
+        return sum / foldMeans.length;
+    }
+
+    /**
+     * Sample variance of the mean errors of the folds.
+     * @return {@code double} variance, 0 if there is only one fold.
+     */
+    public double getVariance() {
+        if (foldMeans.length < 2) {
+            return 0;
+        }
+        double mean = getMean();
+        double sum = 0;
+        for (double foldMean : foldMeans) {
+            sum += (foldMean - mean) * (foldMean - mean);
+        }
+        return sum / (foldMeans.length - 1);
+    }
+
+    /**
+     * Time from the start of the cross-validation until all the folds
+     * were evaluated.
+     * @return {@code long} time in nanoseconds.
+     */
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+}
@@ -0,0 +1,225 @@
+package trainerapp.gui.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of CSV lines stored as bytes, writing the values straight into
+ * a {@code double} array. Lines are split and trimmed exactly as
+ * {@code String.split(",")} and {@code String.trim()} do, and every value
+ * is equal to the result of {@code Double.parseDouble}.
+ * The bytes are expected to be in an ASCII-compatible encoding.
+ * <p>
+ * Decimal numbers with at most 15 significant digits and a small exponent are
+ * converted without creating any objects: the digits and the power of ten
+ * are both exact doubles, so a single multiplication or division gives
+ * the correctly rounded result. Other numbers are passed to
+ * {@code Double.parseDouble}.
+ * <p>
+ * An instance of this class isn't thread-safe.
+ * @author Konstantin Zhdanov
+ */
+public class CsvLineTokenizer {
+
+    private static final byte DELIMETER = ',';
+
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+        1e21, 1e22
+    };
+
+    // set if the last parseValue call has failed
+    private boolean failed;
+
+    /**
+     * Parse the CSV line stored in {@code buf} from {@code start} inclusive
+     * to {@code end} exclusive, without the line terminator.
+     * @param buf Array holding the line.
+     * @param start Index of the first byte of the line.
+     * @param end Index after the last byte of the line.
+     * @param dest Array to write the values into.
+     * @param destPos Index in {@code dest} to write the first value into.
+     * @param maxValues Maximal number of values to write into {@code dest}.
+     * @return The number of values in the line; {@code maxValues + 1} if
+     * the line contains more than {@code maxValues} values, in which case
+     * the values after the first {@code maxValues} aren't parsed;
+     * or {@code -1} if one of the values cannot be parsed as a number.
+     */
+    public int parseLine(byte[] buf, int start, int end, double[] dest,
+            int destPos, int maxValues) {
+        int valuesEnd = end;
+        boolean hasDelimeter = false;
+        for (int i = start; i < end; i++) {
+            if (buf[i] == DELIMETER) {
+                hasDelimeter = true;
+                break;
+            }
+        }
+        if (hasDelimeter) {
+            // String.split drops trailing empty values
+            while (valuesEnd > start && buf[valuesEnd - 1] == DELIMETER) {
+                valuesEnd--;
+            }
+            if (valuesEnd == start) {
+                return 0;
+            }
+        }
+
+        int nValues = 0;
+        int valueStart = start;
+        while (true) {
+            int valueEnd = valueStart;
+            while (valueEnd < valuesEnd && buf[valueEnd] != DELIMETER) {
+                valueEnd++;
+            }
+            if (nValues == maxValues) {
+                return maxValues + 1;
+            }
+            double value = parseValue(buf, valueStart, valueEnd);
+            if (failed) {
+                return -1;
+            }
+            dest[destPos + nValues] = value;
+            nValues++;
+            if (valueEnd == valuesEnd) {
+                return nValues;
+            }
+            valueStart = valueEnd + 1;
+        }
+    }
+
+    /**
+     * Parse the number stored in {@code buf} from {@code start} inclusive
+     * to {@code end} exclusive.
+     * @param buf Array holding the number.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     * @return {@code double} value equal to the value returned by
+     * {@code Double.parseDouble} for the same characters.
+     * @throws NumberFormatException if the bytes don't contain a number.
+     */
+    public double parseDouble(byte[] buf, int start, int end) {
+        double value = parseValue(buf, start, end);
+        if (failed) {
+            throw new NumberFormatException("Not a number: " +
+                    new String(buf, start, end - start, StandardCharsets.US_ASCII));
+        }
+        return value;
+    }
+
+    private double parseValue(byte[] buf, int start, int end) {
+        failed = false;
+        // same as String.trim()
+        while (start < end && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            failed = true;
+            return 0;
+        }
+
+        int pos = start;
+        boolean negative = false;
+        if (buf[pos] == '-' || buf[pos] == '+') {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long digits = 0;
+        int nSignificantDigits = 0;
+        int nDigits = 0;
+        int decimalExponent = 0;
+        boolean pointSeen = false;
+        for (; pos < end; pos++) {
+            byte b = buf[pos];
+            if (b >= '0' && b <= '9') {
+                nDigits++;
+                if (digits == 0 && b == '0') {
+                    // leading zeros aren't significant
+                    if (pointSeen) {
+                        decimalExponent--;
+                    }
+                    continue;
+                }
+                if (++nSignificantDigits > MAX_FAST_DIGITS) {
+                    return parseSlow(buf, start, end);
+                }
+                digits = digits * 10 + (b - '0');
+                if (pointSeen) {
+                    decimalExponent--;
+                }
+            }
+            else if (b == '.' && !pointSeen) {
+                pointSeen = true;
+            }
+            else {
+                break;
+            }
+        }
+        if (nDigits == 0) {
+            // NaN, Infinity, hexadecimal or not a number
+            return parseSlow(buf, start, end);
+        }
+
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            int exponentStart = pos;
+            int exponent = 0;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                if (exponent > 1000) {
+                    return parseSlow(buf, start, end);
+                }
+                exponent = exponent * 10 + (buf[pos] - '0');
+                pos++;
+            }
+            if (pos == exponentStart) {
+                failed = true;
+                return 0;
+            }
+            decimalExponent += negativeExponent ? -exponent : exponent;
+        }
+        if (pos != end) {
+            // type suffix or garbage
+            return parseSlow(buf, start, end);
+        }
+
+        double value;
+        if (digits == 0) {
+            value = 0.0;
+        }
+        else if (decimalExponent == 0) {
+            value = digits;
+        }
+        else if (decimalExponent > 0 && decimalExponent < POWERS_OF_TEN.length) {
+            value = digits * POWERS_OF_TEN[decimalExponent];
+        }
+        else if (decimalExponent < 0 && -decimalExponent < POWERS_OF_TEN.length) {
+            value = digits / POWERS_OF_TEN[-decimalExponent];
+        }
+        else {
+            return parseSlow(buf, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseSlow(byte[] buf, int start, int end) {
+        String str = new String(buf, start, end - start, StandardCharsets.US_ASCII);
+        try {
+            return Double.parseDouble(str);
+        }
+        catch (NumberFormatException e) {
+            failed = true;
+            return 0;
+        }
+    }
+}
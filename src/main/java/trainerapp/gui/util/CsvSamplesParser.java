@@ -0,0 +1,67 @@
+package trainerapp.gui.util;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Parser of the lines of CSV files containing samples for neural networks.
+ * A line is parsed as a sample if all its comma-separated values are decimal
+ * numbers, otherwise it may be treated as a header.
+ * @author Konstantin Zhdanov
+ */
+public class CsvSamplesParser {
+
+    public static final String DELIMETER = ",";
+
+    /**
+     * Parse a CSV file line into a sample.
+     * @param line {@code String} line of a CSV file.
+     * @return {@code ObservableList} of the values of the line or {@code null}
+     * if any of the values cannot be parsed as a decimal number.
+     * @throws NullPointerException if {@code line} is null.
+     */
+    public ObservableList<Double> parseLine(String line) {
+        String[] lineValues = line.split(DELIMETER);
+        ObservableList<Double> sample;
+        try {
+            sample = FXCollections.observableArrayList();
+            for (String value : lineValues) {
+                double doubleValue = Double.parseDouble(value.trim());
+                sample.add(doubleValue);
+            }
+        }
+        catch (NumberFormatException e) {
+            // error parsing the line
+            sample = null;
+        }
+        return sample;
+    }
+
+    /**
+     * Extract header titles from a CSV file line.
+     * @param line {@code String} line of a CSV file.
+     * @return Array of trimmed comma-separated values of the line.
+     * @throws NullPointerException if {@code line} is null.
+     */
+    public String[] extractHeaderTitles(String line) {
+        String[] lineValues = line.split(DELIMETER);
+        String[] headerValues = new String[lineValues.length];
+        for (int headerColNum = 0; headerColNum < headerValues.length; headerColNum++) {
+            headerValues[headerColNum] = lineValues[headerColNum].trim();
+        }
+        return headerValues;
+    }
+
+    /**
+     * Create default header titles: "Var 1", "Var 2", ..., "Var n".
+     * @param headerSize Number of titles to create.
+     * @return Array of {@code headerSize} default titles.
+     */
+    public String[] createDefaultHeaderTitles(int headerSize) {
+        String[] headerValues = new String[headerSize];
+        for (int valueNum = 0; valueNum < headerValues.length; valueNum++) {
+            headerValues[valueNum] = "Var " + (valueNum + 1);
+        }
+        return headerValues;
+    }
+}
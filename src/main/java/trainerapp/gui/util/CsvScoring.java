@@ -0,0 +1,336 @@
+package trainerapp.gui.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleConsumer;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.model.FlatNeuralNetwork;
+
+/**
+ * Scoring of the rows of a CSV file by a network into another CSV file.
+ * The input file is read in chunks of whole lines, which are parsed,
+ * evaluated in blocks by {@code BatchNeuralNetworkEvaluator} and formatted
+ * in parallel on the common {@code ForkJoinPool}. The formatted chunks are
+ * written in the order of the input file, and only a few chunks are in
+ * memory at once, so files of any size can be scored.
+ * <p>
+ * Every output row holds the inputs of the network followed by its
+ * outputs. The values of a row after the inputs of the network, such as
+ * the targets of a samples file, are ignored. The rows with fewer values
+ * or values which aren't numbers are skipped. If the first line isn't
+ * a row of numbers it's the header, and its titles of the inputs are
+ * written into the header of the output file.
+ * <p>
+ * The output file is replaced only after all the rows have been scored.
+ * @author Konstantin Zhdanov
+ */
+public class CsvScoring {
+
+    // Size of the block the first line is read from
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    // Size of the chunks of the file scored in parallel
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FlatNeuralNetwork network;
+
+    private final File input;
+
+    private final File output;
+
+    private final ForkJoinPool pool;
+
+    private volatile long nScored;
+
+    private volatile long nSkipped;
+
+    private volatile double rowsPerSecond;
+
+    private volatile boolean canceled;
+
+    /**
+     * Create a scoring of the rows of {@code input} by {@code network}
+     * into {@code output}.
+     * @param network Network to score the rows by. Later changes of
+     * the network don't affect the scoring.
+     * @param input CSV file to read the rows from.
+     * @param output CSV file to write the scored rows into.
+     * @throws NullPointerException if any of the arguments is null.
+     * @throws IllegalArgumentException if {@code input} and {@code output}
+     * are the same file.
+     */
+    public CsvScoring(NeuralNetwork network, File input, File output) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (input == null || output == null) {
+            throw new NullPointerException("Files cannot be null");
+        }
+        if (input.toPath().toAbsolutePath().normalize().equals(
+                output.toPath().toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Input and output files must differ");
+        }
+        this.network = FlatNeuralNetwork.of(network);
+        this.input = input;
+        this.output = output;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Number of the rows scored so far.
+     * @return {@code long} number of rows.
+     */
+    public long getScoredRowCount() {
+        return nScored;
+    }
+
+    /**
+     * Number of the rows skipped so far because of missing or wrong values.
+     * @return {@code long} number of rows.
+     */
+    public long getSkippedRowCount() {
+        return nSkipped;
+    }
+
+    /**
+     * Average number of the rows scored per second so far.
+     * @return {@code double} scoring speed.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * Score all the rows of the input file, blocking until they are written.
+     * @param progress Consumer of the progress from 0 to 1, called from
+     * the calling thread.
+     * @return {@code long} number of the scored rows.
+     * @throws IOException if any of the files cannot be read or written.
+     * @throws CancellationException if the scoring has been canceled, in
+     * which case the output file isn't changed.
+     */
+    public long run(DoubleConsumer progress) throws IOException {
+        final long startTime = System.nanoTime();
+        final long fileSize = input.length();
+        final int nInputs = network.getNumberInputs();
+        File outputDir = output.getAbsoluteFile().getParentFile();
+        if (outputDir != null) {
+            Files.createDirectories(outputDir.toPath());
+        }
+        Path tmp = new File(output.getPath() + ".tmp").toPath();
+        Deque<ForkJoinTask<ScoredChunk>> chunksInFlight = new ArrayDeque<>();
+        try (InputStream in = new FileInputStream(input);
+                OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(tmp.toFile()), BUFFER_SIZE)) {
+            byte[] buf = new byte[BLOCK_SIZE];
+            int length = 0;
+            long bytesRead = 0;
+            boolean eof = false;
+
+            // the first line may be the header
+            int firstLineEnd;
+            while ((firstLineEnd = SamplesLoadingTask.indexOfLineEnd(buf, 0, length)) < 0
+                    && !eof) {
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                int nRead = in.read(buf, length, buf.length - length);
+                if (nRead < 0) {
+                    eof = true;
+                }
+                else {
+                    length += nRead;
+                    bytesRead += nRead;
+                }
+            }
+            if (firstLineEnd < 0) {
+                firstLineEnd = length;
+            }
+            byte[] carry;
+            String[] inputTitles = new CsvSamplesParser().createDefaultHeaderTitles(nInputs);
+            if (new CsvLineTokenizer().parseLine(buf, 0, firstLineEnd,
+                    new double[nInputs], 0, nInputs) < 0) {
+                String[] titles = new CsvSamplesParser().extractHeaderTitles(
+                        new String(buf, 0, firstLineEnd));
+                if (titles.length >= nInputs) {
+                    inputTitles = Arrays.copyOf(titles, nInputs);
+                }
+                carry = Arrays.copyOfRange(buf, firstLineEnd, length);
+            }
+            else {
+                carry = Arrays.copyOf(buf, length);
+            }
+            out.write(formatHeader(inputTitles).getBytes());
+
+            // the rest of the file is split into chunks of whole lines, which
+            // are scored in parallel and written in the order of the file
+            final int maxChunksInFlight = 2 * pool.getParallelism();
+            while (!canceled && !(eof && carry.length == 0)) {
+                byte[] chunk = new byte[Math.max(CHUNK_SIZE, carry.length * 2)];
+                System.arraycopy(carry, 0, chunk, 0, carry.length);
+                length = carry.length;
+                while (!eof && length < chunk.length) {
+                    int nRead = in.read(chunk, length, chunk.length - length);
+                    if (nRead < 0) {
+                        eof = true;
+                    }
+                    else {
+                        length += nRead;
+                        bytesRead += nRead;
+                    }
+                }
+                int chunkEnd = eof ? length :
+                        SamplesLoadingTask.lastIndexOfLineEnd(chunk, carry.length, length) + 1;
+                if (chunkEnd == 0) {
+                    // the line is longer than the chunk
+                    carry = Arrays.copyOf(chunk, length);
+                    continue;
+                }
+                carry = Arrays.copyOfRange(chunk, chunkEnd, length);
+                final int end = chunkEnd;
+                chunksInFlight.addLast(pool.submit(() -> scoreChunk(chunk, end)));
+
+                while (chunksInFlight.size() >= maxChunksInFlight ||
+                        (eof && !chunksInFlight.isEmpty())) {
+                    ScoredChunk scored = chunksInFlight.removeFirst().join();
+                    out.write(scored.bytes);
+                    nScored += scored.nRows;
+                    nSkipped += scored.nSkipped;
+                    double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+                    rowsPerSecond = elapsedSeconds > 0 ? nScored / elapsedSeconds : 0;
+                    progress.accept((double)bytesRead / Math.max(fileSize, bytesRead));
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        finally {
+            for (ForkJoinTask<ScoredChunk> chunkTask : chunksInFlight) {
+                chunkTask.cancel(false);
+            }
+        }
+        if (canceled) {
+            Files.deleteIfExists(tmp);
+            throw new CancellationException("Scoring has been canceled");
+        }
+        try {
+            Files.move(tmp, output.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        progress.accept(1.0);
+        return nScored;
+    }
+
+    /**
+     * Cancel the scoring. A running {@code run} call stops after the chunks
+     * being scored and throws {@code CancellationException}.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    private String formatHeader(String[] inputTitles) {
+        StringBuilder header = new StringBuilder();
+        for (String title : inputTitles) {
+            header.append(title).append(',');
+        }
+        for (int idx = 0; idx < network.getNumberOutputs(); idx++) {
+            if (idx > 0) {
+                header.append(',');
+            }
+            header.append("Output ").append(idx + 1);
+        }
+        return header.append('\n').toString();
+    }
+
+    // Scores the lines of buf before end into formatted output lines
+    private ScoredChunk scoreChunk(byte[] buf, int end) {
+        final int nInputs = network.getNumberInputs();
+        final int nOutputs = network.getNumberOutputs();
+        CsvLineTokenizer tokenizer = new CsvLineTokenizer();
+        double[] inputs = new double[Math.max(nInputs, end / 8)];
+        int nRows = 0;
+        int nSkipped = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i < end && buf[i] != '\n' && buf[i] != '\r') {
+                continue;
+            }
+            if (i > lineStart) {
+                int rowStart = nRows * nInputs;
+                if (rowStart + nInputs > inputs.length) {
+                    inputs = Arrays.copyOf(inputs, Math.max(rowStart + nInputs,
+                            inputs.length + (inputs.length >> 1)));
+                }
+                // the values after the inputs are ignored
+                if (tokenizer.parseLine(buf, lineStart, i, inputs, rowStart,
+                        nInputs) >= nInputs) {
+                    nRows++;
+                }
+                else {
+                    nSkipped++;
+                }
+            }
+            lineStart = i + 1;
+        }
+
+        double[] outputs = new double[nRows * nOutputs];
+        new BatchNeuralNetworkEvaluator(network, BatchNeuralNetworkEvaluator.DEFAULT_BLOCK_ROWS).
+                evaluate(inputs, nRows, outputs);
+
+        StringBuilder text = new StringBuilder(nRows * (nInputs + nOutputs) * 20);
+        for (int row = 0; row < nRows; row++) {
+            for (int idx = 0; idx < nInputs; idx++) {
+                text.append(inputs[row * nInputs + idx]).append(',');
+            }
+            for (int idx = 0; idx < nOutputs; idx++) {
+                if (idx > 0) {
+                    text.append(',');
+                }
+                text.append(outputs[row * nOutputs + idx]);
+            }
+            text.append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        return new ScoredChunk(bytes, nRows, nSkipped);
+    }
+
+    // Output lines of one chunk of the input file
+    private static class ScoredChunk {
+
+        final byte[] bytes;
+
+        final int nRows;
+
+        final int nSkipped;
+
+        ScoredChunk(byte[] bytes, int nRows, int nSkipped) {
+            this.bytes = bytes;
+            this.nRows = nRows;
+            this.nSkipped = nSkipped;
+        }
+    }
+}
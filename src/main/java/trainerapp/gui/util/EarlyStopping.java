@@ -0,0 +1,219 @@
+package trainerapp.gui.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.NeuralNetworkEvaluator;
+
+/**
+ * Early stopping of a training by the error on validation samples held out
+ * of the training. A {@code TrainingJob} with early stopping trains
+ * the network in segments of {@code checkPeriod} epochs and validates
+ * a copy of the network after every segment on a separate thread, so
+ * the training goes on while the network is validated. A training has at
+ * most one validation in progress, the next one waits for it, so the
+ * decision to stop lags by one segment at most. The training stops
+ * when the validation error hasn't improved for {@code patience}
+ * validations in a row, and the network with the lowest validation error
+ * becomes the trained network.
+ * <p>
+ * An instance is used by a single training. The results can be read
+ * from any thread.
+ * @author Konstantin Zhdanov
+ */
+public class EarlyStopping {
+
+    // one validation per training at most, and there are not more trainings
+    // running than processors
+    private static final Executor defaultValidationExecutor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    (runnable) -> {
+                        Thread thread = new Thread(runnable, "validation");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final double[][] validationInputs;
+
+    private final double[][] validationTargets;
+
+    private final int checkPeriod;
+
+    private final int patience;
+
+    private final Executor validationExecutor;
+
+    private final Function<NeuralNetwork, Function<double[], double[]>> evaluatorFactory;
+
+    // guarded by this
+    private NeuralNetwork bestNetwork;
+
+    private double bestError;
+
+    private int bestEpoch;
+
+    private int nValidationsWithoutImprovement;
+
+    private int nPendingValidations;
+
+    /**
+     * Create early stopping validating the network on the samples with
+     * {@code validationInputs} and {@code validationTargets}.
+     * @param validationInputs Inputs of the validation samples, one row per
+     * sample.
+     * @param validationTargets Targets of the validation samples, one row
+     * per sample.
+     * @param checkPeriod Number of epochs between validations.
+     * @param patience Number of validations in a row without improvement
+     * after which the training stops.
+     * @throws NullPointerException if the samples are null.
+     * @throws IllegalArgumentException if there are no validation samples,
+     * the numbers of inputs and targets differ, or {@code checkPeriod}
+     * or {@code patience} isn't positive.
+     */
+    public EarlyStopping(double[][] validationInputs, double[][] validationTargets,
+            int checkPeriod, int patience) {
+        this(validationInputs, validationTargets, checkPeriod, patience,
+                defaultValidationExecutor,
+                (network) -> new NeuralNetworkEvaluator(network)::getOutput);
+    }
+
+    EarlyStopping(double[][] validationInputs, double[][] validationTargets,
+            int checkPeriod, int patience, Executor validationExecutor,
+            Function<NeuralNetwork, Function<double[], double[]>> evaluatorFactory) {
+        if (validationInputs == null || validationTargets == null) {
+            throw new NullPointerException("Validation samples cannot be null");
+        }
+        if (validationInputs.length == 0 ||
+                validationInputs.length != validationTargets.length) {
+            throw new IllegalArgumentException(
+                    "Inputs and targets of at least one validation sample are required");
+        }
+        if (checkPeriod <= 0) {
+            throw new IllegalArgumentException("Check period must be positive");
+        }
+        if (patience <= 0) {
+            throw new IllegalArgumentException("Patience must be positive");
+        }
+        this.validationInputs = validationInputs;
+        this.validationTargets = validationTargets;
+        this.checkPeriod = checkPeriod;
+        this.patience = patience;
+        this.validationExecutor = validationExecutor;
+        this.evaluatorFactory = evaluatorFactory;
+        this.bestError = Double.POSITIVE_INFINITY;
+    }
+
+    public int getCheckPeriod() {
+        return checkPeriod;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    public int getValidationSampleCount() {
+        return validationInputs.length;
+    }
+
+    /**
+     * The network with the lowest validation error so far.
+     * @return {@code NeuralNetwork} best network, or null if no validation
+     * has finished.
+     */
+    public synchronized NeuralNetwork getBestNetwork() {
+        return bestNetwork;
+    }
+
+    /**
+     * Mean squared error of the best network on the validation samples.
+     * @return {@code double} error, {@code POSITIVE_INFINITY} if no
+     * validation has finished.
+     */
+    public synchronized double getBestValidationError() {
+        return bestError;
+    }
+
+    /**
+     * Number of the epoch after which the best network was validated.
+     * @return {@code int} number of the epoch, 0 if no validation has
+     * finished.
+     */
+    public synchronized int getBestEpoch() {
+        return bestEpoch;
+    }
+
+    /**
+     * Whether the validation error hasn't improved for {@code patience}
+     * finished validations in a row.
+     * @return {@code boolean} true if the training should stop.
+     */
+    public synchronized boolean shouldStop() {
+        return nValidationsWithoutImprovement >= patience;
+    }
+
+    /**
+     * Validate {@code network} on a validation thread, after waiting for
+     * the previous validation to finish.
+     * @param epoch Number of the epoch the network was trained for.
+     * @param network Snapshot of the network, which mustn't be changed
+     * afterwards.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    void validate(int epoch, NeuralNetwork network) throws InterruptedException {
+        synchronized (this) {
+            awaitValidations();
+            nPendingValidations++;
+        }
+        validationExecutor.execute(() -> {
+            try {
+                double error = meanSquaredError(network);
+                synchronized (this) {
+                    // NaN never counts as an improvement
+                    if (error < bestError) {
+                        bestError = error;
+                        bestEpoch = epoch;
+                        bestNetwork = network;
+                        nValidationsWithoutImprovement = 0;
+                    }
+                    else {
+                        nValidationsWithoutImprovement++;
+                    }
+                }
+            }
+            finally {
+                synchronized (this) {
+                    nPendingValidations--;
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait until all the submitted validations have finished.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    synchronized void awaitValidations() throws InterruptedException {
+        while (nPendingValidations > 0) {
+            wait();
+        }
+    }
+
+    private double meanSquaredError(NeuralNetwork network) {
+        Function<double[], double[]> evaluator = evaluatorFactory.apply(network);
+        double sum = 0;
+        for (int idx = 0; idx < validationInputs.length; idx++) {
+            double[] output = evaluator.apply(validationInputs[idx]);
+            double[] target = validationTargets[idx];
+            double error = 0;
+            for (int i = 0; i < target.length; i++) {
+                double diff = output[i] - target[i];
+                error += diff * diff;
+            }
+            sum += error / target.length;
+        }
+        return sum / validationInputs.length;
+    }
+}
@@ -0,0 +1,298 @@
+package trainerapp.gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.init.Initializer;
+import neuralnetwork.train.Listener;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import neuralnetwork.train.TrainerEvent;
+
+/**
+ * Search for the hyperparameters giving the best trained network.
+ * Every candidate trains a new network with random weights as a job of
+ * a {@code TrainingScheduler}, so the candidates are trained in parallel.
+ * Candidates dominated by the others can be stopped early by
+ * a {@code MedianStoppingRule}.
+ * <p>
+ * The search must be started and stopped on the JavaFX thread.
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSearch {
+
+    private final ObservableList<Candidate> candidates;
+
+    private final TrainingScheduler scheduler;
+
+    private final Function<HyperparameterSet, NeuralNetworkTrainer> trainerFactory;
+
+    private final Function<HyperparameterSet, NeuralNetwork> networkFactory;
+
+    private final double[][] inputs;
+
+    private final double[][] targets;
+
+    private MedianStoppingRule stoppingRule;
+
+    private Runnable onFinished;
+
+    private int nFinished;
+
+    private boolean started;
+
+    /**
+     * Create a search for the networks with {@code nInputs} inputs and
+     * {@code nOutputs} outputs trained on the samples with {@code inputs}
+     * and {@code targets}.
+     * @param hyperparameters Candidate hyperparameters.
+     * @param nInputs Number of inputs of the networks.
+     * @param nOutputs Number of outputs of the networks.
+     * @param inputs Inputs of the samples, one row per sample.
+     * @param targets Targets of the samples, one row per sample.
+     * @param scheduler Scheduler to train the candidates by.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public HyperparameterSearch(List<HyperparameterSet> hyperparameters,
+            int nInputs, int nOutputs, double[][] inputs, double[][] targets,
+            TrainingScheduler scheduler) {
+        this(hyperparameters, inputs, targets, scheduler,
+                HyperparameterSearch::buildTrainer,
+                (params) -> new NeuralNetwork(nInputs, params.getHiddenLayerSizes(),
+                        nOutputs, Initializer.ofStdRandomRange()));
+    }
+
+    HyperparameterSearch(List<HyperparameterSet> hyperparameters,
+            double[][] inputs, double[][] targets, TrainingScheduler scheduler,
+            Function<HyperparameterSet, NeuralNetworkTrainer> trainerFactory,
+            Function<HyperparameterSet, NeuralNetwork> networkFactory) {
+        if (hyperparameters == null) {
+            throw new NullPointerException("Hyperparameters cannot be null");
+        }
+        if (inputs == null || targets == null) {
+            throw new NullPointerException("Samples cannot be null");
+        }
+        if (scheduler == null) {
+            throw new NullPointerException("Scheduler cannot be null");
+        }
+        this.inputs = inputs;
+        this.targets = targets;
+        this.scheduler = scheduler;
+        this.trainerFactory = trainerFactory;
+        this.networkFactory = networkFactory;
+        this.onFinished = () -> {};
+        this.candidates = FXCollections.observableArrayList();
+        for (HyperparameterSet params : hyperparameters) {
+            candidates.add(new Candidate(params));
+        }
+    }
+
+    private static NeuralNetworkTrainer buildTrainer(HyperparameterSet params) {
+        return new NeuralNetworkTrainer.Builder().
+                withMaxEpoch(params.getMaxEpoch()).
+                withPerformanceGoal(params.getPerformanceGoal()).
+                build();
+    }
+
+    /**
+     * Set the rule stopping the dominated candidates.
+     * @param stoppingRule Rule, or null to train all the candidates
+     * until their trainers finish.
+     */
+    public void setStoppingRule(MedianStoppingRule stoppingRule) {
+        this.stoppingRule = stoppingRule;
+    }
+
+    /**
+     * Set the handler called on the JavaFX thread after all the candidates
+     * have finished.
+     * @param onFinished Handler.
+     * @throws NullPointerException if {@code onFinished} is null.
+     */
+    public void setOnFinished(Runnable onFinished) {
+        if (onFinished == null) {
+            throw new NullPointerException("Handler cannot be null");
+        }
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Candidates of the search, in the order of the given hyperparameters.
+     * @return Unmodifiable {@code ObservableList} of the candidates.
+     */
+    public ObservableList<Candidate> getCandidates() {
+        return FXCollections.unmodifiableObservableList(candidates);
+    }
+
+    /**
+     * Submit the trainings of all the candidates to the scheduler.
+     * @throws IllegalStateException if the search has already been started.
+     */
+    public void start() {
+        if (started) {
+            throw new IllegalStateException("Search has already been started");
+        }
+        started = true;
+        if (candidates.isEmpty()) {
+            onFinished.run();
+            return;
+        }
+        for (Candidate candidate : candidates) {
+            candidate.submit();
+        }
+    }
+
+    /**
+     * Cancel the trainings of all the candidates which haven't finished.
+     */
+    public void stop() {
+        for (Candidate candidate : candidates) {
+            if (candidate.job != null) {
+                scheduler.cancel(candidate.job);
+            }
+        }
+    }
+
+    /**
+     * Whether all the candidates have finished.
+     * @return {@code boolean} true if the search is finished.
+     */
+    public boolean isFinished() {
+        return started && nFinished == candidates.size();
+    }
+
+    /**
+     * Candidates which have completed their training, from the best
+     * performance to the worst. The candidates stopped by the stopping rule
+     * or by {@code stop} aren't ranked, as their networks are only partly
+     * trained.
+     * @return {@code List} of the candidates.
+     */
+    public List<Candidate> getRanking() {
+        List<Candidate> ranking = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.isRanked()) {
+                ranking.add(candidate);
+            }
+        }
+        Collections.sort(ranking, Comparator.comparingDouble(Candidate::getPerformance));
+        return ranking;
+    }
+
+    private void onCandidateFinished(TrainingJob job) {
+        nFinished++;
+        if (nFinished == candidates.size()) {
+            onFinished.run();
+        }
+    }
+
+    /**
+     * Training of a network with a set of hyperparameters.
+     */
+    public class Candidate {
+
+        private final HyperparameterSet hyperparameters;
+
+        private TrainingJob job;
+
+        private volatile boolean stoppedEarly;
+
+        private final Listener stoppingListener = new Listener() {
+            @Override public void onTrainingComplete(TrainerEvent event) {
+            }
+
+            @Override public void onTrainingCanceled(TrainerEvent event) {
+            }
+
+            // called by the trainer, so the job is canceled outside the callback
+            @Override public void onTrainingEpochComplete(TrainerEvent event) {
+                MedianStoppingRule rule = stoppingRule;
+                if (rule != null && !stoppedEarly &&
+                        rule.shouldStop(event.getEpoch(), event.getPerformance())) {
+                    stoppedEarly = true;
+                    scheduler.cancelLater(job);
+                }
+            }
+        };
+
+        private Candidate(HyperparameterSet hyperparameters) {
+            this.hyperparameters = hyperparameters;
+        }
+
+        private void submit() {
+            NeuralNetworkTrainer trainer = trainerFactory.apply(hyperparameters);
+            trainer.registerListener(stoppingListener);
+            job = new TrainingJob("Search: " + hyperparameters,
+                    hyperparameters.getMaxEpoch(), trainer,
+                    networkFactory.apply(hyperparameters), inputs, targets);
+            job.setOnFinished(HyperparameterSearch.this::onCandidateFinished);
+            scheduler.submit(job, TrainingJob.NORMAL_PRIORITY, true);
+        }
+
+        public HyperparameterSet getHyperparameters() {
+            return hyperparameters;
+        }
+
+        /**
+         * Job training the network of this candidate.
+         * @return {@code TrainingJob} of the candidate, or null if the search
+         * hasn't been started.
+         */
+        public TrainingJob getJob() {
+            return job;
+        }
+
+        /**
+         * Whether this candidate has completed its training and is ranked
+         * by {@code getRanking}.
+         * @return {@code boolean} true if the candidate is ranked.
+         */
+        public boolean isRanked() {
+            return job != null && job.getState() == TrainingJob.State.COMPLETED &&
+                    getTrainedNetwork() != null;
+        }
+
+        /**
+         * Whether this candidate has been stopped by the stopping rule.
+         * @return {@code boolean} true if the candidate was dominated.
+         */
+        public boolean isStoppedEarly() {
+            return stoppedEarly;
+        }
+
+        /**
+         * Performance of the network after the latest completed epoch.
+         * @return {@code double} performance, {@code NaN} if no epoch has been
+         * completed.
+         */
+        public double getPerformance() {
+            return job == null ? Double.NaN : job.getLastPerformance();
+        }
+
+        /**
+         * Number of the latest epoch completed by the trainer.
+         * @return {@code int} number of the epoch.
+         */
+        public int getEpoch() {
+            return job == null ? 0 : job.getLastEpoch();
+        }
+
+        /**
+         * The trained network of a finished candidate.
+         * @return {@code NeuralNetwork} trained network, or null if the
+         * candidate hasn't finished or hasn't trained a network.
+         */
+        public NeuralNetwork getTrainedNetwork() {
+            return job == null ? null : job.getTrainedNetwork();
+        }
+
+        @Override
+        public String toString() {
+            return hyperparameters.toString();
+        }
+    }
+}
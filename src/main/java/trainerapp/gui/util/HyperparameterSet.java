@@ -0,0 +1,92 @@
+package trainerapp.gui.util;
+
+import java.util.Arrays;
+
+/**
+ * Settings of a trainer and the structure of the trained network tried by
+ * a hyperparameter search. An instance of this class is immutable.
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSet {
+
+    private final int maxEpoch;
+
+    private final double performanceGoal;
+
+    private final int[] hiddenLayerSizes;
+
+    /**
+     * Create a set of hyperparameters.
+     * @param maxEpoch Maximal number of epochs of the training.
+     * @param performanceGoal Performance the training stops at.
+     * @param hiddenLayerSizes Sizes of the hidden layers of the network.
+     * @throws NullPointerException if {@code hiddenLayerSizes} is null.
+     * @throws IllegalArgumentException if {@code maxEpoch} or
+     * {@code performanceGoal} or any of the layer sizes isn't positive.
+     */
+    public HyperparameterSet(int maxEpoch, double performanceGoal,
+            int[] hiddenLayerSizes) {
+        if (hiddenLayerSizes == null) {
+            throw new NullPointerException("Hidden layer sizes cannot be null");
+        }
+        if (maxEpoch <= 0) {
+            throw new IllegalArgumentException("Maximal epoch must be positive");
+        }
+        if (!(performanceGoal > 0)) {
+            throw new IllegalArgumentException("Performance goal must be positive");
+        }
+        for (int size : hiddenLayerSizes) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Hidden layer sizes must be positive");
+            }
+        }
+        this.maxEpoch = maxEpoch;
+        this.performanceGoal = performanceGoal;
+        this.hiddenLayerSizes = hiddenLayerSizes.clone();
+    }
+
+    public int getMaxEpoch() {
+        return maxEpoch;
+    }
+
+    public double getPerformanceGoal() {
+        return performanceGoal;
+    }
+
+    public int[] getHiddenLayerSizes() {
+        return hiddenLayerSizes.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HyperparameterSet)) {
+            return false;
+        }
+        HyperparameterSet other = (HyperparameterSet)obj;
+        return maxEpoch == other.maxEpoch &&
+                Double.compare(performanceGoal, other.performanceGoal) == 0 &&
+                Arrays.equals(hiddenLayerSizes, other.hiddenLayerSizes);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = maxEpoch;
+        hash = 31 * hash + Double.hashCode(performanceGoal);
+        hash = 31 * hash + Arrays.hashCode(hiddenLayerSizes);
+        return hash;
+    }
+
+    /**
+     * Convert to {@code String} containing the hidden layer sizes, the maximal
+     * epoch and the performance goal.
+     * @return {@code String} describing the hyperparameters.
+     */
+    @Override
+    public String toString() {
+        return String.format("hidden %s, epochs %d, goal %s",
+                Arrays.toString(hiddenLayerSizes), maxEpoch, performanceGoal);
+    }
+}
@@ -0,0 +1,103 @@
+package trainerapp.gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Values of every hyperparameter tried by a hyperparameter search.
+ * Candidates are either all the combinations of the values or
+ * combinations picked at random.
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSpace {
+
+    private final int[] maxEpochs;
+
+    private final double[] performanceGoals;
+
+    private final List<int[]> hiddenLayerSizes;
+
+    /**
+     * Create a space of the given values of the hyperparameters.
+     * @param maxEpochs Values of the maximal number of epochs.
+     * @param performanceGoals Values of the performance goal.
+     * @param hiddenLayerSizes Structures of the hidden layers.
+     * @throws NullPointerException if any of the arguments is null.
+     * @throws IllegalArgumentException if any of the arguments is empty.
+     */
+    public HyperparameterSpace(int[] maxEpochs, double[] performanceGoals,
+            List<int[]> hiddenLayerSizes) {
+        if (maxEpochs == null || performanceGoals == null || hiddenLayerSizes == null) {
+            throw new NullPointerException("Values cannot be null");
+        }
+        if (maxEpochs.length == 0 || performanceGoals.length == 0 ||
+                hiddenLayerSizes.isEmpty()) {
+            throw new IllegalArgumentException("Every hyperparameter must have a value");
+        }
+        this.maxEpochs = maxEpochs.clone();
+        this.performanceGoals = performanceGoals.clone();
+        this.hiddenLayerSizes = new ArrayList<>();
+        for (int[] sizes : hiddenLayerSizes) {
+            this.hiddenLayerSizes.add(sizes.clone());
+        }
+    }
+
+    /**
+     * Number of all the combinations of the values.
+     * @return {@code long} size of the grid.
+     */
+    public long gridSize() {
+        return (long)maxEpochs.length * performanceGoals.length *
+                hiddenLayerSizes.size();
+    }
+
+    /**
+     * All the combinations of the values.
+     * @return {@code List} of the candidates.
+     * @throws IllegalArgumentException if any of the values is invalid.
+     */
+    public List<HyperparameterSet> grid() {
+        List<HyperparameterSet> candidates = new ArrayList<>();
+        for (int[] sizes : hiddenLayerSizes) {
+            for (int maxEpoch : maxEpochs) {
+                for (double goal : performanceGoals) {
+                    candidates.add(new HyperparameterSet(maxEpoch, goal, sizes));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Distinct combinations of the values picked at random. All the
+     * combinations are returned in random order if there are not more than
+     * {@code nCandidates} of them.
+     * @param nCandidates Maximal number of the candidates.
+     * @param random Source of random numbers.
+     * @return {@code List} of the candidates.
+     * @throws IllegalArgumentException if {@code nCandidates} isn't positive
+     * or any of the values is invalid.
+     */
+    public List<HyperparameterSet> sample(int nCandidates, Random random) {
+        if (nCandidates <= 0) {
+            throw new IllegalArgumentException("Number of candidates must be positive");
+        }
+        if (gridSize() <= nCandidates) {
+            List<HyperparameterSet> candidates = grid();
+            Collections.shuffle(candidates, random);
+            return candidates;
+        }
+        Set<HyperparameterSet> candidates = new LinkedHashSet<>();
+        while (candidates.size() < nCandidates) {
+            candidates.add(new HyperparameterSet(
+                    maxEpochs[random.nextInt(maxEpochs.length)],
+                    performanceGoals[random.nextInt(performanceGoals.length)],
+                    hiddenLayerSizes.get(random.nextInt(hiddenLayerSizes.size()))));
+        }
+        return new ArrayList<>(candidates);
+    }
+}
@@ -0,0 +1,637 @@
+package trainerapp.gui.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.LazyNeuralNetwork;
+
+/**
+ * HTTP server evaluating the published networks for other processes of
+ * the machine. The server listens on the loopback address only.
+ * <ul>
+ * <li>{@code GET /networks} lists the names and the signatures of
+ * the published networks, one per line separated by a tab.</li>
+ * <li>{@code POST /networks/<name>} evaluates the network on the CSV rows of
+ * the request body, one input per row, and responds with the CSV rows of
+ * the outputs.</li>
+ * <li>{@code GET /metrics} reports the latency histograms and the sizes of
+ * the batches.</li>
+ * </ul>
+ * The rows of the concurrent requests are coalesced into micro-batches:
+ * a batch is evaluated when it has {@code maxBatchRows} rows or when its
+ * first request has waited {@code maxBatchWaitMicros}, whichever comes
+ * first. The batches are evaluated by {@code BatchNeuralNetworkEvaluator}
+ * on a single batching thread.
+ * <p>
+ * A published network is compiled into a copy on the thread publishing it
+ * or its changes, so the network may be changed afterwards on that thread
+ * while the requests are evaluated. A lazily loaded network which isn't in
+ * memory is loaded and compiled on its first request instead, since its
+ * weights are those of its file until it's changed. Publishing a network
+ * under the name of another one or a change of a network swaps the copies
+ * atomically: the requests received before the swap are evaluated by
+ * the previous copy, the ones received after it by the new one, and none
+ * of them is dropped.
+ * @author Konstantin Zhdanov
+ */
+public class InferenceServer {
+
+    /**
+     * Port the server listens on by default.
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    /**
+     * Default maximal time the first request of a batch waits for others.
+     */
+    public static final long DEFAULT_MAX_BATCH_WAIT_MICROS = 1000;
+
+    /**
+     * Default maximal number of rows of a batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_ROWS = 256;
+
+    // requests wait for their batches on these threads
+    private static final int N_HTTP_THREADS = 16;
+
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final int port;
+
+    private final long maxBatchWaitNanos;
+
+    private final int maxBatchRows;
+
+    private final Map<String, ServedNetwork> networks;
+
+    private final BlockingQueue<Request> queue;
+
+    private final LatencyHistogram requestLatency;
+
+    private final LatencyHistogram queueLatency;
+
+    private final AtomicLong nBatches;
+
+    private final AtomicLong nBatchedRows;
+
+    private HttpServer server;
+
+    private ExecutorService httpExecutor;
+
+    private Thread batchingThread;
+
+    private volatile boolean running;
+
+    /**
+     * Create a server listening on {@code port} of the loopback address.
+     * @param port Port to listen on, 0 for any free port.
+     * @param maxBatchWaitMicros Maximal time the first request of a batch
+     * waits for other requests, 0 to evaluate the waiting requests at once.
+     * @param maxBatchRows Maximal number of rows of a batch.
+     * @throws IllegalArgumentException if {@code port} is out of range,
+     * {@code maxBatchWaitMicros} is negative or {@code maxBatchRows}
+     * isn't positive.
+     */
+    public InferenceServer(int port, long maxBatchWaitMicros, int maxBatchRows) {
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Port out of range: " + port);
+        }
+        if (maxBatchWaitMicros < 0) {
+            throw new IllegalArgumentException("Maximal wait cannot be negative");
+        }
+        if (maxBatchRows <= 0) {
+            throw new IllegalArgumentException("Maximal batch size must be positive");
+        }
+        this.port = port;
+        this.maxBatchWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchWaitMicros);
+        this.maxBatchRows = maxBatchRows;
+        this.networks = new ConcurrentHashMap<>();
+        this.queue = new LinkedBlockingQueue<>();
+        this.requestLatency = new LatencyHistogram();
+        this.queueLatency = new LatencyHistogram();
+        this.nBatches = new AtomicLong();
+        this.nBatchedRows = new AtomicLong();
+    }
+
+    /**
+     * Start listening for requests.
+     * @throws IOException if the port cannot be bound.
+     * @throws IllegalStateException if the server is running.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Server is running");
+        }
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/networks", this::handleNetworks);
+        server.createContext("/metrics", this::handleMetrics);
+        httpExecutor = Executors.newFixedThreadPool(N_HTTP_THREADS, (runnable) -> {
+            Thread thread = new Thread(runnable, "inference-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(httpExecutor);
+        running = true;
+        batchingThread = new Thread(this::batchRequests, "inference-batching");
+        batchingThread.setDaemon(true);
+        batchingThread.start();
+        server.start();
+    }
+
+    /**
+     * Stop listening for requests. The requests waiting for their batches
+     * fail.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        server.stop(0);
+        batchingThread.interrupt();
+        httpExecutor.shutdownNow();
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(
+                    new IllegalStateException("Server has been stopped"));
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Port the server listens on.
+     * @return {@code int} port, the bound one if the server was created
+     * with 0 and is running.
+     */
+    public synchronized int getPort() {
+        return running ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * Publish {@code network} under {@code name}, replacing the network
+     * published under that name. The network is compiled on the calling
+     * thread unless it's a lazily loaded network which isn't in memory.
+     * @param name Name of the network in the requests.
+     * @param network Network to publish. Its later changes are published
+     * by {@code invalidate} on the thread changing it.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public void publish(String name, NeuralNetwork network) {
+        if (name == null) {
+            throw new NullPointerException("Name cannot be null");
+        }
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        networks.put(name, new ServedNetwork(network));
+    }
+
+    /**
+     * Publish the changes of {@code network} made since it was published.
+     * The network is compiled again on the calling thread, and the requests
+     * received afterwards are evaluated by the new copy.
+     * @param network Changed network.
+     * @return {@code boolean} true if the network is published under any name.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public boolean invalidate(NeuralNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        boolean published = false;
+        for (ServedNetwork served : networks.values()) {
+            if (served.source == network) {
+                served.invalidate();
+                published = true;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Stop serving the network published under {@code name}.
+     * @param name Name of the network.
+     * @return {@code boolean} true if a network was published under the name.
+     */
+    public boolean unpublish(String name) {
+        if (name == null) {
+            throw new NullPointerException("Name cannot be null");
+        }
+        return networks.remove(name) != null;
+    }
+
+    /**
+     * Publish exactly the networks of {@code namedNetworks}. The names
+     * whose networks are the objects published before keep their compiled
+     * copies, the other networks are compiled as by {@code publish}, and
+     * the changes of the networks are published by {@code invalidate}.
+     * @param namedNetworks Networks by their names.
+     * @throws NullPointerException if {@code namedNetworks} is null.
+     */
+    public void publishAll(Map<String, ? extends NeuralNetwork> namedNetworks) {
+        if (namedNetworks == null) {
+            throw new NullPointerException("Networks cannot be null");
+        }
+        networks.keySet().retainAll(namedNetworks.keySet());
+        namedNetworks.forEach((name, network) -> {
+            ServedNetwork served = networks.get(name);
+            if (served == null || served.source != network) {
+                publish(name, network);
+            }
+        });
+    }
+
+    public LatencyHistogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * Histogram of the time the requests have waited for their batches to
+     * be evaluated.
+     * @return {@code LatencyHistogram} of the waiting.
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public long getBatchCount() {
+        return nBatches.get();
+    }
+
+    /**
+     * Evaluate {@code nRows} inputs by the network published under
+     * {@code name} in a micro-batch with the other requests.
+     * @param name Name of the network.
+     * @param inputs Inputs of the network row by row.
+     * @param nRows Number of the rows.
+     * @return {@code double[]} outputs of the network row by row.
+     * @throws IllegalArgumentException if no network is published under
+     * {@code name} or the number of inputs is wrong.
+     * @throws IllegalStateException if the server isn't running or
+     * the evaluation has failed.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    double[] evaluate(String name, double[] inputs, int nRows)
+            throws InterruptedException {
+        ServedNetwork network = networks.get(name);
+        if (network == null) {
+            throw new IllegalArgumentException("No network named " + name);
+        }
+        if (inputs.length != nRows * network.nInputs) {
+            throw new IllegalArgumentException("Wrong number of inputs");
+        }
+        return evaluate(network, inputs, nRows);
+    }
+
+    private double[] evaluate(ServedNetwork network, double[] inputs, int nRows)
+            throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Server isn't running");
+        }
+        BatchNeuralNetworkEvaluator evaluator;
+        try {
+            evaluator = network.compiled();
+        }
+        catch (RuntimeException e) {
+            throw new IllegalStateException("Network cannot be compiled", e);
+        }
+        Request request = new Request(evaluator, inputs, nRows);
+        queue.add(request);
+        try {
+            return request.result.get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluation has failed", e.getCause());
+        }
+    }
+
+    private void batchRequests() {
+        List<Request> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Request first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int nRows = first.nRows;
+                long deadline = first.enqueueTime + maxBatchWaitNanos;
+                while (nRows < maxBatchRows) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ?
+                            queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    nRows += next.nRows;
+                }
+                evaluateBatch(batch);
+            }
+            catch (InterruptedException e) {
+                for (Request request : batch) {
+                    request.result.completeExceptionally(e);
+                }
+                return;
+            }
+            finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // the requests of the same copy of a network are evaluated together
+    private void evaluateBatch(List<Request> batch) {
+        long startTime = System.nanoTime();
+        Map<BatchNeuralNetworkEvaluator, List<Request>> byNetwork = new IdentityHashMap<>();
+        for (Request request : batch) {
+            queueLatency.record(startTime - request.enqueueTime);
+            byNetwork.computeIfAbsent(request.evaluator, (evaluator) -> new ArrayList<>()).
+                    add(request);
+        }
+        byNetwork.forEach((evaluator, requests) -> {
+            try {
+                int nInputs = evaluator.getNumberInputs();
+                int nOutputs = evaluator.getNumberOutputs();
+                int nRows = 0;
+                for (Request request : requests) {
+                    nRows += request.nRows;
+                }
+                double[] inputs = new double[nRows * nInputs];
+                int offset = 0;
+                for (Request request : requests) {
+                    System.arraycopy(request.inputs, 0, inputs, offset, request.inputs.length);
+                    offset += request.inputs.length;
+                }
+                double[] outputs = new double[nRows * nOutputs];
+                evaluator.evaluate(inputs, nRows, outputs);
+                nBatches.incrementAndGet();
+                nBatchedRows.addAndGet(nRows);
+                offset = 0;
+                for (Request request : requests) {
+                    double[] result = new double[request.nRows * nOutputs];
+                    System.arraycopy(outputs, offset, result, 0, result.length);
+                    offset += result.length;
+                    request.result.complete(result);
+                }
+            }
+            catch (RuntimeException e) {
+                for (Request request : requests) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private void handleNetworks(HttpExchange exchange) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/networks") || path.equals("/networks/")) {
+                if (!method.equals("GET")) {
+                    respond(exchange, 405, "Use GET to list the networks\n");
+                    return;
+                }
+                StringBuilder text = new StringBuilder();
+                new TreeMap<>(networks).forEach((name, network) ->
+                        text.append(name).append('\t').append(network.signature).append('\n'));
+                respond(exchange, 200, text.toString());
+                return;
+            }
+            if (!method.equals("POST")) {
+                respond(exchange, 405, "Use POST to evaluate a network\n");
+                return;
+            }
+            String name = path.substring("/networks/".length());
+            ServedNetwork network = networks.get(name);
+            if (network == null) {
+                respond(exchange, 404, "No network named " + name + "\n");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413, "Request is too large\n");
+                return;
+            }
+            double[] inputs;
+            try {
+                inputs = parseRows(body, network.nInputs);
+            }
+            catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            int nRows = inputs.length / network.nInputs;
+            double[] outputs;
+            try {
+                // the copy published when the request was received
+                outputs = evaluate(network, inputs, nRows);
+            }
+            catch (IllegalStateException e) {
+                respond(exchange, 503, e.getMessage() + "\n");
+                return;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "Server is stopping\n");
+                return;
+            }
+            String response = formatRows(outputs, network.nOutputs);
+            // recorded before the client can see the response
+            requestLatency.record(System.nanoTime() - startTime);
+            respond(exchange, 200, response);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            long batches = nBatches.get();
+            String text = String.format(Locale.ROOT,
+                    "request_latency %s%nqueue_latency %s%nbatches=%d mean_batch_rows=%.1f%n",
+                    requestLatency.format(), queueLatency.format(), batches,
+                    batches == 0 ? 0.0 : (double)nBatchedRows.get() / batches);
+            respond(exchange, 200, text);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int nRead;
+        while ((nRead = in.read(buf)) >= 0) {
+            body.write(buf, 0, nRead);
+            if (body.size() > MAX_BODY_BYTES) {
+                return null;
+            }
+        }
+        return body.toByteArray();
+    }
+
+    // one row of nInputs values per non-empty line
+    static double[] parseRows(byte[] body, int nInputs) {
+        CsvLineTokenizer tokenizer = new CsvLineTokenizer();
+        double[] values = new double[Math.max(nInputs, 16)];
+        int nRows = 0;
+        int lineNumber = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= body.length; i++) {
+            if (i < body.length && body[i] != '\n' && body[i] != '\r') {
+                continue;
+            }
+            if (i < body.length && body[i] == '\n' && i > 0 && body[i - 1] == '\r') {
+                lineStart = i + 1;
+                continue;
+            }
+            lineNumber++;
+            if (i > lineStart) {
+                if ((nRows + 1) * nInputs > values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                if (tokenizer.parseLine(body, lineStart, i, values, nRows * nInputs,
+                        nInputs) != nInputs) {
+                    throw new IllegalArgumentException(String.format(
+                            "Line %d must hold %d numbers", lineNumber, nInputs));
+                }
+                nRows++;
+            }
+            lineStart = i + 1;
+        }
+        if (nRows == 0) {
+            throw new IllegalArgumentException("Request has no rows");
+        }
+        return Arrays.copyOf(values, nRows * nInputs);
+    }
+
+    private static String formatRows(double[] values, int nColumns) {
+        StringBuilder text = new StringBuilder(values.length * 20);
+        for (int idx = 0; idx < values.length; idx++) {
+            text.append(values[idx]).append((idx + 1) % nColumns == 0 ? '\n' : ',');
+        }
+        return text.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text)
+            throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                status == 200 && exchange.getRequestMethod().equals("POST") ?
+                        "text/csv" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Published network with its compiled copy. The structure is known without
+    // loading a lazy network.
+    private static class ServedNetwork {
+
+        final NeuralNetwork source;
+
+        final String signature;
+
+        final int nInputs;
+
+        final int nOutputs;
+
+        // null until the first request of a network loaded on it
+        private final AtomicReference<BatchNeuralNetworkEvaluator> compiled;
+
+        ServedNetwork(NeuralNetwork source) {
+            this.source = source;
+            this.signature = source.getSignature();
+            this.nInputs = source.getNumberInputs();
+            this.nOutputs = source.getNumberOutputs();
+            this.compiled = new AtomicReference<>();
+            if (!(source instanceof LazyNeuralNetwork) ||
+                    ((LazyNeuralNetwork)source).isLoaded()) {
+                compiled.set(compile(source));
+            }
+        }
+
+        // called on the thread changing the source
+        void invalidate() {
+            compiled.set(compile(source));
+        }
+
+        // called on the HTTP threads, a network published by invalidate
+        // during the loading replaces the loaded one
+        BatchNeuralNetworkEvaluator compiled() {
+            BatchNeuralNetworkEvaluator evaluator = compiled.get();
+            if (evaluator != null) {
+                return evaluator;
+            }
+            synchronized (this) {
+                if (compiled.get() == null) {
+                    compiled.compareAndSet(null, compile(source));
+                }
+            }
+            return compiled.get();
+        }
+
+        private static BatchNeuralNetworkEvaluator compile(NeuralNetwork network) {
+            return new BatchNeuralNetworkEvaluator(FlatNeuralNetwork.of(network),
+                    BatchNeuralNetworkEvaluator.DEFAULT_BLOCK_ROWS);
+        }
+    }
+
+    // Rows of one HTTP request waiting for their batch
+    private static class Request {
+
+        final BatchNeuralNetworkEvaluator evaluator;
+
+        final double[] inputs;
+
+        final int nRows;
+
+        final long enqueueTime;
+
+        final CompletableFuture<double[]> result;
+
+        Request(BatchNeuralNetworkEvaluator evaluator, double[] inputs, int nRows) {
+            this.evaluator = evaluator;
+            this.inputs = inputs;
+            this.nRows = nRows;
+            this.enqueueTime = System.nanoTime();
+            this.result = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package trainerapp.gui.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with logarithmic buckets: every power of two of
+ * microseconds is split into 4 buckets, so a percentile is reported with
+ * an error below 25% whatever the latency is. Recording a latency is
+ * a single atomic increment, so any number of threads can record into
+ * a histogram while it's read.
+ * @author Konstantin Zhdanov
+ */
+public class LatencyHistogram {
+
+    // buckets below 4 us are 1 us wide
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int N_BUCKETS = 64 * SUB_BUCKETS;
+
+    private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(N_BUCKETS);
+    }
+
+    /**
+     * Record a latency.
+     * @param nanos Latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos) / 1000));
+    }
+
+    /**
+     * Number of the recorded latencies.
+     * @return {@code long} number of latencies.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int bucket = 0; bucket < N_BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * Latency below which {@code percentile} percent of the recorded
+     * latencies are.
+     * @param percentile Percentile from 0 to 100.
+     * @return {@code long} upper bound of the bucket of the percentile in
+     * microseconds, 0 if no latency has been recorded.
+     * @throws IllegalArgumentException if {@code percentile} isn't between
+     * 0 and 100.
+     */
+    public long getPercentileMicros(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long[] snapshot = new long[N_BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < N_BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < N_BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return lowerBoundOf(bucket + 1);
+            }
+        }
+        return lowerBoundOf(N_BUCKETS);
+    }
+
+    /**
+     * Format the count and the main percentiles of the latencies.
+     * @return {@code String} one line summary.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "count=%d", getCount()));
+        for (double percentile : REPORTED_PERCENTILES) {
+            text.append(String.format(Locale.ROOT, " p%s<=%dus",
+                    percentile == Math.rint(percentile) ?
+                            String.valueOf((long)percentile) : String.valueOf(percentile),
+                    getPercentileMicros(percentile)));
+        }
+        return text.toString();
+    }
+
+    // lowest 2 bits after the leading one select the sub-bucket
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int)micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int)(micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(N_BUCKETS - 1, (exponent - 1) * SUB_BUCKETS + subBucket);
+    }
+
+    static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        return (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+    }
+}
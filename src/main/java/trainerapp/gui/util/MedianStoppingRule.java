@@ -0,0 +1,81 @@
+package trainerapp.gui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rule for stopping the candidates of a search which are dominated by
+ * the others: at every check epoch, a candidate is stopped if its performance
+ * is worse than the median of the performances the other candidates had
+ * at the same epoch. Performance is an error, so a larger value is worse.
+ * Candidates are never stopped before the grace period or before enough
+ * other candidates have reached the same epoch.
+ * All the methods are thread-safe.
+ * @author Konstantin Zhdanov
+ */
+public class MedianStoppingRule {
+
+    private final int gracePeriod;
+
+    private final int checkPeriod;
+
+    private final int minReported;
+
+    // performances reported at every check epoch
+    private final Map<Integer, List<Double>> reported;
+
+    /**
+     * Create a rule.
+     * @param gracePeriod Number of the first epochs no candidate is stopped at.
+     * @param checkPeriod Number of epochs between the checks.
+     * @param minReported Number of the performances which must be reported
+     * at an epoch before any candidate is stopped at it.
+     * @throws IllegalArgumentException if {@code gracePeriod} is negative
+     * or {@code checkPeriod} or {@code minReported} isn't positive.
+     */
+    public MedianStoppingRule(int gracePeriod, int checkPeriod, int minReported) {
+        if (gracePeriod < 0 || checkPeriod <= 0 || minReported <= 0) {
+            throw new IllegalArgumentException("Wrong parameters of the rule");
+        }
+        this.gracePeriod = gracePeriod;
+        this.checkPeriod = checkPeriod;
+        this.minReported = minReported;
+        this.reported = new HashMap<>();
+    }
+
+    /**
+     * Report the performance of a candidate after {@code epoch} and check
+     * whether the candidate must be stopped.
+     * @param epoch Number of the completed epoch.
+     * @param performance Performance after the epoch.
+     * @return {@code boolean} true if the candidate must be stopped.
+     */
+    public boolean shouldStop(int epoch, double performance) {
+        if (epoch <= gracePeriod || epoch % checkPeriod != 0) {
+            return false;
+        }
+        synchronized (this) {
+            List<Double> others = reported.computeIfAbsent(epoch,
+                    (key) -> new ArrayList<>());
+            boolean stop = others.size() >= minReported &&
+                    !(performance <= median(others));
+            if (!Double.isNaN(performance)) {
+                others.add(performance);
+            }
+            return stop;
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        if (sorted.size() % 2 == 1) {
+            return sorted.get(middle);
+        }
+        return (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+}
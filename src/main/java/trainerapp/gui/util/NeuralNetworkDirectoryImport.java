@@ -0,0 +1,191 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleConsumer;
+import neuralnetwork.NeuralNetwork;
+
+/**
+ * Import of all the network files of a directory. The files with the
+ * {@code dat} and {@code txt} extensions directly in the directory are
+ * loaded by {@code NeuralNetworkLoader} in parallel on the common
+ * {@code ForkJoinPool}. A file which cannot be loaded doesn't stop
+ * the import, it's reported by {@code getFailures}. A lazy import reads
+ * only the names and the structures of the networks, their weights are
+ * loaded when they are accessed.
+ * @author Konstantin Zhdanov
+ */
+public class NeuralNetworkDirectoryImport {
+
+    private final File directory;
+
+    private final boolean lazy;
+
+    private final ForkJoinPool pool;
+
+    private final List<NeuralNetworkLoader> loaders;
+
+    private final Map<File, String> failures;
+
+    private volatile boolean canceled;
+
+    /**
+     * Create an import of the network files of {@code directory}.
+     * @param directory Directory to import the networks from.
+     * @throws NullPointerException if {@code directory} is null.
+     */
+    public NeuralNetworkDirectoryImport(File directory) {
+        this(directory, false);
+    }
+
+    /**
+     * Create an import of the network files of {@code directory}.
+     * @param directory Directory to import the networks from.
+     * @param lazy Whether only the headers of the files are read, see
+     * {@code NeuralNetworkLoader.loadLazily}.
+     * @throws NullPointerException if {@code directory} is null.
+     */
+    public NeuralNetworkDirectoryImport(File directory, boolean lazy) {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null");
+        }
+        this.directory = directory;
+        this.lazy = lazy;
+        this.pool = ForkJoinPool.commonPool();
+        this.loaders = Collections.synchronizedList(new ArrayList<>());
+        this.failures = Collections.synchronizedMap(new LinkedHashMap<>());
+    }
+
+    /**
+     * Whether {@code file} is a network file imported from a directory.
+     * @param file File to check.
+     * @return {@code true} if the file has the {@code dat} or {@code txt}
+     * extension.
+     */
+    public static boolean isNetworkFile(File file) {
+        String fileName = file.getName().toLowerCase();
+        return fileName.endsWith(".dat") || fileName.endsWith(".txt");
+    }
+
+    /**
+     * Find the network files of the directory, sorted by their names.
+     * @return {@code List} of the files.
+     * @throws IOException if the directory cannot be read.
+     */
+    public List<File> findNetworkFiles() throws IOException {
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path) && isNetworkFile(path.toFile())) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Load all the network files of the directory, blocking until they are
+     * loaded.
+     * @param progress Consumer of the progress from 0 to 1, called from
+     * the calling thread.
+     * @return {@code Map} of the files to the networks loaded from them, in
+     * the order of the names of the files.
+     * @throws IOException if the directory cannot be read.
+     * @throws CancellationException if the import has been canceled.
+     */
+    public Map<File, NeuralNetwork> run(DoubleConsumer progress) throws IOException {
+        failures.clear();
+        List<File> files = findNetworkFiles();
+        List<ForkJoinTask<NeuralNetwork>> tasks = new ArrayList<>();
+        for (File file : files) {
+            tasks.add(pool.submit(() -> loadFile(file)));
+        }
+        Map<File, NeuralNetwork> networks = new LinkedHashMap<>();
+        try {
+            for (int idx = 0; idx < files.size(); idx++) {
+                NeuralNetwork network = tasks.get(idx).join();
+                if (canceled) {
+                    throw new CancellationException("Import has been canceled");
+                }
+                if (network != null) {
+                    networks.put(files.get(idx), network);
+                }
+                progress.accept((double)(idx + 1) / files.size());
+            }
+        }
+        finally {
+            for (ForkJoinTask<NeuralNetwork> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        progress.accept(1.0);
+        return networks;
+    }
+
+    // null if the file cannot be loaded
+    private NeuralNetwork loadFile(File file) {
+        if (canceled) {
+            return null;
+        }
+        NeuralNetworkLoader loader = new NeuralNetworkLoader();
+        loaders.add(loader);
+        try {
+            if (canceled) {
+                return null;
+            }
+            if (lazy) {
+                return loader.loadLazily(file.getAbsolutePath());
+            }
+            if (NeuralNetworkFileTask.isTextFile(file)) {
+                return loader.loadFromTextFile(file.getAbsolutePath());
+            }
+            return loader.load(file.getAbsolutePath());
+        }
+        catch (IllegalArgumentException e) {
+            failures.put(file, e.getMessage());
+            return null;
+        }
+        catch (CancellationException e) {
+            return null;
+        }
+        finally {
+            loaders.remove(loader);
+        }
+    }
+
+    /**
+     * Files which couldn't be loaded by the last {@code run} call.
+     * @return {@code Map} of the files to the error messages.
+     */
+    public Map<File, String> getFailures() {
+        synchronized (failures) {
+            return new LinkedHashMap<>(failures);
+        }
+    }
+
+    /**
+     * Cancel the import. A running {@code run} call stops the files being
+     * loaded and throws {@code CancellationException}.
+     */
+    public void cancel() {
+        canceled = true;
+        synchronized (loaders) {
+            for (NeuralNetworkLoader loader : loaders) {
+                loader.cancel();
+            }
+        }
+    }
+}
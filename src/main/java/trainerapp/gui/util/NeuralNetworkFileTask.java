@@ -0,0 +1,120 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import javafx.concurrent.Task;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.LazyNeuralNetwork;
+
+/**
+ * A background task loading a network from a file or saving a network into
+ * a file by {@code NeuralNetworkLoader}. Files with the {@code txt} extension
+ * are in the text format, other files are in the binary format.
+ * The progress of the task is the part of the network read or written, and
+ * canceling the task stops the loader, a canceled save doesn't change
+ * the file.
+ * @author Konstantin Zhdanov
+ */
+public class NeuralNetworkFileTask extends Task<NeuralNetwork> {
+
+    private final File file;
+
+    private final NeuralNetwork network;
+
+    // null if the network is lazy and isn't in memory
+    private final FlatNeuralNetwork snapshot;
+
+    private final String name;
+
+    private final NeuralNetworkLoader loader;
+
+    /**
+     * Create a task loading a network from {@code file}.
+     * @param file File to load the network from.
+     * @throws NullPointerException if {@code file} is null.
+     */
+    public NeuralNetworkFileTask(File file) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        this.file = file;
+        this.network = null;
+        this.snapshot = null;
+        this.name = null;
+        this.loader = new NeuralNetworkLoader();
+    }
+
+    /**
+     * Create a task saving {@code network} with {@code name} into {@code file}.
+     * @param network Network to save. A snapshot of it is taken here, so
+     * the network may be changed on the calling thread while the file is
+     * written. A lazily loaded network which isn't in memory is loaded by
+     * the task instead, since its weights are those of its file.
+     * @param name Name to save with the network.
+     * @param file File to save the network into.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public NeuralNetworkFileTask(NeuralNetwork network, String name, File file) {
+        if (network == null || name == null || file == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        this.file = file;
+        this.network = network;
+        this.snapshot = network instanceof LazyNeuralNetwork &&
+                !((LazyNeuralNetwork)network).isLoaded() ? null :
+                FlatNeuralNetwork.of(network);
+        this.name = name;
+        this.loader = new NeuralNetworkLoader();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Whether the task saves a network rather than loads one.
+     * @return {@code true} if the task saves a network.
+     */
+    public boolean isSaving() {
+        return network != null;
+    }
+
+    /**
+     * Whether {@code file} is in the text format.
+     * @param file File of a network.
+     * @return {@code true} if the file has the {@code txt} extension.
+     */
+    public static boolean isTextFile(File file) {
+        String fileName = file.getName();
+        int lastDotIdx = fileName.lastIndexOf(".");
+        return lastDotIdx != -1 &&
+                fileName.substring(lastDotIdx + 1).toLowerCase().trim().equals("txt");
+    }
+
+    @Override
+    protected NeuralNetwork call() throws Exception {
+        loader.setOnProgress((progress) -> updateProgress(progress, 1.0));
+        updateProgress(0, 1.0);
+        if (isSaving()) {
+            FlatNeuralNetwork flat = snapshot != null ? snapshot : 
+                    FlatNeuralNetwork.of(network);
+            if (isTextFile(file)) {
+                loader.saveWithNameAsText(flat, name, file.getAbsolutePath());
+            }
+            else {
+                loader.saveWithName(flat, name, file.getAbsolutePath());
+            }
+            return network;
+        }
+        if (isTextFile(file)) {
+            return loader.loadFromTextFile(file.getAbsolutePath());
+        }
+        return loader.load(file.getAbsolutePath());
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        loader.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+}
@@ -1,33 +1,134 @@
 package trainerapp.gui.util;
 
-import java.io.BufferedReader;
 import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.io.Reader;
 import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.LazyNeuralNetwork;
 import trainerapp.gui.model.NamedNeuralNetwork;
 
 /**
  * Helper class for serializing and de-serializing {@code NeuralNetwork} objects
  * to/from files.
+ * <p>
+ * Binary files start with the magic bytes {@code NNMODEL\0} and the version
+ * of the format, followed by the length and the UTF-8 bytes of the name,
+ * the length and the bytes of the serialized activation function,
+ * the signature of the network as the number of inputs, the number and
+ * the sizes of the hidden layers and the number of outputs, and then
+ * the weights and the biases of every layer as little-endian doubles.
+ * The weights of a layer are stored neuron by neuron of the layer.
+ * Files of version 1 have no activation function, and their networks use
+ * the default one. Files written by the previous versions with Java
+ * serialization can still be loaded.
+ * <p>
+ * Files are saved into a temporary file, which replaces the file only
+ * after the whole network has been written. The progress of a load or
+ * a save is reported to the progress handler, and a load or a save can be
+ * canceled from another thread.
  * @author Konstantin Zhdanov
  */
 public class NeuralNetworkLoader {
     
+    private static final byte[] MAGIC = "NNMODEL\0".getBytes(StandardCharsets.US_ASCII);
+    
+    private static final int VERSION = 2;
+    
+    // the first version has no activation function
+    private static final int VERSION_WITHOUT_ACTIVATION = 1;
+    
+    // Files of at least this size are memory-mapped instead of read
+    private static final long DEFAULT_MAPPING_THRESHOLD = 16 * 1024 * 1024;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final int TEXT_BUFFER_SIZE = 1024 * 1024;
+    
+    private static final int TEXT_CHUNK_SIZE = 16 * 1024;
+    
+    // Size of the block the header of a binary file is read from
+    private static final int HEADER_BLOCK_SIZE = 64 * 1024;
+    
+    private final long mappingThreshold;
+    
+    private DoubleConsumer progressHandler = (progress) -> {};
+    
+    private volatile boolean canceled;
+    
+    public NeuralNetworkLoader() {
+        this(DEFAULT_MAPPING_THRESHOLD);
+    }
+    
+    NeuralNetworkLoader(long mappingThreshold) {
+        this.mappingThreshold = mappingThreshold;
+    }
+    
+    /**
+     * Set the handler of the progress of the loads and the saves, called
+     * from the loading or saving thread.
+     * @param handler {@code DoubleConsumer} accepting the progress from 0 to 1.
+     */
+    public void setOnProgress(DoubleConsumer handler) {
+        if (handler == null) {
+            throw new NullPointerException("Handler cannot be null");
+        }
+        this.progressHandler = handler;
+    }
+    
+    /**
+     * Cancel the running and the later loads and saves of this loader, which
+     * throw {@code CancellationException}. A canceled save doesn't change
+     * the file.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+    
+    private void checkCanceled() {
+        if (canceled) {
+            throw new CancellationException("Loading or saving has been canceled");
+        }
+    }
+    
+    private static Path temporaryFileFor(File file) {
+        return new File(file.getPath() + ".tmp").toPath();
+    }
+    
+    private static void replaceFile(Path tmp, File file) throws IOException {
+        try {
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
     /**
      * Save the {@link nn} network with name {@link name} into a file with path 
-     * {@link fileName}.
+     * {@link fileName} in the binary format.
      * @param nn {@code NeuralNetwork} to be written in file {@link fileName} along
      * with the name {@link name}.
      * @param name {@code String} name to be written in file {@link fileName} along 
@@ -38,106 +139,499 @@ public class NeuralNetworkLoader {
         if (nn == null || name == null || fileName == null) {
             throw new NullPointerException("Arguments cannot be null");
         }
+        saveWithName(FlatNeuralNetwork.of(nn), name, fileName);
+    }
+    
+    /**
+     * Save the {@link flat} network with name {@link name} into a file with
+     * path {@link fileName} in the binary format, without copying it.
+     * @param flat {@code FlatNeuralNetwork} to be written in file {@link fileName}
+     * along with the name {@link name}.
+     * @param name {@code String} name to be written in file {@link fileName} along 
+     * with the network {@link flat}.
+     * @param fileName Path to the file where the {@link flat} will be saved.
+     */
+    public void saveWithName(FlatNeuralNetwork flat, String name, String fileName) {
+        if (flat == null || name == null || fileName == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
         File file = new File(fileName);
-        try (OutputStream out = new FileOutputStream(file)) {
-            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
-                oos.writeObject(new NamedNeuralNetwork(nn, name));
-            }
+        Path tmp = temporaryFileFor(file);
+        try {
+            writeBinary(flat, nameBytes, tmp);
+            replaceFile(tmp, file);
         }
         catch(IOException e) {
+            deleteQuietly(tmp);
             throw new IllegalArgumentException("Cannot write into file", e);
         }
+        catch(RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e) {
+        }
+    }
+    
+    private void writeBinary(FlatNeuralNetwork flat, byte[] nameBytes, Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] activationBytes = ActivationFunctions.toBytes(flat.getActivationFunction());
+            ByteBuffer buf = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE,
+                    MAGIC.length + 4 * (flat.getNumberLayers() + 6) + nameBytes.length + 
+                            activationBytes.length)).
+                    order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(MAGIC);
+            buf.putInt(VERSION);
+            buf.putInt(nameBytes.length);
+            buf.put(nameBytes);
+            buf.putInt(activationBytes.length);
+            buf.put(activationBytes);
+            buf.putInt(flat.getNumberInputs());
+            buf.putInt(flat.getNumberLayers() - 1);
+            for (int layer = 0; layer < flat.getNumberLayers() - 1; layer++) {
+                buf.putInt(flat.getLayerOutputSize(layer));
+            }
+            buf.putInt(flat.getNumberOutputs());
+            for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+                checkCanceled();
+                putDoubles(flat.getWeights(layer), buf, channel);
+                putDoubles(flat.getBiases(layer), buf, channel);
+                progressHandler.accept((double)(layer + 1) / flat.getNumberLayers());
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+    
+    // Bulk puts values into buf, writing it into channel whenever it's full
+    private void putDoubles(double[] values, ByteBuffer buf, FileChannel channel) 
+            throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            int count = Math.min(buf.remaining() / Double.BYTES, values.length - offset);
+            buf.asDoubleBuffer().put(values, offset, count);
+            buf.position(buf.position() + count * Double.BYTES);
+            offset += count;
+            if (buf.remaining() < Double.BYTES) {
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                buf.clear();
+            }
+        }
     }
     
+    /**
+     * Save the {@link nn} network with name {@link name} into a text file with 
+     * path {@link fileName}. The values are formatted in chunks of a fixed
+     * size, so the memory used doesn't depend on the size of the network.
+     * @param nn {@code NeuralNetwork} to be written in file {@link fileName} along
+     * with the name {@link name}.
+     * @param name {@code String} name to be written in file {@link fileName} along 
+     * with the network {@link nn}.
+     * @param fileName Path to the file where the {@link nn} will be saved.
+     */
     public void saveWithNameAsText(NeuralNetwork nn, String name, String fileName) {
         if (nn == null || name == null || fileName == null) {
             throw new NullPointerException("Arguments cannot be null");
         }
+        saveAsText(textSource(nn), name, fileName);
+    }
+    
+    /**
+     * Save the {@link flat} network with name {@link name} into a text file
+     * with path {@link fileName}, formatting the values in chunks of a fixed
+     * size like {@code saveWithNameAsText} of a {@code NeuralNetwork}.
+     * @param flat {@code FlatNeuralNetwork} to be written in file {@link fileName}
+     * along with the name {@link name}.
+     * @param name {@code String} name to be written in file {@link fileName} along 
+     * with the network {@link flat}.
+     * @param fileName Path to the file where the {@link flat} will be saved.
+     */
+    public void saveWithNameAsText(FlatNeuralNetwork flat, String name, String fileName) {
+        if (flat == null || name == null || fileName == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        saveAsText(textSource(flat), name, fileName);
+    }
+    
+    private void saveAsText(TextSource nn, String name, String fileName) {
         File file = new File(fileName);
+        Path tmp = temporaryFileFor(file);
+        try {
+            writeText(nn, name, tmp.toFile());
+            replaceFile(tmp, file);
+        }
+        catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new IllegalArgumentException("Cannot write into file", e);
+        }
+        catch (RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+    }
+    
+    private void writeText(TextSource nn, String name, File file) throws IOException {
         try (Writer out = new FileWriter(file)) {
+            TextOutput text = new TextOutput(out);
             // write name
-            out.write(name);
-            out.write("\n");
+            text.append(name).append('\n');
             
             // write signature
-            String hiddenSizes = Arrays.stream(nn.getHiddenLayerSizes()).
-                    mapToObj(v -> String.valueOf(v)).collect(
-                            Collectors.joining(", "));
-            String signature = String.format("%d, %s, %d", nn.getNumberInputs(),
-                    hiddenSizes, nn.getNumberOutputs());
-            out.write(signature);
-            out.write("\n");
-
-            int curLayerIdx = 0;
-            int prevLayerSize = nn.getNumberInputs();
-            int curLayerSize = nn.getHiddenLayerSize(curLayerIdx);
-
-            // input <--> layer 1
-            String layerStr = layerToString(nn, curLayerIdx, 
-                    curLayerSize, prevLayerSize);
-            out.write(layerStr);
-            out.write("\n");
+            int nLayers = nn.getNumberLayers();
+            String hiddenSizes = IntStream.range(0, nLayers - 1).
+                    mapToObj(layer -> String.valueOf(nn.getLayerOutputSize(layer))).
+                    collect(Collectors.joining(", "));
+            String signature = String.format("%d, %s, %d", nn.getLayerInputSize(0),
+                    hiddenSizes, nn.getLayerOutputSize(nLayers - 1));
+            text.append(signature).append('\n');
 
-            // hidden layers
-            for (curLayerIdx = 1; curLayerIdx < nn.getNumberHiddenLayers(); curLayerIdx++) {
-                prevLayerSize = nn.getHiddenLayerSize(curLayerIdx - 1);
-                curLayerSize = nn.getHiddenLayerSize(curLayerIdx);
-                layerStr = layerToString(nn, curLayerIdx, 
-                    curLayerSize, prevLayerSize);
-                out.write(layerStr);
-                out.write("\n");
+            long nValues = 0;
+            for (int layer = 0; layer < nLayers; layer++) {
+                nValues += (long)(nn.getLayerInputSize(layer) + 1) * 
+                        nn.getLayerOutputSize(layer);
             }
             
-            // last layer <--> output
-            prevLayerSize = nn.getHiddenLayerSize(nn.getNumberHiddenLayers() - 1);
-            curLayerSize = nn.getNumberOutputs();
-            curLayerIdx = nn.getNumberHiddenLayers();
-            layerStr = layerToString(nn, curLayerIdx, 
-                curLayerSize, prevLayerSize);
-            out.write(layerStr);
-            out.flush();
-        }
-        catch (IOException e) {
-            throw new IllegalArgumentException("Cannot write into file", e);
+            // input <--> layer 1, hidden layers, last layer <--> output
+            long nWritten = 0;
+            for (int layer = 0; layer < nLayers; layer++) {
+                if (layer > 0) {
+                    text.append('\n');
+                }
+                nWritten = writeLayer(nn, layer, text, nWritten, nValues);
+            }
+            text.flush();
         }
     }
     
-    private String layerToString(NeuralNetwork nn, int layerNum, int layerSize, 
-            int prevLayerSize) {
-        StringBuilder sb = new StringBuilder();
-        for (int prevNeuron = 0; prevNeuron < prevLayerSize - 1; prevNeuron++) {
-            for (int curNeuron = 0; curNeuron < layerSize - 1; curNeuron++) {
-                sb.append(nn.getWeight(layerNum, prevNeuron, curNeuron));
-                sb.append(" ");
+    // Layers of a network written as text, read straight from the network
+    private interface TextSource {
+        
+        int getNumberLayers();
+        
+        int getLayerInputSize(int layer);
+        
+        int getLayerOutputSize(int layer);
+        
+        double getWeight(int layer, int from, int to);
+        
+        double getBias(int layer, int to);
+    }
+    
+    private static TextSource textSource(NeuralNetwork nn) {
+        return new TextSource() {
+            @Override
+            public int getNumberLayers() {
+                return nn.getNumberHiddenLayers() + 1;
             }
-            sb.append(nn.getWeight(layerNum, prevNeuron, layerSize - 1));
-            sb.append("\n");
-        }
+
+            @Override
+            public int getLayerInputSize(int layer) {
+                return layer == 0 ? nn.getNumberInputs() : nn.getHiddenLayerSize(layer - 1);
+            }
+
+            @Override
+            public int getLayerOutputSize(int layer) {
+                return layer == nn.getNumberHiddenLayers() ? 
+                        nn.getNumberOutputs() : nn.getHiddenLayerSize(layer);
+            }
+
+            @Override
+            public double getWeight(int layer, int from, int to) {
+                return nn.getWeight(layer, from, to);
+            }
+
+            @Override
+            public double getBias(int layer, int to) {
+                return nn.getBias(layer, to);
+            }
+        };
+    }
+    
+    private static TextSource textSource(FlatNeuralNetwork flat) {
+        return new TextSource() {
+            @Override
+            public int getNumberLayers() {
+                return flat.getNumberLayers();
+            }
+
+            @Override
+            public int getLayerInputSize(int layer) {
+                return flat.getLayerInputSize(layer);
+            }
+
+            @Override
+            public int getLayerOutputSize(int layer) {
+                return flat.getLayerOutputSize(layer);
+            }
+
+            @Override
+            public double getWeight(int layer, int from, int to) {
+                return flat.getWeight(layer, from, to);
+            }
+
+            @Override
+            public double getBias(int layer, int to) {
+                return flat.getBias(layer, to);
+            }
+        };
+    }
+    
+    // Returns the number of values written so far.
+    // The values are formatted straight from the network, so saving
+    // never holds a second copy of it.
+    private long writeLayer(TextSource nn, int layerNum, TextOutput text, 
+            long nWritten, long nValues) throws IOException {
+        int prevLayerSize = nn.getLayerInputSize(layerNum);
+        int layerSize = nn.getLayerOutputSize(layerNum);
         
-        // last neuron of layerNum - 1
-        for (int curNeuron = 0; curNeuron < layerSize - 1; curNeuron++) {
-            sb.append(nn.getWeight(layerNum, prevLayerSize - 1, curNeuron));
-            sb.append(" ");
+        // one line per neuron of layerNum - 1
+        for (int prevNeuron = 0; prevNeuron < prevLayerSize; prevNeuron++) {
+            for (int curNeuron = 0; curNeuron < layerSize - 1; curNeuron++) {
+                text.append(nn.getWeight(layerNum, prevNeuron, curNeuron)).append(' ');
+            }
+            text.append(nn.getWeight(layerNum, prevNeuron, layerSize - 1)).append('\n');
+            nWritten += layerSize;
+            checkCanceled();
+            progressHandler.accept((double)nWritten / nValues);
         }
-        sb.append(nn.getWeight(layerNum, prevLayerSize - 1, layerSize - 1));
-        sb.append("\n");
         
         // biases
         for (int curNeuron = 0; curNeuron < layerSize - 1; curNeuron++) {
-            sb.append(nn.getBias(layerNum, curNeuron));
-            sb.append(" ");
+            text.append(nn.getBias(layerNum, curNeuron)).append(' ');
         }
-        sb.append(nn.getBias(layerNum, layerSize - 1));
-        
-        return sb.toString();
+        text.append(nn.getBias(layerNum, layerSize - 1));
+        nWritten += layerSize;
+        progressHandler.accept((double)nWritten / nValues);
+        return nWritten;
     }
     
+    /**
+     * Load a network from a file written by {@code saveWithName}, either in
+     * the binary format or by Java serialization. Large binary files are
+     * memory-mapped.
+     * @param fileName Path to the file.
+     * @return {@code NeuralNetwork} read from the file, a {@code NamedNeuralNetwork}
+     * if the file holds a name.
+     * @throws IllegalArgumentException if the file cannot be read or its
+     * format is wrong.
+     */
     public NeuralNetwork load(String fileName) {
         if (fileName == null) {
             throw new NullPointerException("File name cannot be null");
         }
-        NeuralNetwork nn;
         File file = new File(fileName);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buf;
+            if (size >= mappingThreshold) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            else {
+                buf = ByteBuffer.allocate((int)size);
+                while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                }
+                buf.flip();
+            }
+            if (hasMagic(buf)) {
+                return readBinary(buf.order(ByteOrder.LITTLE_ENDIAN));
+            }
+        }
+        catch(IOException e) {
+            throw new IllegalArgumentException("Cannot read from file", e);
+        }
+        return loadSerialized(file);
+    }
+    
+    /**
+     * Load only the name and the structure of the network stored in a binary
+     * or a text file. The weights are loaded from the file the first time
+     * they are accessed, and they can be evicted and loaded again later, so
+     * the file mustn't be changed while the network is used. Files written
+     * by Java serialization have no header and are loaded at once.
+     * @param fileName Path to the file.
+     * @return {@code NeuralNetwork} a {@code LazyNeuralNetwork} named as in the file,
+     * or as the file without the extension if the file holds no name.
+     * @throws IllegalArgumentException if the file cannot be read or its
+     * format is wrong.
+     */
+    public NeuralNetwork loadLazily(String fileName) {
+        if (fileName == null) {
+            throw new NullPointerException("File name cannot be null");
+        }
+        File file = new File(fileName);
+        boolean text = NeuralNetworkFileTask.isTextFile(file);
+        Header header;
+        try {
+            header = text ? readTextHeader(file) : readBinaryHeader(file);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read from file", e);
+        }
+        if (header == null) {
+            return load(fileName);
+        }
+        String name = header.name;
+        if (name == null) {
+            String fileNamePlusExtension = file.getName();
+            int lastDotIdx = fileNamePlusExtension.lastIndexOf(".");
+            name = lastDotIdx == -1 ? fileNamePlusExtension : 
+                    fileNamePlusExtension.substring(0, lastDotIdx);
+        }
+        String path = file.getAbsolutePath();
+        Supplier<NeuralNetwork> source = () -> text ? 
+                new NeuralNetworkLoader().loadFromTextFile(path) : 
+                new NeuralNetworkLoader().load(path);
+        return header.activation == null ? 
+                new LazyNeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs, 
+                        name, source) :
+                new LazyNeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs, 
+                        name, header.activation, source);
+    }
+    
+    // null if the file has no header of the binary format or it's larger
+    // than the block read
+    private Header readBinaryHeader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buf = ByteBuffer.allocate((int)Math.min(size, HEADER_BLOCK_SIZE)).
+                    order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+            }
+            buf.flip();
+            if (!hasMagic(buf)) {
+                return null;
+            }
+            try {
+                return readBinaryHeader(buf, size);
+            }
+            catch (BufferUnderflowException e) {
+                if (buf.limit() == size) {
+                    throw new IllegalArgumentException("Wrong file format", e);
+                }
+                return null;
+            }
+        }
+    }
+    
+    private Header readTextHeader(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            return readTextHeader(new LineReader(in, file.length(), BUFFER_SIZE));
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Wrong file format: " + e.toString(), e);
+        }
+    }
+    
+    private boolean hasMagic(ByteBuffer buf) {
+        if (buf.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int idx = 0; idx < MAGIC.length; idx++) {
+            if (buf.get(idx) != MAGIC[idx]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private NeuralNetwork readBinary(ByteBuffer buf) {
+        try {
+            Header header = readBinaryHeader(buf, buf.limit());
+            FlatNeuralNetwork flat = header.activation == null ? 
+                    new FlatNeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs) :
+                    new FlatNeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs, 
+                            header.activation);
+            for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+                checkCanceled();
+                getDoubles(buf, flat.getWeights(layer));
+                getDoubles(buf, flat.getBiases(layer));
+                progressHandler.accept((double)(layer + 1) / flat.getNumberLayers());
+            }
+            NeuralNetwork nn = new NamedNeuralNetwork(header.nInputs, header.hiddenSizes, 
+                    header.nOutputs, header.name, flat.getActivationFunction());
+            flat.copyInto(nn);
+            return nn;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Wrong file format", e);
+        }
+    }
+    
+    // Reads the header from buf positioned after it, checking that the rest
+    // of the file of fileSize bytes holds the weights
+    private Header readBinaryHeader(ByteBuffer buf, long fileSize) {
+        buf.position(MAGIC.length);
+        int version = buf.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_ACTIVATION) {
+            throw new IllegalArgumentException("Unsupported file version " + version);
+        }
+        byte[] nameBytes = getBytes(buf);
+        ActivationFunction activation = null;
+        if (version != VERSION_WITHOUT_ACTIVATION) {
+            try {
+                activation = ActivationFunctions.fromBytes(getBytes(buf));
+            }
+            catch (IOException e) {
+                throw new IllegalArgumentException("Wrong file format", e);
+            }
+        }
+        int nInputs = buf.getInt();
+        int nHiddenLayers = buf.getInt();
+        if (nHiddenLayers < 1 || nHiddenLayers > buf.remaining() / 4) {
+            throw new IllegalArgumentException("Wrong file format");
+        }
+        int[] hiddenSizes = new int[nHiddenLayers];
+        for (int idx = 0; idx < nHiddenLayers; idx++) {
+            hiddenSizes[idx] = buf.getInt();
+        }
+        int nOutputs = buf.getInt();
+        long nValues = 0;
+        int prevSize = nInputs;
+        for (int size : hiddenSizes) {
+            nValues += ((long)prevSize + 1) * size;
+            prevSize = size;
+        }
+        nValues += ((long)prevSize + 1) * nOutputs;
+        if (nValues * Double.BYTES != fileSize - buf.position()) {
+            throw new IllegalArgumentException("Wrong file format");
+        }
+        return new Header(new String(nameBytes, StandardCharsets.UTF_8), 
+                nInputs, hiddenSizes, nOutputs, activation);
+    }
+    
+    // Reads the length of a byte array and the array
+    private byte[] getBytes(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) {
+            throw new IllegalArgumentException("Wrong file format");
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return bytes;
+    }
+    
+    private void getDoubles(ByteBuffer buf, double[] values) {
+        buf.asDoubleBuffer().get(values);
+        buf.position(buf.position() + values.length * Double.BYTES);
+    }
+    
+    private NeuralNetwork loadSerialized(File file) {
+        NeuralNetwork nn;
         try (InputStream in = new FileInputStream(file)) {
             try (ObjectInputStream oos = new ObjectInputStream(in)) {
                 nn = (NeuralNetwork)oos.readObject();
@@ -149,46 +643,70 @@ public class NeuralNetworkLoader {
         catch(ClassNotFoundException | ClassCastException e) {
             throw new IllegalArgumentException("Wrong file format", e);
         }
+        progressHandler.accept(1.0);
         return nn;
     }
     
+    /**
+     * Load a network from a text file written by {@code saveWithNameAsText}
+     * or a text file without the name line. The file is read once, and
+     * the weights are parsed straight from the bytes of the file into
+     * the arrays of the layers.
+     * @param fileName Path to the file.
+     * @return {@code NeuralNetwork} read from the file, a {@code NamedNeuralNetwork}
+     * if the file holds a name.
+     * @throws IllegalArgumentException if the file cannot be read or its
+     * format is wrong, the message tells the layer and the line of the error.
+     */
     public NeuralNetwork loadFromTextFile(String fileName) {
         if (fileName == null) {
             throw new NullPointerException("File name cannot be null");
         }
         File file = new File(fileName);
-
-        // Read name and signature
-        String name;
-        String[] signatureSplit;
-        try (Reader in = new FileReader(file)) {
-            try (BufferedReader bufIn = new BufferedReader(in)) {
-                name = bufIn.readLine();
-                String signature = bufIn.readLine();
-                signatureSplit = signature.split(", ");
-                if (signatureSplit.length < 3) {
-                    // try split the name
-                    signatureSplit = name.split(", ");
-                    if (signatureSplit.length < 3) {
-                        throw new IOException("Cannot read signature");
-                    }
-                    name = null;
-                }
+        try (InputStream in = new FileInputStream(file)) {
+            LineReader reader = new LineReader(in, file.length(), TEXT_BUFFER_SIZE);
+            Header header = readTextHeader(reader);
+            
+            NeuralNetwork nn = parseEmptyNetwork(header);
+            
+            FlatNeuralNetwork flat = new FlatNeuralNetwork(nn.getNumberInputs(),
+                    nn.getHiddenLayerSizes(), nn.getNumberOutputs(), 
+                    nn.getActivationFunction());
+            CsvLineTokenizer tokenizer = new CsvLineTokenizer();
+            for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+                readLayer(flat, layer, reader, tokenizer);
             }
+            flat.copyInto(nn);
+            return nn;
         }
-        catch (IOException | NumberFormatException e) {
+        catch (IOException e) {
             throw new IllegalArgumentException("Wrong file format: " + e.toString(), e);
         }
-        
-        NeuralNetwork nn = parseEmptyNetwork(name, signatureSplit);
-        
-        fillNetworkFromFile(nn, file, name != null);
-        
-        return nn;
     }
 
-    private NeuralNetwork parseEmptyNetwork(String name, String[] signatureSplit) {
-        NeuralNetwork nn;
+    // Reads the name and the signature, the name is null if the file has
+    // no name line
+    private Header readTextHeader(LineReader reader) throws IOException {
+        String name = reader.nextLine() ? reader.lineToString() : null;
+        String signature = reader.nextLine() ? reader.lineToString() : null;
+        if (name == null || signature == null) {
+            throw new IOException("Cannot read signature");
+        }
+        String[] signatureSplit = signature.split(", ");
+        if (signatureSplit.length < 3) {
+            // try split the name
+            signatureSplit = name.split(", ");
+            if (signatureSplit.length < 3) {
+                throw new IOException("Cannot read signature");
+            }
+            name = null;
+            // the second line holds the first weights
+            reader.pushBack();
+        }
+        return parseSignature(name, signatureSplit);
+    }
+    
+    private Header parseSignature(String name, String[] signatureSplit) {
         int nInputs = Integer.parseInt(signatureSplit[0]);
         int nOutputs = Integer.parseInt(signatureSplit[signatureSplit.length - 1]);
         int[] hiddenSizes = new int[signatureSplit.length - 2];
@@ -198,98 +716,272 @@ public class NeuralNetworkLoader {
         for (int i = 0; i < hiddenSizes.length; i++) {
             hiddenSizes[i] = Integer.parseInt(signatureSplit[i + 1]);
         }
-        if (name == null) {
+        return new Header(name, nInputs, hiddenSizes, nOutputs, null);
+    }
+    
+    private NeuralNetwork parseEmptyNetwork(Header header) {
+        NeuralNetwork nn;
+        if (header.name == null) {
             // create NeuralNetwork
-            nn = new NeuralNetwork(nInputs, hiddenSizes, nOutputs);
+            nn = new NeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs);
         }
         else {
             // create NamedNeuralNetwork
-            nn = new NamedNeuralNetwork(nInputs, hiddenSizes, nOutputs,
-                    name);
+            nn = new NamedNeuralNetwork(header.nInputs, header.hiddenSizes, header.nOutputs,
+                    header.name);
         }
         return nn;
     }
 
-    private void fillNetworkFromFile(NeuralNetwork nn, File file, boolean namePresent) {
-        try (Reader in = new FileReader(file)) {
-            try (BufferedReader bufIn = new BufferedReader(in)) {
-                bufIn.readLine();
-                if (namePresent) {
-                    // There is a name in file => skip another line
-                    bufIn.readLine();
-                }
-
-                // input <--> first hidden
-                int curLayerIdx = 0;
-                int prevLayerSize = nn.getNumberInputs();
-                int curLayerSize = nn.getHiddenLayerSize(curLayerIdx);
-
-                readLayerIntoNetwork(nn, curLayerIdx, curLayerSize, 
-                        prevLayerSize, bufIn);
-
-                // hidden layers
-                for (curLayerIdx = 1; curLayerIdx < nn.getNumberHiddenLayers(); curLayerIdx++) {
-                    prevLayerSize = nn.getHiddenLayerSize(curLayerIdx - 1);
-                    curLayerSize = nn.getHiddenLayerSize(curLayerIdx);
-                    readLayerIntoNetwork(nn, curLayerIdx, curLayerSize, 
-                        prevLayerSize, bufIn);
-                }
-
-                // last layer <--> output
-                prevLayerSize = nn.getHiddenLayerSize(nn.getNumberHiddenLayers() - 1);
-                curLayerSize = nn.getNumberOutputs();
-                curLayerIdx = nn.getNumberHiddenLayers();
-                readLayerIntoNetwork(nn, curLayerIdx, curLayerSize, 
-                        prevLayerSize, bufIn);
+    private void readLayer(FlatNeuralNetwork nn, int layerNum, LineReader reader,
+            CsvLineTokenizer tokenizer) throws IOException {
+        int prevLayerSize = nn.getLayerInputSize(layerNum);
+        int layerSize = nn.getLayerOutputSize(layerNum);
+        double[] weights = nn.getWeights(layerNum);
+        
+        // one line per neuron of layerNum - 1
+        for (int prevNeuron = 0; prevNeuron < prevLayerSize; prevNeuron++) {
+            readLine(reader, tokenizer, layerNum, layerSize, weights, prevNeuron, 
+                    prevLayerSize);
+        }
+        
+        // biases
+        readLine(reader, tokenizer, layerNum, layerSize, nn.getBiases(layerNum), 0, 1);
+    }
+    
+    // Parses the layerSize values of the next line, split as String.split(" ")
+    // does, into dest[destPos], dest[destPos + stride], ...
+    private void readLine(LineReader reader, CsvLineTokenizer tokenizer, int layerNum,
+            int layerSize, double[] dest, int destPos, int stride) throws IOException {
+        checkCanceled();
+        if (!reader.nextLine()) {
+            throw new IOException(String.format(
+                    "Unexpected end of file in layer %d at line %d", 
+                    layerNum + 1, reader.lineNumber + 1));
+        }
+        byte[] buf = reader.buf;
+        int start = reader.lineStart;
+        int end = reader.lineEnd;
+        // String.split drops trailing empty values
+        while (end > start && buf[end - 1] == ' ') {
+            end--;
+        }
+        int nValues = 1;
+        for (int i = start; i < end; i++) {
+            if (buf[i] == ' ') {
+                nValues++;
             }
         }
-        catch (IOException | NumberFormatException e) {
-            throw new IllegalArgumentException("Wrong file format: " + e.toString(), e);
+        if (nValues != layerSize) {
+            throw new IOException(String.format(
+                    "Wrong number of weights for layer %d at line %d", 
+                    layerNum + 1, reader.lineNumber));
+        }
+        int valueStart = start;
+        int idx = destPos;
+        for (int i = start; i <= end; i++) {
+            if (i < end && buf[i] != ' ') {
+                continue;
+            }
+            try {
+                dest[idx] = tokenizer.parseDouble(buf, valueStart, i);
+            }
+            catch (NumberFormatException e) {
+                throw new IOException(String.format("%s in layer %d at line %d", 
+                        e.getMessage(), layerNum + 1, reader.lineNumber), e);
+            }
+            idx += stride;
+            valueStart = i + 1;
+        }
+        progressHandler.accept(reader.getProgress());
+    }
+    
+    // Name and structure of a network stored in a file
+    private static class Header {
+        
+        final String name;
+        
+        final int nInputs;
+        
+        final int[] hiddenSizes;
+        
+        final int nOutputs;
+        
+        // null if the file has no activation function
+        final ActivationFunction activation;
+        
+        Header(String name, int nInputs, int[] hiddenSizes, int nOutputs, 
+                ActivationFunction activation) {
+            this.name = name;
+            this.nInputs = nInputs;
+            this.hiddenSizes = hiddenSizes;
+            this.nOutputs = nOutputs;
+            this.activation = activation;
+        }
+    }
+    
+    // Formatter of text into a reusable buffer, which is written into
+    // the writer whenever it's full
+    private static class TextOutput {
+        
+        private final Writer out;
+        
+        private final StringBuilder chunk = new StringBuilder(TEXT_CHUNK_SIZE + 32);
+        
+        private char[] chars = new char[TEXT_CHUNK_SIZE + 32];
+        
+        TextOutput(Writer out) {
+            this.out = out;
+        }
+        
+        TextOutput append(double value) throws IOException {
+            // formats the digits straight into the buffer
+            chunk.append(value);
+            return flushIfFull();
+        }
+        
+        TextOutput append(char c) throws IOException {
+            chunk.append(c);
+            return flushIfFull();
+        }
+        
+        TextOutput append(String str) throws IOException {
+            chunk.append(str);
+            return flushIfFull();
+        }
+        
+        void flush() throws IOException {
+            int length = chunk.length();
+            if (chars.length < length) {
+                chars = new char[length];
+            }
+            chunk.getChars(0, length, chars, 0);
+            out.write(chars, 0, length);
+            chunk.setLength(0);
+        }
+        
+        private TextOutput flushIfFull() throws IOException {
+            if (chunk.length() >= TEXT_CHUNK_SIZE) {
+                flush();
+            }
+            return this;
         }
     }
     
-    private void readLayerIntoNetwork(NeuralNetwork nn, int layerNum, int layerSize, 
-            int prevLayerSize, BufferedReader br) throws IOException, NumberFormatException {
-        String line;
-        String[] lineSplit;
-        int expectedSize = layerSize;
-        int curWeightIdx;
-        for (int prevNeuron = 0; prevNeuron < prevLayerSize - 1; prevNeuron++) {
-            line = br.readLine();
-            lineSplit = line.split(" ");
-            if (lineSplit.length != expectedSize) {
-                throw new IOException("Wrong number of weights for layer");
+    // Reader of the lines of a stream as ranges of one large buffer, the lines
+    // are ended as BufferedReader.readLine ends them
+    private static class LineReader {
+        
+        private final InputStream in;
+        
+        byte[] buf;
+        
+        // bounds of the current line
+        int lineStart;
+        
+        int lineEnd;
+        
+        // number of the current line from 1
+        int lineNumber;
+        
+        private final long fileSize;
+        
+        private long bytesRead;
+        
+        // start of the bytes after the current line
+        private int pos;
+        
+        // end of the bytes read into buf
+        private int limit;
+        
+        private boolean eof;
+        
+        // set if the current line ended with '\r'
+        private boolean skipLf;
+        
+        // set if the current line must be returned again
+        private boolean repeat;
+        
+        LineReader(InputStream in, long fileSize, int bufferSize) {
+            this.in = in;
+            this.fileSize = fileSize;
+            this.buf = new byte[bufferSize];
+        }
+        
+        // Part of the stream read so far from 0 to 1
+        double getProgress() {
+            return (double)bytesRead / Math.max(bytesRead, fileSize);
+        }
+        
+        boolean nextLine() throws IOException {
+            if (repeat) {
+                repeat = false;
+                lineNumber++;
+                return true;
             }
-            curWeightIdx = 0;
-            for (int curNeuron = 0; curNeuron < layerSize; curNeuron++) {
-                nn.setWeight(layerNum, prevNeuron, curNeuron, 
-                        Double.parseDouble(lineSplit[curWeightIdx++]));
+            int scanPos = pos;
+            while (true) {
+                if (skipLf && scanPos < limit) {
+                    if (buf[pos] == '\n') {
+                        pos++;
+                        scanPos++;
+                    }
+                    skipLf = false;
+                }
+                for (; scanPos < limit; scanPos++) {
+                    byte b = buf[scanPos];
+                    if (b == '\n' || b == '\r') {
+                        lineStart = pos;
+                        lineEnd = scanPos;
+                        pos = scanPos + 1;
+                        skipLf = b == '\r';
+                        lineNumber++;
+                        return true;
+                    }
+                }
+                if (eof) {
+                    if (pos == limit) {
+                        return false;
+                    }
+                    lineStart = pos;
+                    lineEnd = limit;
+                    pos = limit;
+                    lineNumber++;
+                    return true;
+                }
+                scanPos -= pos;
+                fill();
             }
         }
         
-        // last neuron of layerNum - 1
-        line = br.readLine();
-        lineSplit = line.split(" ");
-        expectedSize = layerSize;
-        if (lineSplit.length != expectedSize) {
-            throw new IOException("Wrong number of weights for layer");
+        // The current line is returned by the next nextLine call again
+        void pushBack() {
+            repeat = true;
+            lineNumber--;
         }
-        curWeightIdx = 0;
-        for (int curNeuron = 0; curNeuron < layerSize; curNeuron++) {
-            nn.setWeight(layerNum, prevLayerSize - 1, curNeuron, 
-                    Double.parseDouble(lineSplit[curWeightIdx++]));
+        
+        String lineToString() {
+            return new String(buf, lineStart, lineEnd - lineStart);
         }
         
-        // biases
-        line = br.readLine();
-        lineSplit = line.split(" ");
-        expectedSize = layerSize;
-        if (lineSplit.length != expectedSize) {
-            throw new IOException("Wrong number of weights for layer");
-        }
-        curWeightIdx = 0;
-        for (int curNeuron = 0; curNeuron < layerSize; curNeuron++) {
-            nn.setBias(layerNum, curNeuron, Double.parseDouble(lineSplit[curWeightIdx++]));
+        // Moves the unread bytes to the start of buf and reads more bytes
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int nRead = in.read(buf, limit, buf.length - limit);
+            if (nRead < 0) {
+                eof = true;
+            }
+            else {
+                limit += nRead;
+                bytesRead += nRead;
+            }
         }
     }
 }
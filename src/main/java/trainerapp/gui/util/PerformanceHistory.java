@@ -0,0 +1,179 @@
+package trainerapp.gui.util;
+
+import java.util.Arrays;
+
+/**
+ * Performance of a network recorded after every epoch of a training, stored
+ * in growable primitive arrays. The history can be reduced to a given number
+ * of points with the Largest-Triangle-Three-Buckets algorithm, which keeps
+ * the shape of the curve, so a chart of millions of epochs stays cheap
+ * to draw.
+ * <p>
+ * An instance of this class isn't thread-safe.
+ * @author Konstantin Zhdanov
+ */
+public class PerformanceHistory {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] epochs;
+
+    private double[] performances;
+
+    private int size;
+
+    /**
+     * Create an empty history.
+     */
+    public PerformanceHistory() {
+        epochs = new int[INITIAL_CAPACITY];
+        performances = new double[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Create a copy of {@code other}.
+     * @param other History to copy.
+     * @throws NullPointerException if {@code other} is null.
+     */
+    public PerformanceHistory(PerformanceHistory other) {
+        if (other == null) {
+            throw new NullPointerException("History cannot be null");
+        }
+        int capacity = Math.max(other.size, INITIAL_CAPACITY);
+        epochs = Arrays.copyOf(other.epochs, capacity);
+        performances = Arrays.copyOf(other.performances, capacity);
+        size = other.size;
+    }
+
+    /**
+     * Append the performance after the epoch {@code epoch}.
+     * @param epoch Number of the epoch.
+     * @param performance Performance of the network after the epoch.
+     */
+    public void add(int epoch, double performance) {
+        if (size == epochs.length) {
+            int newCapacity = epochs.length + (epochs.length >> 1);
+            epochs = Arrays.copyOf(epochs, newCapacity);
+            performances = Arrays.copyOf(performances, newCapacity);
+        }
+        epochs[size] = epoch;
+        performances[size] = performance;
+        size++;
+    }
+
+    /**
+     * Number of the recorded epochs.
+     * @return {@code int} number of epochs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether no epochs have been recorded.
+     * @return {@code boolean} true if the history is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of the epoch recorded with index {@code idx}.
+     * @param idx Index of the recorded epoch.
+     * @return {@code int} number of the epoch.
+     * @throws IndexOutOfBoundsException if {@code idx} is out of range.
+     */
+    public int getEpoch(int idx) {
+        checkIndex(idx);
+        return epochs[idx];
+    }
+
+    /**
+     * Performance recorded with index {@code idx}.
+     * @param idx Index of the recorded epoch.
+     * @return {@code double} performance after the epoch.
+     * @throws IndexOutOfBoundsException if {@code idx} is out of range.
+     */
+    public double getPerformance(int idx) {
+        checkIndex(idx);
+        return performances[idx];
+    }
+
+    /**
+     * Remove all the recorded epochs.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Select not more than {@code maxPoints} recorded epochs which best
+     * preserve the shape of the performance curve. The first and the last
+     * epochs are always selected. All the epochs are selected if there are
+     * not more than {@code maxPoints} of them.
+     * @param maxPoints Maximal number of selected epochs, at least 3.
+     * @return Array of the indices of the selected epochs in ascending order.
+     * @throws IllegalArgumentException if {@code maxPoints} is less than 3.
+     */
+    public int[] downsample(int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("Number of points must be at least 3");
+        }
+        if (size <= maxPoints) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[maxPoints];
+        int nSelected = 0;
+        // the points between the first and the last ones are split into
+        // buckets, and from every bucket the point forming the largest
+        // triangle with the previous selected point and the average point
+        // of the next bucket is selected
+        double bucketSize = (double)(size - 2) / (maxPoints - 2);
+        int prev = 0;
+        selected[nSelected++] = prev;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int start = (int)(bucket * bucketSize) + 1;
+            int end = Math.min((int)((bucket + 1) * bucketSize) + 1, size - 1);
+
+            int nextStart = end;
+            int nextEnd = Math.min((int)((bucket + 2) * bucketSize) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += epochs[i];
+                avgY += performances[i];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            double prevX = epochs[prev];
+            double prevY = performances[prev];
+            double maxArea = -1;
+            int maxAreaIdx = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((prevX - avgX) * (performances[i] - prevY) -
+                        (prevX - epochs[i]) * (avgY - prevY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxAreaIdx = i;
+                }
+            }
+            selected[nSelected++] = maxAreaIdx;
+            prev = maxAreaIdx;
+        }
+        selected[nSelected] = size - 1;
+        return selected;
+    }
+
+    private void checkIndex(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index is out of range: " + idx);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package trainerapp.gui.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import trainerapp.gui.repository.PagedSamplesRepository;
+
+/**
+ * Binary cache of the samples loaded from a CSV file, stored next to the file
+ * with the {@code .nnsamples} extension appended to its name.
+ * The cache holds the header, the number of samples, the size of a sample
+ * and the values of all samples as little-endian {@code double} values,
+ * row by row. It also records the size and the modification time of
+ * the CSV file and is only read while they still match.
+ * The values are read through memory-mapped regions of the cache file,
+ * either all at once or by a {@code PagedSamplesRepository}.
+ * @author Konstantin Zhdanov
+ */
+public class SamplesCacheFile {
+
+    /**
+     * Extension appended to the name of the CSV file.
+     */
+    public static final String EXTENSION = ".nnsamples";
+
+    private static final byte[] MAGIC = "NNSAMPLS".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    // magic, version, sample size, number of samples, source size and time
+    private static final int FIXED_HEADER_SIZE = 40;
+
+    private static final int SAMPLE_COUNT_POSITION = 16;
+
+    // Size of the regions of the cache file mapped at once
+    private static final long MAX_MAPPED_BYTES = 1L << 30;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final File source;
+
+    private final File cache;
+
+    /**
+     * Create a cache of the samples of {@code source} CSV file.
+     * @param source CSV file the samples are loaded from.
+     * @throws NullPointerException if {@code source} is null.
+     */
+    public SamplesCacheFile(File source) {
+        if (source == null) {
+            throw new NullPointerException("Source file cannot be null");
+        }
+        this.source = source;
+        this.cache = new File(source.getAbsoluteFile().getParentFile(),
+                source.getName() + EXTENSION);
+    }
+
+    /**
+     * Get the file the cache is stored in.
+     * @return {@code File} next to the CSV file.
+     */
+    public File getFile() {
+        return cache;
+    }
+
+    /**
+     * Open the cache for reading if it exists and was created from the current
+     * version of the CSV file.
+     * @return {@code Reader} of the cached samples, or null if there is no
+     * cache, it's outdated or isn't a valid cache file.
+     * @throws IOException if the cache file cannot be read.
+     */
+    public Reader openReader() throws IOException {
+        if (!cache.isFile()) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ);
+        try {
+            Reader reader = Reader.open(channel, source.length(), source.lastModified());
+            if (reader == null) {
+                channel.close();
+            }
+            return reader;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open the samples of the cache without loading them into memory if
+     * the cache exists and was created from the current version of the CSV
+     * file.
+     * @return {@code PagedSamplesRepository} reading the samples from
+     * the cache file, or null if there is no cache, it's outdated or isn't
+     * a valid cache file.
+     * @throws IOException if the cache file cannot be read.
+     */
+    public PagedSamplesRepository openPagedRepository() throws IOException {
+        try (Reader reader = openReader()) {
+            if (reader == null) {
+                return null;
+            }
+            return new PagedSamplesRepository(cache.toPath(), reader.dataOffset,
+                    reader.getSampleCount(), reader.getSampleSize(), reader.getHeader());
+        }
+    }
+
+    /**
+     * Start writing a new cache. The cache replaces the previous one
+     * only when {@link Writer#commit()} is called.
+     * @param sourceSize Size of the CSV file at the moment it was read.
+     * @param sourceLastModified Modification time of the CSV file at the moment
+     * it was read.
+     * @param header Titles of the variables of the samples.
+     * @return {@code Writer} to write the samples with.
+     * @throws IOException if the cache file cannot be created.
+     * @throws NullPointerException if {@code header} is null.
+     */
+    public Writer openWriter(long sourceSize, long sourceLastModified,
+            List<String> header) throws IOException {
+        if (header == null) {
+            throw new NullPointerException("Header cannot be null");
+        }
+        // every writer has its own file, so that concurrent loads of the same
+        // CSV file never write into the same file
+        File dir = cache.getAbsoluteFile().getParentFile();
+        Path tmp = Files.createTempFile(dir.toPath(), cache.getName() + ".", ".tmp");
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Writer writer = new Writer(channel, tmp, cache.toPath(), header.size());
+        try {
+            writer.writeHeader(sourceSize, sourceLastModified, header);
+        }
+        catch (IOException | RuntimeException e) {
+            writer.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    // the values start at a multiple of 8 bytes
+    private static long alignedDataOffset(long headerEnd) {
+        return (headerEnd + 7) & ~7L;
+    }
+
+    /**
+     * Sequential reader of the samples stored in a cache file.
+     */
+    public static class Reader implements Closeable {
+
+        private final FileChannel channel;
+
+        private final List<String> header;
+
+        private final int sampleSize;
+
+        private final int sampleCount;
+
+        private final long dataOffset;
+
+        private DoubleBuffer region;
+
+        private long regionEnd;
+
+        private int nSamplesRead;
+
+        private Reader(FileChannel channel, List<String> header, int sampleSize,
+                int sampleCount, long dataOffset) {
+            this.channel = channel;
+            this.header = header;
+            this.sampleSize = sampleSize;
+            this.sampleCount = sampleCount;
+            this.dataOffset = dataOffset;
+            this.regionEnd = dataOffset;
+        }
+
+        // returns null if the file isn't a cache of the given source version
+        private static Reader open(FileChannel channel, long sourceSize,
+                long sourceLastModified) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < FIXED_HEADER_SIZE + 4) {
+                return null;
+            }
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_SIZE + 4)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, fixed, 0);
+            byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || fixed.getInt() != VERSION) {
+                return null;
+            }
+            int sampleSize = fixed.getInt();
+            long sampleCount = fixed.getLong();
+            if (fixed.getLong() != sourceSize ||
+                    fixed.getLong() != sourceLastModified) {
+                return null;
+            }
+            int nTitles = fixed.getInt();
+            if (sampleSize < 0 || nTitles != sampleSize || sampleCount < 0 ||
+                    sampleCount > Integer.MAX_VALUE ||
+                    sampleCount * sampleSize > Integer.MAX_VALUE - 8) {
+                return null;
+            }
+
+            List<String> header = new ArrayList<>(nTitles);
+            long position = FIXED_HEADER_SIZE + 4;
+            ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < nTitles; i++) {
+                length.clear();
+                if (position + 4 > fileSize) {
+                    return null;
+                }
+                readFully(channel, length, position);
+                int nBytes = length.getInt();
+                position += 4;
+                if (nBytes < 0 || position + nBytes > fileSize) {
+                    return null;
+                }
+                ByteBuffer title = ByteBuffer.allocate(nBytes);
+                readFully(channel, title, position);
+                header.add(new String(title.array(), StandardCharsets.UTF_8));
+                position += nBytes;
+            }
+
+            long dataOffset = alignedDataOffset(position);
+            if (fileSize != dataOffset + sampleCount * sampleSize * Double.BYTES) {
+                return null;
+            }
+            return new Reader(channel, Collections.unmodifiableList(header),
+                    sampleSize, (int)sampleCount, dataOffset);
+        }
+
+        /**
+         * Get the titles of the variables of the samples.
+         * @return Unmodifiable {@code List} of the titles.
+         */
+        public List<String> getHeader() {
+            return header;
+        }
+
+        /**
+         * Get the number of variables in each sample.
+         * @return {@code int} size of a sample.
+         */
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        /**
+         * Get the number of samples in the cache.
+         * @return {@code int} number of samples.
+         */
+        public int getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * Read the values of the next samples into {@code dest}.
+         * @param dest Array to read the values into.
+         * @param destPos Index in {@code dest} to read the first value into.
+         * @param maxSamples Maximal number of samples to read.
+         * @return {@code int} number of samples read, 0 if all samples
+         * have been read.
+         * @throws IOException if the cache file cannot be read.
+         */
+        public int read(double[] dest, int destPos, int maxSamples) throws IOException {
+            int nSamples = Math.min(maxSamples, sampleCount - nSamplesRead);
+            int nValues = nSamples * sampleSize;
+            int done = 0;
+            while (done < nValues) {
+                if (region == null || !region.hasRemaining()) {
+                    mapNextRegion();
+                }
+                int n = Math.min(nValues - done, region.remaining());
+                region.get(dest, destPos + done, n);
+                done += n;
+            }
+            nSamplesRead += nSamples;
+            return nSamples;
+        }
+
+        private void mapNextRegion() throws IOException {
+            long dataEnd = dataOffset + (long)sampleCount * sampleSize * Double.BYTES;
+            long size = Math.min(MAX_MAPPED_BYTES, dataEnd - regionEnd);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    regionEnd, size);
+            region = mapped.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            regionEnd += size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            region = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Writer of the samples into a new cache file.
+     */
+    public static class Writer implements Closeable {
+
+        private final FileChannel channel;
+
+        private final Path tmp;
+
+        private final Path target;
+
+        private final int sampleSize;
+
+        private final ByteBuffer buffer;
+
+        private long sampleCount;
+
+        private boolean committed;
+
+        private Writer(FileChannel channel, Path tmp, Path target, int sampleSize) {
+            this.channel = channel;
+            this.tmp = tmp;
+            this.target = target;
+            this.sampleSize = sampleSize;
+            this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void writeHeader(long sourceSize, long sourceLastModified,
+                List<String> header) throws IOException {
+            List<byte[]> titles = new ArrayList<>(header.size());
+            int size = FIXED_HEADER_SIZE + 4;
+            for (String title : header) {
+                byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+                titles.add(bytes);
+                size += 4 + bytes.length;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int)alignedDataOffset(size))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(MAGIC);
+            buf.putInt(VERSION);
+            buf.putInt(sampleSize);
+            // the number of samples is written on commit
+            buf.putLong(0);
+            buf.putLong(sourceSize);
+            buf.putLong(sourceLastModified);
+            buf.putInt(titles.size());
+            for (byte[] bytes : titles) {
+                buf.putInt(bytes.length);
+                buf.put(bytes);
+            }
+            buf.position(buf.capacity());
+            buf.flip();
+            writeFully(channel, buf);
+        }
+
+        /**
+         * Append {@code nSamples} samples stored one after another
+         * in {@code values} starting at {@code offset}.
+         * @param values Array holding the samples.
+         * @param offset Index of the first variable of the first sample.
+         * @param nSamples Number of samples to write.
+         * @throws IOException if the cache file cannot be written.
+         */
+        public void write(double[] values, int offset, int nSamples) throws IOException {
+            int nValues = nSamples * sampleSize;
+            int done = 0;
+            while (done < nValues) {
+                DoubleBuffer doubles = buffer.asDoubleBuffer();
+                int n = Math.min(nValues - done, doubles.remaining());
+                doubles.put(values, offset + done, n);
+                buffer.position(0).limit(n * Double.BYTES);
+                writeFully(channel, buffer);
+                buffer.clear();
+                done += n;
+            }
+            sampleCount += nSamples;
+        }
+
+        /**
+         * Complete the cache and replace the previous cache with it.
+         * @throws IOException if the cache file cannot be written.
+         */
+        public void commit() throws IOException {
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(sampleCount).flip();
+            while (count.hasRemaining()) {
+                channel.write(count, SAMPLE_COUNT_POSITION + count.position());
+            }
+            channel.close();
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+        }
+
+        /**
+         * Discard the cache if it hasn't been committed.
+         * @throws IOException if the incomplete cache file cannot be deleted.
+         */
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            channel.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf,
+            long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int nRead = channel.read(buf, position + buf.position());
+            if (nRead < 0) {
+                throw new IOException("Unexpected end of the cache file");
+            }
+        }
+        buf.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+}
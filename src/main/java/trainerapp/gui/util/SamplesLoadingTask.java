@@ -0,0 +1,439 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import trainerapp.gui.repository.PrimitiveSamplesRepository;
+
+/**
+ * A background task loading samples from a CSV file into a
+ * {@code PrimitiveSamplesRepository}. The file is split at line boundaries
+ * into chunks of bytes, which are parsed by {@code CsvLineTokenizer} straight
+ * into arrays of {@code double} values on the common {@code ForkJoinPool}.
+ * A binary {@code SamplesCacheFile} is written next to the CSV file while it's
+ * parsed. If the cache is up to date, the samples are read from it instead
+ * of the CSV file.
+ * The samples are published into the repository
+ * on the JavaFX thread in batches, so the repository must only be accessed
+ * from the JavaFX thread while the task is running.
+ * The progress of the task is the number of bytes read from the file, the
+ * message of the task reports the loading speed.
+ * @author Konstantin Zhdanov
+ */
+public class SamplesLoadingTask extends Task<Integer> {
+
+    // Size of the block the first line is read from
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    // Size of the chunks of the file parsed in parallel
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    // Number of values in a batch of samples read from the cache
+    private static final int CACHE_BATCH_VALUES = 1 << 20;
+
+    // Number of batches waiting to be added on the JavaFX thread
+    private static final int MAX_PENDING_BATCHES = 4;
+
+    private final File file;
+
+    private final PrimitiveSamplesRepository samples;
+
+    private final CsvSamplesParser parser;
+
+    private final ForkJoinPool pool;
+
+    private final Semaphore pendingBatches;
+
+    private Consumer<List<String>> headerParsedHandler = (header) -> {};
+
+    /**
+     * Create a task loading samples from {@code file} into {@code samples}.
+     * @param file CSV file to read the samples from.
+     * @param samples Repository to add the samples and the header to.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public SamplesLoadingTask(File file, PrimitiveSamplesRepository samples) {
+        if (file == null || samples == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        this.file = file;
+        this.samples = samples;
+        this.parser = new CsvSamplesParser();
+        this.pool = ForkJoinPool.commonPool();
+        this.pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+    }
+
+    /**
+     * Create a task only writing the {@code SamplesCacheFile} of {@code file}
+     * without keeping the samples in memory, for the files too large to be
+     * loaded. The samples can then be read by a {@code PagedSamplesRepository}.
+     * The task fails if the cache cannot be written.
+     * @param file CSV file to read the samples from.
+     * @throws NullPointerException if {@code file} is null.
+     */
+    public SamplesLoadingTask(File file) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        this.file = file;
+        this.samples = null;
+        this.parser = new CsvSamplesParser();
+        this.pool = ForkJoinPool.commonPool();
+        this.pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+    }
+
+    /**
+     * Set the handler called on the JavaFX thread once the header of the file
+     * has been parsed and set in the repository, before any samples are added.
+     * @param handler {@code Consumer} accepting the header titles.
+     */
+    public void setOnHeaderParsed(Consumer<List<String>> handler) {
+        if (handler == null) {
+            throw new NullPointerException("Handler cannot be null");
+        }
+        this.headerParsedHandler = handler;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        SamplesCacheFile cacheFile = new SamplesCacheFile(file);
+        if (samples == null) {
+            return loadFromCsv(cacheFile);
+        }
+        try (SamplesCacheFile.Reader reader = openCache(cacheFile)) {
+            if (reader != null) {
+                return loadFromCache(reader);
+            }
+        }
+        return loadFromCsv(cacheFile);
+    }
+
+    // a broken cache is ignored and replaced after loading the CSV file
+    private static SamplesCacheFile.Reader openCache(SamplesCacheFile cacheFile) {
+        try {
+            return cacheFile.openReader();
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    private int loadFromCache(SamplesCacheFile.Reader reader)
+            throws IOException, InterruptedException {
+        final int sampleSize = reader.getSampleSize();
+        final int sampleCount = reader.getSampleCount();
+        final long totalBytes = (long)sampleCount * sampleSize * Double.BYTES;
+        publishHeader(reader.getHeader());
+        reserveSamples(sampleCount, sampleSize);
+
+        final int batchRows = Math.max(1, CACHE_BATCH_VALUES / Math.max(1, sampleSize));
+        final long startTime = System.nanoTime();
+        int nLoaded = 0;
+        while (!isCancelled() && nLoaded < sampleCount) {
+            double[] batch = new double[Math.min(batchRows, sampleCount - nLoaded) *
+                    sampleSize];
+            int nRead = reader.read(batch, 0, batchRows);
+            publishSamples(batch, nRead, sampleSize);
+            nLoaded += nRead;
+            reportProgress(nLoaded, (long)nLoaded * sampleSize * Double.BYTES,
+                    totalBytes, System.nanoTime() - startTime);
+        }
+        return nLoaded;
+    }
+
+    private int loadFromCsv(SamplesCacheFile cacheFile)
+            throws IOException, InterruptedException {
+        // the cache remembers the version of the file it was created from
+        final long fileSize = file.length();
+        final long fileLastModified = file.lastModified();
+        SamplesCacheFile.Writer cacheWriter = null;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buf = new byte[BLOCK_SIZE];
+            int length = 0;
+            long bytesRead = 0;
+            boolean eof = false;
+
+            // the first line may be the header, so it's parsed as a string
+            int firstLineEnd;
+            while ((firstLineEnd = indexOfLineEnd(buf, 0, length)) < 0 && !eof) {
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                int nRead = in.read(buf, length, buf.length - length);
+                if (nRead < 0) {
+                    eof = true;
+                }
+                else {
+                    length += nRead;
+                    bytesRead += nRead;
+                }
+            }
+            if (length == 0) {
+                // file is empty
+                return 0;
+            }
+            if (firstLineEnd < 0) {
+                firstLineEnd = length;
+            }
+            String line = new String(buf, 0, firstLineEnd);
+            String[] headerTitles;
+            ObservableList<Double> sample = parser.parseLine(line);
+            if (sample == null) {
+                // the first line is the header
+                headerTitles = parser.extractHeaderTitles(line);
+            }
+            else {
+                // there's no header
+                headerTitles = parser.createDefaultHeaderTitles(sample.size());
+            }
+            List<String> header = Arrays.asList(headerTitles);
+            publishHeader(header);
+            cacheWriter = openCacheWriter(cacheFile, fileSize, fileLastModified, header);
+            checkCacheWritten(cacheWriter);
+
+            final int expectedSize = headerTitles.length;
+            int nLoaded = 0;
+            if (sample != null) {
+                double[] values = new double[expectedSize];
+                for (int i = 0; i < expectedSize; i++) {
+                    values[i] = sample.get(i);
+                }
+                cacheWriter = writeToCache(cacheWriter, values, 1);
+                checkCacheWritten(cacheWriter);
+                publishSamples(values, 1, expectedSize);
+                nLoaded++;
+            }
+
+            // the rest of the file is split into chunks of whole lines, which
+            // are parsed in parallel and published in the order of the file;
+            // line terminators are skipped as empty lines
+            final long startTime = System.nanoTime();
+            final int maxChunksInFlight = 2 * pool.getParallelism();
+            Deque<ForkJoinTask<ParsedChunk>> chunksInFlight = new ArrayDeque<>();
+            byte[] carry = Arrays.copyOfRange(buf, firstLineEnd, length);
+            try {
+                while (!isCancelled() && !(eof && carry.length == 0)) {
+                    byte[] chunk = new byte[Math.max(CHUNK_SIZE, carry.length * 2)];
+                    System.arraycopy(carry, 0, chunk, 0, carry.length);
+                    length = carry.length;
+                    while (!eof && length < chunk.length) {
+                        int nRead = in.read(chunk, length, chunk.length - length);
+                        if (nRead < 0) {
+                            eof = true;
+                        }
+                        else {
+                            length += nRead;
+                            bytesRead += nRead;
+                        }
+                    }
+                    int chunkEnd = eof ? length :
+                            lastIndexOfLineEnd(chunk, carry.length, length) + 1;
+                    if (chunkEnd == 0) {
+                        // the line is longer than the chunk
+                        carry = Arrays.copyOf(chunk, length);
+                        continue;
+                    }
+                    carry = Arrays.copyOfRange(chunk, chunkEnd, length);
+                    final int end = chunkEnd;
+                    chunksInFlight.addLast(pool.submit(
+                            () -> parseChunk(chunk, end, expectedSize)));
+
+                    while (chunksInFlight.size() >= maxChunksInFlight ||
+                            (eof && !chunksInFlight.isEmpty())) {
+                        ParsedChunk parsed = chunksInFlight.removeFirst().join();
+                        cacheWriter = writeToCache(cacheWriter, parsed.values,
+                                parsed.nRows);
+                        checkCacheWritten(cacheWriter);
+                        publishSamples(parsed.values, parsed.nRows, expectedSize);
+                        nLoaded += parsed.nRows;
+                        reportProgress(nLoaded, bytesRead, fileSize,
+                                System.nanoTime() - startTime);
+                    }
+                }
+            }
+            finally {
+                for (ForkJoinTask<ParsedChunk> chunkTask : chunksInFlight) {
+                    chunkTask.cancel(false);
+                }
+            }
+            reportProgress(nLoaded, bytesRead, fileSize,
+                    System.nanoTime() - startTime);
+            if (cacheWriter != null && !isCancelled()) {
+                try {
+                    cacheWriter.commit();
+                }
+                catch (IOException e) {
+                    // the file will be parsed again next time
+                    checkCacheWritten(null);
+                }
+            }
+            return nLoaded;
+        }
+        finally {
+            if (cacheWriter != null) {
+                closeQuietly(cacheWriter);
+            }
+        }
+    }
+
+    // the samples are loaded even if the cache cannot be written
+    private static SamplesCacheFile.Writer openCacheWriter(SamplesCacheFile cacheFile,
+            long fileSize, long fileLastModified, List<String> header) {
+        try {
+            return cacheFile.openWriter(fileSize, fileLastModified, header);
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    // the cache is the only result of a task not keeping the samples
+    private void checkCacheWritten(SamplesCacheFile.Writer writer) throws IOException {
+        if (writer == null && samples == null) {
+            throw new IOException("Cannot write the samples cache");
+        }
+    }
+
+    // returns null if the cache cannot be written anymore
+    private static SamplesCacheFile.Writer writeToCache(SamplesCacheFile.Writer writer,
+            double[] values, int nRows) {
+        if (writer == null) {
+            return null;
+        }
+        try {
+            writer.write(values, 0, nRows);
+            return writer;
+        }
+        catch (IOException e) {
+            closeQuietly(writer);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(SamplesCacheFile.Writer writer) {
+        try {
+            writer.close();
+        }
+        catch (IOException e) {
+            // nothing else can be done with an incomplete cache
+        }
+    }
+
+    // Parses the lines of buf before end into samples of sampleSize values
+    private static ParsedChunk parseChunk(byte[] buf, int end, int sampleSize) {
+        CsvLineTokenizer tokenizer = new CsvLineTokenizer();
+        double[] values = new double[Math.max(sampleSize, end / 8)];
+        int nRows = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i < end && buf[i] != '\n' && buf[i] != '\r') {
+                continue;
+            }
+            int rowStart = nRows * sampleSize;
+            if (rowStart + sampleSize > values.length) {
+                values = Arrays.copyOf(values, Math.max(rowStart + sampleSize,
+                        values.length + (values.length >> 1)));
+            }
+            if (tokenizer.parseLine(buf, lineStart, i, values, rowStart,
+                    sampleSize) == sampleSize) {
+                nRows++;
+            }
+            lineStart = i + 1;
+        }
+        return new ParsedChunk(values, nRows);
+    }
+
+    static int indexOfLineEnd(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] == '\n' || buf[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int lastIndexOfLineEnd(byte[] buf, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (buf[i] == '\n' || buf[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void publishHeader(List<String> header) {
+        Platform.runLater(() -> {
+            if (isCancelled()) {
+                return;
+            }
+            if (samples != null) {
+                samples.setHeader(header);
+            }
+            headerParsedHandler.accept(header);
+        });
+    }
+
+    private void reserveSamples(int nSamples, int sampleSize) {
+        if (samples == null) {
+            return;
+        }
+        Platform.runLater(() -> {
+            if (!isCancelled()) {
+                samples.ensureCapacity(nSamples, sampleSize);
+            }
+        });
+    }
+
+    // Blocks if too many batches are waiting for the JavaFX thread
+    private void publishSamples(double[] batch, int nRows, int sampleSize)
+            throws InterruptedException {
+        if (nRows == 0 || samples == null) {
+            return;
+        }
+        pendingBatches.acquire();
+        Platform.runLater(() -> {
+            try {
+                if (!isCancelled()) {
+                    samples.addAll(batch, 0, nRows, sampleSize);
+                }
+            }
+            finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    private void reportProgress(int nLoaded, long bytesRead, long fileSize,
+            long elapsedNanos) {
+        double elapsedSeconds = elapsedNanos / 1e9;
+        double samplesPerSecond = elapsedSeconds > 0 ? nLoaded / elapsedSeconds : 0;
+        updateProgress(bytesRead, Math.max(fileSize, bytesRead));
+        updateMessage(String.format("%,d samples, %.1f MB read, %,.0f samples/s",
+                nLoaded, bytesRead / (1024.0 * 1024.0), samplesPerSecond));
+    }
+
+    // Samples parsed from one chunk of the file
+    private static class ParsedChunk {
+
+        final double[] values;
+
+        final int nRows;
+
+        ParsedChunk(double[] values, int nRows) {
+            this.values = values;
+            this.nRows = nRows;
+        }
+    }
+}
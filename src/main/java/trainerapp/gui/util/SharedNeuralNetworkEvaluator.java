@@ -0,0 +1,126 @@
+package trainerapp.gui.util;
+
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.model.FlatNeuralNetwork;
+
+/**
+ * Evaluator of one sample at a time which allocates nothing per call.
+ * The evaluator holds its own compiled copy of the network, which is never
+ * changed, so one instance can be shared by any number of threads. The
+ * intermediate activations are kept in a {@code Workspace} provided by
+ * the caller, every thread needs its own workspace.
+ * @author Konstantin Zhdanov
+ */
+public class SharedNeuralNetworkEvaluator {
+
+    /**
+     * Buffers for the activations of the layers of a network during one
+     * evaluation. An instance mustn't be used by several threads at once.
+     */
+    public static final class Workspace {
+
+        private final double[] first;
+
+        private final double[] second;
+
+        private Workspace(int maxLayerSize) {
+            first = new double[maxLayerSize];
+            second = new double[maxLayerSize];
+        }
+
+        private int capacity() {
+            return first.length;
+        }
+    }
+
+    private final FlatNeuralNetwork network;
+
+    // workspaces of the threads calling evaluate without a workspace
+    private final ThreadLocal<Workspace> threadWorkspaces;
+
+    /**
+     * Create an evaluator of a compiled copy of {@code network}. Later
+     * changes of {@code network} don't affect the evaluator.
+     * @param network Network to evaluate.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public SharedNeuralNetworkEvaluator(NeuralNetwork network) {
+        this(FlatNeuralNetwork.of(network));
+    }
+
+    /**
+     * Create an evaluator of a copy of {@code network}. Later changes of
+     * {@code network} don't affect the evaluator.
+     * @param network Compiled network to evaluate.
+     * @throws NullPointerException if {@code network} is null.
+     */
+    public SharedNeuralNetworkEvaluator(FlatNeuralNetwork network) {
+        this.network = new FlatNeuralNetwork(network);
+        this.threadWorkspaces = ThreadLocal.withInitial(this::createWorkspace);
+    }
+
+    public int getNumberInputs() {
+        return network.getNumberInputs();
+    }
+
+    public int getNumberOutputs() {
+        return network.getNumberOutputs();
+    }
+
+    /**
+     * Create a workspace large enough for the layers of the network.
+     * @return {@code Workspace} new workspace.
+     */
+    public Workspace createWorkspace() {
+        return new Workspace(network.getMaxLayerSize());
+    }
+
+    /**
+     * Calculate the output of the network for {@code input}.
+     * @param input Values of the inputs, {@code getNumberInputs()} values.
+     * @param output Array to put the values of the outputs into,
+     * {@code getNumberOutputs()} values.
+     * @param workspace Workspace of the calling thread, created by this or
+     * another evaluator of a network with layers no larger than this one.
+     * @throws NullPointerException if any of the arguments is null.
+     * @throws IllegalArgumentException if any of the arrays has a wrong size
+     * or {@code workspace} is too small.
+     */
+    public void evaluate(double[] input, double[] output, Workspace workspace) {
+        if (input == null || output == null) {
+            throw new NullPointerException("Arrays cannot be null");
+        }
+        if (workspace == null) {
+            throw new NullPointerException("Workspace cannot be null");
+        }
+        if (input.length != network.getNumberInputs() ||
+                output.length != network.getNumberOutputs()) {
+            throw new IllegalArgumentException("Wrong number of inputs or outputs");
+        }
+        if (workspace.capacity() < network.getMaxLayerSize()) {
+            throw new IllegalArgumentException("Workspace is too small");
+        }
+        int lastLayer = network.getNumberLayers() - 1;
+        double[] src = input;
+        double[] dst = workspace.first;
+        for (int layer = 0; layer < lastLayer; layer++) {
+            network.propagate(layer, src, dst);
+            src = dst;
+            dst = dst == workspace.first ? workspace.second : workspace.first;
+        }
+        network.propagate(lastLayer, src, output);
+    }
+
+    /**
+     * Calculate the output of the network for {@code input} using
+     * the workspace of the calling thread kept by this evaluator.
+     * @param input Values of the inputs, {@code getNumberInputs()} values.
+     * @param output Array to put the values of the outputs into,
+     * {@code getNumberOutputs()} values.
+     * @throws NullPointerException if any of the arrays is null.
+     * @throws IllegalArgumentException if any of the arrays has a wrong size.
+     */
+    public void evaluate(double[] input, double[] output) {
+        evaluate(input, output, threadWorkspaces.get());
+    }
+}
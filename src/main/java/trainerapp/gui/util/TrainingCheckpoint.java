@@ -0,0 +1,278 @@
+package trainerapp.gui.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.activation.ActivationFunction;
+import trainerapp.gui.model.FlatNeuralNetwork;
+
+/**
+ * Checkpoint of a training: the network after a number of completed epochs,
+ * the performance history up to that epoch and the parameters of
+ * the training, so the training can be resumed without repeating
+ * the completed epochs.
+ * <p>
+ * A checkpoint is stored in a binary file holding the magic bytes,
+ * the version, the completed and the maximal number of epochs,
+ * the performance goal, the layer sizes, the length and the bytes of
+ * the serialized activation function, the weights and the biases of
+ * every layer, and the epochs and the performances of the history.
+ * Checkpoints of version 1 have no activation function, and their networks
+ * use the default one.
+ * A file is replaced atomically, so a crash while writing it keeps
+ * the previous checkpoint.
+ * @author Konstantin Zhdanov
+ */
+public class TrainingCheckpoint {
+
+    /**
+     * Extension of the checkpoint files.
+     */
+    public static final String EXTENSION = ".nnckpt";
+
+    private static final byte[] MAGIC = "NNCHKPNT".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 2;
+
+    // the first version has no activation function
+    private static final int VERSION_WITHOUT_ACTIVATION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final NeuralNetwork network;
+
+    private final int epoch;
+
+    private final int maxEpoch;
+
+    private final double performanceGoal;
+
+    private final PerformanceHistory history;
+
+    /**
+     * Create a checkpoint of a training.
+     * @param network Network after {@code epoch} epochs. It mustn't be
+     * changed afterwards.
+     * @param epoch Number of the completed epochs.
+     * @param maxEpoch Maximal number of epochs of the training.
+     * @param performanceGoal Performance goal of the training.
+     * @param history Performance after the completed epochs. It mustn't be
+     * changed afterwards.
+     * @throws NullPointerException if {@code network} or {@code history}
+     * is null.
+     */
+    public TrainingCheckpoint(NeuralNetwork network, int epoch, int maxEpoch,
+            double performanceGoal, PerformanceHistory history) {
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (history == null) {
+            throw new NullPointerException("History cannot be null");
+        }
+        this.network = network;
+        this.epoch = epoch;
+        this.maxEpoch = maxEpoch;
+        this.performanceGoal = performanceGoal;
+        this.history = history;
+    }
+
+    /**
+     * Directory the checkpoints are written to by default.
+     * @return {@code File} directory in the home directory of the user.
+     */
+    public static File getDefaultDirectory() {
+        return new File(new File(System.getProperty("user.home"), ".nntrainer"),
+                "checkpoints");
+    }
+
+    public NeuralNetwork getNetwork() {
+        return network;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public int getMaxEpoch() {
+        return maxEpoch;
+    }
+
+    public double getPerformanceGoal() {
+        return performanceGoal;
+    }
+
+    public PerformanceHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Write this checkpoint into {@code file}, replacing its previous
+     * content only after the checkpoint has been completely written.
+     * The missing parent directories are created.
+     * @param file File to write the checkpoint into.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            Files.createDirectories(dir.toPath());
+        }
+        Path tmp = new File(file.getPath() + ".tmp").toPath();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp.toFile()), BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(epoch);
+            out.writeInt(maxEpoch);
+            out.writeDouble(performanceGoal);
+            writeNetwork(out);
+            out.writeInt(history.size());
+            for (int idx = 0; idx < history.size(); idx++) {
+                out.writeInt(history.getEpoch(idx));
+            }
+            for (int idx = 0; idx < history.size(); idx++) {
+                out.writeDouble(history.getPerformance(idx));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeNetwork(DataOutputStream out) throws IOException {
+        FlatNeuralNetwork flat = FlatNeuralNetwork.of(network);
+        out.writeInt(flat.getNumberInputs());
+        out.writeInt(flat.getNumberLayers() - 1);
+        for (int layer = 0; layer < flat.getNumberLayers() - 1; layer++) {
+            out.writeInt(flat.getLayerOutputSize(layer));
+        }
+        out.writeInt(flat.getNumberOutputs());
+        byte[] activationBytes = ActivationFunctions.toBytes(flat.getActivationFunction());
+        out.writeInt(activationBytes.length);
+        out.write(activationBytes);
+        for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+            int nFrom = flat.getLayerInputSize(layer);
+            int nTo = flat.getLayerOutputSize(layer);
+            double[] weights = flat.getWeights(layer);
+            for (int from = 0; from < nFrom; from++) {
+                for (int to = 0; to < nTo; to++) {
+                    out.writeDouble(weights[to * nFrom + from]);
+                }
+            }
+            for (double bias : flat.getBiases(layer)) {
+                out.writeDouble(bias);
+            }
+        }
+    }
+
+    /**
+     * Read a checkpoint from {@code file}.
+     * @param file File written by {@code write}.
+     * @return {@code TrainingCheckpoint} read from the file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file isn't a checkpoint file
+     * of a supported version.
+     */
+    public static TrainingCheckpoint read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Wrong file format");
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_WITHOUT_ACTIVATION) {
+                throw new IllegalArgumentException(
+                        "Unsupported checkpoint version: " + version);
+            }
+            int epoch = in.readInt();
+            int maxEpoch = in.readInt();
+            double performanceGoal = in.readDouble();
+            NeuralNetwork network = readNetwork(in, version);
+            int historySize = in.readInt();
+            if (historySize < 0) {
+                throw new IllegalArgumentException("Wrong file format");
+            }
+            int[] epochs = new int[historySize];
+            for (int idx = 0; idx < historySize; idx++) {
+                epochs[idx] = in.readInt();
+            }
+            PerformanceHistory history = new PerformanceHistory();
+            for (int idx = 0; idx < historySize; idx++) {
+                history.add(epochs[idx], in.readDouble());
+            }
+            return new TrainingCheckpoint(network, epoch, maxEpoch,
+                    performanceGoal, history);
+        }
+    }
+
+    private static NeuralNetwork readNetwork(DataInputStream in, int version)
+            throws IOException {
+        int nInputs = in.readInt();
+        int nHiddenLayers = in.readInt();
+        if (nInputs <= 0 || nHiddenLayers < 0) {
+            throw new IllegalArgumentException("Wrong file format");
+        }
+        int[] hiddenSizes = new int[nHiddenLayers];
+        for (int idx = 0; idx < nHiddenLayers; idx++) {
+            hiddenSizes[idx] = in.readInt();
+        }
+        int nOutputs = in.readInt();
+        FlatNeuralNetwork flat = version == VERSION_WITHOUT_ACTIVATION ?
+                new FlatNeuralNetwork(nInputs, hiddenSizes, nOutputs) :
+                new FlatNeuralNetwork(nInputs, hiddenSizes, nOutputs,
+                        readActivation(in));
+        for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+            int nFrom = flat.getLayerInputSize(layer);
+            int nTo = flat.getLayerOutputSize(layer);
+            double[] weights = flat.getWeights(layer);
+            for (int from = 0; from < nFrom; from++) {
+                for (int to = 0; to < nTo; to++) {
+                    weights[to * nFrom + from] = in.readDouble();
+                }
+            }
+            double[] biases = flat.getBiases(layer);
+            for (int to = 0; to < nTo; to++) {
+                biases[to] = in.readDouble();
+            }
+        }
+        return flat.toNeuralNetwork();
+    }
+
+    private static ActivationFunction readActivation(DataInputStream in)
+            throws IOException {
+        int length = in.readInt();
+        if (length <= 0) {
+            throw new IllegalArgumentException("Wrong file format");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try {
+            return ActivationFunctions.fromBytes(bytes);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Wrong file format", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import neuralnetwork.NeuralNetwork;
+
+/**
+ * Periodic checkpointing of a training every given number of epochs or
+ * seconds, whichever comes first. A {@code TrainingJob} with a checkpointer
+ * trains the network in segments ending when a checkpoint is due, and
+ * the checkpoints are written into the file by a {@code CheckpointWriter}.
+ * A stopped training is checkpointed as well, so it can be resumed.
+ * <p>
+ * An instance is used by a single training.
+ * @author Konstantin Zhdanov
+ */
+public class TrainingCheckpointer {
+
+    // length of the first segment when checkpointing only by time
+    private static final int INITIAL_SEGMENT_EPOCHS = 10;
+
+    private final File file;
+
+    private final int epochPeriod;
+
+    private final long periodNanos;
+
+    private final double performanceGoal;
+
+    private final CheckpointWriter writer;
+
+    private volatile Consumer<IOException> failureHandler = (e) -> {};
+
+    private int lastCheckpointEpoch;
+
+    private long lastCheckpointTime;
+
+    /**
+     * Create a checkpointer of a training with {@code performanceGoal}.
+     * @param file File to write the checkpoints into.
+     * @param epochPeriod Number of epochs between checkpoints, 0 to
+     * checkpoint only by time.
+     * @param periodSeconds Number of seconds between checkpoints, 0 to
+     * checkpoint only by epochs.
+     * @param performanceGoal Performance goal of the training, stored in
+     * the checkpoints.
+     * @param writer Writer of the checkpoints.
+     * @throws NullPointerException if {@code file} or {@code writer} is null.
+     * @throws IllegalArgumentException if any of the periods is negative
+     * or both are 0.
+     */
+    public TrainingCheckpointer(File file, int epochPeriod, int periodSeconds,
+            double performanceGoal, CheckpointWriter writer) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        if (writer == null) {
+            throw new NullPointerException("Writer cannot be null");
+        }
+        if (epochPeriod < 0 || periodSeconds < 0 ||
+                (epochPeriod == 0 && periodSeconds == 0)) {
+            throw new IllegalArgumentException(
+                    "Periods cannot be negative and one of them must be positive");
+        }
+        this.file = file;
+        this.epochPeriod = epochPeriod;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(periodSeconds);
+        this.performanceGoal = performanceGoal;
+        this.writer = writer;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Set the handler of the checkpoints which cannot be written.
+     * @param failureHandler {@code Consumer} of the exception of the failed
+     * write, called on the writer thread.
+     * @throws NullPointerException if {@code failureHandler} is null.
+     */
+    public void setOnFailure(Consumer<IOException> failureHandler) {
+        if (failureHandler == null) {
+            throw new NullPointerException("Failure handler cannot be null");
+        }
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Start counting the periods.
+     * @param epoch Number of the epochs completed before the start.
+     * @param now Current value of {@code System.nanoTime}.
+     */
+    void start(int epoch, long now) {
+        lastCheckpointEpoch = epoch;
+        lastCheckpointTime = now;
+    }
+
+    /**
+     * Number of epochs to train before the next checkpoint is due.
+     * @param epoch Number of the completed epochs.
+     * @param now Current value of {@code System.nanoTime}.
+     * @param nanosPerEpoch Average duration of an epoch, {@code NaN} if
+     * it isn't known yet.
+     * @return {@code int} positive number of epochs.
+     */
+    int epochsUntilDue(int epoch, long now, double nanosPerEpoch) {
+        long nEpochs = Integer.MAX_VALUE;
+        if (epochPeriod > 0) {
+            nEpochs = lastCheckpointEpoch + epochPeriod - epoch;
+        }
+        if (periodNanos > 0) {
+            long remainingNanos = lastCheckpointTime + periodNanos - now;
+            long byTime = Double.isNaN(nanosPerEpoch) || nanosPerEpoch <= 0 ?
+                    INITIAL_SEGMENT_EPOCHS :
+                    (long)Math.ceil(remainingNanos / nanosPerEpoch);
+            nEpochs = Math.min(nEpochs, byTime);
+        }
+        return (int)Math.max(1, nEpochs);
+    }
+
+    /**
+     * Whether a checkpoint is due.
+     * @param epoch Number of the completed epochs.
+     * @param now Current value of {@code System.nanoTime}.
+     * @return {@code boolean} true if a period has passed since the last
+     * checkpoint.
+     */
+    boolean isDue(int epoch, long now) {
+        return (epochPeriod > 0 && epoch - lastCheckpointEpoch >= epochPeriod) ||
+                (periodNanos > 0 && now - lastCheckpointTime >= periodNanos);
+    }
+
+    /**
+     * Queue a checkpoint of the training to be written.
+     * @param epoch Number of the completed epochs.
+     * @param maxEpoch Maximal number of epochs of the training.
+     * @param network Snapshot of the network, which mustn't be changed
+     * afterwards.
+     * @param history Snapshot of the performance history, which mustn't be
+     * changed afterwards.
+     * @param now Current value of {@code System.nanoTime}.
+     */
+    void checkpoint(int epoch, int maxEpoch, NeuralNetwork network,
+            PerformanceHistory history, long now) {
+        writer.submit(file, new TrainingCheckpoint(network, epoch, maxEpoch,
+                performanceGoal, history), failureHandler);
+        lastCheckpointEpoch = epoch;
+        lastCheckpointTime = now;
+    }
+}
@@ -0,0 +1,579 @@
+package trainerapp.gui.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.Listener;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import neuralnetwork.train.TrainerEvent;
+import trainerapp.gui.model.LazyNeuralNetwork;
+
+/**
+ * Training of a network by a trainer, run by a {@code TrainingScheduler}.
+ * The state and the priority of a job are JavaFX properties, updated
+ * on the JavaFX thread. The latest epoch and performance are updated by
+ * the trainer thread and can be polled from any thread.
+ * <p>
+ * A segmented job trains the network in segments, each by a new trainer
+ * continuing from the network trained by the previous one. A segment ends
+ * when the network is due to be validated by {@code EarlyStopping} or
+ * checkpointed by a {@code TrainingCheckpointer}. The epochs of the events
+ * passed to the listeners of the job are counted from the start of
+ * the current segment, see {@code getEpochOffset}.
+ * @author Konstantin Zhdanov
+ */
+public class TrainingJob {
+
+    /**
+     * State of a training job.
+     */
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELED, FAILED;
+
+        /**
+         * Whether a job in this state will never run again.
+         * @return {@code boolean} true if the job is finished.
+         */
+        public boolean isFinished() {
+            return this == COMPLETED || this == CANCELED || this == FAILED;
+        }
+    }
+
+    /**
+     * Priority of the jobs which don't have a priority set.
+     */
+    public static final int NORMAL_PRIORITY = 0;
+
+    private final String name;
+
+    private final int maxEpoch;
+
+    // trainer of the current segment
+    private volatile NeuralNetworkTrainer trainer;
+
+    // creates the trainer of a segment with the given number of epochs
+    private final IntFunction<NeuralNetworkTrainer> segmentTrainers;
+
+    private EarlyStopping earlyStopping;
+
+    private TrainingCheckpointer checkpointer;
+
+    // performance after every epoch, recorded for the checkpoints
+    private PerformanceHistory history;
+
+    private final NeuralNetwork network;
+
+    // released when the job finishes
+    private volatile double[][] inputs;
+
+    private volatile double[][] targets;
+
+    // actual state, the property follows it on the JavaFX thread
+    private final AtomicReference<State> state;
+
+    private final ReadOnlyObjectWrapper<State> stateProperty;
+
+    private final ReadOnlyIntegerWrapper priorityProperty;
+
+    private volatile int lastEpoch;
+
+    // number of epochs completed by the previous segments
+    private volatile int epochOffset;
+
+    private volatile double lastPerformance;
+
+    private final AtomicBoolean submitted;
+
+    private volatile boolean stopRequested;
+
+    private volatile NeuralNetwork trainedNetwork;
+
+    private volatile Throwable failure;
+
+    private Consumer<TrainingJob> onFinished;
+
+    private final List<Listener> listeners;
+
+    // final event of the last segment, passed to the listeners at the end
+    private TrainerEvent lastSegmentEvent;
+
+    private final Listener progressListener = new Listener() {
+        @Override public void onTrainingComplete(TrainerEvent event) {
+            updateProgress(event);
+            if (segmentTrainers != null) {
+                lastSegmentEvent = event;
+                return;
+            }
+            for (Listener listener : listeners) {
+                listener.onTrainingComplete(event);
+            }
+        }
+
+        @Override public void onTrainingCanceled(TrainerEvent event) {
+            updateProgress(event);
+            if (segmentTrainers != null) {
+                lastSegmentEvent = event;
+                return;
+            }
+            for (Listener listener : listeners) {
+                listener.onTrainingCanceled(event);
+            }
+        }
+
+        @Override public void onTrainingEpochComplete(TrainerEvent event) {
+            updateProgress(event);
+            PerformanceHistory currentHistory = history;
+            if (currentHistory != null) {
+                synchronized (currentHistory) {
+                    currentHistory.add(lastEpoch, lastPerformance);
+                }
+            }
+            for (Listener listener : listeners) {
+                listener.onTrainingEpochComplete(event);
+            }
+        }
+    };
+
+    /**
+     * Create a job training {@code network} by {@code trainer} on the samples
+     * with {@code inputs} and {@code targets}.
+     * @param name Name of the job shown to the user.
+     * @param maxEpoch Maximal number of epochs of the training, used only
+     * for showing the progress.
+     * @param trainer Trainer to train the network by.
+     * @param network Network to train.
+     * @param inputs Inputs of the samples, one row per sample.
+     * @param targets Targets of the samples, one row per sample.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public TrainingJob(String name, int maxEpoch, NeuralNetworkTrainer trainer,
+            NeuralNetwork network, double[][] inputs, double[][] targets) {
+        this(name, maxEpoch, trainer, null, network, inputs, targets);
+        if (trainer == null) {
+            throw new NullPointerException("Trainer cannot be null");
+        }
+    }
+
+    /**
+     * Create a segmented job training {@code network} for not more than
+     * {@code maxEpoch} epochs on the samples with {@code inputs} and
+     * {@code targets}. Without early stopping and checkpointing, the whole
+     * training is a single segment.
+     * @param name Name of the job shown to the user.
+     * @param maxEpoch Maximal number of epochs of the training.
+     * @param segmentTrainers Factory of the trainers of the segments,
+     * taking the maximal number of epochs of a segment.
+     * @param network Network to train.
+     * @param inputs Inputs of the samples, one row per sample.
+     * @param targets Targets of the samples, one row per sample.
+     * @throws NullPointerException if any of the arguments is null.
+     */
+    public TrainingJob(String name, int maxEpoch,
+            IntFunction<NeuralNetworkTrainer> segmentTrainers,
+            NeuralNetwork network, double[][] inputs, double[][] targets) {
+        this(name, maxEpoch, null, segmentTrainers, network, inputs, targets);
+        if (segmentTrainers == null) {
+            throw new NullPointerException("Trainer factory cannot be null");
+        }
+    }
+
+    private TrainingJob(String name, int maxEpoch, NeuralNetworkTrainer trainer,
+            IntFunction<NeuralNetworkTrainer> segmentTrainers,
+            NeuralNetwork network, double[][] inputs, double[][] targets) {
+        if (name == null) {
+            throw new NullPointerException("Name cannot be null");
+        }
+        if (network == null) {
+            throw new NullPointerException("Network cannot be null");
+        }
+        if (inputs == null || targets == null) {
+            throw new NullPointerException("Samples cannot be null");
+        }
+        this.name = name;
+        this.maxEpoch = maxEpoch;
+        this.trainer = trainer;
+        this.segmentTrainers = segmentTrainers;
+        // the trainer gets the loaded network, which it may change
+        this.network = network instanceof LazyNeuralNetwork ?
+                ((LazyNeuralNetwork)network).pin() : network;
+        this.inputs = inputs;
+        this.targets = targets;
+        this.state = new AtomicReference<>(State.QUEUED);
+        this.stateProperty = new ReadOnlyObjectWrapper<>(this, "state", State.QUEUED);
+        this.priorityProperty = new ReadOnlyIntegerWrapper(this, "priority", NORMAL_PRIORITY);
+        this.submitted = new AtomicBoolean(false);
+        this.lastPerformance = Double.NaN;
+        this.onFinished = (job) -> {};
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxEpoch() {
+        return maxEpoch;
+    }
+
+    /**
+     * Trainer of the job, or of the current segment of a job with early
+     * stopping.
+     * @return {@code NeuralNetworkTrainer} trainer, or null if a job with
+     * early stopping hasn't started yet.
+     */
+    public NeuralNetworkTrainer getTrainer() {
+        return trainer;
+    }
+
+    /**
+     * Early stopping of this job.
+     * @return {@code EarlyStopping} of the job, or null if the job trains
+     * until its trainer finishes.
+     */
+    public EarlyStopping getEarlyStopping() {
+        return earlyStopping;
+    }
+
+    /**
+     * Stop this segmented job early by {@code earlyStopping}, validating
+     * the network every check period.
+     * @param earlyStopping Early stopping of the job.
+     * @throws NullPointerException if {@code earlyStopping} is null.
+     * @throws IllegalStateException if the job isn't segmented or has
+     * already been submitted.
+     */
+    public void setEarlyStopping(EarlyStopping earlyStopping) {
+        if (earlyStopping == null) {
+            throw new NullPointerException("Early stopping cannot be null");
+        }
+        checkSegmentedAndNotSubmitted();
+        this.earlyStopping = earlyStopping;
+    }
+
+    public TrainingCheckpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    /**
+     * Checkpoint this segmented job by {@code checkpointer}.
+     * @param checkpointer Checkpointer of the job.
+     * @throws NullPointerException if {@code checkpointer} is null.
+     * @throws IllegalStateException if the job isn't segmented or has
+     * already been submitted.
+     */
+    public void setCheckpointer(TrainingCheckpointer checkpointer) {
+        if (checkpointer == null) {
+            throw new NullPointerException("Checkpointer cannot be null");
+        }
+        checkSegmentedAndNotSubmitted();
+        this.checkpointer = checkpointer;
+        if (history == null) {
+            history = new PerformanceHistory();
+        }
+    }
+
+    /**
+     * Continue a training which has already completed {@code nEpochs}
+     * epochs, as restored from a checkpoint. The network of the job is
+     * the network trained for these epochs.
+     * @param nEpochs Number of the completed epochs.
+     * @param completedHistory Performance after the completed epochs,
+     * continued by the checkpoints of this job.
+     * @throws NullPointerException if {@code completedHistory} is null.
+     * @throws IllegalArgumentException if {@code nEpochs} is negative or
+     * not less than the maximal number of epochs.
+     * @throws IllegalStateException if the job isn't segmented or has
+     * already been submitted.
+     */
+    public void setCompletedEpochs(int nEpochs, PerformanceHistory completedHistory) {
+        if (completedHistory == null) {
+            throw new NullPointerException("History cannot be null");
+        }
+        if (nEpochs < 0 || nEpochs >= maxEpoch) {
+            throw new IllegalArgumentException(
+                    "Number of completed epochs must be less than the maximal number");
+        }
+        checkSegmentedAndNotSubmitted();
+        this.epochOffset = nEpochs;
+        this.lastEpoch = nEpochs;
+        this.history = new PerformanceHistory(completedHistory);
+    }
+
+    private void checkSegmentedAndNotSubmitted() {
+        if (segmentTrainers == null) {
+            throw new IllegalStateException("Job isn't segmented");
+        }
+        if (submitted.get()) {
+            throw new IllegalStateException("Job has already been submitted");
+        }
+    }
+
+    public NeuralNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Number of the latest epoch completed by the trainer, counted from
+     * the start of the training.
+     * @return {@code int} number of the epoch, 0 if none has been completed.
+     */
+    public int getLastEpoch() {
+        return lastEpoch;
+    }
+
+    /**
+     * Number of the epochs completed by the segments before the current
+     * one. It's 0 for a job without early stopping.
+     * @return {@code int} number of epochs to add to the epoch of an event
+     * passed to the listeners.
+     */
+    public int getEpochOffset() {
+        return epochOffset;
+    }
+
+    /**
+     * Performance of the network after the latest completed epoch.
+     * @return {@code double} performance, {@code NaN} if no epoch has been
+     * completed.
+     */
+    public double getLastPerformance() {
+        return lastPerformance;
+    }
+
+    /**
+     * The network trained by this job.
+     * @return {@code NeuralNetwork} trained network, or null if the job
+     * hasn't finished or didn't run.
+     */
+    public NeuralNetwork getTrainedNetwork() {
+        return trainedNetwork;
+    }
+
+    /**
+     * The exception thrown by the trainer of a failed job.
+     * @return {@code Throwable} failure, or null if the job hasn't failed.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Current state of this job. It may be ahead of the value of
+     * {@code stateProperty} until the JavaFX thread catches up.
+     * @return {@code State} of the job.
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    public ReadOnlyObjectProperty<State> stateProperty() {
+        return stateProperty.getReadOnlyProperty();
+    }
+
+    public int getPriority() {
+        return priorityProperty.get();
+    }
+
+    public ReadOnlyIntegerProperty priorityProperty() {
+        return priorityProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Set the handler called on the JavaFX thread after this job finishes.
+     * @param onFinished {@code Consumer} of the finished job.
+     * @throws NullPointerException if {@code onFinished} is null.
+     */
+    public void setOnFinished(Consumer<TrainingJob> onFinished) {
+        if (onFinished == null) {
+            throw new NullPointerException("Handler cannot be null");
+        }
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Add a listener of the trainer events of this job. A job with early
+     * stopping passes the epoch events of all the segments, and only
+     * the final event of the last segment.
+     * Listeners are called on the trainer thread.
+     * @param listener Listener to add.
+     * @throws NullPointerException if {@code listener} is null.
+     */
+    public void addListener(Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /*
+     * Methods used by the scheduler
+     */
+
+    boolean markSubmitted() {
+        return submitted.compareAndSet(false, true);
+    }
+
+    void setPriority(int priority) {
+        priorityProperty.set(priority);
+    }
+
+    boolean compareAndSetState(State expected, State newState) {
+        return state.compareAndSet(expected, newState);
+    }
+
+    void publishState(State newState) {
+        stateProperty.set(newState);
+        if (newState.isFinished()) {
+            // the samples aren't needed anymore, even if the job is kept
+            inputs = null;
+            targets = null;
+            onFinished.accept(this);
+        }
+    }
+
+    /**
+     * Train the network, blocking until the trainer finishes.
+     * @return {@code State} the job has finished in.
+     */
+    State run() {
+        try {
+            if (segmentTrainers == null) {
+                trainedNetwork = train(trainer, network);
+            }
+            else {
+                trainedNetwork = trainSegments();
+            }
+            return stopRequested ? State.CANCELED : State.COMPLETED;
+        }
+        catch (RuntimeException e) {
+            failure = e;
+            return State.FAILED;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+            return State.FAILED;
+        }
+    }
+
+    private NeuralNetwork train(NeuralNetworkTrainer trainer, NeuralNetwork network) {
+        trainer.registerListener(progressListener);
+        try {
+            trainer.startTrain(network, inputs, targets);
+            if (stopRequested) {
+                // stopping could happen before the trainer started
+                trainer.stopTraining();
+            }
+            return trainer.getTrainedNetwork();
+        }
+        finally {
+            trainer.removeListener(progressListener);
+        }
+    }
+
+    private NeuralNetwork trainSegments() throws InterruptedException {
+        NeuralNetwork current = network;
+        int nextValidationEpoch = earlyStopping == null ? Integer.MAX_VALUE :
+                epochOffset + earlyStopping.getCheckPeriod();
+        double nanosPerEpoch = Double.NaN;
+        if (checkpointer != null) {
+            checkpointer.start(epochOffset, System.nanoTime());
+        }
+        while (epochOffset < maxEpoch && !stopRequested) {
+            int nEpochs = (int)Math.min((long)maxEpoch, nextValidationEpoch) - epochOffset;
+            if (checkpointer != null) {
+                nEpochs = Math.min(nEpochs, checkpointer.epochsUntilDue(epochOffset,
+                        System.nanoTime(), nanosPerEpoch));
+            }
+            long segmentStart = System.nanoTime();
+            trainer = segmentTrainers.apply(nEpochs);
+            current = train(trainer, current);
+            int nCompleted = lastEpoch - epochOffset;
+            epochOffset = lastEpoch;
+            long now = System.nanoTime();
+            if (nCompleted > 0) {
+                nanosPerEpoch = (double)(now - segmentStart) / nCompleted;
+            }
+            // a trainer finishing a segment early has reached the goal
+            boolean goalReached = nCompleted < nEpochs && !stopRequested;
+            if (checkpointer != null && (stopRequested ||
+                    checkpointer.isDue(epochOffset, now))) {
+                // a stopped training is checkpointed to be resumed later
+                checkpointer.checkpoint(epochOffset, maxEpoch,
+                        new NeuralNetwork(current), copyHistory(), now);
+            }
+            if (stopRequested) {
+                break;
+            }
+            // the final network is validated as well
+            if (earlyStopping != null && (epochOffset >= nextValidationEpoch ||
+                    goalReached || epochOffset >= maxEpoch)) {
+                // the next segment may change the network it continues from
+                earlyStopping.validate(epochOffset, new NeuralNetwork(current));
+                nextValidationEpoch = epochOffset + earlyStopping.getCheckPeriod();
+                if (earlyStopping.shouldStop()) {
+                    break;
+                }
+            }
+            if (goalReached) {
+                break;
+            }
+        }
+        NeuralNetwork best = null;
+        if (earlyStopping != null) {
+            earlyStopping.awaitValidations();
+            best = earlyStopping.getBestNetwork();
+        }
+        TrainerEvent event = lastSegmentEvent;
+        if (event != null) {
+            for (Listener listener : listeners) {
+                if (stopRequested) {
+                    listener.onTrainingCanceled(event);
+                }
+                else {
+                    listener.onTrainingComplete(event);
+                }
+            }
+        }
+        return best != null ? best : current;
+    }
+
+    private PerformanceHistory copyHistory() {
+        synchronized (history) {
+            return new PerformanceHistory(history);
+        }
+    }
+
+    /**
+     * Stop the trainer of a running job.
+     */
+    void stop() {
+        stopRequested = true;
+        NeuralNetworkTrainer currentTrainer = trainer;
+        if (currentTrainer != null) {
+            currentTrainer.stopTraining();
+        }
+    }
+
+    private void updateProgress(TrainerEvent event) {
+        lastEpoch = epochOffset + event.getEpoch();
+        lastPerformance = event.getPerformance();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
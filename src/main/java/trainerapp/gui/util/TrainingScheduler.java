@@ -0,0 +1,316 @@
+package trainerapp.gui.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Scheduler running training jobs on a bounded pool of worker threads,
+ * so that several networks can be trained at the same time without
+ * running more trainings than there are processors.
+ * A worker is occupied by a job until its trainer finishes. Queued jobs
+ * are started in the order of their priority, and in the order of
+ * submission among jobs of the same priority.
+ * <p>
+ * The list of the jobs and the job properties are changed on the JavaFX
+ * thread. The other methods can be called from any thread.
+ * @author Konstantin Zhdanov
+ */
+public class TrainingScheduler {
+
+    private static final TrainingScheduler defaultScheduler =
+            new TrainingScheduler(Runtime.getRuntime().availableProcessors());
+
+    private final ThreadPoolExecutor executor;
+
+    // runs the updates of the jobs list and properties
+    private final Executor fxExecutor;
+
+    private final ObservableList<TrainingJob> jobs;
+
+    private final ObservableList<TrainingJob> unmodifiableJobs;
+
+    // keeps the order of submission among jobs of the same priority
+    private final AtomicLong sequence;
+
+    private final Set<TrainingJob> runningJobs;
+
+    // jobs removed from the list of the jobs as soon as they finish
+    private final Set<TrainingJob> transientJobs;
+
+    /**
+     * Create a scheduler running not more than {@code nWorkers} jobs
+     * at the same time.
+     * @param nWorkers Number of worker threads.
+     * @throws IllegalArgumentException if {@code nWorkers} isn't positive.
+     */
+    public TrainingScheduler(int nWorkers) {
+        this(nWorkers, Platform::runLater);
+    }
+
+    TrainingScheduler(int nWorkers, Executor fxExecutor) {
+        if (nWorkers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive");
+        }
+        this.fxExecutor = fxExecutor;
+        this.jobs = FXCollections.observableArrayList();
+        this.unmodifiableJobs = FXCollections.unmodifiableObservableList(jobs);
+        this.sequence = new AtomicLong();
+        this.runningJobs = ConcurrentHashMap.newKeySet();
+        this.transientJobs = ConcurrentHashMap.newKeySet();
+        this.executor = new ThreadPoolExecutor(nWorkers, nWorkers, 0L,
+                TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                new WorkerThreadFactory());
+    }
+
+    /**
+     * The scheduler shared by all the windows of the application, running
+     * as many jobs at the same time as there are processors.
+     * @return {@code TrainingScheduler} shared instance.
+     */
+    public static TrainingScheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    /**
+     * Queue {@code job} with {@code TrainingJob.NORMAL_PRIORITY} priority.
+     * @param job Job to run.
+     * @throws NullPointerException if {@code job} is null.
+     * @throws IllegalStateException if {@code job} has already been submitted.
+     */
+    public void submit(TrainingJob job) {
+        submit(job, TrainingJob.NORMAL_PRIORITY);
+    }
+
+    /**
+     * Queue {@code job} to be started when a worker is free and there are
+     * no queued jobs with higher priority.
+     * @param job Job to run.
+     * @param priority Priority of the job, a larger value is started first.
+     * @throws NullPointerException if {@code job} is null.
+     * @throws IllegalStateException if {@code job} has already been submitted.
+     */
+    public void submit(TrainingJob job, int priority) {
+        submit(job, priority, false);
+    }
+
+    /**
+     * Queue {@code job} to be started when a worker is free and there are
+     * no queued jobs with higher priority. The jobs of searches and
+     * cross-validations, which are followed by their own windows, are
+     * removed from the list of the jobs when they finish, so that the list
+     * doesn't keep them and their networks.
+     * @param job Job to run.
+     * @param priority Priority of the job, a larger value is started first.
+     * @param removeWhenFinished Whether the job is removed from the list of
+     * the jobs as soon as it finishes.
+     * @throws NullPointerException if {@code job} is null.
+     * @throws IllegalStateException if {@code job} has already been submitted.
+     */
+    public void submit(TrainingJob job, int priority, boolean removeWhenFinished) {
+        if (job == null) {
+            throw new NullPointerException("Job cannot be null");
+        }
+        if (!job.markSubmitted()) {
+            throw new IllegalStateException("Job has already been submitted");
+        }
+        if (removeWhenFinished) {
+            transientJobs.add(job);
+        }
+        fxExecutor.execute(() -> {
+            job.setPriority(priority);
+            jobs.add(job);
+        });
+        executor.execute(new JobRunner(job, priority, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Change the priority of a job which hasn't started yet.
+     * @param job Queued job.
+     * @param priority New priority of the job.
+     * @return {@code boolean} true if the priority has been changed, false
+     * if the job isn't queued anymore.
+     * @throws NullPointerException if {@code job} is null.
+     */
+    public boolean changePriority(TrainingJob job, int priority) {
+        if (job == null) {
+            throw new NullPointerException("Job cannot be null");
+        }
+        JobRunner runner = findQueued(job);
+        if (runner == null || !executor.remove(runner)) {
+            return false;
+        }
+        fxExecutor.execute(() -> job.setPriority(priority));
+        executor.execute(new JobRunner(job, priority, runner.sequence));
+        return true;
+    }
+
+    /**
+     * Cancel {@code job}. A queued job is removed from the queue and never
+     * started, the trainer of a running job is stopped.
+     * @param job Job to cancel.
+     * @return {@code boolean} true if the job was queued or running, false
+     * if it had already finished.
+     * @throws NullPointerException if {@code job} is null.
+     */
+    public boolean cancel(TrainingJob job) {
+        if (job == null) {
+            throw new NullPointerException("Job cannot be null");
+        }
+        if (job.compareAndSetState(TrainingJob.State.QUEUED,
+                TrainingJob.State.CANCELED)) {
+            JobRunner runner = findQueued(job);
+            if (runner != null) {
+                executor.remove(runner);
+            }
+            fxExecutor.execute(() -> publishState(job, TrainingJob.State.CANCELED));
+            return true;
+        }
+        if (job.getState() == TrainingJob.State.RUNNING) {
+            job.stop();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancel {@code job} later on the JavaFX thread, for the listeners of
+     * its trainer, which mustn't stop the trainer from its own callbacks.
+     * @param job Job to cancel.
+     * @throws NullPointerException if {@code job} is null.
+     */
+    void cancelLater(TrainingJob job) {
+        if (job == null) {
+            throw new NullPointerException("Job cannot be null");
+        }
+        fxExecutor.execute(() -> cancel(job));
+    }
+
+    /**
+     * All the submitted jobs which haven't been removed, in the order
+     * of submission.
+     * @return Unmodifiable {@code ObservableList} of the jobs, changed on
+     * the JavaFX thread.
+     */
+    public ObservableList<TrainingJob> getJobs() {
+        return unmodifiableJobs;
+    }
+
+    /**
+     * Remove the finished jobs from the list of the jobs.
+     * Must be called on the JavaFX thread.
+     */
+    public void removeFinishedJobs() {
+        jobs.removeIf((job) -> job.stateProperty().get().isFinished());
+    }
+
+    /**
+     * Number of the jobs waiting for a free worker.
+     * @return {@code int} number of queued jobs.
+     */
+    public int getQueuedJobsNumber() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Cancel all the jobs and stop the workers.
+     */
+    public void shutdown() {
+        for (TrainingJob job : runningJobs) {
+            job.stop();
+        }
+        for (Runnable runnable : executor.shutdownNow()) {
+            TrainingJob job = ((JobRunner)runnable).job;
+            if (job.compareAndSetState(TrainingJob.State.QUEUED,
+                    TrainingJob.State.CANCELED)) {
+                fxExecutor.execute(() -> publishState(job, TrainingJob.State.CANCELED));
+            }
+        }
+    }
+
+    // called on the JavaFX thread
+    private void publishState(TrainingJob job, TrainingJob.State state) {
+        job.publishState(state);
+        if (state.isFinished() && transientJobs.remove(job)) {
+            jobs.remove(job);
+        }
+    }
+
+    private JobRunner findQueued(TrainingJob job) {
+        for (Runnable runnable : executor.getQueue()) {
+            JobRunner runner = (JobRunner)runnable;
+            if (runner.job == job) {
+                return runner;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Queue entry of a job
+     */
+    private class JobRunner implements Runnable, Comparable<JobRunner> {
+
+        private final TrainingJob job;
+
+        private final int priority;
+
+        private final long sequence;
+
+        JobRunner(TrainingJob job, int priority, long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (!job.compareAndSetState(TrainingJob.State.QUEUED,
+                    TrainingJob.State.RUNNING)) {
+                // canceled while queued
+                return;
+            }
+            fxExecutor.execute(() -> job.publishState(TrainingJob.State.RUNNING));
+            runningJobs.add(job);
+            TrainingJob.State result;
+            try {
+                result = job.run();
+            }
+            finally {
+                runningJobs.remove(job);
+            }
+            job.compareAndSetState(TrainingJob.State.RUNNING, result);
+            fxExecutor.execute(() -> publishState(job, result));
+        }
+
+        @Override
+        public int compareTo(JobRunner other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger nThreads = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "training-worker-" + nThreads.incrementAndGet());
+            // workers mustn't keep the application running
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
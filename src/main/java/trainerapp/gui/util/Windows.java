@@ -1,12 +1,16 @@
 package trainerapp.gui.util;
 
 import trainerapp.gui.controller.CreateNNWindowController;
+import trainerapp.gui.controller.CrossValidationWindowController;
+import trainerapp.gui.controller.HyperparameterSearchWindowController;
 import trainerapp.gui.controller.LoadSamplesWindowController;
 import trainerapp.gui.controller.TestNNWindowController;
 import trainerapp.gui.controller.TrainNNWindowController;
+import trainerapp.gui.controller.TrainingJobsWindowController;
 import trainerapp.gui.repository.NamedObjectRepository;
 import trainerapp.gui.repository.SamplesRepository;
 import neuralnetwork.NeuralNetwork;
+import java.util.function.Consumer;
 import javafx.stage.Window;
 import trainerapp.gui.ModalWindow;
 import trainerapp.gui.controller.ViewNNWindowController;
@@ -82,7 +86,7 @@ public class Windows {
     
     public static void showViewNetworkWindow(Window parent, 
             NamedObjectRepository<NeuralNetwork> nnRepository,
-            NeuralNetwork selectedNN) {
+            NeuralNetwork selectedNN, Consumer<NeuralNetwork> onNetworkChanged) {
         ModalWindow window = new ModalWindow("/fxml/ViewNNWindow.fxml", 
                 "View Neural Network", parent);
 
@@ -90,6 +94,7 @@ public class Windows {
                 (ViewNNWindowController)window.getController();
         controller.setNetworkRepository(nnRepository);
         controller.setNetwork(selectedNN);
+        controller.setOnNetworkChanged(onNetworkChanged);
         window.show();   
     }
     
@@ -105,4 +110,48 @@ public class Windows {
         controller.selectSamples(selectedSamples);
         window.show();   
     }
+    
+    public static void showTrainingJobsWindow(Window parent, 
+            TrainingScheduler scheduler) {
+        
+        ModalWindow window = new ModalWindow("/fxml/TrainingJobsWindow.fxml", 
+                "Training Jobs", parent);
+
+        TrainingJobsWindowController controller = 
+                (TrainingJobsWindowController)window.getController();
+        controller.setScheduler(scheduler);
+        window.show();
+    }
+    
+    public static void showHyperparameterSearchWindow(Window parent, 
+            NamedObjectRepository<NeuralNetwork> nnRepository, 
+            NeuralNetwork selectedNN, 
+            NamedObjectRepository<SamplesRepository<Double>> samplesRepoRepository) {
+        
+        ModalWindow window = new ModalWindow("/fxml/HyperparameterSearchWindow.fxml", 
+                "Search Hyperparameters", parent);
+
+        HyperparameterSearchWindowController controller = 
+                (HyperparameterSearchWindowController)window.getController();
+        controller.setNetworkRepository(nnRepository);
+        controller.setSamplesRepository(samplesRepoRepository);
+        controller.selectNetwork(selectedNN);
+        window.show();
+    }
+    
+    public static void showCrossValidationWindow(Window parent, 
+            NamedObjectRepository<NeuralNetwork> nnRepository, 
+            NeuralNetwork selectedNN, 
+            NamedObjectRepository<SamplesRepository<Double>> samplesRepoRepository) {
+        
+        ModalWindow window = new ModalWindow("/fxml/CrossValidationWindow.fxml", 
+                "Cross-Validate Neural Network", parent);
+
+        CrossValidationWindowController controller = 
+                (CrossValidationWindowController)window.getController();
+        controller.setNetworkRepository(nnRepository);
+        controller.setSamplesRepository(samplesRepoRepository);
+        controller.selectNetwork(selectedNN);
+        window.show();
+    }
 }
@@ -0,0 +1,138 @@
+package trainerapp.gui.facade;
+
+import java.util.ArrayList;
+import java.util.List;
+import neuralnetwork.train.TrainerEvent;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for EpochEventMailbox class
+ * @author Konstantin Zhdanov
+ */
+public class EpochEventMailboxTest {
+
+    private static final double DELTA = 1e-10;
+
+    public EpochEventMailboxTest() {
+    }
+
+    private static TrainerEvent event(int epoch, double performance) {
+        TrainerEvent event = mock(TrainerEvent.class);
+        when(event.getEpoch()).thenReturn(epoch);
+        when(event.getPerformance()).thenReturn(performance);
+        return event;
+    }
+
+    /**
+     * Test of drain method, of class EpochEventMailbox.
+     */
+    @Test
+    public void testDrain_ManyEventsPosted_AllPassedInOneBatch() {
+        System.out.println("drain");
+        EpochEventMailbox instance = new EpochEventMailbox();
+        TrainerEvent last = null;
+        for (int epoch = 1; epoch <= 100; epoch++) {
+            last = event(epoch, 1.0 / epoch);
+            instance.post(last);
+        }
+        List<EpochBatch> batches = new ArrayList<>();
+        final TrainerEvent expectedLast = last;
+
+        boolean result = instance.drain((batch) -> {
+            batches.add(batch);
+            assertEquals(100, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(i + 1, batch.getEpoch(i));
+                assertEquals(1.0 / (i + 1), batch.getPerformance(i), DELTA);
+            }
+            assertSame(expectedLast, batch.getLastEvent());
+        });
+
+        assertTrue(result);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testDrain_MoreEventsThanMaxSize_DownsampledKeepingPeaksAndLatest() {
+        System.out.println("drain");
+        EpochEventMailbox instance = new EpochEventMailbox();
+        int nEpochs = 3 * EpochBatch.MAX_SIZE;
+        int peakEpoch = EpochBatch.MAX_SIZE / 2;
+        TrainerEvent last = null;
+        for (int epoch = 1; epoch <= nEpochs; epoch++) {
+            last = event(epoch, epoch == peakEpoch ? 100.0 : 1.0 / epoch);
+            instance.post(last);
+        }
+        final TrainerEvent expectedLast = last;
+
+        instance.drain((batch) -> {
+            assertTrue(batch.size() <= EpochBatch.MAX_SIZE);
+            boolean peakKept = false;
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    assertTrue(batch.getEpoch(i) > batch.getEpoch(i - 1));
+                }
+                peakKept |= batch.getEpoch(i) == peakEpoch;
+            }
+            assertTrue(peakKept);
+            assertEquals(nEpochs, batch.getEpoch(batch.size() - 1));
+            assertSame(expectedLast, batch.getLastEvent());
+        });
+    }
+
+    @Test
+    public void testDrain_NothingPosted_ConsumerNotCalled() {
+        System.out.println("drain");
+        EpochEventMailbox instance = new EpochEventMailbox();
+
+        boolean result = instance.drain((batch) -> fail("The consumer must not be called"));
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testDrain_DrainedTwice_SecondBatchHasOnlyNewEvents() {
+        System.out.println("drain");
+        EpochEventMailbox instance = new EpochEventMailbox();
+        instance.post(event(1, 0.5));
+        instance.drain((batch) -> {});
+        instance.post(event(2, 0.25));
+        int[] nEvents = new int[1];
+
+        instance.drain((batch) -> {
+            nEvents[0] = batch.size();
+            assertEquals(2, batch.getEpoch(0));
+        });
+
+        assertEquals(1, nEvents[0]);
+    }
+
+    /**
+     * Test of post method, of class EpochEventMailbox.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testPost_NullEvent_Throw() {
+        System.out.println("post");
+        EpochEventMailbox instance = new EpochEventMailbox();
+
+        instance.post(null);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of clear method, of class EpochEventMailbox.
+     */
+    @Test
+    public void testClear_EventsPosted_NothingDrained() {
+        System.out.println("clear");
+        EpochEventMailbox instance = new EpochEventMailbox();
+        instance.post(event(1, 0.5));
+
+        instance.clear();
+
+        assertFalse(instance.drain((batch) -> {}));
+    }
+}
@@ -0,0 +1,238 @@
+package trainerapp.gui.model;
+
+import java.util.Random;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.NeuralNetworkEvaluator;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import static trainerapp.gui.testutil.TestUtils.DELTA;
+import static trainerapp.gui.testutil.TestUtils.assertNNEquals;
+import trainerapp.gui.testutil.TestActivation;
+
+/**
+ * Test cases for FlatNeuralNetwork class
+ * @author Konstantin Zhdanov
+ */
+public class FlatNeuralNetworkTest {
+
+    public FlatNeuralNetworkTest() {
+    }
+
+    private static NeuralNetwork numberedNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        NeuralNetwork nn = new NeuralNetwork(nInputs, hiddenSizes, nOutputs);
+        double value = 0.5;
+        for (int layer = 0; layer <= hiddenSizes.length; layer++) {
+            int nFrom = layer == 0 ? nInputs : hiddenSizes[layer - 1];
+            int nTo = layer == hiddenSizes.length ? nOutputs : hiddenSizes[layer];
+            for (int to = 0; to < nTo; to++) {
+                for (int from = 0; from < nFrom; from++) {
+                    nn.setWeight(layer, from, to, value++);
+                }
+                nn.setBias(layer, to, -value++);
+            }
+        }
+        return nn;
+    }
+
+    private static NeuralNetwork randomNetwork(Random random, int nInputs, 
+            int[] hiddenSizes, int nOutputs) {
+        NeuralNetwork nn = new NeuralNetwork(nInputs, hiddenSizes, nOutputs);
+        for (int layer = 0; layer <= hiddenSizes.length; layer++) {
+            int nFrom = layer == 0 ? nInputs : hiddenSizes[layer - 1];
+            int nTo = layer == hiddenSizes.length ? nOutputs : hiddenSizes[layer];
+            for (int to = 0; to < nTo; to++) {
+                for (int from = 0; from < nFrom; from++) {
+                    nn.setWeight(layer, from, to, random.nextGaussian());
+                }
+                nn.setBias(layer, to, random.nextGaussian());
+            }
+        }
+        return nn;
+    }
+
+    private static double sigmoid(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    /**
+     * Test of constructor, of class FlatNeuralNetwork.
+     */
+    @Test
+    public void testConstructor_ZeroLayerSize_ThrowsIllegalArgumentException() {
+        System.out.println("FlatNeuralNetwork");
+        try {
+            new FlatNeuralNetwork(2, new int[] {3, 0}, 1);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of of method, of class FlatNeuralNetwork.
+     */
+    @Test
+    public void testOf_Network_WeightsRowMajorByReceivingNeuron() {
+        System.out.println("of");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 1);
+
+        FlatNeuralNetwork result = FlatNeuralNetwork.of(nn);
+
+        assertEquals(2, result.getNumberLayers());
+        assertEquals(2, result.getLayerInputSize(0));
+        assertEquals(3, result.getLayerOutputSize(0));
+        assertEquals(3, result.getMaxLayerSize());
+        assertArrayEquals(new double[] {0.5, 1.5, 3.5, 4.5, 6.5, 7.5},
+                result.getWeights(0), 0.0);
+        assertArrayEquals(new double[] {-2.5, -5.5, -8.5}, result.getBiases(0), 0.0);
+        assertEquals(nn.getWeight(0, 1, 2), result.getWeight(0, 1, 2), 0.0);
+        assertEquals(nn.getWeight(1, 2, 0), result.getWeight(1, 2, 0), 0.0);
+    }
+
+    /**
+     * Test of toNeuralNetwork method, of class FlatNeuralNetwork.
+     */
+    @Test
+    public void testToNeuralNetwork_CompiledNetwork_EqualToOriginal() {
+        System.out.println("toNeuralNetwork");
+        NeuralNetwork nn = numberedNetwork(3, new int[] {4, 2}, 2);
+
+        NeuralNetwork result = FlatNeuralNetwork.of(nn).toNeuralNetwork();
+
+        assertNNEquals(nn, result);
+    }
+
+    @Test
+    public void testToNeuralNetwork_NonDefaultActivation_ActivationKept() {
+        System.out.println("toNeuralNetwork");
+        NeuralNetwork nn = new NeuralNetwork(2, new int[] {3}, 1, TestActivation.TANH);
+        nn.setWeight(0, 1, 2, 0.5);
+
+        NeuralNetwork result = FlatNeuralNetwork.of(nn).toNeuralNetwork();
+
+        assertSame(TestActivation.TANH, result.getActivationFunction());
+        assertNNEquals(nn, result);
+    }
+
+    /**
+     * Test of copyInto method, of class FlatNeuralNetwork.
+     */
+    @Test
+    public void testCopyInto_ChangedWeight_NetworkChanged() {
+        System.out.println("copyInto");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {2}, 1);
+        FlatNeuralNetwork instance = FlatNeuralNetwork.of(nn);
+        instance.setWeight(1, 1, 0, 42.0);
+        instance.setBias(0, 1, -42.0);
+
+        instance.copyInto(nn);
+
+        assertEquals(42.0, nn.getWeight(1, 1, 0), 0.0);
+        assertEquals(-42.0, nn.getBias(0, 1), 0.0);
+    }
+
+    @Test
+    public void testCopyInto_OtherStructure_ThrowsIllegalArgumentException() {
+        System.out.println("copyInto");
+        FlatNeuralNetwork instance = new FlatNeuralNetwork(2, new int[] {2}, 1);
+        try {
+            instance.copyInto(new NeuralNetwork(2, new int[] {3}, 1));
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testCopyInto_OtherActivation_ThrowsIllegalArgumentException() {
+        System.out.println("copyInto");
+        FlatNeuralNetwork instance = new FlatNeuralNetwork(2, new int[] {2}, 1, 
+                TestActivation.TANH);
+        try {
+            instance.copyInto(new NeuralNetwork(2, new int[] {2}, 1));
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of getOutput method, of class FlatNeuralNetwork.
+     */
+    @Test
+    public void testGetOutput_Input_SigmoidOfWeightedSums() {
+        System.out.println("getOutput");
+        FlatNeuralNetwork instance = new FlatNeuralNetwork(2, new int[] {2}, 1);
+        instance.setWeight(0, 0, 0, 1.0);
+        instance.setWeight(0, 1, 0, -1.0);
+        instance.setWeight(0, 0, 1, 0.5);
+        instance.setWeight(0, 1, 1, 2.0);
+        instance.setBias(0, 1, -1.0);
+        instance.setWeight(1, 0, 0, 3.0);
+        instance.setWeight(1, 1, 0, -2.0);
+        instance.setBias(1, 0, 0.25);
+        double[] input = {0.4, 0.7};
+        double hidden0 = sigmoid(0.4 - 0.7);
+        double hidden1 = sigmoid(0.2 + 1.4 - 1.0);
+
+        double[] result = instance.getOutput(input);
+
+        assertArrayEquals(new double[] {sigmoid(3.0 * hidden0 - 2.0 * hidden1 + 0.25)},
+                result, DELTA);
+    }
+
+    @Test
+    public void testGetOutput_RandomNetwork_SameAsLibraryEvaluator() {
+        System.out.println("getOutput");
+        Random random = new Random(7);
+        NeuralNetwork nn = randomNetwork(random, 5, new int[] {6, 4, 3}, 2);
+        NeuralNetworkEvaluator expected = new NeuralNetworkEvaluator(nn);
+        FlatNeuralNetwork instance = FlatNeuralNetwork.of(nn);
+
+        for (int row = 0; row < 20; row++) {
+            double[] input = new double[5];
+            for (int idx = 0; idx < input.length; idx++) {
+                input[idx] = random.nextDouble() * 2 - 1;
+            }
+            assertArrayEquals(expected.getOutput(input), instance.getOutput(input), DELTA);
+        }
+    }
+
+    @Test
+    public void testGetOutput_NonDefaultActivation_ActivationOfWeightedSums() {
+        System.out.println("getOutput");
+        FlatNeuralNetwork instance = new FlatNeuralNetwork(2, new int[] {2}, 1, 
+                TestActivation.TANH);
+        instance.setWeight(0, 0, 0, 1.0);
+        instance.setWeight(0, 1, 0, -1.0);
+        instance.setWeight(0, 0, 1, 0.5);
+        instance.setWeight(0, 1, 1, 2.0);
+        instance.setBias(0, 1, -1.0);
+        instance.setWeight(1, 0, 0, 3.0);
+        instance.setWeight(1, 1, 0, -2.0);
+        instance.setBias(1, 0, 0.25);
+        double[] input = {0.4, 0.7};
+        double hidden0 = Math.tanh(0.4 - 0.7);
+        double hidden1 = Math.tanh(0.2 + 1.4 - 1.0);
+
+        double[] result = instance.getOutput(input);
+
+        assertArrayEquals(new double[] {Math.tanh(3.0 * hidden0 - 2.0 * hidden1 + 0.25)},
+                result, DELTA);
+    }
+
+    @Test
+    public void testGetOutput_WrongInputSize_ThrowsIllegalArgumentException() {
+        System.out.println("getOutput");
+        FlatNeuralNetwork instance = new FlatNeuralNetwork(2, new int[] {2}, 1);
+        try {
+            instance.getOutput(new double[3]);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
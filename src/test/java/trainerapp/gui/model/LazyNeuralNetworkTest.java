@@ -0,0 +1,210 @@
+package trainerapp.gui.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import neuralnetwork.NeuralNetwork;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import static trainerapp.gui.testutil.TestUtils.assertNNEquals;
+
+/**
+ * Test cases for LazyNeuralNetwork class
+ * @author Konstantin Zhdanov
+ */
+public class LazyNeuralNetworkTest {
+
+    private final AtomicInteger nLoads = new AtomicInteger();
+
+    public LazyNeuralNetworkTest() {
+    }
+
+    private NeuralNetwork numberedNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        NeuralNetwork nn = new NeuralNetwork(nInputs, hiddenSizes, nOutputs);
+        double value = 0;
+        int prevSize = nInputs;
+        for (int layer = 0; layer <= hiddenSizes.length; layer++) {
+            int size = layer < hiddenSizes.length ? hiddenSizes[layer] : nOutputs;
+            for (int to = 0; to < size; to++) {
+                for (int from = 0; from < prevSize; from++) {
+                    nn.setWeight(layer, from, to, value++);
+                }
+                nn.setBias(layer, to, -value);
+            }
+            prevSize = size;
+        }
+        return nn;
+    }
+
+    private LazyNeuralNetwork lazyCopyOf(NeuralNetwork nn) {
+        return new LazyNeuralNetwork(nn.getNumberInputs(), nn.getHiddenLayerSizes(),
+                nn.getNumberOutputs(), "Lazy", () -> {
+                    nLoads.incrementAndGet();
+                    return new NeuralNetwork(nn);
+                });
+    }
+
+    /**
+     * Test of the constructor, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testConstructor_ValidValuesPassed_StructureKnownWithoutLoading() {
+        System.out.println("LazyNeuralNetwork");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3, 4}, 5);
+
+        LazyNeuralNetwork instance = lazyCopyOf(nn);
+
+        assertEquals(2, instance.getNumberInputs());
+        assertEquals(2, instance.getNumberHiddenLayers());
+        assertArrayEquals(new int[] {3, 4}, instance.getHiddenLayerSizes());
+        assertEquals(4, instance.getHiddenLayerSize(1));
+        assertEquals(5, instance.getNumberOutputs());
+        assertEquals(nn.getSignature(), instance.getSignature());
+        assertEquals("Lazy", instance.getName());
+        assertFalse(instance.isLoaded());
+        assertEquals(0, nLoads.get());
+    }
+
+    @Test
+    public void testConstructor_NullSource_ThrowsNullPointerException() {
+        System.out.println("LazyNeuralNetwork");
+        try {
+            new LazyNeuralNetwork(2, new int[] {3}, 1, "Lazy", null);
+            fail("The test case must throw");
+        }
+        catch (NullPointerException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_ZeroLayerSize_ThrowsIllegalArgumentException() {
+        System.out.println("LazyNeuralNetwork");
+        try {
+            new LazyNeuralNetwork(2, new int[] {0}, 1, "Lazy", () -> null);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of getWeight method, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testGetWeight_RepeatedAccess_LoadedOnce() {
+        System.out.println("getWeight");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 2);
+        LazyNeuralNetwork instance = lazyCopyOf(nn);
+
+        assertNNEquals(nn, instance);
+
+        assertTrue(instance.isLoaded());
+        assertEquals(1, nLoads.get());
+    }
+
+    /**
+     * Test of evict method, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testEvict_AccessedAfterEviction_LoadedAgain() {
+        System.out.println("evict");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 2);
+        LazyNeuralNetwork instance = lazyCopyOf(nn);
+        instance.getBias(0, 0);
+
+        instance.evict();
+
+        assertFalse(instance.isLoaded());
+        assertEquals(nn.getWeight(1, 2, 1), instance.getWeight(1, 2, 1), 0.0);
+        assertEquals(2, nLoads.get());
+    }
+
+    /**
+     * Test of setWeight method, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testSetWeight_EvictedAfterChange_ChangeKept() {
+        System.out.println("setWeight");
+        LazyNeuralNetwork instance = lazyCopyOf(numberedNetwork(2, new int[] {3}, 2));
+
+        instance.setWeight(0, 1, 2, 42.0);
+        instance.setBias(1, 0, -42.0);
+        instance.evict();
+
+        assertTrue(instance.isLoaded());
+        assertEquals(42.0, instance.getWeight(0, 1, 2), 0.0);
+        assertEquals(-42.0, instance.getBias(1, 0), 0.0);
+        assertEquals(1, nLoads.get());
+    }
+
+    /**
+     * Test of materialize method, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testMaterialize_SourceOfOtherStructure_ThrowsIllegalArgumentException() {
+        System.out.println("materialize");
+        LazyNeuralNetwork instance = new LazyNeuralNetwork(2, new int[] {3}, 2, "Lazy",
+                () -> new NeuralNetwork(2, new int[] {4}, 2));
+        try {
+            instance.materialize();
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of loaded method, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testLoaded_NotLazyNetwork_SameNetworkReturned() {
+        System.out.println("loaded");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 2);
+
+        assertSame(nn, LazyNeuralNetwork.loaded(nn));
+    }
+
+    @Test
+    public void testLoaded_LazyNetwork_LoadedNetworkReturned() {
+        System.out.println("loaded");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 2);
+        LazyNeuralNetwork instance = lazyCopyOf(nn);
+
+        NeuralNetwork result = LazyNeuralNetwork.loaded(instance);
+
+        assertFalse(result instanceof LazyNeuralNetwork);
+        assertNNEquals(nn, result);
+    }
+
+    /**
+     * Test of serialization, of class LazyNeuralNetwork.
+     */
+    @Test
+    public void testSerialization_LazyNetworkWritten_NamedNetworkWithWeightsRead()
+            throws IOException, ClassNotFoundException {
+        System.out.println("serialization");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {3}, 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(lazyCopyOf(nn));
+        }
+
+        Object result;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            result = in.readObject();
+        }
+
+        assertFalse(result instanceof LazyNeuralNetwork);
+        assertEquals("Lazy", ((NamedNeuralNetwork)result).getName());
+        assertNNEquals(nn, (NeuralNetwork)result);
+    }
+}
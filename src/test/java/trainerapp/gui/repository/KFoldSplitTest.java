@@ -0,0 +1,138 @@
+package trainerapp.gui.repository;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for KFoldSplit class
+ * @author Konstantin Zhdanov
+ */
+public class KFoldSplitTest {
+
+    public KFoldSplitTest() {
+    }
+
+    /**
+     * Test of constructor, of class KFoldSplit.
+     */
+    @Test
+    public void testConstructor_OneFold_ThrowsIllegalArgumentException() {
+        System.out.println("KFoldSplit");
+        try {
+            new KFoldSplit(10, 1, new Random());
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_MoreFoldsThanSamples_ThrowsIllegalArgumentException() {
+        System.out.println("KFoldSplit");
+        try {
+            new KFoldSplit(3, 4, new Random());
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_NullRandom_ThrowsNullPointerException() {
+        System.out.println("KFoldSplit");
+        try {
+            new KFoldSplit(10, 2, null);
+            fail("The test case must throw");
+        }
+        catch (NullPointerException e) {
+        }
+    }
+
+    /**
+     * Test of testIndices method, of class KFoldSplit.
+     */
+    @Test
+    public void testTestIndices_AllFolds_DisjointAndCoverAllSamples() {
+        System.out.println("testIndices");
+        int nSamples = 23;
+        KFoldSplit instance = new KFoldSplit(nSamples, 5, new Random(1));
+        int[] counts = new int[nSamples];
+
+        for (int fold = 0; fold < instance.getFoldCount(); fold++) {
+            for (int idx : instance.testIndices(fold)) {
+                counts[idx]++;
+            }
+        }
+
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void testTestIndices_UnevenSplit_SizesDifferByAtMostOne() {
+        System.out.println("testIndices");
+        KFoldSplit instance = new KFoldSplit(23, 5, new Random(1));
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+
+        for (int fold = 0; fold < instance.getFoldCount(); fold++) {
+            int size = instance.testIndices(fold).length;
+            min = Math.min(min, size);
+            max = Math.max(max, size);
+        }
+
+        assertTrue(max - min <= 1);
+    }
+
+    @Test
+    public void testTestIndices_FoldOutOfRange_ThrowsIndexOutOfBoundsException() {
+        System.out.println("testIndices");
+        KFoldSplit instance = new KFoldSplit(10, 2, new Random(1));
+        try {
+            instance.testIndices(2);
+            fail("The test case must throw");
+        }
+        catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    /**
+     * Test of trainingIndices method, of class KFoldSplit.
+     */
+    @Test
+    public void testTrainingIndices_AnyFold_ComplementOfTestIndices() {
+        System.out.println("trainingIndices");
+        int nSamples = 17;
+        KFoldSplit instance = new KFoldSplit(nSamples, 4, new Random(2));
+
+        for (int fold = 0; fold < instance.getFoldCount(); fold++) {
+            int[] test = instance.testIndices(fold);
+            int[] training = instance.trainingIndices(fold);
+            int[] all = new int[nSamples];
+            System.arraycopy(test, 0, all, 0, test.length);
+            System.arraycopy(training, 0, all, test.length, training.length);
+            Arrays.sort(all);
+            for (int i = 0; i < nSamples; i++) {
+                assertEquals(i, all[i]);
+            }
+        }
+    }
+
+    /**
+     * Test of selectRows method, of class KFoldSplit.
+     */
+    @Test
+    public void testSelectRows_Indices_RowsSharedWithMatrix() {
+        System.out.println("selectRows");
+        double[][] matrix = {{1, 2}, {3, 4}, {5, 6}};
+
+        double[][] result = KFoldSplit.selectRows(matrix, new int[] {2, 0});
+
+        assertEquals(2, result.length);
+        assertSame(matrix[2], result[0]);
+        assertSame(matrix[0], result[1]);
+    }
+}
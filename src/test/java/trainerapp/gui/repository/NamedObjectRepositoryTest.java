@@ -1,11 +1,15 @@
 package trainerapp.gui.repository;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
@@ -916,4 +920,65 @@ public class NamedObjectRepositoryTest {
         
         assertThat(result, CoreMatchers.is(expResult));
     }
+    
+    /**
+     * Test of addAll method, of class NamedObjectRepository.
+     */
+    @Test
+    public void testAddAll_NewAndExistingNames_NewAppendedInOrderExistingReplaced() {
+        System.out.println("addAll");
+        NamedObjectRepository<String> instance = new NamedObjectRepository<>();
+        instance.add("Name 1", "Object 1");
+        instance.add("Name 2", "Object 2");
+        Map<String, String> namedObjects = new LinkedHashMap<>();
+        namedObjects.put("Name 4", "Object 4");
+        namedObjects.put("Name 2", "Object 5");
+        namedObjects.put("Name 3", "Object 3");
+        
+        instance.addAll(namedObjects);
+        
+        assertThat(instance.getNamesObservableList(), CoreMatchers.is(
+                Arrays.asList("Name 1", "Name 2", "Name 4", "Name 3")));
+        assertThat(instance.getObjectsObservableList(), CoreMatchers.is(
+                Arrays.asList("Object 1", "Object 5", "Object 4", "Object 3")));
+        assertEquals("Object 5", instance.get("Name 2"));
+    }
+    
+    @Test
+    public void testAddAll_NewNames_OneChangeOfObservableLists() {
+        System.out.println("addAll");
+        NamedObjectRepository<String> instance = new NamedObjectRepository<>();
+        instance.add("Name 1", "Object 1");
+        int[] nChanges = new int[2];
+        instance.getNamesObservableList().addListener(
+                (ListChangeListener<String>)(c) -> nChanges[0]++);
+        instance.getObjectsObservableList().addListener(
+                (ListChangeListener<String>)(c) -> nChanges[1]++);
+        Map<String, String> namedObjects = new LinkedHashMap<>();
+        for (int idx = 2; idx <= 100; idx++) {
+            namedObjects.put("Name " + idx, "Object " + idx);
+        }
+        
+        instance.addAll(namedObjects);
+        
+        assertEquals(100, instance.size());
+        assertArrayEquals(new int[] {1, 1}, nChanges);
+    }
+    
+    @Test
+    public void testAddAll_NullObject_ThrowAndNothingAdded() {
+        System.out.println("addAll");
+        NamedObjectRepository<String> instance = new NamedObjectRepository<>();
+        Map<String, String> namedObjects = new LinkedHashMap<>();
+        namedObjects.put("Name 1", "Object 1");
+        namedObjects.put("Name 2", null);
+        try {
+            instance.addAll(namedObjects);
+            fail("The test case must throw");
+        }
+        catch (NullPointerException e) {
+        }
+        
+        assertTrue(instance.isEmpty());
+    }
 }
@@ -0,0 +1,198 @@
+package trainerapp.gui.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import javafx.collections.FXCollections;
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for PagedSamplesRepository class
+ * @author Konstantin Zhdanov
+ */
+public class PagedSamplesRepositoryTest {
+
+    private static final double DELTA = 1e-10;
+
+    private static final int DATA_OFFSET = 16;
+
+    private static final int N_SAMPLES = 100;
+
+    private static final int SAMPLE_SIZE = 3;
+
+    private final File file = new File("./samples.bin");
+
+    private PagedSamplesRepository instance;
+
+    public PagedSamplesRepositoryTest() {
+    }
+
+    private static double valueAt(int idx, int var) {
+        return idx * 10 + var;
+    }
+
+    // blocks of 4 samples, not more than 2 blocks in memory
+    @Before
+    public void setUp() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(DATA_OFFSET + N_SAMPLES * SAMPLE_SIZE * 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(DATA_OFFSET);
+        for (int idx = 0; idx < N_SAMPLES; idx++) {
+            for (int var = 0; var < SAMPLE_SIZE; var++) {
+                buf.putDouble(valueAt(idx, var));
+            }
+        }
+        Files.write(file.toPath(), buf.array());
+        instance = new PagedSamplesRepository(file.toPath(), DATA_OFFSET, N_SAMPLES,
+                SAMPLE_SIZE, Arrays.asList("a", "b", "c"), 4 * SAMPLE_SIZE * 8, 2);
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        instance.close();
+        file.delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ZeroMaxBlocks_Throw() throws IOException {
+        System.out.println("PagedSamplesRepository");
+
+        new PagedSamplesRepository(file.toPath(), DATA_OFFSET, N_SAMPLES,
+                SAMPLE_SIZE, Arrays.asList("a", "b", "c"), 1024, 0);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of getValue method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testGetValue_RandomOrder_ReadFromFile() {
+        System.out.println("getValue");
+        int[] order = {99, 0, 50, 3, 4, 98, 0, 51};
+
+        for (int idx : order) {
+            for (int var = 0; var < SAMPLE_SIZE; var++) {
+                assertEquals(valueAt(idx, var), instance.getValue(idx, var), DELTA);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetValue_IndexEqualSize_Throw() {
+        System.out.println("getValue");
+
+        instance.getValue(N_SAMPLES, 0);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of getSample method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testGetSample_Called_ReturnValues() {
+        System.out.println("getSample");
+
+        List<Double> result = instance.getSample(7);
+
+        assertThat(result, CoreMatchers.is(Arrays.asList(70.0, 71.0, 72.0)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetSample_SampleChanged_Throw() {
+        System.out.println("getSample");
+
+        instance.getSample(7).set(0, 1.0);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of add method, of class PagedSamplesRepository.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAdd_Called_Throw() {
+        System.out.println("add");
+
+        instance.add(FXCollections.observableArrayList(1.0, 2.0, 3.0));
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of copyVariable method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testCopyVariable_Called_CopiedAllSamples() {
+        System.out.println("copyVariable");
+        double[] dest = new double[N_SAMPLES];
+
+        instance.copyVariable(2, dest, 0);
+
+        for (int idx = 0; idx < N_SAMPLES; idx++) {
+            assertEquals(valueAt(idx, 2), dest[idx], DELTA);
+        }
+    }
+
+    /**
+     * Test of getHeader method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testGetHeader_Called_ReturnHeaderOfFile() {
+        System.out.println("getHeader");
+
+        List<String> result = instance.getHeader();
+
+        assertThat(result, CoreMatchers.is(Arrays.asList("a", "b", "c")));
+    }
+
+    /**
+     * Test of batchIterator method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testBatchIterator_AllBatches_SameAsFile() {
+        System.out.println("batchIterator");
+        SamplesBatchIterator batches = instance.batchIterator(7, 1, 2);
+        int nSamples = 0;
+
+        while (batches.hasNext()) {
+            SamplesBatch batch = batches.next();
+            for (int i = 0; i < batch.size(); i++) {
+                int idx = batch.getFirstSample() + i;
+                assertEquals(valueAt(idx, 0), batch.getInputs()[i], DELTA);
+                assertEquals(valueAt(idx, 1), batch.getTargets()[i * 2], DELTA);
+                assertEquals(valueAt(idx, 2), batch.getTargets()[i * 2 + 1], DELTA);
+            }
+            nSamples += batch.size();
+        }
+
+        assertEquals(N_SAMPLES, nSamples);
+    }
+
+    /**
+     * Test of close method, of class PagedSamplesRepository.
+     */
+    @Test
+    public void testClose_CachedSampleRead_Throw() throws IOException {
+        System.out.println("close");
+        instance.getValue(0, 0);
+
+        instance.close();
+
+        try {
+            instance.getValue(0, 0);
+            fail("The test case must throw");
+        }
+        catch (IllegalStateException e) {
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package trainerapp.gui.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for PrimitiveSamplesRepository class
+ * @author Konstantin Zhdanov
+ */
+public class PrimitiveSamplesRepositoryTest {
+
+    private static final double DELTA = 1e-10;
+
+    public PrimitiveSamplesRepositoryTest() {
+    }
+
+    private static ObservableList<Double> sample(Double... values) {
+        return FXCollections.observableArrayList(values);
+    }
+
+    /**
+     * Test of add method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testAdd_TwoSamples_ValuesStored() {
+        System.out.println("add");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+
+        assertEquals(2, instance.size());
+        assertEquals(2, instance.sampleSize());
+        assertThat(instance.getSample(1), CoreMatchers.is(Arrays.asList(3.0, 4.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd_SampleOfDifferentSize_Throw() {
+        System.out.println("add");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+
+        instance.add(sample(1.0, 2.0, 3.0));
+
+        fail("The test case must throw");
+    }
+
+    @Test
+    public void testAdd_AddedSampleChanged_RepositoryNotChanged() {
+        System.out.println("add");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        ObservableList<Double> added = sample(1.0, 2.0);
+        instance.add(added);
+
+        added.set(0, 10.0);
+
+        assertEquals(1.0, instance.getValue(0, 0), DELTA);
+    }
+
+    /**
+     * Test of addAll method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testAddAll_PrimitiveValues_AddedWithSingleChange() {
+        System.out.println("addAll");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        int[] nChanges = new int[1];
+        instance.getAll().addListener((ListChangeListener<ObservableList<Double>>) (c) -> {
+            while (c.next()) {
+                assertTrue(c.wasAdded());
+                assertEquals(3, c.getAddedSize());
+            }
+            nChanges[0]++;
+        });
+
+        instance.addAll(new double[] {0, 1, 2, 3, 4, 5, 6}, 1, 3, 2);
+
+        assertEquals(3, instance.size());
+        assertEquals(1, nChanges[0]);
+        assertEquals(1.0, instance.getValue(0, 0), DELTA);
+        assertEquals(6.0, instance.getValue(2, 1), DELTA);
+    }
+
+    /**
+     * Test of remove method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testRemove_FirstSample_OthersShifted() {
+        System.out.println("remove");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+
+        instance.remove(0);
+
+        assertEquals(1, instance.size());
+        assertThat(instance.getSample(0), CoreMatchers.is(Arrays.asList(3.0, 4.0)));
+    }
+
+    /**
+     * Test of getSample method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testGetSample_SampleViewChanged_RepositoryChanged() {
+        System.out.println("getSample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+
+        instance.getSample(0).set(1, 5.0);
+
+        assertEquals(5.0, instance.getValue(0, 1), DELTA);
+    }
+
+    @Test
+    public void testGetSample_SampleViewChanged_VersionChanged() {
+        System.out.println("getSample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        long before = instance.getVersion();
+
+        instance.getSample(0).set(1, 5.0);
+
+        assertNotEquals(before, instance.getVersion());
+    }
+
+    @Test
+    public void testGetSample_SampleInsertedBeforeView_ViewFollowsSample() {
+        System.out.println("getSample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+        ObservableList<Double> view = instance.getSample(1);
+
+        instance.getAll().add(0, sample(5.0, 6.0));
+        view.set(0, 7.0);
+
+        assertThat(view, CoreMatchers.is(Arrays.asList(7.0, 4.0)));
+        assertSame(view, instance.getSample(2));
+        assertEquals(7.0, instance.getValue(2, 0), DELTA);
+        assertEquals(1.0, instance.getValue(1, 0), DELTA);
+    }
+
+    @Test
+    public void testGetSample_SampleOfViewRemoved_ViewDetached() {
+        System.out.println("getSample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+        ObservableList<Double> removedView = instance.getSample(0);
+        ObservableList<Double> shiftedView = instance.getSample(1);
+
+        instance.remove(0);
+        removedView.set(0, 9.0);
+
+        assertThat(removedView, CoreMatchers.is(Arrays.asList(9.0, 2.0)));
+        assertThat(shiftedView, CoreMatchers.is(Arrays.asList(3.0, 4.0)));
+        assertEquals(3.0, instance.getValue(0, 0), DELTA);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetSample_SampleViewResized_Throw() {
+        System.out.println("getSample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+
+        instance.getSample(0).add(5.0);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of getAll method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testGetAll_Cleared_RepositoryEmptyAndListenersNotified() {
+        System.out.println("getAll");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+        int[] nRemoved = new int[1];
+        instance.getAll().addListener((ListChangeListener<ObservableList<Double>>) (c) -> {
+            while (c.next()) {
+                nRemoved[0] += c.getRemovedSize();
+            }
+        });
+
+        instance.getAll().clear();
+
+        assertTrue(instance.isEmpty());
+        assertEquals(2, nRemoved[0]);
+        assertEquals(0, instance.sampleSize());
+    }
+
+    /**
+     * Test of copySample method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testCopySample_Range_CopiedIntoPosition() {
+        System.out.println("copySample");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0, 3.0));
+        double[] dest = new double[3];
+
+        instance.copySample(0, 1, dest, 1, 2);
+
+        assertArrayEquals(new double[] {0, 2, 3}, dest, DELTA);
+    }
+
+    /**
+     * Test of copyVariable method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testCopyVariable_Called_CopiedAllSamples() {
+        System.out.println("copyVariable");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        instance.add(sample(3.0, 4.0));
+        double[] dest = new double[2];
+
+        instance.copyVariable(1, dest, 0);
+
+        assertArrayEquals(new double[] {2, 4}, dest, DELTA);
+    }
+
+    /**
+     * Test of getHeader method, of class PrimitiveSamplesRepository.
+     */
+    @Test
+    public void testGetHeader_NoHeaderSet_ReturnDefaultList() {
+        System.out.println("getHeader");
+        PrimitiveSamplesRepository instance = new PrimitiveSamplesRepository();
+        instance.add(sample(1.0, 2.0));
+        List<String> expected = Arrays.asList("Var 1", "Var 2");
+
+        List<String> result = instance.getHeader();
+
+        assertThat(result, CoreMatchers.is(expected));
+    }
+}
@@ -0,0 +1,190 @@
+package trainerapp.gui.repository;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for SamplesMatrix class
+ * @author Konstantin Zhdanov
+ */
+public class SamplesMatrixTest {
+
+    private static final double DELTA = 1e-10;
+
+    public SamplesMatrixTest() {
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NegativeColumns_Throw() {
+        System.out.println("SamplesMatrix");
+        SamplesMatrix instance = new SamplesMatrix(-1);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of addRow method, of class SamplesMatrix.
+     */
+    @Test
+    public void testAddRow_ManyRows_GrowAndKeepValues() {
+        System.out.println("addRow");
+        SamplesMatrix instance = new SamplesMatrix(3, 1);
+        for (int row = 0; row < 100; row++) {
+            instance.addRow(new double[] {-1, row, row * 2, row * 3}, 1);
+        }
+
+        assertEquals(100, instance.rows());
+        assertEquals(3, instance.columns());
+        for (int row = 0; row < 100; row++) {
+            assertEquals(row, instance.get(row, 0), DELTA);
+            assertEquals(row * 2, instance.get(row, 1), DELTA);
+            assertEquals(row * 3, instance.get(row, 2), DELTA);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddRow_SourceTooShort_Throw() {
+        System.out.println("addRow");
+        SamplesMatrix instance = new SamplesMatrix(3);
+
+        instance.addRow(new double[] {1, 2, 3}, 1);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of addRows method, of class SamplesMatrix.
+     */
+    @Test
+    public void testAddRows_TwoRows_Appended() {
+        System.out.println("addRows");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRow(new double[] {1, 2}, 0);
+
+        instance.addRows(new double[] {3, 4, 5, 6}, 0, 2);
+
+        assertEquals(3, instance.rows());
+        assertEquals(3, instance.get(1, 0), DELTA);
+        assertEquals(6, instance.get(2, 1), DELTA);
+    }
+
+    /**
+     * Test of insertRow method, of class SamplesMatrix.
+     */
+    @Test
+    public void testInsertRow_InTheMiddle_RowsShifted() {
+        System.out.println("insertRow");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRows(new double[] {1, 2, 5, 6}, 0, 2);
+
+        instance.insertRow(1, new double[] {3, 4}, 0);
+
+        double[] actual = new double[6];
+        for (int row = 0; row < 3; row++) {
+            instance.copyRow(row, 0, actual, row * 2, 2);
+        }
+        assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6}, actual, DELTA);
+    }
+
+    /**
+     * Test of removeRow method, of class SamplesMatrix.
+     */
+    @Test
+    public void testRemoveRow_FirstRow_RowsShifted() {
+        System.out.println("removeRow");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRows(new double[] {1, 2, 3, 4, 5, 6}, 0, 3);
+
+        instance.removeRow(0);
+
+        assertEquals(2, instance.rows());
+        assertEquals(3, instance.get(0, 0), DELTA);
+        assertEquals(6, instance.get(1, 1), DELTA);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRemoveRow_IndexEqualRows_Throw() {
+        System.out.println("removeRow");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRow(new double[] {1, 2}, 0);
+
+        instance.removeRow(1);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of get method, of class SamplesMatrix.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGet_ColumnOutOfRange_Throw() {
+        System.out.println("get");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRow(new double[] {1, 2}, 0);
+
+        instance.get(0, 2);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of set method, of class SamplesMatrix.
+     */
+    @Test
+    public void testSet_Called_ValueChanged() {
+        System.out.println("set");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRow(new double[] {1, 2}, 0);
+
+        instance.set(0, 1, 7.5);
+
+        assertEquals(7.5, instance.get(0, 1), DELTA);
+    }
+
+    /**
+     * Test of copyRow method, of class SamplesMatrix.
+     */
+    @Test
+    public void testCopyRow_PartOfRow_CopiedIntoPosition() {
+        System.out.println("copyRow");
+        SamplesMatrix instance = new SamplesMatrix(4);
+        instance.addRow(new double[] {1, 2, 3, 4}, 0);
+        double[] dest = new double[3];
+
+        instance.copyRow(0, 2, dest, 1, 2);
+
+        assertArrayEquals(new double[] {0, 3, 4}, dest, DELTA);
+    }
+
+    /**
+     * Test of copyColumn method, of class SamplesMatrix.
+     */
+    @Test
+    public void testCopyColumn_Called_CopiedAllRows() {
+        System.out.println("copyColumn");
+        SamplesMatrix instance = new SamplesMatrix(2);
+        instance.addRows(new double[] {1, 2, 3, 4, 5, 6}, 0, 3);
+        double[] dest = new double[3];
+
+        instance.copyColumn(1, dest, 0);
+
+        assertArrayEquals(new double[] {2, 4, 6}, dest, DELTA);
+    }
+
+    /**
+     * Test of trimToSize method, of class SamplesMatrix.
+     */
+    @Test
+    public void testTrimToSize_Called_ValuesKeptAndRowsCanBeAdded() {
+        System.out.println("trimToSize");
+        SamplesMatrix instance = new SamplesMatrix(2, 10);
+        instance.addRow(new double[] {1, 2}, 0);
+
+        instance.trimToSize();
+        instance.addRow(new double[] {3, 4}, 0);
+
+        assertEquals(2, instance.rows());
+        assertEquals(2, instance.get(0, 1), DELTA);
+        assertEquals(3, instance.get(1, 0), DELTA);
+    }
+}
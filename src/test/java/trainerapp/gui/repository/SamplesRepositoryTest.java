@@ -3,6 +3,7 @@ package trainerapp.gui.repository;
 import java.util.Arrays;
 import java.util.List;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
@@ -47,6 +48,48 @@ public class SamplesRepositoryTest {
         assertEquals(oldSize + 1, newSize);
     }
 
+    /**
+     * Test of addAll method, of class SamplesRepository.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testAddAll_NullArgument_Throw() {
+        System.out.println("addAll");
+        SamplesRepository instance = new SamplesRepository();
+        instance.addAll(null);
+        
+        fail("The test case must throw");
+    }
+    
+    @Test(expected = NullPointerException.class)
+    public void testAddAll_NullSampleInList_Throw() {
+        System.out.println("addAll");
+        SamplesRepository instance = new SamplesRepository();
+        ObservableList sample = FXCollections.observableArrayList();
+        sample.add(new Object());
+        instance.addAll(Arrays.asList(sample, null));
+        
+        fail("The test case must throw");
+    }
+    
+    @Test
+    public void testAddAll_TwoSamples_AddedInOrderWithSingleChange() {
+        System.out.println("addAll");
+        SamplesRepository instance = new SamplesRepository();
+        ObservableList sampleOne = FXCollections.observableArrayList();
+        sampleOne.add(new Object());
+        ObservableList sampleTwo = FXCollections.observableArrayList();
+        sampleTwo.add(new Object());
+        int[] nChanges = new int[1];
+        instance.getAll().addListener((ListChangeListener) (c) -> nChanges[0]++);
+        
+        instance.addAll(Arrays.asList(sampleOne, sampleTwo));
+        
+        assertEquals(2, instance.size());
+        assertSame(sampleOne, instance.getSample(0));
+        assertSame(sampleTwo, instance.getSample(1));
+        assertEquals(1, nChanges[0]);
+    }
+
     /**
      * Test of remove method, of class SamplesRepository.
      */
@@ -430,4 +473,83 @@ public class SamplesRepositoryTest {
         
         assertEquals(expResult, result);
     }
+    
+    /**
+     * Test of batchIterator method, of class SamplesRepository.
+     */
+    @Test
+    public void testBatchIterator_FiveSamples_SplitIntoBatchesInOrder() {
+        System.out.println("batchIterator");
+        SamplesRepository<Double> instance = new SamplesRepository<>();
+        for (int i = 0; i < 5; i++) {
+            instance.add(FXCollections.observableArrayList(i * 1.0, i * 10.0, i * 100.0));
+        }
+        
+        SamplesBatchIterator result = instance.batchIterator(2, 2, 1);
+        
+        int[] expectedSizes = {2, 2, 1};
+        for (int b = 0; b < expectedSizes.length; b++) {
+            assertTrue(result.hasNext());
+            SamplesBatch batch = result.next();
+            assertEquals(expectedSizes[b], batch.size());
+            assertEquals(b * 2, batch.getFirstSample());
+            for (int i = 0; i < batch.size(); i++) {
+                int idx = batch.getFirstSample() + i;
+                assertEquals(idx * 1.0, batch.getInputs()[i * 2], 1e-10);
+                assertEquals(idx * 10.0, batch.getInputs()[i * 2 + 1], 1e-10);
+                assertEquals(idx * 100.0, batch.getTargets()[i], 1e-10);
+            }
+        }
+        assertFalse(result.hasNext());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchIterator_InputsAndTargetsLongerThanSample_Throw() {
+        System.out.println("batchIterator");
+        SamplesRepository<Double> instance = new SamplesRepository<>();
+        instance.add(FXCollections.observableArrayList(1.0, 2.0));
+        
+        instance.batchIterator(10, 2, 1);
+        
+        fail("The test case must throw");
+    }
+    
+    /**
+     * Test of getVersion method, of class SamplesRepository.
+     */
+    @Test
+    public void testGetVersion_SampleAdded_VersionChanged() {
+        System.out.println("getVersion");
+        SamplesRepository<Double> instance = new SamplesRepository<>();
+        long before = instance.getVersion();
+        
+        instance.add(FXCollections.observableArrayList(1.0, 2.0));
+        
+        assertNotEquals(before, instance.getVersion());
+    }
+    
+    @Test
+    public void testGetVersion_SampleValueChanged_VersionChanged() {
+        System.out.println("getVersion");
+        SamplesRepository<Double> instance = new SamplesRepository<>();
+        instance.add(FXCollections.observableArrayList(1.0, 2.0));
+        long before = instance.getVersion();
+        
+        instance.getSample(0).set(1, 5.0);
+        
+        assertNotEquals(before, instance.getVersion());
+    }
+    
+    @Test
+    public void testGetVersion_NoChanges_VersionNotChanged() {
+        System.out.println("getVersion");
+        SamplesRepository<Double> instance = new SamplesRepository<>();
+        instance.add(FXCollections.observableArrayList(1.0, 2.0));
+        long before = instance.getVersion();
+        
+        instance.getSample(0).get(1);
+        instance.getHeader();
+        
+        assertEquals(before, instance.getVersion());
+    }
 }
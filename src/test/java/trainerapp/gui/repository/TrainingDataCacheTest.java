@@ -0,0 +1,133 @@
+package trainerapp.gui.repository;
+
+import javafx.collections.FXCollections;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for TrainingDataCache class
+ * @author Konstantin Zhdanov
+ */
+public class TrainingDataCacheTest {
+
+    private static final double DELTA = 1e-10;
+
+    public TrainingDataCacheTest() {
+    }
+
+    private static PrimitiveSamplesRepository createRepository() {
+        PrimitiveSamplesRepository repo = new PrimitiveSamplesRepository();
+        repo.addAll(new double[] {1, 2, 3, 4, 5, 6}, 0, 2, 3);
+        return repo;
+    }
+
+    /**
+     * Test of get method, of class TrainingDataCache.
+     */
+    @Test
+    public void testGet_Called_SamplesSplitIntoInputsAndTargets() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+
+        TrainingDataCache.TrainingData result = instance.get(createRepository(), 2, 1);
+
+        assertArrayEquals(new double[] {1, 2}, result.getInputs()[0], DELTA);
+        assertArrayEquals(new double[] {4, 5}, result.getInputs()[1], DELTA);
+        assertArrayEquals(new double[] {3}, result.getTargets()[0], DELTA);
+        assertArrayEquals(new double[] {6}, result.getTargets()[1], DELTA);
+    }
+
+    @Test
+    public void testGet_RepositoryNotChanged_ReturnSameMatrices() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+        PrimitiveSamplesRepository repo = createRepository();
+        TrainingDataCache.TrainingData first = instance.get(repo, 2, 1);
+
+        TrainingDataCache.TrainingData result = instance.get(repo, 2, 1);
+
+        assertSame(first.getInputs(), result.getInputs());
+        assertSame(first.getTargets(), result.getTargets());
+    }
+
+    @Test
+    public void testGet_CacheFull_LeastRecentlyUsedDropped() {
+        System.out.println("get");
+        // room for the matrices of two repositories
+        TrainingDataCache instance = new TrainingDataCache(12);
+        PrimitiveSamplesRepository first = createRepository();
+        PrimitiveSamplesRepository second = createRepository();
+        TrainingDataCache.TrainingData firstData = instance.get(first, 2, 1);
+        TrainingDataCache.TrainingData secondData = instance.get(second, 2, 1);
+        instance.get(first, 2, 1);
+
+        instance.get(createRepository(), 2, 1);
+
+        assertSame(firstData.getInputs(), instance.get(first, 2, 1).getInputs());
+        assertNotSame(secondData.getInputs(), instance.get(second, 2, 1).getInputs());
+    }
+
+    @Test
+    public void testGet_MatricesLargerThanCache_NotCached() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache(5);
+        PrimitiveSamplesRepository repo = createRepository();
+        TrainingDataCache.TrainingData first = instance.get(repo, 2, 1);
+
+        TrainingDataCache.TrainingData result = instance.get(repo, 2, 1);
+
+        assertNotSame(first.getInputs(), result.getInputs());
+        assertArrayEquals(first.getInputs()[1], result.getInputs()[1], DELTA);
+    }
+
+    @Test
+    public void testGet_SampleValueChanged_ReturnNewMatrices() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+        PrimitiveSamplesRepository repo = createRepository();
+        TrainingDataCache.TrainingData first = instance.get(repo, 2, 1);
+        repo.getSample(1).set(0, 10.0);
+
+        TrainingDataCache.TrainingData result = instance.get(repo, 2, 1);
+
+        assertNotSame(first.getInputs(), result.getInputs());
+        assertEquals(10.0, result.getInputs()[1][0], DELTA);
+    }
+
+    @Test
+    public void testGet_SampleAdded_ReturnNewMatrices() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+        SamplesRepository<Double> repo = new SamplesRepository<>();
+        repo.add(FXCollections.observableArrayList(1.0, 2.0));
+        instance.get(repo, 1, 1);
+        repo.add(FXCollections.observableArrayList(3.0, 4.0));
+
+        TrainingDataCache.TrainingData result = instance.get(repo, 1, 1);
+
+        assertEquals(2, result.getInputs().length);
+        assertEquals(4.0, result.getTargets()[1][0], DELTA);
+    }
+
+    @Test
+    public void testGet_OtherSplit_ReturnNewMatrices() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+        PrimitiveSamplesRepository repo = createRepository();
+        instance.get(repo, 2, 1);
+
+        TrainingDataCache.TrainingData result = instance.get(repo, 1, 2);
+
+        assertArrayEquals(new double[] {2, 3}, result.getTargets()[0], DELTA);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testGet_NullRepository_Throw() {
+        System.out.println("get");
+        TrainingDataCache instance = new TrainingDataCache();
+
+        instance.get(null, 1, 1);
+
+        fail("The test case must throw");
+    }
+}
@@ -0,0 +1,17 @@
+package trainerapp.gui.testutil;
+
+import neuralnetwork.activation.ActivationFunction;
+
+/**
+ * Activation functions other than the default one of the library, for
+ * checking that the activation function of a network is kept.
+ * @author Konstantin Zhdanov
+ */
+public enum TestActivation implements ActivationFunction {
+    TANH {
+        @Override
+        public double apply(double x) {
+            return Math.tanh(x);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package trainerapp.gui.util;
+
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.testutil.TestActivation;
+import static trainerapp.gui.testutil.TestUtils.DELTA;
+
+/**
+ * Test cases for BatchNeuralNetworkEvaluator class
+ * @author Konstantin Zhdanov
+ */
+public class BatchNeuralNetworkEvaluatorTest {
+
+    private final Random random = new Random(11);
+
+    public BatchNeuralNetworkEvaluatorTest() {
+    }
+
+    private FlatNeuralNetwork randomNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        return randomNetwork(new FlatNeuralNetwork(nInputs, hiddenSizes, nOutputs));
+    }
+
+    private FlatNeuralNetwork randomNetwork(FlatNeuralNetwork network) {
+        for (int layer = 0; layer < network.getNumberLayers(); layer++) {
+            double[] weights = network.getWeights(layer);
+            for (int idx = 0; idx < weights.length; idx++) {
+                weights[idx] = random.nextGaussian();
+            }
+            double[] biases = network.getBiases(layer);
+            for (int idx = 0; idx < biases.length; idx++) {
+                biases[idx] = random.nextGaussian();
+            }
+        }
+        return network;
+    }
+
+    private double[][] randomInputs(int nRows, int nInputs) {
+        double[][] inputs = new double[nRows][nInputs];
+        for (double[] row : inputs) {
+            for (int idx = 0; idx < nInputs; idx++) {
+                row[idx] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Test of evaluate method, of class BatchNeuralNetworkEvaluator.
+     */
+    @Test
+    public void testEvaluate_RowsNotMultipleOfBlock_SameAsOneByOne() {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(5, new int[] {7, 3}, 2);
+        double[][] inputs = randomInputs(70, 5);
+        BatchNeuralNetworkEvaluator instance = new BatchNeuralNetworkEvaluator(network, 16);
+
+        double[][] result = instance.evaluate(inputs);
+
+        assertEquals(inputs.length, result.length);
+        for (int row = 0; row < inputs.length; row++) {
+            assertArrayEquals(network.getOutput(inputs[row]), result[row], DELTA);
+        }
+    }
+
+    @Test
+    public void testEvaluate_NonDefaultActivation_SameAsOneByOne() {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(new FlatNeuralNetwork(3, new int[] {4}, 2,
+                TestActivation.TANH));
+        double[][] inputs = randomInputs(10, 3);
+        BatchNeuralNetworkEvaluator instance = new BatchNeuralNetworkEvaluator(network, 4);
+
+        double[][] result = instance.evaluate(inputs);
+
+        for (int row = 0; row < inputs.length; row++) {
+            assertArrayEquals(network.getOutput(inputs[row]), result[row], DELTA);
+        }
+    }
+
+    @Test
+    public void testEvaluate_FlatArrays_OnlyRequestedRowsWritten() {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(2, new int[] {4}, 3);
+        double[][] inputs = randomInputs(3, 2);
+        double[] flatInputs = new double[3 * 2];
+        for (int row = 0; row < 3; row++) {
+            System.arraycopy(inputs[row], 0, flatInputs, row * 2, 2);
+        }
+        double[] outputs = new double[3 * 3];
+        outputs[8] = 42.0;
+        BatchNeuralNetworkEvaluator instance = new BatchNeuralNetworkEvaluator(network, 2);
+
+        instance.evaluate(flatInputs, 2, outputs);
+
+        for (int row = 0; row < 2; row++) {
+            double[] expected = network.getOutput(inputs[row]);
+            for (int idx = 0; idx < 3; idx++) {
+                assertEquals(expected[idx], outputs[row * 3 + idx], DELTA);
+            }
+        }
+        assertEquals(42.0, outputs[8], 0.0);
+    }
+
+    @Test
+    public void testEvaluate_OutputsTooShort_ThrowsIllegalArgumentException() {
+        System.out.println("evaluate");
+        BatchNeuralNetworkEvaluator instance = new BatchNeuralNetworkEvaluator(
+                randomNetwork(2, new int[] {4}, 3), 8);
+        try {
+            instance.evaluate(new double[4], 2, new double[5]);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testEvaluate_WrongRowSize_ThrowsIllegalArgumentException() {
+        System.out.println("evaluate");
+        BatchNeuralNetworkEvaluator instance = new BatchNeuralNetworkEvaluator(
+                randomNetwork(2, new int[] {4}, 3), 8);
+        try {
+            instance.evaluate(new double[][] {{1.0, 2.0}, {1.0}});
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
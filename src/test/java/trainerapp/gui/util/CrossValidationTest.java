@@ -0,0 +1,199 @@
+package trainerapp.gui.util;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for CrossValidation class
+ * @author Konstantin Zhdanov
+ */
+public class CrossValidationTest {
+
+    private static final double DELTA = 1e-10;
+
+    private static final int N_EPOCHS = 10;
+
+    private TrainingScheduler scheduler;
+
+    public CrossValidationTest() {
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    // inputs equal to the indices of the samples
+    private static double[][] createInputs(int nSamples) {
+        double[][] inputs = new double[nSamples][];
+        for (int i = 0; i < nSamples; i++) {
+            inputs[i] = new double[] {i};
+        }
+        return inputs;
+    }
+
+    // targets greater than the inputs by 1 for the even samples and 3 for the odd ones
+    private static double[][] createTargets(int nSamples) {
+        double[][] targets = new double[nSamples][];
+        for (int i = 0; i < nSamples; i++) {
+            targets[i] = new double[] {i + (i % 2 == 0 ? 1 : 3)};
+        }
+        return targets;
+    }
+
+    // evaluator outputting the inputs
+    private static double[][] identity(double[][] inputs) {
+        return inputs;
+    }
+
+    // trainer returning the given network as the trained one
+    private static NeuralNetworkTrainer createTrainer(boolean fail) {
+        NeuralNetworkTrainer trainer = mock(NeuralNetworkTrainer.class);
+        NeuralNetwork[] trained = new NeuralNetwork[1];
+        doAnswer((invocation) -> {
+            if (fail) {
+                throw new IllegalStateException("Training failed");
+            }
+            trained[0] = (NeuralNetwork)invocation.getArguments()[0];
+            return null;
+        }).when(trainer).startTrain(any(NeuralNetwork.class), any(double[][].class),
+                any(double[][].class));
+        when(trainer.getTrainedNetwork()).thenAnswer((invocation) -> trained[0]);
+        return trainer;
+    }
+
+    private CrossValidation createCrossValidation(int nSamples, int nFolds,
+            boolean fail) {
+        scheduler = new TrainingScheduler(2, Runnable::run);
+        NeuralNetwork network = new NeuralNetwork(1, new int[] {2}, 1);
+        // the evaluated network outputs its input
+        CrossValidation instance = new CrossValidation(createInputs(nSamples),
+                createTargets(nSamples), network, nFolds, N_EPOCHS, scheduler,
+                () -> createTrainer(fail), (nn) -> CrossValidationTest::identity);
+        instance.setRandom(new Random(1));
+        return instance;
+    }
+
+    /**
+     * Test of constructor, of class CrossValidation.
+     */
+    @Test
+    public void testConstructor_MoreFoldsThanSamples_ThrowsIllegalArgumentException() {
+        System.out.println("CrossValidation");
+        try {
+            createCrossValidation(3, 4, false);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_DifferentNumbersOfInputsAndTargets_ThrowsIllegalArgumentException() {
+        System.out.println("CrossValidation");
+        scheduler = new TrainingScheduler(1, Runnable::run);
+        try {
+            new CrossValidation(createInputs(4), createTargets(3),
+                    new NeuralNetwork(1, new int[] {2}, 1), 2, N_EPOCHS, 0.01, scheduler);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of run method, of class CrossValidation.
+     */
+    @Test
+    public void testRun_FourFolds_ResultOfEveryFold() throws InterruptedException {
+        System.out.println("run");
+        CrossValidation instance = createCrossValidation(8, 4, false);
+
+        CrossValidationResult result = instance.run((progress) -> {});
+
+        assertEquals(4, result.getFoldCount());
+        for (int fold = 0; fold < result.getFoldCount(); fold++) {
+            // errors are 1 and 9
+            double mean = result.getFoldMean(fold);
+            assertTrue(mean >= 1 && mean <= 9);
+        }
+        // every sample is held out exactly once
+        double sum = 0;
+        for (int fold = 0; fold < result.getFoldCount(); fold++) {
+            sum += result.getFoldMean(fold) * 2;
+        }
+        assertEquals(4 * 1 + 4 * 9, sum, DELTA);
+        assertTrue(result.getWallTimeNanos() > 0);
+    }
+
+    @Test
+    public void testRun_EqualErrorsInFold_ZeroFoldVariance() throws InterruptedException {
+        System.out.println("run");
+        scheduler = new TrainingScheduler(2, Runnable::run);
+        double[][] inputs = {{0}, {1}, {2}, {3}};
+        double[][] targets = {{2}, {3}, {4}, {5}};
+        CrossValidation instance = new CrossValidation(inputs, targets,
+                new NeuralNetwork(1, new int[] {2}, 1), 2, N_EPOCHS, scheduler,
+                () -> createTrainer(false), (nn) -> CrossValidationTest::identity);
+
+        CrossValidationResult result = instance.run((progress) -> {});
+
+        for (int fold = 0; fold < result.getFoldCount(); fold++) {
+            assertEquals(4, result.getFoldMean(fold), DELTA);
+            assertEquals(0, result.getFoldVariance(fold), DELTA);
+        }
+        assertEquals(4, result.getMean(), DELTA);
+        assertEquals(0, result.getVariance(), DELTA);
+    }
+
+    @Test
+    public void testRun_Finished_ProgressReachesOne() throws InterruptedException {
+        System.out.println("run");
+        CrossValidation instance = createCrossValidation(8, 2, false);
+        double[] lastProgress = new double[1];
+
+        instance.run((progress) -> lastProgress[0] = progress);
+
+        assertEquals(1.0, lastProgress[0], DELTA);
+    }
+
+    @Test
+    public void testRun_TrainingFailed_ThrowsIllegalStateException()
+            throws InterruptedException {
+        System.out.println("run");
+        CrossValidation instance = createCrossValidation(8, 2, true);
+        try {
+            instance.run((progress) -> {});
+            fail("The test case must throw");
+        }
+        catch (IllegalStateException e) {
+        }
+    }
+
+    /**
+     * Test of cancel method, of class CrossValidation.
+     */
+    @Test
+    public void testCancel_BeforeRun_RunThrowsCancellationException()
+            throws InterruptedException {
+        System.out.println("cancel");
+        CrossValidation instance = createCrossValidation(8, 2, false);
+
+        instance.cancel();
+        try {
+            instance.run((progress) -> {});
+            fail("The test case must throw");
+        }
+        catch (CancellationException e) {
+        }
+    }
+}
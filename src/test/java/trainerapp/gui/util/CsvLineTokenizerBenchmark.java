@@ -0,0 +1,78 @@
+package trainerapp.gui.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import javafx.collections.ObservableList;
+
+/**
+ * Benchmark comparing the parse throughput of CsvSamplesParser, which splits
+ * and trims strings and calls Double.parseDouble, with CsvLineTokenizer.
+ * Run it as a Java application, the throughput is printed in MB/s.
+ * @author Konstantin Zhdanov
+ */
+public class CsvLineTokenizerBenchmark {
+
+    private static final int N_LINES = 200000;
+
+    private static final int N_COLUMNS = 10;
+
+    private static final int N_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        String[] lines = createLines();
+        byte[] data = String.join("\n", lines).getBytes(StandardCharsets.US_ASCII);
+        double megabytes = data.length / (1024.0 * 1024.0);
+        System.out.printf(Locale.ROOT, "%d lines, %.1f MB%n", N_LINES, megabytes);
+
+        CsvSamplesParser parser = new CsvSamplesParser();
+        CsvLineTokenizer tokenizer = new CsvLineTokenizer();
+        double[] values = new double[N_COLUMNS];
+        for (int round = 0; round < N_ROUNDS; round++) {
+            long start = System.nanoTime();
+            double parserSum = 0;
+            for (String line : lines) {
+                ObservableList<Double> sample = parser.parseLine(line);
+                parserSum += sample.get(0);
+            }
+            double parserSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            double tokenizerSum = 0;
+            int lineStart = 0;
+            for (int i = 0; i <= data.length; i++) {
+                if (i == data.length || data[i] == '\n') {
+                    tokenizer.parseLine(data, lineStart, i, values, 0, N_COLUMNS);
+                    tokenizerSum += values[0];
+                    lineStart = i + 1;
+                }
+            }
+            double tokenizerSeconds = (System.nanoTime() - start) / 1e9;
+
+            if (parserSum != tokenizerSum) {
+                throw new IllegalStateException("Results differ");
+            }
+            System.out.printf(Locale.ROOT,
+                    "round %d: split/parseDouble %.1f MB/s, tokenizer %.1f MB/s%n",
+                    round + 1, megabytes / parserSeconds, megabytes / tokenizerSeconds);
+        }
+    }
+
+    private static String[] createLines() {
+        Random random = new Random(1);
+        String[] lines = new String[N_LINES];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < N_LINES; i++) {
+            builder.setLength(0);
+            for (int j = 0; j < N_COLUMNS; j++) {
+                if (j > 0) {
+                    builder.append(',');
+                }
+                builder.append(String.format(Locale.ROOT, "%.6f",
+                        random.nextGaussian() * 100));
+            }
+            lines[i] = builder.toString();
+        }
+        return lines;
+    }
+}
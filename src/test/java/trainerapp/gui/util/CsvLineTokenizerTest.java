@@ -0,0 +1,155 @@
+package trainerapp.gui.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import javafx.collections.ObservableList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for CsvLineTokenizer class
+ * @author Konstantin Zhdanov
+ */
+public class CsvLineTokenizerTest {
+
+    private static final String[] NUMBERS = {
+        "0", "-0", "+0", "0.0", "-0.0", "00012", "1.", ".5", "-.5", "1e5",
+        "1E-5", "1e+5", "2.5e-3", "123456789012345", "1234567890123456",
+        "12345678901234567890", "0.1", "0.2", "0.3", "0.7", "1.1", "3.14159",
+        "-2.718281828459045", "9007199254740993", "1e22", "1e23", "1e-22",
+        "1e-23", "4.9e-324", "2.2250738585072014E-308", "1.7976931348623157e308",
+        "1e309", "1e-400", "0e999999", "0.000000000000000000000000000001",
+        "100000000000000000000000", " 1.5 ", "\t-7\t", "NaN", "-Infinity",
+        "Infinity", "0x1p3", "1.5d", "2f", "10.50", "000.000100"
+    };
+
+    private static final String[] NOT_NUMBERS = {
+        "", " ", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "1,5", "abc",
+        "1_000", "--1", "+-1", "1 2", "0x"
+    };
+
+    public CsvLineTokenizerTest() {
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void assertParsedExactly(CsvLineTokenizer instance, String str) {
+        byte[] buf = bytes("#" + str + "#");
+        double expected = Double.parseDouble(str);
+
+        double result = instance.parseDouble(buf, 1, buf.length - 1);
+
+        assertEquals(str, Double.doubleToRawLongBits(expected),
+                Double.doubleToRawLongBits(result));
+    }
+
+    /**
+     * Test of parseDouble method, of class CsvLineTokenizer.
+     */
+    @Test
+    public void testParseDouble_EdgeCases_SameAsDoubleParseDouble() {
+        System.out.println("parseDouble");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+
+        for (String str : NUMBERS) {
+            assertParsedExactly(instance, str);
+        }
+    }
+
+    @Test
+    public void testParseDouble_RandomNumbers_SameAsDoubleParseDouble() {
+        System.out.println("parseDouble");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            // shortest representation of an arbitrary double
+            double value = Double.longBitsToDouble(random.nextLong());
+            assertParsedExactly(instance, Double.toString(value));
+            // decimal numbers as typically written in CSV files
+            int precision = random.nextInt(18);
+            double magnitude = Math.pow(10, random.nextInt(20) - 10);
+            assertParsedExactly(instance, String.format(Locale.ROOT, "%." + precision + "f",
+                    (random.nextDouble() - 0.5) * magnitude));
+            assertParsedExactly(instance, String.format(Locale.ROOT, "%." + precision + "e",
+                    random.nextGaussian() * magnitude));
+        }
+    }
+
+    @Test
+    public void testParseDouble_NotNumbers_Throw() {
+        System.out.println("parseDouble");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+
+        for (String str : NOT_NUMBERS) {
+            byte[] buf = bytes(str);
+            try {
+                instance.parseDouble(buf, 0, buf.length);
+                fail("The test case must throw: " + str);
+            }
+            catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test of parseLine method, of class CsvLineTokenizer.
+     */
+    @Test
+    public void testParseLine_VariousLines_SameAsCsvSamplesParser() {
+        System.out.println("parseLine");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+        CsvSamplesParser parser = new CsvSamplesParser();
+        String[] lines = {
+            "1,2,3", " 1.5, -2,3e2 ", "1,2,,", "1,,3", ",", ",,", "", " ",
+            "7", "1.5,abc,3", ",1", "1,2, ", "NaN,Infinity", "x,y,z"
+        };
+
+        for (String line : lines) {
+            ObservableList<Double> expected = parser.parseLine(line);
+            byte[] buf = bytes(line);
+            double[] dest = new double[10];
+
+            int result = instance.parseLine(buf, 0, buf.length, dest, 0, 10);
+
+            if (expected == null) {
+                assertEquals(line, -1, result);
+            }
+            else {
+                assertEquals(line, expected.size(), result);
+                for (int i = 0; i < result; i++) {
+                    assertEquals(line, expected.get(i), dest[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseLine_PartOfBuffer_WrittenAtPosition() {
+        System.out.println("parseLine");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+        byte[] buf = bytes("9,9\n1.5,2.5\n9");
+        double[] dest = new double[4];
+
+        int result = instance.parseLine(buf, 4, 11, dest, 1, 2);
+
+        assertEquals(2, result);
+        assertArrayEquals(new double[] {0, 1.5, 2.5, 0}, dest, 0.0);
+    }
+
+    @Test
+    public void testParseLine_MoreValuesThanMax_ReturnMaxPlusOne() {
+        System.out.println("parseLine");
+        CsvLineTokenizer instance = new CsvLineTokenizer();
+        byte[] buf = bytes("1,2,3,4");
+        double[] dest = new double[2];
+
+        int result = instance.parseLine(buf, 0, buf.length, dest, 0, 2);
+
+        assertEquals(3, result);
+    }
+}
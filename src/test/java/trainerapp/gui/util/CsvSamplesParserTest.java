@@ -0,0 +1,98 @@
+package trainerapp.gui.util;
+
+import java.util.Arrays;
+import javafx.collections.ObservableList;
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for CsvSamplesParser class
+ * @author Konstantin Zhdanov
+ */
+public class CsvSamplesParserTest {
+
+    public CsvSamplesParserTest() {
+    }
+
+    /**
+     * Test of parseLine method, of class CsvSamplesParser.
+     */
+    @Test
+    public void testParseLine_NumericLine_ReturnValues() {
+        System.out.println("parseLine");
+        CsvSamplesParser instance = new CsvSamplesParser();
+
+        ObservableList<Double> result = instance.parseLine(" 1.5, -2,3e2 ");
+
+        assertThat(result, CoreMatchers.is(Arrays.asList(1.5, -2.0, 300.0)));
+    }
+
+    @Test
+    public void testParseLine_NonNumericValue_ReturnNull() {
+        System.out.println("parseLine");
+        CsvSamplesParser instance = new CsvSamplesParser();
+
+        ObservableList<Double> result = instance.parseLine("1.5,abc,3");
+
+        assertNull(result);
+    }
+
+    @Test
+    public void testParseLine_EmptyValueInMiddle_ReturnNull() {
+        System.out.println("parseLine");
+        CsvSamplesParser instance = new CsvSamplesParser();
+
+        ObservableList<Double> result = instance.parseLine("1.5,,3");
+
+        assertNull(result);
+    }
+
+    @Test
+    public void testParseLine_TrailingDelimeters_TrailingValuesIgnored() {
+        System.out.println("parseLine");
+        CsvSamplesParser instance = new CsvSamplesParser();
+
+        ObservableList<Double> result = instance.parseLine("1,2,,");
+
+        assertThat(result, CoreMatchers.is(Arrays.asList(1.0, 2.0)));
+    }
+
+    @Test
+    public void testParseLine_EmptyLine_ReturnNull() {
+        System.out.println("parseLine");
+        CsvSamplesParser instance = new CsvSamplesParser();
+
+        ObservableList<Double> result = instance.parseLine("");
+
+        assertNull(result);
+    }
+
+    /**
+     * Test of extractHeaderTitles method, of class CsvSamplesParser.
+     */
+    @Test
+    public void testExtractHeaderTitles_Called_ReturnTrimmedTitles() {
+        System.out.println("extractHeaderTitles");
+        CsvSamplesParser instance = new CsvSamplesParser();
+        String[] expected = {"Age", "Height", "Weight"};
+
+        String[] result = instance.extractHeaderTitles("Age , Height,Weight ");
+
+        assertArrayEquals(expected, result);
+    }
+
+    /**
+     * Test of createDefaultHeaderTitles method, of class CsvSamplesParser.
+     */
+    @Test
+    public void testCreateDefaultHeaderTitles_Called_ReturnVarTitles() {
+        System.out.println("createDefaultHeaderTitles");
+        CsvSamplesParser instance = new CsvSamplesParser();
+        String[] expected = {"Var 1", "Var 2", "Var 3"};
+
+        String[] result = instance.createDefaultHeaderTitles(3);
+
+        assertArrayEquals(expected, result);
+    }
+}
@@ -0,0 +1,147 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for CsvScoring class
+ * @author Konstantin Zhdanov
+ */
+public class CsvScoringTest {
+
+    private static final double DELTA = 1e-10;
+
+    private final File input = new File("./scoring-input.csv");
+
+    private final File output = new File("./scoring-output.csv");
+
+    private FlatNeuralNetwork network;
+
+    public CsvScoringTest() {
+    }
+
+    @Before
+    public void setUp() {
+        network = new FlatNeuralNetwork(2, new int[] {3}, 1);
+        network.setWeight(0, 0, 0, 1.0);
+        network.setWeight(0, 1, 1, -1.0);
+        network.setWeight(0, 0, 2, 0.5);
+        network.setWeight(1, 0, 0, 2.0);
+        network.setWeight(1, 2, 0, -1.0);
+        network.setBias(1, 0, 0.1);
+    }
+
+    @After
+    public void cleanUp() {
+        input.delete();
+        output.delete();
+    }
+
+    private void assertScoredLine(double in1, double in2, String line) {
+        String[] values = line.split(",");
+        assertEquals(3, values.length);
+        assertEquals(in1, Double.parseDouble(values[0]), 0.0);
+        assertEquals(in2, Double.parseDouble(values[1]), 0.0);
+        assertEquals(network.getOutput(new double[] {in1, in2})[0],
+                Double.parseDouble(values[2]), DELTA);
+    }
+
+    /**
+     * Test of run method, of class CsvScoring.
+     */
+    @Test
+    public void testRun_HeaderAndTargets_InputsAndOutputsWritten() throws IOException {
+        System.out.println("run");
+        Files.write(input.toPath(), "x, y, target\r\n0.5,0.25,1\r\n-1,2,0\r\n".getBytes());
+        CsvScoring instance = new CsvScoring(network.toNeuralNetwork(), input, output);
+
+        long result = instance.run((progress) -> {});
+
+        assertEquals(2, result);
+        assertEquals(0, instance.getSkippedRowCount());
+        List<String> lines = Files.readAllLines(output.toPath());
+        assertEquals(3, lines.size());
+        assertEquals("x,y,Output 1", lines.get(0));
+        assertScoredLine(0.5, 0.25, lines.get(1));
+        assertScoredLine(-1, 2, lines.get(2));
+    }
+
+    @Test
+    public void testRun_NoHeaderAndWrongRows_WrongRowsSkipped() throws IOException {
+        System.out.println("run");
+        Files.write(input.toPath(), "1,2\n3\nfoo,4\n5,6".getBytes());
+        CsvScoring instance = new CsvScoring(network.toNeuralNetwork(), input, output);
+
+        long result = instance.run((progress) -> {});
+
+        assertEquals(2, result);
+        assertEquals(2, instance.getSkippedRowCount());
+        List<String> lines = Files.readAllLines(output.toPath());
+        assertEquals(3, lines.size());
+        assertEquals("Var 1,Var 2,Output 1", lines.get(0));
+        assertScoredLine(1, 2, lines.get(1));
+        assertScoredLine(5, 6, lines.get(2));
+    }
+
+    @Test
+    public void testRun_ManyChunks_RowsWrittenInOrder() throws IOException {
+        System.out.println("run");
+        final int nRows = 200000;
+        StringBuilder text = new StringBuilder("a,b\n");
+        for (int row = 0; row < nRows; row++) {
+            text.append(row).append(',').append(row % 7 * 0.125).append('\n');
+        }
+        Files.write(input.toPath(), text.toString().getBytes());
+        CsvScoring instance = new CsvScoring(network.toNeuralNetwork(), input, output);
+        double[] lastProgress = {0};
+
+        long result = instance.run((progress) -> lastProgress[0] = progress);
+
+        assertEquals(nRows, result);
+        assertEquals(1.0, lastProgress[0], 0.0);
+        List<String> lines = Files.readAllLines(output.toPath());
+        assertEquals(nRows + 1, lines.size());
+        for (int row = 0; row < nRows; row += 997) {
+            assertScoredLine(row, row % 7 * 0.125, lines.get(row + 1));
+        }
+    }
+
+    @Test
+    public void testRun_Canceled_ThrowsAndOutputUnchanged() throws IOException {
+        System.out.println("run");
+        Files.write(input.toPath(), "1,2\n".getBytes());
+        Files.write(output.toPath(), "old".getBytes());
+        CsvScoring instance = new CsvScoring(network.toNeuralNetwork(), input, output);
+        instance.cancel();
+        try {
+            instance.run((progress) -> {});
+            fail("The test case must throw");
+        }
+        catch (CancellationException e) {
+        }
+        assertEquals("old", new String(Files.readAllBytes(output.toPath())));
+        assertFalse(new File(output.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * Test of constructor, of class CsvScoring.
+     */
+    @Test
+    public void testConstructor_SameFiles_ThrowsIllegalArgumentException() {
+        System.out.println("CsvScoring");
+        try {
+            new CsvScoring(network.toNeuralNetwork(), input, new File("scoring-input.csv"));
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package trainerapp.gui.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import neuralnetwork.NeuralNetwork;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for EarlyStopping class
+ * @author Konstantin Zhdanov
+ */
+public class EarlyStoppingTest {
+
+    private static final double DELTA = 1e-10;
+
+    private final double[][] validationInputs = {{0.0}, {1.0}};
+
+    private final double[][] validationTargets = {{0.0}, {0.0}};
+
+    public EarlyStoppingTest() {
+    }
+
+    // validated on the calling thread, the output of a network is its bias
+    private EarlyStopping createEarlyStopping(int patience) {
+        return new EarlyStopping(validationInputs, validationTargets, 10, patience,
+                Runnable::run,
+                (network) -> (input) -> new double[] {network.getBias(0, 0)});
+    }
+
+    private static NeuralNetwork network(double output) {
+        NeuralNetwork network = new NeuralNetwork(1, new int[] {1}, 1);
+        network.setBias(0, 0, output);
+        return network;
+    }
+
+    /**
+     * Test of constructor, of class EarlyStopping.
+     */
+    @Test
+    public void testConstructor_NoValidationSamples_ThrowsIllegalArgumentException() {
+        System.out.println("EarlyStopping");
+        try {
+            new EarlyStopping(new double[0][], new double[0][], 10, 2);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_ZeroPatience_ThrowsIllegalArgumentException() {
+        System.out.println("EarlyStopping");
+        try {
+            new EarlyStopping(validationInputs, validationTargets, 10, 0);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConstructor_ZeroCheckPeriod_ThrowsIllegalArgumentException() {
+        System.out.println("EarlyStopping");
+        try {
+            new EarlyStopping(validationInputs, validationTargets, 0, 2);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of validate method, of class EarlyStopping.
+     */
+    @Test
+    public void testValidate_ErrorImproved_BestNetworkKept() throws InterruptedException {
+        System.out.println("validate");
+        EarlyStopping instance = createEarlyStopping(2);
+        NeuralNetwork best = network(1.0);
+
+        instance.validate(10, network(2.0));
+        instance.validate(20, best);
+        instance.validate(30, network(3.0));
+
+        assertSame(best, instance.getBestNetwork());
+        assertEquals(20, instance.getBestEpoch());
+        assertEquals(1.0, instance.getBestValidationError(), DELTA);
+    }
+
+    @Test
+    public void testValidate_PreviousValidationPending_WaitsForIt() throws InterruptedException {
+        System.out.println("validate");
+        List<Runnable> submitted = new CopyOnWriteArrayList<>();
+        EarlyStopping instance = new EarlyStopping(validationInputs, validationTargets,
+                10, 2, submitted::add,
+                (network) -> (input) -> new double[] {network.getBias(0, 0)});
+        instance.validate(10, network(1.0));
+        Thread trainer = new Thread(() -> {
+            try {
+                instance.validate(20, network(2.0));
+            }
+            catch (InterruptedException e) {
+            }
+        });
+
+        trainer.start();
+        trainer.join(100);
+        assertTrue(trainer.isAlive());
+        assertEquals(1, submitted.size());
+        submitted.get(0).run();
+        trainer.join(1000);
+
+        assertFalse(trainer.isAlive());
+        assertEquals(2, submitted.size());
+    }
+
+    @Test
+    public void testValidate_NoValidations_NoBestNetwork() {
+        System.out.println("validate");
+        EarlyStopping instance = createEarlyStopping(2);
+
+        assertNull(instance.getBestNetwork());
+        assertEquals(0, instance.getBestEpoch());
+        assertEquals(Double.POSITIVE_INFINITY, instance.getBestValidationError(), DELTA);
+    }
+
+    /**
+     * Test of shouldStop method, of class EarlyStopping.
+     */
+    @Test
+    public void testShouldStop_NoImprovementForPatience_True() throws InterruptedException {
+        System.out.println("shouldStop");
+        EarlyStopping instance = createEarlyStopping(2);
+
+        instance.validate(10, network(1.0));
+        instance.validate(20, network(1.5));
+        instance.validate(30, network(1.0));
+
+        assertTrue(instance.shouldStop());
+    }
+
+    @Test
+    public void testShouldStop_ImprovementWithinPatience_False() throws InterruptedException {
+        System.out.println("shouldStop");
+        EarlyStopping instance = createEarlyStopping(2);
+
+        instance.validate(10, network(1.0));
+        instance.validate(20, network(1.5));
+        instance.validate(30, network(0.5));
+        instance.validate(40, network(0.7));
+
+        assertFalse(instance.shouldStop());
+    }
+
+    @Test
+    public void testShouldStop_NaNErrors_True() throws InterruptedException {
+        System.out.println("shouldStop");
+        EarlyStopping instance = createEarlyStopping(1);
+
+        instance.validate(10, network(1.0));
+        instance.validate(20, network(Double.NaN));
+
+        assertTrue(instance.shouldStop());
+    }
+}
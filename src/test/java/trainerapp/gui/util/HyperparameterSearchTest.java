@@ -0,0 +1,204 @@
+package trainerapp.gui.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.Listener;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import neuralnetwork.train.TrainerEvent;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for HyperparameterSearch class
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSearchTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final int N_EPOCHS = 50;
+
+    private final double[][] inputs = {{0.0}};
+
+    private final double[][] targets = {{1.0}};
+
+    private TrainingScheduler scheduler;
+
+    public HyperparameterSearchTest() {
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private static TrainerEvent event(int epoch, double performance) {
+        TrainerEvent event = mock(TrainerEvent.class);
+        when(event.getEpoch()).thenReturn(epoch);
+        when(event.getPerformance()).thenReturn(performance);
+        return event;
+    }
+
+    // trainer reporting the performance equal to the performance goal
+    // after every epoch, until it's stopped
+    private static NeuralNetworkTrainer createTrainer(HyperparameterSet params) {
+        NeuralNetworkTrainer trainer = mock(NeuralNetworkTrainer.class);
+        List<Listener> listeners = new ArrayList<>();
+        boolean[] stopped = new boolean[1];
+        NeuralNetwork[] trained = new NeuralNetwork[1];
+        doAnswer((invocation) -> {
+            listeners.add((Listener)invocation.getArguments()[0]);
+            return null;
+        }).when(trainer).registerListener(any(Listener.class));
+        doAnswer((invocation) -> {
+            stopped[0] = true;
+            return null;
+        }).when(trainer).stopTraining();
+        doAnswer((invocation) -> {
+            for (int epoch = 1; epoch <= N_EPOCHS && !stopped[0]; epoch++) {
+                TrainerEvent event = event(epoch, params.getPerformanceGoal());
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.onTrainingEpochComplete(event);
+                }
+            }
+            trained[0] = (NeuralNetwork)invocation.getArguments()[0];
+            return null;
+        }).when(trainer).startTrain(any(NeuralNetwork.class), any(double[][].class),
+                any(double[][].class));
+        when(trainer.getTrainedNetwork()).thenAnswer((invocation) -> trained[0]);
+        return trainer;
+    }
+
+    private HyperparameterSearch createSearch(double... goals) {
+        // a single worker trains the candidates in the given order
+        scheduler = new TrainingScheduler(1, Runnable::run);
+        List<HyperparameterSet> candidates = new ArrayList<>();
+        for (double goal : goals) {
+            candidates.add(new HyperparameterSet(N_EPOCHS, goal, new int[] {2}));
+        }
+        return new HyperparameterSearch(candidates, inputs, targets, scheduler,
+                HyperparameterSearchTest::createTrainer,
+                (params) -> mock(NeuralNetwork.class));
+    }
+
+    private static void awaitFinished(HyperparameterSearch search)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!search.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Test of start method, of class HyperparameterSearch.
+     */
+    @Test
+    public void testStart_ThreeCandidates_AllFinishedAndHandlerCalled()
+            throws InterruptedException {
+        System.out.println("start");
+        HyperparameterSearch instance = createSearch(0.3, 0.1, 0.2);
+        boolean[] finished = new boolean[1];
+        instance.setOnFinished(() -> finished[0] = true);
+
+        instance.start();
+        awaitFinished(instance);
+
+        assertTrue(finished[0]);
+        for (HyperparameterSearch.Candidate candidate : instance.getCandidates()) {
+            assertEquals(TrainingJob.State.COMPLETED, candidate.getJob().getState());
+            assertEquals(N_EPOCHS, candidate.getEpoch());
+        }
+    }
+
+    @Test
+    public void testStart_StoppingRuleSet_DominatedCandidateStopped()
+            throws InterruptedException {
+        System.out.println("start");
+        HyperparameterSearch instance = createSearch(0.1, 0.2, 0.3);
+        instance.setStoppingRule(new MedianStoppingRule(0, 10, 2));
+
+        instance.start();
+        awaitFinished(instance);
+
+        List<HyperparameterSearch.Candidate> candidates = instance.getCandidates();
+        assertFalse(candidates.get(0).isStoppedEarly());
+        assertFalse(candidates.get(1).isStoppedEarly());
+        assertTrue(candidates.get(2).isStoppedEarly());
+        assertEquals(10, candidates.get(2).getEpoch());
+        assertEquals(TrainingJob.State.CANCELED, candidates.get(2).getJob().getState());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStart_StartedTwice_Throw() {
+        System.out.println("start");
+        HyperparameterSearch instance = createSearch(0.1);
+        instance.start();
+
+        instance.start();
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of getRanking method, of class HyperparameterSearch.
+     */
+    @Test
+    public void testGetRanking_Finished_SortedByPerformance()
+            throws InterruptedException {
+        System.out.println("getRanking");
+        HyperparameterSearch instance = createSearch(0.3, 0.1, 0.2);
+        instance.start();
+        awaitFinished(instance);
+
+        List<HyperparameterSearch.Candidate> result = instance.getRanking();
+
+        List<Double> performances = new ArrayList<>();
+        for (HyperparameterSearch.Candidate candidate : result) {
+            performances.add(candidate.getPerformance());
+            assertNotNull(candidate.getTrainedNetwork());
+        }
+        assertEquals(Arrays.asList(0.1, 0.2, 0.3), performances);
+    }
+
+    @Test
+    public void testGetRanking_CandidateStoppedEarly_NotRanked()
+            throws InterruptedException {
+        System.out.println("getRanking");
+        HyperparameterSearch instance = createSearch(0.1, 0.2, 0.3);
+        instance.setStoppingRule(new MedianStoppingRule(0, 10, 2));
+        instance.start();
+        awaitFinished(instance);
+
+        List<HyperparameterSearch.Candidate> result = instance.getRanking();
+
+        assertEquals(2, result.size());
+        assertFalse(result.contains(instance.getCandidates().get(2)));
+    }
+
+    /**
+     * Test of isRanked method, of class HyperparameterSearch.Candidate.
+     */
+    @Test
+    public void testIsRanked_CandidateStoppedEarly_OnlyCompletedRanked()
+            throws InterruptedException {
+        System.out.println("isRanked");
+        HyperparameterSearch instance = createSearch(0.1, 0.2, 0.3);
+        instance.setStoppingRule(new MedianStoppingRule(0, 10, 2));
+        instance.start();
+        awaitFinished(instance);
+
+        List<HyperparameterSearch.Candidate> candidates = instance.getCandidates();
+
+        assertTrue(candidates.get(0).isRanked());
+        assertTrue(candidates.get(1).isRanked());
+        assertFalse(candidates.get(2).isRanked());
+    }
+}
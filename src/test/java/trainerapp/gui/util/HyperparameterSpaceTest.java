@@ -0,0 +1,88 @@
+package trainerapp.gui.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for HyperparameterSpace class
+ * @author Konstantin Zhdanov
+ */
+public class HyperparameterSpaceTest {
+
+    public HyperparameterSpaceTest() {
+    }
+
+    private static HyperparameterSpace createSpace() {
+        return new HyperparameterSpace(new int[] {100, 1000},
+                new double[] {0.1, 0.01, 0.001},
+                Arrays.asList(new int[] {5}, new int[] {5, 5}));
+    }
+
+    /**
+     * Test of grid method, of class HyperparameterSpace.
+     */
+    @Test
+    public void testGrid_ThreeHyperparameters_AllCombinations() {
+        System.out.println("grid");
+        HyperparameterSpace instance = createSpace();
+
+        List<HyperparameterSet> result = instance.grid();
+
+        assertEquals(12, result.size());
+        assertEquals(12, new HashSet<>(result).size());
+        assertTrue(result.contains(new HyperparameterSet(1000, 0.01, new int[] {5, 5})));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGrid_NegativeEpoch_Throw() {
+        System.out.println("grid");
+        HyperparameterSpace instance = new HyperparameterSpace(new int[] {-1},
+                new double[] {0.1}, Arrays.asList(new int[] {5}));
+
+        instance.grid();
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of sample method, of class HyperparameterSpace.
+     */
+    @Test
+    public void testSample_FewerThanGrid_DistinctCandidates() {
+        System.out.println("sample");
+        HyperparameterSpace instance = createSpace();
+
+        List<HyperparameterSet> result = instance.sample(5, new Random(1));
+
+        assertEquals(5, result.size());
+        assertEquals(5, new HashSet<>(result).size());
+        assertTrue(instance.grid().containsAll(result));
+    }
+
+    @Test
+    public void testSample_MoreThanGrid_WholeGrid() {
+        System.out.println("sample");
+        HyperparameterSpace instance = createSpace();
+
+        List<HyperparameterSet> result = instance.sample(100, new Random(1));
+
+        assertEquals(new HashSet<>(instance.grid()), new HashSet<>(result));
+    }
+
+    /**
+     * Test of HyperparameterSpace constructor.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NoHiddenLayers_Throw() {
+        System.out.println("HyperparameterSpace");
+
+        new HyperparameterSpace(new int[] {100}, new double[] {0.1},
+                Arrays.asList());
+
+        fail("The test case must throw");
+    }
+}
@@ -0,0 +1,289 @@
+package trainerapp.gui.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import neuralnetwork.NeuralNetwork;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.LazyNeuralNetwork;
+import static trainerapp.gui.testutil.TestUtils.DELTA;
+
+/**
+ * Test cases for InferenceServer class
+ * @author Konstantin Zhdanov
+ */
+public class InferenceServerTest {
+
+    private final Random random = new Random(19);
+
+    private InferenceServer instance;
+
+    public InferenceServerTest() {
+    }
+
+    @After
+    public void cleanUp() {
+        if (instance != null) {
+            instance.stop();
+        }
+    }
+
+    private FlatNeuralNetwork randomNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        FlatNeuralNetwork network = new FlatNeuralNetwork(nInputs, hiddenSizes, nOutputs);
+        for (int layer = 0; layer < network.getNumberLayers(); layer++) {
+            double[] weights = network.getWeights(layer);
+            for (int idx = 0; idx < weights.length; idx++) {
+                weights[idx] = random.nextGaussian();
+            }
+            double[] biases = network.getBiases(layer);
+            for (int idx = 0; idx < biases.length; idx++) {
+                biases[idx] = random.nextGaussian();
+            }
+        }
+        return network;
+    }
+
+    private InferenceServer startedServer(long maxBatchWaitMicros) throws IOException {
+        instance = new InferenceServer(0, maxBatchWaitMicros, InferenceServer.DEFAULT_MAX_BATCH_ROWS);
+        instance.start();
+        return instance;
+    }
+
+    // returns the status code and the body of the response
+    private Object[] post(String name, String body) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + instance.getPort() + "/networks/" + name);
+        HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status == 200 ? connection.getInputStream() :
+                    connection.getErrorStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int nRead;
+            while (in != null && (nRead = in.read(buf)) >= 0) {
+                response.write(buf, 0, nRead);
+            }
+            return new Object[] {status,
+                    new String(response.toByteArray(), StandardCharsets.UTF_8)};
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    private double[] parseValues(String text) {
+        String[] tokens = text.trim().split("[,\\n]");
+        double[] values = new double[tokens.length];
+        for (int idx = 0; idx < tokens.length; idx++) {
+            values[idx] = Double.parseDouble(tokens[idx]);
+        }
+        return values;
+    }
+
+    /**
+     * Test of POST /networks/name request, of class InferenceServer.
+     */
+    @Test
+    public void testPost_PublishedNetwork_OutputsOfRows() throws IOException {
+        System.out.println("POST /networks/name");
+        FlatNeuralNetwork network = randomNetwork(3, new int[] {4}, 2);
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", network.toNeuralNetwork());
+
+        Object[] response = post("net", "0.5,-1,2\n1,0.25,0\n");
+
+        assertEquals(200, response[0]);
+        double[] expected = new double[4];
+        System.arraycopy(network.getOutput(new double[] {0.5, -1, 2}), 0, expected, 0, 2);
+        System.arraycopy(network.getOutput(new double[] {1, 0.25, 0}), 0, expected, 2, 2);
+        assertArrayEquals(expected, parseValues((String)response[1]), DELTA);
+    }
+
+    @Test
+    public void testPost_UnknownNetwork_NotFound() throws IOException {
+        System.out.println("POST /networks/name");
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS);
+
+        Object[] response = post("missing", "1,2,3\n");
+
+        assertEquals(404, response[0]);
+    }
+
+    @Test
+    public void testPost_RowWithWrongNumberOfValues_BadRequest() throws IOException {
+        System.out.println("POST /networks/name");
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", randomNetwork(3, new int[] {4}, 2).toNeuralNetwork());
+
+        Object[] response = post("net", "1,2,3\n1,2\n");
+
+        assertEquals(400, response[0]);
+    }
+
+    @Test
+    public void testPost_ConcurrentRequests_BatchedTogether() throws Exception {
+        System.out.println("POST /networks/name");
+        FlatNeuralNetwork network = randomNetwork(2, new int[] {3}, 1);
+        startedServer(50000).publish("net", network.toNeuralNetwork());
+        final int nRequests = 16;
+        ExecutorService clients = Executors.newFixedThreadPool(nRequests);
+        try {
+            List<Future<Object[]>> responses = new ArrayList<>();
+            for (int idx = 0; idx < nRequests; idx++) {
+                final String row = idx + ",1\n";
+                responses.add(clients.submit((Callable<Object[]>)() -> post("net", row)));
+            }
+            for (int idx = 0; idx < nRequests; idx++) {
+                Object[] response = responses.get(idx).get();
+                assertEquals(200, response[0]);
+                assertArrayEquals(network.getOutput(new double[] {idx, 1}),
+                        parseValues((String)response[1]), DELTA);
+            }
+        }
+        finally {
+            clients.shutdownNow();
+        }
+
+        assertTrue(instance.getBatchCount() < nRequests);
+        assertEquals(nRequests, instance.getRequestLatency().getCount());
+    }
+
+    /**
+     * Test of publish method, of class InferenceServer.
+     */
+    @Test
+    public void testPublish_NetworkReplaced_NewNetworkEvaluated() throws Exception {
+        System.out.println("publish");
+        FlatNeuralNetwork first = randomNetwork(2, new int[] {3}, 1);
+        FlatNeuralNetwork second = randomNetwork(2, new int[] {5}, 1);
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", first.toNeuralNetwork());
+        double[] inputs = {0.5, -0.5};
+        assertArrayEquals(first.getOutput(inputs), instance.evaluate("net", inputs, 1), DELTA);
+
+        instance.publish("net", second.toNeuralNetwork());
+
+        assertArrayEquals(second.getOutput(inputs), instance.evaluate("net", inputs, 1), DELTA);
+    }
+
+    @Test
+    public void testPublish_LazyNetwork_LoadedOnFirstRequest() throws Exception {
+        System.out.println("publish");
+        FlatNeuralNetwork network = randomNetwork(2, new int[] {3}, 1);
+        AtomicInteger nLoads = new AtomicInteger();
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", new LazyNeuralNetwork(2, new int[] {3}, 1, "Lazy", () -> {
+                    nLoads.incrementAndGet();
+                    return network.toNeuralNetwork();
+                }));
+        assertEquals(0, nLoads.get());
+        double[] inputs = {0.5, -0.5};
+
+        assertArrayEquals(network.getOutput(inputs), instance.evaluate("net", inputs, 1), DELTA);
+        instance.evaluate("net", inputs, 1);
+
+        assertEquals(1, nLoads.get());
+    }
+
+    @Test
+    public void testPublish_NetworkChangedAfterwards_PublishedWeightsEvaluated()
+            throws Exception {
+        System.out.println("publish");
+        FlatNeuralNetwork first = randomNetwork(2, new int[] {3}, 1);
+        FlatNeuralNetwork second = randomNetwork(2, new int[] {3}, 1);
+        NeuralNetwork published = first.toNeuralNetwork();
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", published);
+        second.copyInto(published);
+        double[] inputs = {0.5, -0.5};
+
+        assertArrayEquals(first.getOutput(inputs), instance.evaluate("net", inputs, 1), DELTA);
+    }
+
+    /**
+     * Test of invalidate method, of class InferenceServer.
+     */
+    @Test
+    public void testInvalidate_NetworkChanged_ChangedNetworkEvaluated() throws Exception {
+        System.out.println("invalidate");
+        FlatNeuralNetwork first = randomNetwork(2, new int[] {3}, 1);
+        FlatNeuralNetwork second = randomNetwork(2, new int[] {3}, 1);
+        NeuralNetwork published = first.toNeuralNetwork();
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", published);
+        double[] inputs = {0.5, -0.5};
+        instance.evaluate("net", inputs, 1);
+        second.copyInto(published);
+
+        assertTrue(instance.invalidate(published));
+
+        assertArrayEquals(second.getOutput(inputs), instance.evaluate("net", inputs, 1), DELTA);
+        assertFalse(instance.invalidate(first.toNeuralNetwork()));
+    }
+
+    /**
+     * Test of unpublish method, of class InferenceServer.
+     */
+    @Test
+    public void testUnpublish_PublishedNetwork_NoLongerEvaluated() throws Exception {
+        System.out.println("unpublish");
+        startedServer(InferenceServer.DEFAULT_MAX_BATCH_WAIT_MICROS).
+                publish("net", randomNetwork(2, new int[] {3}, 1).toNeuralNetwork());
+
+        assertTrue(instance.unpublish("net"));
+
+        try {
+            instance.evaluate("net", new double[2], 1);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of parseRows method, of class InferenceServer.
+     */
+    @Test
+    public void testParseRows_EmptyBody_ThrowsIllegalArgumentException() {
+        System.out.println("parseRows");
+        try {
+            InferenceServer.parseRows("\r\n".getBytes(StandardCharsets.US_ASCII), 2);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testParseRows_CrLfLines_AllRowsParsed() {
+        System.out.println("parseRows");
+        double[] result = InferenceServer.parseRows(
+                "1,2\r\n3,4\r\n".getBytes(StandardCharsets.US_ASCII), 2);
+
+        assertArrayEquals(new double[] {1, 2, 3, 4}, result, 0.0);
+    }
+}
@@ -0,0 +1,68 @@
+package trainerapp.gui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Test cases for LatencyHistogram class
+ * @author Konstantin Zhdanov
+ */
+public class LatencyHistogramTest {
+
+    public LatencyHistogramTest() {
+    }
+
+    /**
+     * Test of bucketOf method, of class LatencyHistogram.
+     */
+    @Test
+    public void testBucketOf_AnyLatency_WithinBucketBounds() {
+        System.out.println("bucketOf");
+        for (long micros = 0; micros < 100000; micros += 1 + micros / 7) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(LatencyHistogram.lowerBoundOf(bucket) <= micros);
+            assertTrue(micros < LatencyHistogram.lowerBoundOf(bucket + 1));
+        }
+    }
+
+    /**
+     * Test of getPercentileMicros method, of class LatencyHistogram.
+     */
+    @Test
+    public void testGetPercentileMicros_NoLatencies_Zero() {
+        System.out.println("getPercentileMicros");
+        LatencyHistogram instance = new LatencyHistogram();
+
+        assertEquals(0, instance.getPercentileMicros(99));
+    }
+
+    @Test
+    public void testGetPercentileMicros_UniformLatencies_WithinQuarter() {
+        System.out.println("getPercentileMicros");
+        LatencyHistogram instance = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            instance.record(micros * 1000L);
+        }
+
+        long median = instance.getPercentileMicros(50);
+        long p99 = instance.getPercentileMicros(99);
+
+        assertEquals(1000, instance.getCount());
+        assertTrue(median >= 500 && median <= 500 * 1.25);
+        assertTrue(p99 >= 990 && p99 <= 990 * 1.25);
+    }
+
+    @Test
+    public void testGetPercentileMicros_PercentileAbove100_ThrowsIllegalArgumentException() {
+        System.out.println("getPercentileMicros");
+        LatencyHistogram instance = new LatencyHistogram();
+        try {
+            instance.getPercentileMicros(100.5);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
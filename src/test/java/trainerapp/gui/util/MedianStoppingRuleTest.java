@@ -0,0 +1,97 @@
+package trainerapp.gui.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for MedianStoppingRule class
+ * @author Konstantin Zhdanov
+ */
+public class MedianStoppingRuleTest {
+
+    public MedianStoppingRuleTest() {
+    }
+
+    /**
+     * Test of shouldStop method, of class MedianStoppingRule.
+     */
+    @Test
+    public void testShouldStop_WorseThanMedian_ReturnTrue() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(0, 10, 2);
+        instance.shouldStop(10, 0.1);
+        instance.shouldStop(10, 0.3);
+
+        boolean result = instance.shouldStop(10, 0.25);
+
+        assertTrue(result);
+    }
+
+    @Test
+    public void testShouldStop_BetterThanMedian_ReturnFalse() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(0, 10, 2);
+        instance.shouldStop(10, 0.1);
+        instance.shouldStop(10, 0.3);
+
+        boolean result = instance.shouldStop(10, 0.15);
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testShouldStop_TooFewReported_ReturnFalse() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(0, 10, 2);
+        instance.shouldStop(10, 0.1);
+
+        boolean result = instance.shouldStop(10, 100.0);
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testShouldStop_InGracePeriod_ReturnFalse() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(20, 10, 1);
+        instance.shouldStop(10, 0.1);
+
+        boolean result = instance.shouldStop(10, 100.0);
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testShouldStop_NotCheckEpoch_ReturnFalse() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(0, 10, 1);
+        instance.shouldStop(15, 0.1);
+
+        boolean result = instance.shouldStop(15, 100.0);
+
+        assertFalse(result);
+    }
+
+    @Test
+    public void testShouldStop_NaNPerformance_ReturnTrue() {
+        System.out.println("shouldStop");
+        MedianStoppingRule instance = new MedianStoppingRule(0, 10, 1);
+        instance.shouldStop(10, 0.1);
+
+        boolean result = instance.shouldStop(10, Double.NaN);
+
+        assertTrue(result);
+    }
+
+    /**
+     * Test of MedianStoppingRule constructor.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ZeroCheckPeriod_Throw() {
+        System.out.println("MedianStoppingRule");
+
+        new MedianStoppingRule(0, 0, 1);
+
+        fail("The test case must throw");
+    }
+}
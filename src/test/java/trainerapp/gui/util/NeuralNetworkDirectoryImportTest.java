@@ -0,0 +1,134 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import neuralnetwork.NeuralNetwork;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import trainerapp.gui.model.NamedNeuralNetwork;
+import trainerapp.gui.testutil.TestUtils;
+
+/**
+ * Test cases for NeuralNetworkDirectoryImport class
+ * @author Konstantin Zhdanov
+ */
+public class NeuralNetworkDirectoryImportTest {
+
+    private final File directory = new File("./networks_import");
+
+    public NeuralNetworkDirectoryImportTest() {
+    }
+
+    @Before
+    public void setUp() {
+        directory.mkdir();
+    }
+
+    @After
+    public void cleanUp() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private NeuralNetwork numberedNetwork(int nInputs, int hiddenSize, int nOutputs) {
+        NeuralNetwork nn = new NeuralNetwork(nInputs, new int[] {hiddenSize}, nOutputs);
+        for (int to = 0; to < hiddenSize; to++) {
+            for (int from = 0; from < nInputs; from++) {
+                nn.setWeight(0, from, to, from - to * 0.5);
+            }
+            nn.setBias(0, to, to);
+        }
+        for (int to = 0; to < nOutputs; to++) {
+            for (int from = 0; from < hiddenSize; from++) {
+                nn.setWeight(1, from, to, from * 0.25 + to);
+            }
+            nn.setBias(1, to, -to);
+        }
+        return nn;
+    }
+
+    private String path(String fileName) {
+        return new File(directory, fileName).getPath();
+    }
+
+    /**
+     * Test of run method, of class NeuralNetworkDirectoryImport.
+     */
+    @Test
+    public void testRun_BinaryAndTextFiles_AllLoadedInOrderOfNames() throws IOException {
+        System.out.println("run");
+        NeuralNetworkLoader loader = new NeuralNetworkLoader();
+        List<NeuralNetwork> networks = new ArrayList<>();
+        for (int idx = 0; idx < 6; idx++) {
+            NeuralNetwork nn = numberedNetwork(2 + idx, 3, 1 + idx % 2);
+            networks.add(nn);
+            if (idx % 2 == 0) {
+                loader.saveWithName(nn, "Binary " + idx, path("net" + idx + ".dat"));
+            }
+            else {
+                loader.saveWithNameAsText(nn, "Text " + idx, path("net" + idx + ".TXT"));
+            }
+        }
+        Files.write(new File(directory, "notes.csv").toPath(), 
+                "1,2\n".getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkDirectoryImport instance = new NeuralNetworkDirectoryImport(directory);
+        List<Double> progress = new ArrayList<>();
+
+        Map<File, NeuralNetwork> result = instance.run(progress::add);
+
+        assertEquals(6, result.size());
+        int idx = 0;
+        for (Map.Entry<File, NeuralNetwork> entry : result.entrySet()) {
+            assertTrue(entry.getKey().getName().startsWith("net" + idx + "."));
+            TestUtils.assertNNEquals(networks.get(idx), entry.getValue());
+            assertEquals((idx % 2 == 0 ? "Binary " : "Text ") + idx, 
+                    ((NamedNeuralNetwork)entry.getValue()).getName());
+            idx++;
+        }
+        assertEquals(1.0, progress.get(progress.size() - 1), 0.0);
+        assertTrue(instance.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testRun_BrokenFile_OtherFilesLoadedAndFailureReported() throws IOException {
+        System.out.println("run");
+        new NeuralNetworkLoader().saveWithName(numberedNetwork(2, 3, 1), "Good", path("good.dat"));
+        Files.write(new File(directory, "broken.txt").toPath(), 
+                "Broken\n2, 3, 1\n1 2\n".getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkDirectoryImport instance = new NeuralNetworkDirectoryImport(directory);
+
+        Map<File, NeuralNetwork> result = instance.run((progress) -> {});
+
+        assertEquals(1, result.size());
+        assertEquals(1, instance.getFailures().size());
+        assertEquals("broken.txt", 
+                instance.getFailures().keySet().iterator().next().getName());
+    }
+
+    @Test
+    public void testRun_NotADirectory_ThrowsIOException() {
+        System.out.println("run");
+        NeuralNetworkDirectoryImport instance = new NeuralNetworkDirectoryImport(
+                new File(directory, "missing"));
+        try {
+            instance.run((progress) -> {});
+            fail("The test case must throw");
+        }
+        catch (IOException e) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+import neuralnetwork.NeuralNetwork;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.NamedNeuralNetwork;
+
+/**
+ * Benchmark of the save time, the load time and the file size of
+ * the binary format of NeuralNetworkLoader against Java serialization of
+ * the same network.
+ * Run it as a Java application.
+ * @author Konstantin Zhdanov
+ */
+public class NeuralNetworkLoaderBenchmark {
+
+    private static final int N_ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        FlatNeuralNetwork flat = new FlatNeuralNetwork(256, new int[] {512, 512}, 16);
+        Random random = new Random(1);
+        for (int layer = 0; layer < flat.getNumberLayers(); layer++) {
+            double[] weights = flat.getWeights(layer);
+            for (int idx = 0; idx < weights.length; idx++) {
+                weights[idx] = random.nextGaussian() * 0.1;
+            }
+        }
+        NeuralNetwork network = flat.toNeuralNetwork();
+        File binaryFile = new File("./benchmark_network.dat");
+        File serializedFile = new File("./benchmark_network.ser");
+        NeuralNetworkLoader loader = new NeuralNetworkLoader();
+        try {
+            for (int round = 0; round < N_ROUNDS; round++) {
+                long start = System.nanoTime();
+                loader.saveWithName(network, "Benchmark", binaryFile.getPath());
+                long binarySave = System.nanoTime() - start;
+                start = System.nanoTime();
+                NeuralNetwork loaded = loader.load(binaryFile.getPath());
+                long binaryLoad = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                try (OutputStream out = new FileOutputStream(serializedFile);
+                        ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                    oos.writeObject(new NamedNeuralNetwork(network, "Benchmark"));
+                }
+                long serializedSave = System.nanoTime() - start;
+                start = System.nanoTime();
+                try (InputStream in = new FileInputStream(serializedFile);
+                        ObjectInputStream ois = new ObjectInputStream(in)) {
+                    loaded = (NeuralNetwork)ois.readObject();
+                }
+                long serializedLoad = System.nanoTime() - start;
+
+                System.out.printf(Locale.ROOT,
+                        "round %d: binary save %.2f ms, load %.2f ms, %d bytes; "
+                        + "serialized save %.2f ms, load %.2f ms, %d bytes (%d inputs)%n",
+                        round + 1, binarySave / 1e6, binaryLoad / 1e6, binaryFile.length(),
+                        serializedSave / 1e6, serializedLoad / 1e6, serializedFile.length(),
+                        loaded.getNumberInputs());
+            }
+        }
+        finally {
+            binaryFile.delete();
+            serializedFile.delete();
+        }
+    }
+}
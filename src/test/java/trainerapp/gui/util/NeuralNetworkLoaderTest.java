@@ -1,18 +1,28 @@
 package trainerapp.gui.util;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import neuralnetwork.NeuralNetwork;
 import org.hamcrest.CoreMatchers;
 import org.junit.After;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Before;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import trainerapp.gui.model.LazyNeuralNetwork;
 import trainerapp.gui.model.NamedNeuralNetwork;
+import trainerapp.gui.testutil.TestActivation;
 import trainerapp.gui.testutil.TestUtils;
 
 /**
@@ -78,6 +88,126 @@ public class NeuralNetworkLoaderTest {
         assertEquals(name, ((NamedNeuralNetwork)actualNN).getName());
     }
     
+    @Test
+    public void testSaveWithName_NonDefaultActivation_ActivationLoaded() {
+        System.out.println("saveWithName");
+        NeuralNetwork nn = numberedNetwork(new NeuralNetwork(3, new int[] {4}, 2, 
+                TestActivation.TANH));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(nn, "Tanh", fileName);
+        
+        NeuralNetwork actualNN = instance.load(fileName);
+        
+        assertSame(TestActivation.TANH, actualNN.getActivationFunction());
+        TestUtils.assertNNEquals(nn, actualNN);
+    }
+    
+    private NeuralNetwork numberedNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        return numberedNetwork(new NeuralNetwork(nInputs, hiddenSizes, nOutputs));
+    }
+    
+    private NeuralNetwork numberedNetwork(NeuralNetwork nn) {
+        int nInputs = nn.getNumberInputs();
+        int[] hiddenSizes = nn.getHiddenLayerSizes();
+        int nOutputs = nn.getNumberOutputs();
+        int prevSize = nInputs;
+        for (int layer = 0; layer <= hiddenSizes.length; layer++) {
+            int size = layer < hiddenSizes.length ? hiddenSizes[layer] : nOutputs;
+            for (int to = 0; to < size; to++) {
+                for (int from = 0; from < prevSize; from++) {
+                    nn.setWeight(layer, from, to, layer + from * 0.25 - to * 0.5);
+                }
+                nn.setBias(layer, to, -to - layer * 0.125);
+            }
+            prevSize = size;
+        }
+        return nn;
+    }
+    
+    /**
+     * Test of load method, of class NeuralNetworkLoader.
+     */
+    @Test
+    public void testLoad_SerializedFile_ReadNamedNetwork() throws IOException {
+        System.out.println("load");
+        NeuralNetwork nn = numberedNetwork(3, new int[] {4}, 2);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fileName))) {
+            out.writeObject(new NamedNeuralNetwork(nn, "Serialized"));
+        }
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        NeuralNetwork actualNN = instance.load(fileName);
+        
+        TestUtils.assertNNEquals(nn, actualNN);
+        assertEquals("Serialized", ((NamedNeuralNetwork)actualNN).getName());
+    }
+    
+    @Test
+    public void testLoad_MemoryMappedFile_ReadNamedNetwork() {
+        System.out.println("load");
+        NeuralNetwork nn = numberedNetwork(5, new int[] {7, 3}, 4);
+        NeuralNetworkLoader instance = new NeuralNetworkLoader(0);
+        instance.saveWithName(nn, "Mapped \u00e9", fileName);
+        
+        NeuralNetwork actualNN = instance.load(fileName);
+        
+        TestUtils.assertNNEquals(nn, actualNN);
+        assertEquals("Mapped \u00e9", ((NamedNeuralNetwork)actualNN).getName());
+    }
+    
+    @Test
+    public void testLoad_TruncatedBinaryFile_ThrowsIllegalArgumentException() throws IOException {
+        System.out.println("load");
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(numberedNetwork(3, new int[] {4}, 2), "Name", fileName);
+        byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+        Files.write(Paths.get(fileName), Arrays.copyOf(bytes, bytes.length - 8));
+        try {
+            instance.load(fileName);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
+    @Test
+    public void testLoad_FirstVersionFile_DefaultActivation() throws IOException {
+        System.out.println("load");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {1}, 1);
+        byte[] nameBytes = "Old".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(8 + 4 * 6 + nameBytes.length + 8 * 5).
+                order(ByteOrder.LITTLE_ENDIAN);
+        buf.put("NNMODEL\0".getBytes(StandardCharsets.US_ASCII));
+        buf.putInt(1).putInt(nameBytes.length).put(nameBytes);
+        buf.putInt(2).putInt(1).putInt(1).putInt(1);
+        buf.putDouble(nn.getWeight(0, 0, 0)).putDouble(nn.getWeight(0, 1, 0));
+        buf.putDouble(nn.getBias(0, 0));
+        buf.putDouble(nn.getWeight(1, 0, 0)).putDouble(nn.getBias(1, 0));
+        Files.write(Paths.get(fileName), buf.array());
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        NeuralNetwork actualNN = instance.load(fileName);
+        
+        TestUtils.assertNNEquals(nn, actualNN);
+        assertEquals("Old", ((NamedNeuralNetwork)actualNN).getName());
+    }
+    
+    @Test
+    public void testLoad_UnknownVersion_ThrowsIllegalArgumentException() throws IOException {
+        System.out.println("load");
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(numberedNetwork(3, new int[] {4}, 2), "Name", fileName);
+        byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+        bytes[8] = 99;
+        Files.write(Paths.get(fileName), bytes);
+        try {
+            instance.load(fileName);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+    
     /**
      * Test of saveWithNameAsText method, of class NeuralNetworkLoader.
      */
@@ -135,6 +265,48 @@ public class NeuralNetworkLoaderTest {
         }
     }
     
+    @Test
+    public void testSaveWithNameAsText_FlatNetwork_SameFileAsNeuralNetwork() throws IOException {
+        System.out.println("saveWithNameAsText");
+        NeuralNetwork nn = numberedNetwork(3, new int[] {4, 2}, 2);
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithNameAsText(nn, "Flat", fileName);
+        byte[] expected = Files.readAllBytes(Paths.get(fileName));
+        
+        instance.saveWithNameAsText(FlatNeuralNetwork.of(nn), "Flat", fileName);
+        
+        assertArrayEquals(expected, Files.readAllBytes(Paths.get(fileName)));
+    }
+    
+    @Test
+    public void testSaveWithNameAsText_LayersLargerThanChunk_SameBytesAsLayerStrings() throws IOException {
+        System.out.println("saveWithNameAsText");
+        int[] hiddenSizes = {3000, 7};
+        NeuralNetwork nn = numberedNetwork(4, hiddenSizes, 2);
+        StringBuilder expected = new StringBuilder("Wide\n4, 3000, 7, 2\n");
+        int prevSize = 4;
+        for (int layer = 0; layer <= hiddenSizes.length; layer++) {
+            int size = layer < hiddenSizes.length ? hiddenSizes[layer] : 2;
+            if (layer > 0) {
+                expected.append("\n");
+            }
+            for (int from = 0; from < prevSize; from++) {
+                for (int to = 0; to < size; to++) {
+                    expected.append(nn.getWeight(layer, from, to)).append(to < size - 1 ? " " : "\n");
+                }
+            }
+            for (int to = 0; to < size; to++) {
+                expected.append(nn.getBias(layer, to)).append(to < size - 1 ? " " : "");
+            }
+            prevSize = size;
+        }
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        instance.saveWithNameAsText(nn, "Wide", fileName);
+        
+        assertArrayEquals(expected.toString().getBytes(), Files.readAllBytes(Paths.get(fileName)));
+    }
+    
     @Test
     public void testLoadFromTextFile_CorrectFile_CorrectNamedNetworkCreated() {
         System.out.println("loadFromTextFile");
@@ -199,4 +371,216 @@ public class NeuralNetworkLoaderTest {
         TestUtils.assertArraysEqual(expectedWeights, weights);
         TestUtils.assertArraysEqual(expectedBiases, biases);
     }
+    
+    @Test
+    public void testLoadFromTextFile_CrLfLinesWithoutLastLineEnd_CorrectNetworkCreated() throws IOException {
+        System.out.println("loadFromTextFile");
+        Files.write(Paths.get(fileName), ("Name\r\n2, 1, 1\r\n1.5\r\n-2\r\n0.25\r\n3\r\n-1").
+                getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        NeuralNetwork nn = instance.loadFromTextFile(fileName);
+        
+        assertEquals("Name", ((NamedNeuralNetwork)nn).getName());
+        assertEquals(1.5, nn.getWeight(0, 0, 0), 0.0);
+        assertEquals(-2, nn.getWeight(0, 1, 0), 0.0);
+        assertEquals(0.25, nn.getBias(0, 0), 0.0);
+        assertEquals(3, nn.getWeight(1, 0, 0), 0.0);
+        assertEquals(-1, nn.getBias(1, 0), 0.0);
+    }
+    
+    @Test
+    public void testLoadFromTextFile_LinesLongerThanBuffer_SameNetworkAsSaved() {
+        System.out.println("loadFromTextFile");
+        NeuralNetwork nn = numberedNetwork(2, new int[] {80000}, 1);
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithNameAsText(nn, "Wide", fileName);
+        
+        NeuralNetwork actualNN = instance.loadFromTextFile(fileName);
+        
+        TestUtils.assertNNEquals(nn, actualNN);
+    }
+    
+    @Test
+    public void testLoadFromTextFile_WrongNumberOfWeights_LayerAndLineReported() throws IOException {
+        System.out.println("loadFromTextFile");
+        Files.write(Paths.get(fileName), "Name\n2, 1, 1\n1.5\n-2\n0.25\n3 4\n-1\n".
+                getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        try {
+            instance.loadFromTextFile(fileName);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), CoreMatchers.containsString("layer 2 at line 6"));
+        }
+    }
+    
+    @Test
+    public void testLoadFromTextFile_NotANumber_LayerAndLineReported() throws IOException {
+        System.out.println("loadFromTextFile");
+        Files.write(Paths.get(fileName), "2, 1, 1\n1.5\nx\n0.25\n3\n-1\n".
+                getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        try {
+            instance.loadFromTextFile(fileName);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), CoreMatchers.containsString("layer 1 at line 3"));
+        }
+    }
+    
+    /**
+     * Test of setOnProgress method, of class NeuralNetworkLoader.
+     */
+    @Test
+    public void testSetOnProgress_TextFileSavedAndLoaded_ProgressReachesOne() {
+        System.out.println("setOnProgress");
+        List<Double> progress = new ArrayList<>();
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.setOnProgress(progress::add);
+        
+        instance.saveWithNameAsText(numberedNetwork(3, new int[] {4, 5}, 2), "Name", fileName);
+        assertEquals(1.0, progress.get(progress.size() - 1), 0.0);
+        progress.clear();
+        instance.loadFromTextFile(fileName);
+        
+        assertEquals(1.0, progress.get(progress.size() - 1), 0.0);
+        for (int idx = 1; idx < progress.size(); idx++) {
+            assertTrue(progress.get(idx - 1) <= progress.get(idx));
+        }
+    }
+    
+    /**
+     * Test of cancel method, of class NeuralNetworkLoader.
+     */
+    @Test
+    public void testCancel_CanceledWhileSaving_FileUnchanged() throws IOException {
+        System.out.println("cancel");
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(numberedNetwork(3, new int[] {4}, 2), "Name", fileName);
+        byte[] expected = Files.readAllBytes(Paths.get(fileName));
+        instance.setOnProgress((progress) -> instance.cancel());
+        try {
+            instance.saveWithName(numberedNetwork(3, new int[] {4, 4}, 2), "Other", fileName);
+            fail("The test case must throw");
+        }
+        catch (CancellationException e) {
+        }
+        
+        assertArrayEquals(expected, Files.readAllBytes(Paths.get(fileName)));
+        assertFalse(new File(fileName + ".tmp").exists());
+    }
+    
+    @Test
+    public void testCancel_CanceledWhileLoadingText_ThrowsCancellationException() {
+        System.out.println("cancel");
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithNameAsText(numberedNetwork(3, new int[] {4}, 2), "Name", fileName);
+        instance.setOnProgress((progress) -> instance.cancel());
+        try {
+            instance.loadFromTextFile(fileName);
+            fail("The test case must throw");
+        }
+        catch (CancellationException e) {
+        }
+    }
+    
+    /**
+     * Test of loadLazily method, of class NeuralNetworkLoader.
+     */
+    @Test
+    public void testLoadLazily_BinaryFile_StructureReadWeightsLoadedOnAccess() {
+        System.out.println("loadLazily");
+        fileName = "./network.dat";
+        NeuralNetwork nn = numberedNetwork(5, new int[] {7, 3}, 4);
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(nn, "Lazy", fileName);
+        
+        NeuralNetwork actualNN = instance.loadLazily(fileName);
+        
+        assertTrue(actualNN instanceof LazyNeuralNetwork);
+        assertFalse(((LazyNeuralNetwork)actualNN).isLoaded());
+        assertEquals("Lazy", ((NamedNeuralNetwork)actualNN).getName());
+        assertEquals(nn.getSignature(), actualNN.getSignature());
+        TestUtils.assertNNEquals(nn, actualNN);
+        assertTrue(((LazyNeuralNetwork)actualNN).isLoaded());
+    }
+    
+    @Test
+    public void testLoadLazily_NonDefaultActivation_ActivationKnownWithoutLoading() {
+        System.out.println("loadLazily");
+        fileName = "./network.dat";
+        NeuralNetwork nn = numberedNetwork(new NeuralNetwork(3, new int[] {4}, 2, 
+                TestActivation.TANH));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(nn, "Tanh", fileName);
+        
+        NeuralNetwork actualNN = instance.loadLazily(fileName);
+        
+        assertSame(TestActivation.TANH, actualNN.getActivationFunction());
+        assertFalse(((LazyNeuralNetwork)actualNN).isLoaded());
+    }
+    
+    @Test
+    public void testLoadLazily_TextFile_StructureReadWeightsLoadedOnAccess() {
+        System.out.println("loadLazily");
+        NeuralNetwork nn = numberedNetwork(3, new int[] {4, 2}, 2);
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithNameAsText(nn, "Lazy text", fileName);
+        
+        NeuralNetwork actualNN = instance.loadLazily(fileName);
+        
+        assertFalse(((LazyNeuralNetwork)actualNN).isLoaded());
+        assertEquals("Lazy text", ((NamedNeuralNetwork)actualNN).getName());
+        assertArrayEquals(new int[] {4, 2}, actualNN.getHiddenLayerSizes());
+        TestUtils.assertNNEquals(nn, actualNN);
+    }
+    
+    @Test
+    public void testLoadLazily_TextFileWithoutName_NamedAsFile() throws IOException {
+        System.out.println("loadLazily");
+        Files.write(Paths.get(fileName), ("2, 1, 1\n1.5\n-2\n0.25\n3\n-1\n").
+                getBytes(StandardCharsets.US_ASCII));
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        NeuralNetwork nn = instance.loadLazily(fileName);
+        
+        assertEquals("network", ((NamedNeuralNetwork)nn).getName());
+        assertEquals(-2, nn.getWeight(0, 1, 0), 0.0);
+        assertEquals(-1, nn.getBias(1, 0), 0.0);
+    }
+    
+    @Test
+    public void testLoadLazily_SerializedFile_LoadedAtOnce() throws IOException {
+        System.out.println("loadLazily");
+        fileName = "./network.dat";
+        NeuralNetwork nn = numberedNetwork(3, new int[] {4}, 2);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fileName))) {
+            out.writeObject(new NamedNeuralNetwork(nn, "Serialized"));
+        }
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        
+        NeuralNetwork actualNN = instance.loadLazily(fileName);
+        
+        assertFalse(actualNN instanceof LazyNeuralNetwork);
+        TestUtils.assertNNEquals(nn, actualNN);
+    }
+    
+    @Test
+    public void testLoadLazily_TruncatedBinaryFile_ThrowsIllegalArgumentException() throws IOException {
+        System.out.println("loadLazily");
+        fileName = "./network.dat";
+        NeuralNetworkLoader instance = new NeuralNetworkLoader();
+        instance.saveWithName(numberedNetwork(3, new int[] {4}, 2), "Name", fileName);
+        byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+        Files.write(Paths.get(fileName), Arrays.copyOf(bytes, bytes.length - 8));
+        try {
+            instance.loadLazily(fileName);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
 }
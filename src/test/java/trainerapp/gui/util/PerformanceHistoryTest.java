@@ -0,0 +1,122 @@
+package trainerapp.gui.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for PerformanceHistory class
+ * @author Konstantin Zhdanov
+ */
+public class PerformanceHistoryTest {
+
+    private static final double DELTA = 1e-10;
+
+    public PerformanceHistoryTest() {
+    }
+
+    /**
+     * Test of add method, of class PerformanceHistory.
+     */
+    @Test
+    public void testAdd_MoreThanInitialCapacity_AllStored() {
+        System.out.println("add");
+        PerformanceHistory instance = new PerformanceHistory();
+
+        for (int epoch = 1; epoch <= 10000; epoch++) {
+            instance.add(epoch, 1.0 / epoch);
+        }
+
+        assertEquals(10000, instance.size());
+        assertEquals(10000, instance.getEpoch(9999));
+        assertEquals(1.0 / 5000, instance.getPerformance(4999), DELTA);
+    }
+
+    /**
+     * Test of getEpoch method, of class PerformanceHistory.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetEpoch_IndexOutOfRange_Throw() {
+        System.out.println("getEpoch");
+        PerformanceHistory instance = new PerformanceHistory();
+        instance.add(1, 0.5);
+
+        instance.getEpoch(1);
+
+        fail("The test case must throw");
+    }
+
+    /**
+     * Test of clear method, of class PerformanceHistory.
+     */
+    @Test
+    public void testClear_EpochsAdded_Empty() {
+        System.out.println("clear");
+        PerformanceHistory instance = new PerformanceHistory();
+        instance.add(1, 0.5);
+
+        instance.clear();
+
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of downsample method, of class PerformanceHistory.
+     */
+    @Test
+    public void testDownsample_FewerPointsThanMax_AllSelected() {
+        System.out.println("downsample");
+        PerformanceHistory instance = new PerformanceHistory();
+        for (int epoch = 1; epoch <= 5; epoch++) {
+            instance.add(epoch, epoch);
+        }
+
+        int[] result = instance.downsample(10);
+
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, result);
+    }
+
+    @Test
+    public void testDownsample_ManyPoints_MaxPointsInAscendingOrder() {
+        System.out.println("downsample");
+        PerformanceHistory instance = new PerformanceHistory();
+        for (int epoch = 1; epoch <= 1000; epoch++) {
+            instance.add(epoch, Math.sin(epoch / 50.0));
+        }
+
+        int[] result = instance.downsample(100);
+
+        assertEquals(100, result.length);
+        assertEquals(0, result[0]);
+        assertEquals(999, result[99]);
+        for (int i = 1; i < result.length; i++) {
+            assertTrue(result[i] > result[i - 1]);
+        }
+    }
+
+    @Test
+    public void testDownsample_SingleSpike_SpikeSelected() {
+        System.out.println("downsample");
+        PerformanceHistory instance = new PerformanceHistory();
+        for (int epoch = 1; epoch <= 1000; epoch++) {
+            instance.add(epoch, epoch == 500 ? 100.0 : 1.0);
+        }
+
+        int[] result = instance.downsample(10);
+
+        boolean spikeSelected = false;
+        for (int idx : result) {
+            spikeSelected |= idx == 499;
+        }
+        assertTrue(spikeSelected);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDownsample_TooFewPoints_Throw() {
+        System.out.println("downsample");
+        PerformanceHistory instance = new PerformanceHistory();
+
+        instance.downsample(2);
+
+        fail("The test case must throw");
+    }
+}
@@ -0,0 +1,190 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import trainerapp.gui.repository.PagedSamplesRepository;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for SamplesCacheFile class
+ * @author Konstantin Zhdanov
+ */
+public class SamplesCacheFileTest {
+
+    private static final double DELTA = 1e-10;
+
+    private final File source = new File("./samples.csv");
+
+    private SamplesCacheFile instance;
+
+    public SamplesCacheFileTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        Files.write(source.toPath(), "a,b\n1,2\n3,4\n".getBytes());
+        instance = new SamplesCacheFile(source);
+    }
+
+    @After
+    public void cleanUp() {
+        source.delete();
+        instance.getFile().delete();
+    }
+
+    private File[] temporaryFiles() {
+        String prefix = instance.getFile().getName() + ".";
+        return instance.getFile().getAbsoluteFile().getParentFile().listFiles(
+                (dir, name) -> name.startsWith(prefix) && name.endsWith(".tmp"));
+    }
+
+    private void writeCache(List<String> header, double[] values, int nSamples)
+            throws IOException {
+        try (SamplesCacheFile.Writer writer = instance.openWriter(source.length(),
+                source.lastModified(), header)) {
+            writer.write(values, 0, nSamples);
+            writer.commit();
+        }
+    }
+
+    /**
+     * Test of getFile method, of class SamplesCacheFile.
+     */
+    @Test
+    public void testGetFile_Called_ReturnFileNextToSource() {
+        System.out.println("getFile");
+
+        File result = instance.getFile();
+
+        assertEquals("samples.csv.nnsamples", result.getName());
+        assertEquals(source.getAbsoluteFile().getParentFile(), result.getParentFile());
+    }
+
+    /**
+     * Test of openReader method, of class SamplesCacheFile.
+     */
+    @Test
+    public void testOpenReader_CacheWritten_ReadSameSamples() throws IOException {
+        System.out.println("openReader");
+        List<String> header = Arrays.asList("a", "\u00e9t\u00e9");
+        writeCache(header, new double[] {1, 2, 3, -4.5}, 2);
+
+        try (SamplesCacheFile.Reader reader = instance.openReader()) {
+            assertNotNull(reader);
+            assertThat(reader.getHeader(), CoreMatchers.is(header));
+            assertEquals(2, reader.getSampleSize());
+            assertEquals(2, reader.getSampleCount());
+            double[] values = new double[5];
+            assertEquals(1, reader.read(values, 1, 1));
+            assertEquals(1, reader.read(values, 3, 5));
+            assertEquals(0, reader.read(values, 0, 5));
+            assertArrayEquals(new double[] {0, 1, 2, 3, -4.5}, values, DELTA);
+        }
+    }
+
+    @Test
+    public void testOpenReader_NoCache_ReturnNull() throws IOException {
+        System.out.println("openReader");
+
+        SamplesCacheFile.Reader result = instance.openReader();
+
+        assertNull(result);
+    }
+
+    @Test
+    public void testOpenReader_SourceChanged_ReturnNull() throws IOException {
+        System.out.println("openReader");
+        writeCache(Arrays.asList("a", "b"), new double[] {1, 2, 3, 4}, 2);
+        Files.write(source.toPath(), "a,b\n1,2\n3,4\n5,6\n".getBytes());
+
+        SamplesCacheFile.Reader result = instance.openReader();
+
+        assertNull(result);
+    }
+
+    @Test
+    public void testOpenReader_TruncatedCache_ReturnNull() throws IOException {
+        System.out.println("openReader");
+        writeCache(Arrays.asList("a", "b"), new double[] {1, 2, 3, 4}, 2);
+        try (RandomAccessFile file = new RandomAccessFile(instance.getFile(), "rw")) {
+            file.setLength(file.length() - 8);
+        }
+
+        SamplesCacheFile.Reader result = instance.openReader();
+
+        assertNull(result);
+    }
+
+    /**
+     * Test of openPagedRepository method, of class SamplesCacheFile.
+     */
+    @Test
+    public void testOpenPagedRepository_CacheWritten_SamplesReadFromCache()
+            throws IOException {
+        System.out.println("openPagedRepository");
+        writeCache(Arrays.asList("a", "b"), new double[] {1, 2, 3, -4.5}, 2);
+
+        try (PagedSamplesRepository result = instance.openPagedRepository()) {
+            assertEquals(2, result.size());
+            assertEquals(2, result.sampleSize());
+            assertThat(result.getHeader(), CoreMatchers.is(Arrays.asList("a", "b")));
+            assertEquals(-4.5, result.getValue(1, 1), DELTA);
+        }
+    }
+
+    /**
+     * Test of openWriter method, of class SamplesCacheFile.
+     */
+    @Test
+    public void testOpenWriter_NotCommitted_NoCacheCreated() throws IOException {
+        System.out.println("openWriter");
+
+        try (SamplesCacheFile.Writer writer = instance.openWriter(source.length(),
+                source.lastModified(), Arrays.asList("a", "b"))) {
+            writer.write(new double[] {1, 2}, 0, 1);
+        }
+
+        assertFalse(instance.getFile().exists());
+        assertEquals(0, temporaryFiles().length);
+    }
+
+    @Test
+    public void testOpenWriter_TwoWritersAtOnce_LastCommittedCacheRead() throws IOException {
+        System.out.println("openWriter");
+
+        try (SamplesCacheFile.Writer first = instance.openWriter(source.length(),
+                source.lastModified(), Arrays.asList("a", "b"));
+                SamplesCacheFile.Writer second = instance.openWriter(source.length(),
+                source.lastModified(), Arrays.asList("a", "b"))) {
+            first.write(new double[] {1, 2, 3, 4}, 0, 2);
+            second.write(new double[] {5, 6}, 0, 1);
+            first.commit();
+            second.commit();
+        }
+
+        try (SamplesCacheFile.Reader reader = instance.openReader()) {
+            assertEquals(1, reader.getSampleCount());
+            double[] values = new double[2];
+            assertEquals(1, reader.read(values, 0, 1));
+            assertArrayEquals(new double[] {5, 6}, values, 0.0);
+        }
+        assertEquals(0, temporaryFiles().length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOpenWriter_NullHeader_Throw() throws IOException {
+        System.out.println("openWriter");
+
+        instance.openWriter(0, 0, null);
+
+        fail("The test case must throw");
+    }
+}
@@ -0,0 +1,59 @@
+package trainerapp.gui.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+import trainerapp.gui.model.FlatNeuralNetwork;
+
+/**
+ * Benchmark of the allocation and the latency of one evaluation by
+ * SharedNeuralNetworkEvaluator. The bytes allocated by the benchmark thread
+ * are read from the HotSpot thread bean, so the number of bytes per call
+ * is exact and expected to be 0 once the code has been compiled.
+ * Run it as a Java application on a HotSpot JVM.
+ * @author Konstantin Zhdanov
+ */
+public class SharedNeuralNetworkEvaluatorBenchmark {
+
+    private static final int N_CALLS = 1000000;
+
+    private static final int N_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        FlatNeuralNetwork network = new FlatNeuralNetwork(16, new int[] {64, 32}, 4);
+        Random random = new Random(1);
+        for (int layer = 0; layer < network.getNumberLayers(); layer++) {
+            double[] weights = network.getWeights(layer);
+            for (int idx = 0; idx < weights.length; idx++) {
+                weights[idx] = random.nextGaussian() * 0.1;
+            }
+        }
+        SharedNeuralNetworkEvaluator evaluator = new SharedNeuralNetworkEvaluator(network);
+        SharedNeuralNetworkEvaluator.Workspace workspace = evaluator.createWorkspace();
+        double[] input = new double[16];
+        double[] output = new double[4];
+        for (int idx = 0; idx < input.length; idx++) {
+            input[idx] = random.nextDouble();
+        }
+
+        for (int round = 0; round < N_ROUNDS; round++) {
+            double sum = 0;
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int call = 0; call < N_CALLS; call++) {
+                input[call & 15] = call * 1e-6;
+                evaluator.evaluate(input, output, workspace);
+                sum += output[0];
+            }
+            long nanos = System.nanoTime() - start;
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            System.out.printf(Locale.ROOT,
+                    "round %d: %.1f ns/call, %.4f bytes/call (checksum %.3f)%n",
+                    round + 1, (double)nanos / N_CALLS, (double)allocated / N_CALLS, sum);
+        }
+    }
+}
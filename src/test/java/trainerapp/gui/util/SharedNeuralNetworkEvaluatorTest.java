@@ -0,0 +1,139 @@
+package trainerapp.gui.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import trainerapp.gui.model.FlatNeuralNetwork;
+import static trainerapp.gui.testutil.TestUtils.DELTA;
+
+/**
+ * Test cases for SharedNeuralNetworkEvaluator class
+ * @author Konstantin Zhdanov
+ */
+public class SharedNeuralNetworkEvaluatorTest {
+
+    private final Random random = new Random(5);
+
+    public SharedNeuralNetworkEvaluatorTest() {
+    }
+
+    private FlatNeuralNetwork randomNetwork(int nInputs, int[] hiddenSizes, int nOutputs) {
+        FlatNeuralNetwork network = new FlatNeuralNetwork(nInputs, hiddenSizes, nOutputs);
+        for (int layer = 0; layer < network.getNumberLayers(); layer++) {
+            double[] weights = network.getWeights(layer);
+            for (int idx = 0; idx < weights.length; idx++) {
+                weights[idx] = random.nextGaussian();
+            }
+            double[] biases = network.getBiases(layer);
+            for (int idx = 0; idx < biases.length; idx++) {
+                biases[idx] = random.nextGaussian();
+            }
+        }
+        return network;
+    }
+
+    /**
+     * Test of evaluate method, of class SharedNeuralNetworkEvaluator.
+     */
+    @Test
+    public void testEvaluate_Workspace_SameAsNetworkOutput() {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(3, new int[] {6, 4, 5}, 2);
+        SharedNeuralNetworkEvaluator instance = new SharedNeuralNetworkEvaluator(network);
+        SharedNeuralNetworkEvaluator.Workspace workspace = instance.createWorkspace();
+        double[] input = {0.3, -0.2, 0.9};
+        double[] output = new double[2];
+
+        instance.evaluate(input, output, workspace);
+
+        assertArrayEquals(network.getOutput(input), output, DELTA);
+        assertArrayEquals(new double[] {0.3, -0.2, 0.9}, input, 0.0);
+    }
+
+    @Test
+    public void testEvaluate_NetworkChangedAfterwards_OutputUnchanged() {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(2, new int[] {3}, 1);
+        double[] input = {0.5, 0.25};
+        double[] expected = network.getOutput(input);
+        SharedNeuralNetworkEvaluator instance = new SharedNeuralNetworkEvaluator(network);
+        network.setBias(1, 0, 100.0);
+        double[] output = new double[1];
+
+        instance.evaluate(input, output);
+
+        assertArrayEquals(expected, output, DELTA);
+    }
+
+    @Test
+    public void testEvaluate_SharedByThreads_SameAsNetworkOutput() throws Exception {
+        System.out.println("evaluate");
+        FlatNeuralNetwork network = randomNetwork(4, new int[] {8}, 3);
+        SharedNeuralNetworkEvaluator instance = new SharedNeuralNetworkEvaluator(network);
+        double[][] inputs = new double[1000][4];
+        for (double[] input : inputs) {
+            for (int idx = 0; idx < input.length; idx++) {
+                input[idx] = random.nextDouble();
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[][]>> results = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                results.add(executor.submit(() -> {
+                    SharedNeuralNetworkEvaluator.Workspace workspace =
+                            instance.createWorkspace();
+                    double[][] outputs = new double[inputs.length][3];
+                    for (int row = 0; row < inputs.length; row++) {
+                        instance.evaluate(inputs[row], outputs[row], workspace);
+                    }
+                    return outputs;
+                }));
+            }
+            for (Future<double[][]> result : results) {
+                double[][] outputs = result.get();
+                for (int row = 0; row < inputs.length; row++) {
+                    assertArrayEquals(network.getOutput(inputs[row]), outputs[row], DELTA);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEvaluate_WorkspaceOfSmallerNetwork_ThrowsIllegalArgumentException() {
+        System.out.println("evaluate");
+        SharedNeuralNetworkEvaluator instance = new SharedNeuralNetworkEvaluator(
+                randomNetwork(2, new int[] {10}, 1));
+        SharedNeuralNetworkEvaluator.Workspace workspace = new SharedNeuralNetworkEvaluator(
+                randomNetwork(2, new int[] {3}, 1)).createWorkspace();
+        try {
+            instance.evaluate(new double[2], new double[1], workspace);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testEvaluate_WrongOutputSize_ThrowsIllegalArgumentException() {
+        System.out.println("evaluate");
+        SharedNeuralNetworkEvaluator instance = new SharedNeuralNetworkEvaluator(
+                randomNetwork(2, new int[] {3}, 1));
+        try {
+            instance.evaluate(new double[2], new double[2]);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
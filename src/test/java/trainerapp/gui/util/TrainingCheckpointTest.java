@@ -0,0 +1,107 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import neuralnetwork.NeuralNetwork;
+import org.junit.After;
+import org.junit.Test;
+import trainerapp.gui.testutil.TestActivation;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for TrainingCheckpoint class
+ * @author Konstantin Zhdanov
+ */
+public class TrainingCheckpointTest {
+
+    private static final double DELTA = 0.0;
+
+    private final File file = new File("./checkpoint" + TrainingCheckpoint.EXTENSION);
+
+    public TrainingCheckpointTest() {
+    }
+
+    @After
+    public void cleanUp() {
+        file.delete();
+    }
+
+    private static NeuralNetwork createNetwork() {
+        NeuralNetwork network = new NeuralNetwork(2, new int[] {3}, 1);
+        network.setWeight(0, 1, 2, 0.5);
+        network.setWeight(1, 2, 0, -1.25);
+        network.setBias(0, 1, 0.75);
+        network.setBias(1, 0, 2.0);
+        return network;
+    }
+
+    /**
+     * Test of write and read methods, of class TrainingCheckpoint.
+     */
+    @Test
+    public void testRead_WrittenCheckpoint_SameCheckpoint() throws IOException {
+        System.out.println("read");
+        PerformanceHistory history = new PerformanceHistory();
+        history.add(1, 0.5);
+        history.add(2, 0.25);
+        new TrainingCheckpoint(createNetwork(), 2, 100, 0.01, history).write(file);
+
+        TrainingCheckpoint result = TrainingCheckpoint.read(file);
+
+        assertEquals(2, result.getEpoch());
+        assertEquals(100, result.getMaxEpoch());
+        assertEquals(0.01, result.getPerformanceGoal(), DELTA);
+        NeuralNetwork network = result.getNetwork();
+        assertEquals(2, network.getNumberInputs());
+        assertArrayEquals(new int[] {3}, network.getHiddenLayerSizes());
+        assertEquals(1, network.getNumberOutputs());
+        assertEquals(0.5, network.getWeight(0, 1, 2), DELTA);
+        assertEquals(-1.25, network.getWeight(1, 2, 0), DELTA);
+        assertEquals(0.75, network.getBias(0, 1), DELTA);
+        assertEquals(2.0, network.getBias(1, 0), DELTA);
+        assertEquals(2, result.getHistory().size());
+        assertEquals(2, result.getHistory().getEpoch(1));
+        assertEquals(0.25, result.getHistory().getPerformance(1), DELTA);
+    }
+
+    @Test
+    public void testRead_NonDefaultActivation_ActivationKept() throws IOException {
+        System.out.println("read");
+        NeuralNetwork network = new NeuralNetwork(2, new int[] {3}, 1, TestActivation.TANH);
+        new TrainingCheckpoint(network, 2, 100, 0.01, new PerformanceHistory()).write(file);
+
+        TrainingCheckpoint result = TrainingCheckpoint.read(file);
+
+        assertSame(TestActivation.TANH, result.getNetwork().getActivationFunction());
+    }
+
+    @Test
+    public void testWrite_ExistingCheckpoint_Replaced() throws IOException {
+        System.out.println("write");
+        new TrainingCheckpoint(createNetwork(), 2, 100, 0.01,
+                new PerformanceHistory()).write(file);
+
+        new TrainingCheckpoint(createNetwork(), 5, 100, 0.01,
+                new PerformanceHistory()).write(file);
+
+        assertEquals(5, TrainingCheckpoint.read(file).getEpoch());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testRead_NotCheckpointFile_ThrowsIllegalArgumentException()
+            throws IOException {
+        System.out.println("read");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write("1,2,3\n4,5,6\n".getBytes("US-ASCII"));
+        }
+        try {
+            TrainingCheckpoint.read(file);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import neuralnetwork.NeuralNetwork;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for TrainingCheckpointer class
+ * @author Konstantin Zhdanov
+ */
+public class TrainingCheckpointerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final File file = new File("./checkpoint" + TrainingCheckpoint.EXTENSION);
+
+    // a file standing where the checkpoint directory must be created
+    private final File notDirectory = new File("./checkpoint-not-directory");
+
+    public TrainingCheckpointerTest() {
+    }
+
+    @After
+    public void cleanUp() {
+        notDirectory.delete();
+    }
+
+    private TrainingCheckpointer createCheckpointer(int epochPeriod, int periodSeconds) {
+        return new TrainingCheckpointer(file, epochPeriod, periodSeconds, 0.01,
+                new CheckpointWriter(Runnable::run));
+    }
+
+    /**
+     * Test of constructor, of class TrainingCheckpointer.
+     */
+    @Test
+    public void testConstructor_NoPeriods_ThrowsIllegalArgumentException() {
+        System.out.println("TrainingCheckpointer");
+        try {
+            createCheckpointer(0, 0);
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Test of epochsUntilDue method, of class TrainingCheckpointer.
+     */
+    @Test
+    public void testEpochsUntilDue_EpochPeriod_EpochsToNextCheckpoint() {
+        System.out.println("epochsUntilDue");
+        TrainingCheckpointer instance = createCheckpointer(100, 0);
+        instance.start(20, 0);
+
+        int result = instance.epochsUntilDue(50, 0, Double.NaN);
+
+        assertEquals(70, result);
+    }
+
+    @Test
+    public void testEpochsUntilDue_TimePeriod_EpochsFittingRemainingTime() {
+        System.out.println("epochsUntilDue");
+        TrainingCheckpointer instance = createCheckpointer(0, 10);
+        instance.start(0, 0);
+
+        // 4 seconds left, 0.5 second per epoch
+        int result = instance.epochsUntilDue(12, 6 * SECOND, SECOND / 2.0);
+
+        assertEquals(8, result);
+    }
+
+    @Test
+    public void testEpochsUntilDue_BothPeriods_EarlierOfThem() {
+        System.out.println("epochsUntilDue");
+        TrainingCheckpointer instance = createCheckpointer(5, 10);
+        instance.start(0, 0);
+
+        int result = instance.epochsUntilDue(0, 0, SECOND / 10.0);
+
+        assertEquals(5, result);
+    }
+
+    @Test
+    public void testEpochsUntilDue_PeriodPassed_AtLeastOne() {
+        System.out.println("epochsUntilDue");
+        TrainingCheckpointer instance = createCheckpointer(0, 1);
+        instance.start(0, 0);
+
+        int result = instance.epochsUntilDue(10, 5 * SECOND, SECOND / 10.0);
+
+        assertEquals(1, result);
+    }
+
+    /**
+     * Test of isDue method, of class TrainingCheckpointer.
+     */
+    @Test
+    public void testIsDue_EpochPeriodPassed_True() {
+        System.out.println("isDue");
+        TrainingCheckpointer instance = createCheckpointer(10, 0);
+        instance.start(0, 0);
+
+        assertFalse(instance.isDue(9, 100 * SECOND));
+        assertTrue(instance.isDue(10, 0));
+    }
+
+    @Test
+    public void testIsDue_TimePeriodPassed_True() {
+        System.out.println("isDue");
+        TrainingCheckpointer instance = createCheckpointer(0, 10);
+        instance.start(0, 0);
+
+        assertFalse(instance.isDue(1000, 9 * SECOND));
+        assertTrue(instance.isDue(1, 10 * SECOND));
+    }
+
+    /**
+     * Test of checkpoint method, of class TrainingCheckpointer.
+     */
+    @Test
+    public void testCheckpoint_FileCannotBeWritten_FailureHandlerCalled() throws IOException {
+        System.out.println("checkpoint");
+        assertTrue(notDirectory.createNewFile());
+        TrainingCheckpointer instance = new TrainingCheckpointer(
+                new File(notDirectory, "checkpoint" + TrainingCheckpoint.EXTENSION),
+                10, 0, 0.01, new CheckpointWriter(Runnable::run));
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        instance.setOnFailure(failure::set);
+        instance.start(0, 0);
+
+        instance.checkpoint(10, 100, new NeuralNetwork(2, new int[] {3}, 1),
+                new PerformanceHistory(), 0);
+
+        assertNotNull(failure.get());
+    }
+}
@@ -0,0 +1,264 @@
+package trainerapp.gui.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.Listener;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import neuralnetwork.train.TrainerEvent;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for TrainingJob class
+ * @author Konstantin Zhdanov
+ */
+public class TrainingJobTest {
+
+    private static final int CHECK_PERIOD = 10;
+
+    private final double[][] inputs = {{0.0}};
+
+    private final double[][] targets = {{1.0}};
+
+    private final double[][] validationInputs = {{0.0}};
+
+    private final double[][] validationTargets = {{0.0}};
+
+    private final File checkpointFile = new File("./job" + TrainingCheckpoint.EXTENSION);
+
+    public TrainingJobTest() {
+    }
+
+    @After
+    public void cleanUp() {
+        checkpointFile.delete();
+    }
+
+    private static TrainerEvent event(int epoch, double performance) {
+        TrainerEvent event = mock(TrainerEvent.class);
+        when(event.getEpoch()).thenReturn(epoch);
+        when(event.getPerformance()).thenReturn(performance);
+        return event;
+    }
+
+    // trainer completing nCompleted epochs, its trained network outputs
+    // the next value of outputs
+    private static NeuralNetworkTrainer segmentTrainer(int nCompleted,
+            double output) {
+        NeuralNetworkTrainer trainer = mock(NeuralNetworkTrainer.class);
+        List<Listener> listeners = new ArrayList<>();
+        NeuralNetwork trained = new NeuralNetwork(1, new int[] {1}, 1);
+        trained.setBias(0, 0, output);
+        doAnswer((invocation) -> {
+            listeners.add((Listener)invocation.getArguments()[0]);
+            return null;
+        }).when(trainer).registerListener(any(Listener.class));
+        doAnswer((invocation) -> {
+            for (int epoch = 1; epoch <= nCompleted; epoch++) {
+                for (Listener listener : listeners) {
+                    listener.onTrainingEpochComplete(event(epoch, output));
+                }
+            }
+            for (Listener listener : listeners) {
+                listener.onTrainingComplete(event(nCompleted, output));
+            }
+            return null;
+        }).when(trainer).startTrain(any(NeuralNetwork.class), any(double[][].class),
+                any(double[][].class));
+        when(trainer.getTrainedNetwork()).thenReturn(trained);
+        return trainer;
+    }
+
+    // segments trained to the given validation outputs, the last segment
+    // may complete less epochs
+    private TrainingJob segmentedJob(int maxEpoch, int patience, int lastCompleted,
+            double... outputs) {
+        int[] nSegments = new int[1];
+        EarlyStopping earlyStopping = new EarlyStopping(validationInputs,
+                validationTargets, CHECK_PERIOD, patience, Runnable::run,
+                (network) -> (input) -> new double[] {network.getBias(0, 0)});
+        TrainingJob job = new TrainingJob("job", maxEpoch, (nEpochs) -> {
+                    int segment = nSegments[0]++;
+                    int nCompleted = segment == outputs.length - 1 ?
+                            lastCompleted : nEpochs;
+                    return segmentTrainer(nCompleted, outputs[segment]);
+                }, new NeuralNetwork(1, new int[] {1}, 1), inputs, targets);
+        job.setEarlyStopping(earlyStopping);
+        return job;
+    }
+
+    // segments complete all their epochs, checkpoints are written
+    // on the calling thread
+    private TrainingJob checkpointedJob(int maxEpoch, int epochPeriod) {
+        TrainingJob job = new TrainingJob("job", maxEpoch,
+                (nEpochs) -> segmentTrainer(nEpochs, 1.0),
+                new NeuralNetwork(1, new int[] {1}, 1), inputs, targets);
+        job.setCheckpointer(new TrainingCheckpointer(checkpointFile, epochPeriod, 0,
+                0.01, new CheckpointWriter(Runnable::run)));
+        return job;
+    }
+
+    /**
+     * Test of run method, of class TrainingJob.
+     */
+    @Test
+    public void testRun_ValidationErrorStopsImproving_StoppedWithBestNetwork() {
+        System.out.println("run");
+        TrainingJob instance = segmentedJob(1000, 2, CHECK_PERIOD, 3, 1, 2, 2, 0.5);
+
+        TrainingJob.State result = instance.run();
+
+        assertEquals(TrainingJob.State.COMPLETED, result);
+        assertEquals(4 * CHECK_PERIOD, instance.getLastEpoch());
+        assertEquals(1.0, instance.getTrainedNetwork().getBias(0, 0), 0.0);
+        assertEquals(2 * CHECK_PERIOD, instance.getEarlyStopping().getBestEpoch());
+    }
+
+    @Test
+    public void testRun_MaxEpochReached_AllSegmentsTrained() {
+        System.out.println("run");
+        TrainingJob instance = segmentedJob(25, 5, 5, 3, 2, 1);
+
+        TrainingJob.State result = instance.run();
+
+        assertEquals(TrainingJob.State.COMPLETED, result);
+        assertEquals(25, instance.getLastEpoch());
+        assertEquals(1.0, instance.getTrainedNetwork().getBias(0, 0), 0.0);
+    }
+
+    @Test
+    public void testRun_GoalReachedInSegment_NoMoreSegments() {
+        System.out.println("run");
+        TrainingJob instance = segmentedJob(1000, 5, 3, 3, 2);
+
+        TrainingJob.State result = instance.run();
+
+        assertEquals(TrainingJob.State.COMPLETED, result);
+        assertEquals(CHECK_PERIOD + 3, instance.getLastEpoch());
+        assertEquals(2.0, instance.getTrainedNetwork().getBias(0, 0), 0.0);
+    }
+
+    @Test
+    public void testRun_Segments_ListenersGetAllEpochsAndOneFinalEvent() {
+        System.out.println("run");
+        TrainingJob instance = segmentedJob(1000, 1, CHECK_PERIOD, 1, 2);
+        List<Integer> epochs = new ArrayList<>();
+        int[] nComplete = new int[1];
+        instance.addListener(new Listener() {
+            @Override public void onTrainingComplete(TrainerEvent event) {
+                nComplete[0]++;
+            }
+
+            @Override public void onTrainingCanceled(TrainerEvent event) {
+            }
+
+            @Override public void onTrainingEpochComplete(TrainerEvent event) {
+                epochs.add(instance.getEpochOffset() + event.getEpoch());
+            }
+        });
+
+        instance.run();
+
+        assertEquals(1, nComplete[0]);
+        assertEquals(2 * CHECK_PERIOD, epochs.size());
+        for (int i = 0; i < epochs.size(); i++) {
+            assertEquals(i + 1, (int)epochs.get(i));
+        }
+    }
+
+    @Test
+    public void testRun_Checkpointer_LastDueCheckpointWritten() throws IOException {
+        System.out.println("run");
+        TrainingJob instance = checkpointedJob(25, CHECK_PERIOD);
+
+        TrainingJob.State result = instance.run();
+
+        assertEquals(TrainingJob.State.COMPLETED, result);
+        assertEquals(25, instance.getLastEpoch());
+        TrainingCheckpoint checkpoint = TrainingCheckpoint.read(checkpointFile);
+        assertEquals(2 * CHECK_PERIOD, checkpoint.getEpoch());
+        assertEquals(25, checkpoint.getMaxEpoch());
+        assertEquals(0.01, checkpoint.getPerformanceGoal(), 0.0);
+        assertEquals(2 * CHECK_PERIOD, checkpoint.getHistory().size());
+        assertEquals(2 * CHECK_PERIOD, checkpoint.getHistory().getEpoch(2 * CHECK_PERIOD - 1));
+    }
+
+    @Test
+    public void testRun_StoppedWithCheckpointer_CheckpointOfStoppedEpoch()
+            throws IOException {
+        System.out.println("run");
+        TrainingJob instance = checkpointedJob(1000, 100);
+        instance.addListener(new Listener() {
+            @Override public void onTrainingComplete(TrainerEvent event) {
+            }
+
+            @Override public void onTrainingCanceled(TrainerEvent event) {
+            }
+
+            @Override public void onTrainingEpochComplete(TrainerEvent event) {
+                if (instance.getEpochOffset() + event.getEpoch() == 42) {
+                    instance.stop();
+                }
+            }
+        });
+
+        TrainingJob.State result = instance.run();
+
+        assertEquals(TrainingJob.State.CANCELED, result);
+        // the mocked trainer doesn't stop before the end of the segment
+        assertEquals(100, TrainingCheckpoint.read(checkpointFile).getEpoch());
+    }
+
+    /**
+     * Test of setCompletedEpochs method, of class TrainingJob.
+     */
+    @Test
+    public void testSetCompletedEpochs_Resumed_OnlyRemainingEpochsTrained() {
+        System.out.println("setCompletedEpochs");
+        List<Integer> segments = new ArrayList<>();
+        TrainingJob instance = new TrainingJob("job", 25, (nEpochs) -> {
+                    segments.add(nEpochs);
+                    return segmentTrainer(nEpochs, 1.0);
+                }, new NeuralNetwork(1, new int[] {1}, 1), inputs, targets);
+        PerformanceHistory history = new PerformanceHistory();
+        history.add(20, 0.5);
+
+        instance.setCompletedEpochs(20, history);
+        instance.run();
+
+        assertEquals(1, segments.size());
+        assertEquals(5, (int)segments.get(0));
+        assertEquals(25, instance.getLastEpoch());
+    }
+
+    @Test
+    public void testSetCompletedEpochs_AllEpochs_ThrowsIllegalArgumentException() {
+        System.out.println("setCompletedEpochs");
+        TrainingJob instance = checkpointedJob(25, CHECK_PERIOD);
+        try {
+            instance.setCompletedEpochs(25, new PerformanceHistory());
+            fail("The test case must throw");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testSetCompletedEpochs_NotSegmented_ThrowsIllegalStateException() {
+        System.out.println("setCompletedEpochs");
+        TrainingJob instance = new TrainingJob("job", 25, mock(NeuralNetworkTrainer.class),
+                new NeuralNetwork(1, new int[] {1}, 1), inputs, targets);
+        try {
+            instance.setCompletedEpochs(10, new PerformanceHistory());
+            fail("The test case must throw");
+        }
+        catch (IllegalStateException e) {
+        }
+    }
+}
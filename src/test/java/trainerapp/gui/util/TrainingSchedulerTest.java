@@ -0,0 +1,287 @@
+package trainerapp.gui.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import neuralnetwork.NeuralNetwork;
+import neuralnetwork.train.NeuralNetworkTrainer;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for TrainingScheduler class
+ * @author Konstantin Zhdanov
+ */
+public class TrainingSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final double[][] inputs = {{0.0}};
+
+    private final double[][] targets = {{1.0}};
+
+    private TrainingScheduler instance;
+
+    public TrainingSchedulerTest() {
+    }
+
+    @After
+    public void tearDown() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+    }
+
+    private TrainingScheduler createScheduler(int nWorkers) {
+        // the JavaFX updates are run on the calling thread
+        instance = new TrainingScheduler(nWorkers, Runnable::run);
+        return instance;
+    }
+
+    // job whose training doesn't finish until release is counted down
+    private TrainingJob blockingJob(String name, CountDownLatch release,
+            List<String> started) {
+        NeuralNetworkTrainer trainer = mock(NeuralNetworkTrainer.class);
+        NeuralNetwork network = mock(NeuralNetwork.class);
+        doAnswer((invocation) -> {
+            started.add(name);
+            return null;
+        }).when(trainer).startTrain(any(NeuralNetwork.class), any(double[][].class),
+                any(double[][].class));
+        when(trainer.getTrainedNetwork()).thenAnswer((invocation) -> {
+            release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return network;
+        });
+        doAnswer((invocation) -> {
+            release.countDown();
+            return null;
+        }).when(trainer).stopTraining();
+        return new TrainingJob(name, 10, trainer, network, inputs, targets);
+    }
+
+    private static void awaitFinished(TrainingJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!job.getState().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitState(TrainingJob job, TrainingJob.State state)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (job.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Test of submit method, of class TrainingScheduler.
+     */
+    @Test
+    public void testSubmit_OneJob_CompletedWithTrainedNetwork() throws InterruptedException {
+        System.out.println("submit");
+        TrainingScheduler scheduler = createScheduler(1);
+        CountDownLatch release = new CountDownLatch(0);
+        TrainingJob job = blockingJob("job", release, new CopyOnWriteArrayList<>());
+
+        scheduler.submit(job);
+        awaitFinished(job);
+
+        assertEquals(TrainingJob.State.COMPLETED, job.getState());
+        assertEquals(TrainingJob.State.COMPLETED, job.stateProperty().get());
+        assertSame(job.getNetwork(), job.getTrainedNetwork());
+        assertTrue(scheduler.getJobs().contains(job));
+    }
+
+    @Test
+    public void testSubmit_RemovedWhenFinished_NotListedAfterFinishing() throws InterruptedException {
+        System.out.println("submit");
+        TrainingScheduler scheduler = createScheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TrainingJob running = blockingJob("running", release, new CopyOnWriteArrayList<>());
+        TrainingJob queued = blockingJob("queued", release, new CopyOnWriteArrayList<>());
+        scheduler.submit(running, TrainingJob.NORMAL_PRIORITY, true);
+        scheduler.submit(queued, TrainingJob.NORMAL_PRIORITY, true);
+        awaitState(running, TrainingJob.State.RUNNING);
+
+        assertTrue(scheduler.getJobs().contains(queued));
+        scheduler.cancel(queued);
+        release.countDown();
+        // the job is removed after its state is published
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!scheduler.getJobs().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(TrainingJob.State.COMPLETED, running.getState());
+        assertTrue(scheduler.getJobs().isEmpty());
+    }
+
+    @Test
+    public void testSubmit_WorkerBusy_QueuedJobsStartedByPriority() throws InterruptedException {
+        System.out.println("submit");
+        TrainingScheduler scheduler = createScheduler(1);
+        List<String> started = new CopyOnWriteArrayList<>();
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseOthers = new CountDownLatch(0);
+        TrainingJob first = blockingJob("first", releaseFirst, started);
+        TrainingJob low = blockingJob("low", releaseOthers, started);
+        TrainingJob high = blockingJob("high", releaseOthers, started);
+        TrainingJob normal = blockingJob("normal", releaseOthers, started);
+        scheduler.submit(first);
+        awaitState(first, TrainingJob.State.RUNNING);
+
+        scheduler.submit(low, -1);
+        scheduler.submit(high, 5);
+        scheduler.submit(normal);
+        releaseFirst.countDown();
+        awaitFinished(low);
+
+        assertEquals(Arrays.asList("first", "high", "normal", "low"), started);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmit_SubmittedTwice_Throw() {
+        System.out.println("submit");
+        TrainingScheduler scheduler = createScheduler(1);
+        TrainingJob job = blockingJob("job", new CountDownLatch(0),
+                new CopyOnWriteArrayList<>());
+        scheduler.submit(job);
+
+        scheduler.submit(job);
+
+        fail("The test case must throw");
+    }
+
+    @Test
+    public void testSubmit_TrainerThrows_Failed() throws InterruptedException {
+        System.out.println("submit");
+        TrainingScheduler scheduler = createScheduler(1);
+        NeuralNetworkTrainer trainer = mock(NeuralNetworkTrainer.class);
+        doThrow(new IllegalArgumentException("Wrong samples")).when(trainer).
+                startTrain(any(NeuralNetwork.class), any(double[][].class),
+                        any(double[][].class));
+        TrainingJob job = new TrainingJob("job", 10, trainer,
+                mock(NeuralNetwork.class), inputs, targets);
+
+        scheduler.submit(job);
+        awaitFinished(job);
+
+        assertEquals(TrainingJob.State.FAILED, job.getState());
+        assertTrue(job.getFailure() instanceof IllegalArgumentException);
+    }
+
+    /**
+     * Test of cancel method, of class TrainingScheduler.
+     */
+    @Test
+    public void testCancel_QueuedJob_NeverStarted() throws InterruptedException {
+        System.out.println("cancel");
+        TrainingScheduler scheduler = createScheduler(1);
+        List<String> started = new CopyOnWriteArrayList<>();
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        TrainingJob first = blockingJob("first", releaseFirst, started);
+        TrainingJob queued = blockingJob("queued", new CountDownLatch(0), started);
+        TrainingJob last = blockingJob("last", new CountDownLatch(0), started);
+        scheduler.submit(first);
+        scheduler.submit(queued);
+        scheduler.submit(last);
+
+        boolean result = scheduler.cancel(queued);
+        releaseFirst.countDown();
+        awaitFinished(last);
+
+        assertTrue(result);
+        assertEquals(TrainingJob.State.CANCELED, queued.getState());
+        assertFalse(started.contains("queued"));
+        assertNull(queued.getTrainedNetwork());
+    }
+
+    @Test
+    public void testCancel_RunningJob_TrainerStopped() throws InterruptedException {
+        System.out.println("cancel");
+        TrainingScheduler scheduler = createScheduler(1);
+        TrainingJob job = blockingJob("job", new CountDownLatch(1),
+                new CopyOnWriteArrayList<>());
+        scheduler.submit(job);
+        awaitState(job, TrainingJob.State.RUNNING);
+
+        boolean result = scheduler.cancel(job);
+        awaitFinished(job);
+
+        assertTrue(result);
+        // the job stops the trainer again if it's canceled while starting it
+        verify(job.getTrainer(), atLeastOnce()).stopTraining();
+        assertEquals(TrainingJob.State.CANCELED, job.getState());
+    }
+
+    @Test
+    public void testCancel_FinishedJob_ReturnFalse() throws InterruptedException {
+        System.out.println("cancel");
+        TrainingScheduler scheduler = createScheduler(1);
+        TrainingJob job = blockingJob("job", new CountDownLatch(0),
+                new CopyOnWriteArrayList<>());
+        scheduler.submit(job);
+        awaitFinished(job);
+
+        boolean result = scheduler.cancel(job);
+
+        assertFalse(result);
+        assertEquals(TrainingJob.State.COMPLETED, job.getState());
+    }
+
+    /**
+     * Test of changePriority method, of class TrainingScheduler.
+     */
+    @Test
+    public void testChangePriority_QueuedJob_StartedFirst() throws InterruptedException {
+        System.out.println("changePriority");
+        TrainingScheduler scheduler = createScheduler(1);
+        List<String> started = new CopyOnWriteArrayList<>();
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseOthers = new CountDownLatch(0);
+        TrainingJob first = blockingJob("first", releaseFirst, started);
+        TrainingJob second = blockingJob("second", releaseOthers, started);
+        TrainingJob third = blockingJob("third", releaseOthers, started);
+        scheduler.submit(first);
+        awaitState(first, TrainingJob.State.RUNNING);
+        scheduler.submit(second);
+        scheduler.submit(third);
+
+        boolean result = scheduler.changePriority(third, 1);
+        releaseFirst.countDown();
+        awaitFinished(second);
+
+        assertTrue(result);
+        assertEquals(1, third.getPriority());
+        assertEquals(Arrays.asList("first", "third", "second"), started);
+    }
+
+    /**
+     * Test of removeFinishedJobs method, of class TrainingScheduler.
+     */
+    @Test
+    public void testRemoveFinishedJobs_OneFinished_OnlyUnfinishedLeft() throws InterruptedException {
+        System.out.println("removeFinishedJobs");
+        TrainingScheduler scheduler = createScheduler(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TrainingJob finished = blockingJob("finished", new CountDownLatch(0),
+                new CopyOnWriteArrayList<>());
+        TrainingJob running = blockingJob("running", release,
+                new CopyOnWriteArrayList<>());
+        scheduler.submit(finished);
+        awaitFinished(finished);
+        scheduler.submit(running);
+
+        scheduler.removeFinishedJobs();
+
+        assertEquals(1, scheduler.getJobs().size());
+        assertSame(running, scheduler.getJobs().get(0));
+        release.countDown();
+    }
+}